@@ -0,0 +1,216 @@
+/*
+ * Copyright 2019 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.sync
+
+import android.content.Context
+import androidx.room.Room
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.platform.app.InstrumentationRegistry
+import androidx.work.ListenableWorker
+import androidx.work.WorkerFactory
+import androidx.work.WorkerParameters
+import androidx.work.testing.TestListenableWorkerBuilder
+import io.plaidapp.core.data.CoroutinesDispatcherProvider
+import io.plaidapp.core.data.FeedLocalDataSource
+import io.plaidapp.core.data.FeedSnapshotDataSource
+import io.plaidapp.core.data.LoadSourcePageUseCase
+import io.plaidapp.core.data.SyncFeedUseCase
+import io.plaidapp.core.data.database.FeedDatabase
+import io.plaidapp.core.data.prefs.SourcesLocalDataSource
+import io.plaidapp.core.data.prefs.SourcesRepository
+import io.plaidapp.core.designernews.data.api.DesignerNewsService
+import io.plaidapp.core.designernews.data.stories.StoriesRemoteDataSource
+import io.plaidapp.core.designernews.data.stories.StoriesRepository
+import io.plaidapp.core.designernews.domain.LoadStoriesUseCase
+import io.plaidapp.core.designernews.domain.SearchStoriesUseCase
+import io.plaidapp.core.dribbble.data.DribbbleSourceItem
+import io.plaidapp.core.dribbble.data.ShotsRepository
+import io.plaidapp.core.dribbble.data.search.DribbbleSearchConverter
+import io.plaidapp.core.dribbble.data.search.DribbbleSearchService
+import io.plaidapp.core.dribbble.data.search.SearchRemoteDataSource
+import io.plaidapp.core.producthunt.data.ProductHuntRemoteDataSource
+import io.plaidapp.core.producthunt.data.api.ProductHuntRepository
+import io.plaidapp.core.producthunt.data.api.ProductHuntService
+import io.plaidapp.core.producthunt.domain.LoadPostsUseCase
+import java.io.File
+import kotlinx.coroutines.runBlocking
+import okhttp3.mockwebserver.Dispatcher
+import okhttp3.mockwebserver.MockResponse
+import okhttp3.mockwebserver.MockWebServer
+import okhttp3.mockwebserver.RecordedRequest
+import okio.Buffer
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import retrofit2.Retrofit
+
+/**
+ * Tests for [FeedSyncWorker] that run the sync against a local mock server, with an in memory
+ * database.
+ */
+@RunWith(AndroidJUnit4::class)
+class FeedSyncWorkerTest {
+
+    private val context = InstrumentationRegistry.getInstrumentation().targetContext
+    private val server = MockWebServer()
+    private val source = DribbbleSourceItem("material", true)
+    private val requestedPaths = mutableListOf<String>()
+    private var searchResponseCode = 200
+
+    private val database = Room.inMemoryDatabaseBuilder(context, FeedDatabase::class.java)
+        .allowMainThreadQueries()
+        .build()
+    private val feedLocalDataSource = FeedLocalDataSource(database.feedItemDao())
+
+    @Before
+    fun setup() {
+        server.dispatcher = object : Dispatcher() {
+            override fun dispatch(request: RecordedRequest): MockResponse {
+                val path = request.requestUrl!!.encodedPath
+                synchronized(requestedPaths) { requestedPaths += path }
+                return when (path) {
+                    "/search" -> MockResponse().setResponseCode(searchResponseCode)
+                        .setBody(searchResultsHtml())
+                    SHOT_IMAGE_PATH -> MockResponse().setBody(Buffer().write(ByteArray(64)))
+                    else -> MockResponse().setResponseCode(404)
+                }
+            }
+        }
+        server.start()
+    }
+
+    @After
+    fun tearDown() {
+        server.shutdown()
+        database.close()
+    }
+
+    @Test
+    fun doWork_storesFirstPage_andPrefetchesShotImages() = runBlocking {
+        // Given a server returning one shot for the active source
+        val worker = createWorker()
+
+        // When the sync runs
+        val result = worker.doWork()
+
+        // Then it succeeds
+        assertEquals(ListenableWorker.Result.success(), result)
+        // And the shot is stored
+        val stored = feedLocalDataSource.getItems(listOf(source.key))
+        assertEquals(listOf(SHOT_ID), stored.map { it.id })
+        // And its image was downloaded
+        assertTrue(SHOT_IMAGE_PATH in requestedPaths)
+    }
+
+    @Test
+    fun doWork_retries_whenServerFails() = runBlocking {
+        // Given a server failing to search
+        searchResponseCode = 500
+        val worker = createWorker()
+
+        // When the sync runs
+        val result = worker.doWork()
+
+        // Then it's retried later
+        assertEquals(ListenableWorker.Result.retry(), result)
+        // And nothing is stored
+        assertTrue(feedLocalDataSource.getItems(listOf(source.key)).isEmpty())
+    }
+
+    private fun createWorker(): FeedSyncWorker {
+        val syncFeed = createSyncFeedUseCase()
+        return TestListenableWorkerBuilder<FeedSyncWorker>(context)
+            .setWorkerFactory(object : WorkerFactory() {
+                override fun createWorker(
+                    appContext: Context,
+                    workerClassName: String,
+                    workerParameters: WorkerParameters
+                ) = FeedSyncWorker(
+                    appContext,
+                    workerParameters,
+                    syncFeed,
+                    CoroutinesDispatcherProvider()
+                )
+            })
+            .build() as FeedSyncWorker
+    }
+
+    private fun createSyncFeedUseCase(): SyncFeedUseCase {
+        val dispatcherProvider = CoroutinesDispatcherProvider()
+        val retrofit = Retrofit.Builder()
+            .baseUrl(server.url("/"))
+            .addConverterFactory(DribbbleSearchConverter.Factory())
+            .build()
+        val storiesRepository = StoriesRepository(
+            StoriesRemoteDataSource(retrofit.create(DesignerNewsService::class.java))
+        )
+        val productHuntRepository = ProductHuntRepository(
+            ProductHuntRemoteDataSource(retrofit.create(ProductHuntService::class.java)),
+            dispatcherProvider
+        )
+        val loadSourcePage = LoadSourcePageUseCase(
+            LoadStoriesUseCase(storiesRepository),
+            LoadPostsUseCase(productHuntRepository),
+            SearchStoriesUseCase(storiesRepository),
+            ShotsRepository(
+                SearchRemoteDataSource(retrofit.create(DribbbleSearchService::class.java))
+            )
+        )
+        val sourcesLocalDataSource = SourcesLocalDataSource(
+            database.sourceDao(),
+            context.getSharedPreferences("test", Context.MODE_PRIVATE)
+        ) { it.run() }
+        return SyncFeedUseCase(
+            SourcesRepository(listOf(source), sourcesLocalDataSource, dispatcherProvider),
+            loadSourcePage,
+            feedLocalDataSource,
+            FeedSnapshotDataSource(File(context.cacheDir, "test_feed_snapshot")),
+            dispatcherProvider
+        )
+    }
+
+    private fun searchResultsHtml() = """
+        <ol>
+          <li id="screenshot-$SHOT_ID">
+            <a class="dribbble-over">
+              <strong>Plaid</strong>
+              <span class="comment">Material design</span>
+              <em class="timestamp">June 1, 2019</em>
+            </a>
+            <img src="${server.url(SHOT_IMAGE_PATH)}"/>
+            <ul>
+              <li class="fav"><a>5</a></li>
+              <li class="views"><span>1,000</span></li>
+            </ul>
+            <h2>
+              <a class="url" href="/plaid">
+                <img class="photo" src="${server.url("/users/1/avatars/mini/plaid.png")}"/>
+                Plaid
+              </a>
+            </h2>
+          </li>
+        </ol>
+    """.trimIndent()
+
+    companion object {
+        private const val SHOT_ID = 42L
+        private const val SHOT_IMAGE_PATH = "/shot.png"
+    }
+}
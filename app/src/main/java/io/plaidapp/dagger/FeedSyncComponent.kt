@@ -0,0 +1,56 @@
+/*
+ * Copyright 2019 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.dagger
+
+import android.content.Context
+import dagger.BindsInstance
+import dagger.Component
+import io.plaidapp.core.dagger.CoreComponent
+import io.plaidapp.core.dagger.DataManagerModule
+import io.plaidapp.core.dagger.SharedPreferencesModule
+import io.plaidapp.core.dagger.SourcesRepositoryModule
+import io.plaidapp.core.dagger.dribbble.DribbbleDataModule
+import io.plaidapp.core.dagger.scope.FeatureScope
+import io.plaidapp.core.data.SyncFeedUseCase
+import io.plaidapp.sync.FeedSyncWorker
+
+/**
+ * Dagger component for the [FeedSyncWorker].
+ */
+@Component(
+    modules = [
+        DataManagerModule::class,
+        SourcesRepositoryModule::class,
+        DribbbleDataModule::class,
+        SharedPreferencesModule::class
+    ],
+    dependencies = [CoreComponent::class]
+)
+@FeatureScope
+interface FeedSyncComponent {
+
+    fun syncFeedUseCase(): SyncFeedUseCase
+
+    @Component.Builder
+    interface Builder {
+
+        fun build(): FeedSyncComponent
+        @BindsInstance fun context(context: Context): Builder
+        fun coreComponent(module: CoreComponent): Builder
+        fun sharedPreferencesModule(module: SharedPreferencesModule): Builder
+    }
+}
@@ -18,9 +18,11 @@
 
 package io.plaidapp.dagger
 
+import android.content.Context
 import io.plaidapp.core.dagger.SharedPreferencesModule
 import io.plaidapp.core.designernews.data.login.LoginLocalDataSource
 import io.plaidapp.ui.HomeActivity
+import io.plaidapp.ui.PlaidApplication
 import io.plaidapp.ui.coreComponent
 
 /**
@@ -36,3 +38,15 @@ fun inject(activity: HomeActivity) {
         .build()
         .inject(activity)
 }
+
+/**
+ * Creates the component for the feed sync, with the application [context].
+ */
+fun feedSyncComponent(context: Context): FeedSyncComponent =
+    DaggerFeedSyncComponent.builder()
+        .coreComponent(PlaidApplication.coreComponent(context))
+        .sharedPreferencesModule(
+            SharedPreferencesModule(context, LoginLocalDataSource.DESIGNER_NEWS_PREF)
+        )
+        .context(context)
+        .build()
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2019 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.sync
+
+import android.content.Context
+import android.graphics.drawable.Drawable
+import androidx.work.Constraints
+import androidx.work.CoroutineWorker
+import androidx.work.ExistingPeriodicWorkPolicy
+import androidx.work.NetworkType
+import androidx.work.PeriodicWorkRequestBuilder
+import androidx.work.WorkManager
+import androidx.work.WorkerParameters
+import com.bumptech.glide.request.target.CustomTarget
+import com.bumptech.glide.request.transition.Transition
+import io.plaidapp.R
+import io.plaidapp.core.data.CoroutinesDispatcherProvider
+import io.plaidapp.core.data.PlaidItem
+import io.plaidapp.core.data.Result as SyncResult
+import io.plaidapp.core.data.SyncFeedUseCase
+import io.plaidapp.core.dribbble.data.api.model.Shot
+import io.plaidapp.core.feed.ShotImageSizePolicy
+import io.plaidapp.core.util.glide.GlideApp
+import java.io.File
+import java.util.concurrent.TimeUnit
+import kotlin.coroutines.resume
+import kotlinx.coroutines.CancellableContinuation
+import kotlinx.coroutines.async
+import kotlinx.coroutines.awaitAll
+import kotlinx.coroutines.coroutineScope
+import kotlinx.coroutines.suspendCancellableCoroutine
+import kotlinx.coroutines.withContext
+
+/**
+ * Periodically refreshes the first page of the active sources while the device is charging and
+ * on an unmetered network, so the feed opens with fresh content. The images of the top shots are
+ * downloaded to Glide's disk cache, from which the feed loads them.
+ */
+class FeedSyncWorker(
+    context: Context,
+    params: WorkerParameters,
+    private val syncFeed: SyncFeedUseCase,
+    private val dispatcherProvider: CoroutinesDispatcherProvider
+) : CoroutineWorker(context, params) {
+
+    override suspend fun doWork(): Result {
+        return when (val result = syncFeed()) {
+            is SyncResult.Success -> {
+                prefetchShotImages(result.data)
+                Result.success()
+            }
+            is SyncResult.Error -> Result.retry()
+        }
+    }
+
+    private suspend fun prefetchShotImages(items: List<PlaidItem>) {
+        // download the images the feed will pick, for cells one column wide
+        val resources = applicationContext.resources
+        val cellWidth = resources.displayMetrics.widthPixels /
+            resources.getInteger(R.integer.num_columns)
+        coroutineScope {
+            items.filterIsInstance<Shot>()
+                .take(MAX_PREFETCHED_SHOTS)
+                .map { shot ->
+                    val image = ShotImageSizePolicy.select(shot.images, cellWidth, false)
+                    async { prefetch(image.url) }
+                }
+                .awaitAll()
+        }
+    }
+
+    /**
+     * Suspends until [url] is in Glide's disk cache, or failed to download. Cancelling the work
+     * stops the download.
+     */
+    private suspend fun prefetch(url: String) = withContext(dispatcherProvider.main) {
+        val requests = GlideApp.with(applicationContext)
+        val target = PrefetchTarget()
+        try {
+            suspendCancellableCoroutine<Unit> { continuation ->
+                target.continuation = continuation
+                requests.downloadOnly().load(url).into(target)
+            }
+        } finally {
+            requests.clear(target)
+        }
+    }
+
+    private class PrefetchTarget : CustomTarget<File>() {
+
+        var continuation: CancellableContinuation<Unit>? = null
+
+        override fun onResourceReady(resource: File, transition: Transition<in File>?) {
+            continuation?.resume(Unit)
+        }
+
+        override fun onLoadFailed(errorDrawable: Drawable?) {
+            // the shot will be loaded from the network when displayed
+            continuation?.resume(Unit)
+        }
+
+        override fun onLoadCleared(placeholder: Drawable?) {
+            // cleared by anything other than the worker, so don't wait for it
+            continuation?.takeIf { it.isActive }?.resume(Unit)
+        }
+    }
+
+    companion object {
+        const val MAX_PREFETCHED_SHOTS = 12
+
+        private const val WORK_NAME = "feed_sync"
+        private const val SYNC_INTERVAL_HOURS = 6L
+
+        /**
+         * Schedules the sync, unless it's already scheduled.
+         */
+        fun schedule(context: Context) {
+            val constraints = Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.UNMETERED)
+                .setRequiresCharging(true)
+                .build()
+            val request = PeriodicWorkRequestBuilder<FeedSyncWorker>(
+                SYNC_INTERVAL_HOURS,
+                TimeUnit.HOURS
+            ).setConstraints(constraints).build()
+            WorkManager.getInstance(context)
+                .enqueueUniquePeriodicWork(WORK_NAME, ExistingPeriodicWorkPolicy.KEEP, request)
+        }
+    }
+}
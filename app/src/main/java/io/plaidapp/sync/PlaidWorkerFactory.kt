@@ -0,0 +1,44 @@
+/*
+ * Copyright 2019 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.sync
+
+import android.content.Context
+import androidx.work.ListenableWorker
+import androidx.work.WorkerFactory
+import androidx.work.WorkerParameters
+import io.plaidapp.core.data.CoroutinesDispatcherProvider
+import io.plaidapp.dagger.feedSyncComponent
+
+/**
+ * Creates the app's workers with their dependencies.
+ */
+class PlaidWorkerFactory : WorkerFactory() {
+
+    override fun createWorker(
+        appContext: Context,
+        workerClassName: String,
+        workerParameters: WorkerParameters
+    ): ListenableWorker? = when (workerClassName) {
+        FeedSyncWorker::class.java.name -> FeedSyncWorker(
+            appContext,
+            workerParameters,
+            feedSyncComponent(appContext).syncFeedUseCase(),
+            CoroutinesDispatcherProvider()
+        )
+        else -> null
+    }
+}
@@ -32,6 +32,7 @@ import android.text.SpannedString
 import android.text.style.ForegroundColorSpan
 import android.text.style.ImageSpan
 import android.transition.TransitionManager
+import android.util.Log
 import android.view.Menu
 import android.view.MenuItem
 import android.view.View
@@ -56,13 +57,13 @@ import androidx.recyclerview.widget.GridLayoutManager
 import androidx.recyclerview.widget.ItemTouchHelper
 import androidx.recyclerview.widget.RecyclerView
 import com.bumptech.glide.integration.recyclerview.RecyclerViewPreloader
-import com.bumptech.glide.util.ViewPreloadSizeProvider
+import io.plaidapp.BuildConfig
 import io.plaidapp.R
 import io.plaidapp.core.dagger.qualifier.IsPocketInstalled
 import io.plaidapp.core.data.prefs.SourcesRepository
-import io.plaidapp.core.dribbble.data.api.model.Shot
 import io.plaidapp.core.feed.FeedAdapter
 import io.plaidapp.core.feed.FeedProgressUiModel
+import io.plaidapp.core.feed.FeedTitlePrecomputer
 import io.plaidapp.core.feed.FeedUiModel
 import io.plaidapp.core.ui.ConnectivityChecker
 import io.plaidapp.core.ui.HomeGridItemAnimator
@@ -74,9 +75,11 @@ import io.plaidapp.core.ui.recyclerview.InfiniteScrollListener
 import io.plaidapp.core.util.Activities
 import io.plaidapp.core.util.AnimUtils
 import io.plaidapp.core.util.ColorUtils
+import io.plaidapp.core.util.FrameTimeRecorder
 import io.plaidapp.core.util.ViewUtils
 import io.plaidapp.core.util.drawableToBitmap
 import io.plaidapp.core.util.event.Event
+import io.plaidapp.core.util.glide.GifPlaybackManager
 import io.plaidapp.core.util.intentTo
 import io.plaidapp.dagger.inject
 import io.plaidapp.ui.recyclerview.FilterTouchHelperCallback
@@ -100,6 +103,7 @@ class HomeActivity : AppCompatActivity() {
     private lateinit var loading: ProgressBar
     private lateinit var feedAdapter: FeedAdapter
     private lateinit var filtersList: RecyclerView
+    private var feedDrawnReported = false
 
     // data
     @Inject
@@ -164,6 +168,8 @@ class HomeActivity : AppCompatActivity() {
         findViewById<ViewStub>(R.id.stub_no_connection).inflate() as ImageView
     }
 
+    private val frameTimeRecorder = FrameTimeRecorder()
+
     private val toolbarElevation = object : RecyclerView.OnScrollListener() {
         override fun onScrollStateChanged(recyclerView: RecyclerView, newState: Int) {
             // we want the grid to scroll over the top of the toolbar but for the toolbar items
@@ -259,9 +265,17 @@ class HomeActivity : AppCompatActivity() {
             }
         })
 
-        viewModel.getFeed(columns).observe(this@HomeActivity, Observer<FeedUiModel> {
+        val titles = FeedTitlePrecomputer.forFeed(this@HomeActivity)
+        viewModel.getFeed(columns, titles).observe(this@HomeActivity, Observer<FeedUiModel> {
+            feedAdapter.titles = it.titles
             feedAdapter.items = it.items
             checkEmptyState()
+            if (it.items.isNotEmpty() && !feedDrawnReported) {
+                // the time to the first populated grid, whether it was restored from the feed
+                // store or loaded, is logged as "Fully drawn" and measured by benchmarks
+                feedDrawnReported = true
+                grid.post { reportFullyDrawn() }
+            }
         })
     }
 
@@ -295,11 +309,10 @@ class HomeActivity : AppCompatActivity() {
                 }
             }
 
-        val shotPreloadSizeProvider = ViewPreloadSizeProvider<Shot>()
         val shotPreloader = RecyclerViewPreloader(
             this@HomeActivity,
             feedAdapter,
-            shotPreloadSizeProvider,
+            feedAdapter,
             4
         )
 
@@ -365,6 +378,20 @@ class HomeActivity : AppCompatActivity() {
         drawer.setOnApplyWindowInsetsListener(null)
     }
 
+    override fun onResume() {
+        super.onResume()
+        frameTimeRecorder.start(window)
+    }
+
+    override fun onPause() {
+        frameTimeRecorder.stop(window)
+        if (BuildConfig.DEBUG) {
+            Log.d(TAG, "Frame times: $frameTimeRecorder")
+            Log.d(TAG, "GIFs: ${GifPlaybackManager.instance}")
+        }
+        super.onPause()
+    }
+
     override fun onActivityReenter(resultCode: Int, data: Intent?) {
         if (data == null || resultCode != Activity.RESULT_OK ||
             !data.hasExtra(Activities.Dribbble.Shot.RESULT_EXTRA_SHOT_ID)
@@ -647,6 +674,7 @@ class HomeActivity : AppCompatActivity() {
 
     companion object {
 
+        private const val TAG = "HomeActivity"
         private const val RC_SEARCH = 0
         private const val RC_NEW_DESIGNER_NEWS_LOGIN = 5
     }
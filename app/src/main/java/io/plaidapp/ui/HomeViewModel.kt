@@ -25,6 +25,7 @@ import androidx.lifecycle.viewModelScope
 import io.plaidapp.core.data.CoroutinesDispatcherProvider
 import io.plaidapp.core.data.DataLoadingSubject
 import io.plaidapp.core.data.DataManager
+import io.plaidapp.core.data.FeedSnapshot
 import io.plaidapp.core.data.OnDataLoadedCallback
 import io.plaidapp.core.data.PlaidItem
 import io.plaidapp.core.data.SourceItem
@@ -33,15 +34,16 @@ import io.plaidapp.core.designernews.data.DesignerNewsSearchSourceItem
 import io.plaidapp.core.designernews.data.login.LoginRepository
 import io.plaidapp.core.dribbble.data.DribbbleSourceItem
 import io.plaidapp.core.feed.FeedProgressUiModel
+import io.plaidapp.core.feed.FeedTitlePrecomputer
 import io.plaidapp.core.feed.FeedUiModel
 import io.plaidapp.core.ui.expandPopularItems
-import io.plaidapp.core.ui.filter.FiltersChangedCallback
 import io.plaidapp.core.ui.filter.SourceUiModel
 import io.plaidapp.core.ui.filter.SourcesHighlightUiModel
 import io.plaidapp.core.ui.filter.SourcesUiModel
 import io.plaidapp.core.ui.getPlaidItemsForDisplay
 import io.plaidapp.core.util.event.Event
 import java.util.Collections
+import kotlinx.coroutines.flow.collect
 import kotlinx.coroutines.launch
 
 /**
@@ -65,29 +67,28 @@ class HomeViewModel(
     val feedProgress: LiveData<FeedProgressUiModel>
         get() = _feedProgress
 
+    // only set on the main thread, so that its value is always the latest feed
     private val feedData = MutableLiveData<List<PlaidItem>>()
 
+    // data sources whose displayed items were restored from the feed store, not loaded
+    private val storedDataSources = Collections.synchronizedSet(mutableSetOf<String>())
+
+    // the feed snapshot restored on launch, whose items are already laid out
+    @Volatile
+    private var feedSnapshot: FeedSnapshot? = null
+
     private val onDataLoadedCallback = object : OnDataLoadedCallback<List<PlaidItem>> {
         override fun onDataLoaded(data: List<PlaidItem>) {
-            val oldItems = feedData.value.orEmpty()
-            updateFeedData(oldItems, data)
-        }
-    }
-    // listener for notifying adapter when data sources are deactivated
-    private val filtersChangedCallbacks = object : FiltersChangedCallback() {
-        override fun onFiltersChanged(changedFilter: SourceItem) {
-            if (!changedFilter.active) {
-                handleDataSourceRemoved(changedFilter.key, feedData.value.orEmpty())
+            viewModelScope.launch(dispatcherProvider.main) {
+                var oldItems = feedData.value.orEmpty()
+                // freshly loaded items replace the stored items of the same data source
+                val dataSource = data.firstOrNull()?.dataSource
+                if (dataSource != null && storedDataSources.remove(dataSource)) {
+                    oldItems = oldItems.filterNot { it.dataSource == dataSource }
+                }
+                updateFeedData(oldItems, data)
             }
         }
-
-        override fun onFilterRemoved(sourceKey: String) {
-            handleDataSourceRemoved(sourceKey, feedData.value.orEmpty())
-        }
-
-        override fun onFiltersUpdated(sources: List<SourceItem>) {
-            updateSourcesUiModel(sources)
-        }
     }
 
     private val dataLoadingCallbacks = object : DataLoadingSubject.DataLoadingCallbacks {
@@ -101,17 +102,29 @@ class HomeViewModel(
     }
 
     init {
-        sourcesRepository.registerFilterChangedCallback(filtersChangedCallbacks)
         dataManager.setOnDataLoadedCallback(onDataLoadedCallback)
         dataManager.registerCallback(dataLoadingCallbacks)
-        getSources()
+        observeSources()
+        loadStoredFeed()
         loadData()
     }
 
-    fun getFeed(columns: Int) = feedData.switchMap {
+    /**
+     * The feed laid out in [columns], with the titles of its items precomputed by [titles] if any.
+     */
+    fun getFeed(columns: Int, titles: FeedTitlePrecomputer? = null) = feedData.switchMap {
         liveData(viewModelScope.coroutineContext + dispatcherProvider.computation) {
-            expandPopularItems(it, columns)
-            emit(FeedUiModel(it))
+            // the grid's items can be opened however many others were loaded since
+            dataManager.retainDisplayedItems(this@HomeViewModel, it)
+            val snapshot = feedSnapshot
+            if (snapshot == null || it !== snapshot.items || columns != snapshot.columns) {
+                expandPopularItems(it, columns)
+                // only snapshot a feed whose items were all loaded during this launch
+                if (storedDataSources.isEmpty()) {
+                    dataManager.saveFeedSnapshot(it, columns)
+                }
+            }
+            emit(FeedUiModel(it, titles?.precompute(it).orEmpty()))
         }
     }
 
@@ -125,8 +138,22 @@ class HomeViewModel(
         dataManager.loadMore()
     }
 
+    private fun loadStoredFeed() = viewModelScope.launch(dispatcherProvider.main) {
+        // the snapshot is displayed as is, otherwise the stored items need sorting and laying out
+        val snapshot = dataManager.loadFeedSnapshot()
+        val storedItems = snapshot?.items ?: dataManager.loadStoredItems()
+        // only display the stored items if nothing was loaded from the network in the meantime;
+        // loaded items are applied on the main thread too, so they can't be pending here
+        if (storedItems.isNotEmpty() && feedData.value.isNullOrEmpty()) {
+            storedItems.mapNotNullTo(storedDataSources) { it.dataSource }
+            feedSnapshot = snapshot
+            feedData.value = snapshot?.items ?: getPlaidItemsForDisplay(emptyList(), storedItems)
+        }
+    }
+
     override fun onCleared() {
         dataManager.cancelLoading()
+        dataManager.releaseDisplayedItems(this)
         super.onCleared()
     }
 
@@ -146,9 +173,16 @@ class HomeViewModel(
         }
     }
 
-    private fun getSources() {
-        viewModelScope.launch(dispatcherProvider.io) {
-            val sources = sourcesRepository.getSources()
+    private fun observeSources() = viewModelScope.launch(dispatcherProvider.main) {
+        var activeSources: Set<String>? = null
+        sourcesRepository.sources.collect { sources ->
+            val newActiveSources = sources.filter { it.active }.mapTo(mutableSetOf()) { it.key }
+            // remove the items of the data sources deactivated or removed since the last snapshot
+            val deactivatedSources = activeSources.orEmpty() - newActiveSources
+            if (deactivatedSources.isNotEmpty()) {
+                handleDataSourcesRemoved(deactivatedSources, feedData.value.orEmpty())
+            }
+            activeSources = newActiveSources
             updateSourcesUiModel(sources)
         }
     }
@@ -206,15 +240,15 @@ class HomeViewModel(
     }
 
     private fun updateFeedData(oldItems: List<PlaidItem>, newItems: List<PlaidItem>) {
-        feedData.postValue(getPlaidItemsForDisplay(oldItems, newItems))
+        feedData.value = getPlaidItemsForDisplay(oldItems, newItems)
     }
 
-    private fun handleDataSourceRemoved(dataSourceKey: String, oldItems: List<PlaidItem>) {
+    private fun handleDataSourcesRemoved(dataSourceKeys: Set<String>, oldItems: List<PlaidItem>) {
         val items = oldItems.toMutableList()
         items.removeAll {
-            dataSourceKey == it.dataSource
+            it.dataSource in dataSourceKeys
         }
-        feedData.postValue(items)
+        feedData.value = items
     }
 
     private fun createNewSourceUiModels(sources: List<SourceItem>): List<SourceUiModel> {
@@ -228,10 +262,14 @@ class HomeViewModel(
                 it.active,
                 it.iconRes,
                 it.isSwipeDismissable,
-                { sourceUiModel -> sourcesRepository.changeSourceActiveState(sourceUiModel.key) },
+                { sourceUiModel ->
+                    viewModelScope.launch {
+                        sourcesRepository.changeSourceActiveState(sourceUiModel.key)
+                    }
+                },
                 { sourceUiModel ->
                     if (sourceUiModel.isSwipeDismissable) {
-                        sourcesRepository.removeSource(sourceUiModel.key)
+                        viewModelScope.launch { sourcesRepository.removeSource(sourceUiModel.key) }
                     }
                 }
             )
@@ -23,13 +23,16 @@ import androidx.appcompat.app.AppCompatDelegate.MODE_NIGHT_AUTO_BATTERY
 import androidx.appcompat.app.AppCompatDelegate.MODE_NIGHT_FOLLOW_SYSTEM
 import androidx.appcompat.app.AppCompatDelegate.setDefaultNightMode
 import androidx.core.os.BuildCompat
+import androidx.work.Configuration
 import io.plaidapp.core.dagger.CoreComponent
 import io.plaidapp.core.dagger.DaggerCoreComponent
+import io.plaidapp.sync.FeedSyncWorker
+import io.plaidapp.sync.PlaidWorkerFactory
 
 /**
  * Io and Behold
  */
-class PlaidApplication : Application() {
+class PlaidApplication : Application(), Configuration.Provider {
 
     override fun onCreate() {
         super.onCreate()
@@ -39,8 +42,14 @@ class PlaidApplication : Application() {
             MODE_NIGHT_AUTO_BATTERY
         }
         setDefaultNightMode(nightMode)
+        FeedSyncWorker.schedule(this)
     }
 
+    override fun getWorkManagerConfiguration(): Configuration =
+        Configuration.Builder()
+            .setWorkerFactory(PlaidWorkerFactory())
+            .build()
+
     private val coreComponent: CoreComponent by lazy {
         DaggerCoreComponent.create()
     }
@@ -19,6 +19,7 @@ package io.plaidapp.ui
 import androidx.arch.core.executor.testing.InstantTaskExecutorRule
 import com.nhaarman.mockitokotlin2.any
 import com.nhaarman.mockitokotlin2.capture
+import com.nhaarman.mockitokotlin2.doReturn
 import com.nhaarman.mockitokotlin2.mock
 import com.nhaarman.mockitokotlin2.never
 import com.nhaarman.mockitokotlin2.timeout
@@ -26,6 +27,7 @@ import com.nhaarman.mockitokotlin2.verify
 import com.nhaarman.mockitokotlin2.whenever
 import io.plaidapp.core.data.DataLoadingSubject
 import io.plaidapp.core.data.DataManager
+import io.plaidapp.core.data.FeedSnapshot
 import io.plaidapp.core.data.OnDataLoadedCallback
 import io.plaidapp.core.data.PlaidItem
 import io.plaidapp.core.data.SourceItem
@@ -34,7 +36,7 @@ import io.plaidapp.core.designernews.data.DesignerNewsSearchSourceItem
 import io.plaidapp.core.designernews.data.login.LoginRepository
 import io.plaidapp.core.dribbble.data.DribbbleSourceItem
 import io.plaidapp.core.feed.FeedProgressUiModel
-import io.plaidapp.core.ui.filter.FiltersChangedCallback
+import io.plaidapp.core.feed.FeedTitlePrecomputer
 import io.plaidapp.core.ui.filter.SourcesHighlightUiModel
 import io.plaidapp.designerNewsSource
 import io.plaidapp.designerNewsSourceUiModel
@@ -47,6 +49,8 @@ import io.plaidapp.test.shared.getOrAwaitValue
 import io.plaidapp.test.shared.provideFakeCoroutinesDispatcherProvider
 import io.plaidapp.test.shared.runBlocking
 import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.channels.ConflatedBroadcastChannel
+import kotlinx.coroutines.flow.asFlow
 import kotlinx.coroutines.runBlocking
 import org.junit.Assert.assertEquals
 import org.junit.Before
@@ -74,9 +78,7 @@ class HomeViewModelTest {
     private val dataManager: DataManager = mock()
     private val loginRepository: LoginRepository = mock()
     private val sourcesRepository: SourcesRepository = mock()
-
-    @Captor
-    private lateinit var filtersChangedCallback: ArgumentCaptor<FiltersChangedCallback>
+    private val sourcesChannel = ConflatedBroadcastChannel<List<SourceItem>>()
 
     @Captor
     private lateinit var dataLoadingCallback: ArgumentCaptor<DataLoadingSubject.DataLoadingCallbacks>
@@ -177,12 +179,9 @@ class HomeViewModelTest {
     fun filtersUpdated_newSources() {
         // Given a view model
         val homeViewModel = createViewModel()
-        verify(sourcesRepository).registerFilterChangedCallback(
-            capture(filtersChangedCallback)
-        )
 
         // When updating the filters to a new list of sources
-        filtersChangedCallback.value.onFiltersUpdated(listOf(designerNewsSource, dribbbleSource))
+        sourcesChannel.offer(listOf(designerNewsSource, dribbbleSource))
 
         // Then ui model sources are emitted
         val sources = homeViewModel.sources.getOrAwaitValue()
@@ -201,13 +200,10 @@ class HomeViewModelTest {
         // Given a view model
         val sources = mutableListOf<SourceItem>(designerNewsSource)
         val homeViewModel = createViewModel(sources)
-        verify(sourcesRepository).registerFilterChangedCallback(
-            capture(filtersChangedCallback)
-        )
 
         // When updating the filters
         sources.add(dribbbleSource)
-        filtersChangedCallback.value.onFiltersUpdated(sources)
+        sourcesChannel.offer(sources.toList())
 
         // Then ui model sources are emitted
         val sourcesUiModel = homeViewModel.sources.getOrAwaitValue()
@@ -222,14 +218,11 @@ class HomeViewModelTest {
     }
 
     @Test
-    fun sourceClicked_changesSourceActiveState() {
+    fun sourceClicked_changesSourceActiveState() = runBlocking {
         // Given a view model
         val homeViewModel = createViewModel()
-        verify(sourcesRepository).registerFilterChangedCallback(
-            capture(filtersChangedCallback)
-        )
         // Given that filters were updated
-        filtersChangedCallback.value.onFiltersUpdated(listOf(designerNewsSource))
+        sourcesChannel.offer(listOf(designerNewsSource))
         // Given that ui model sources are emitted
         val sources = homeViewModel.sources.getOrAwaitValue()
         val uiSource = sources.sourceUiModels[0]
@@ -242,14 +235,11 @@ class HomeViewModelTest {
     }
 
     @Test
-    fun sourceRemoved_swipeDismissable() {
+    fun sourceRemoved_swipeDismissable() = runBlocking {
         // Given a view model
         val homeViewModel = createViewModel()
-        verify(sourcesRepository).registerFilterChangedCallback(
-            capture(filtersChangedCallback)
-        )
         // Given that filters were updated
-        filtersChangedCallback.value.onFiltersUpdated(listOf(designerNewsSource))
+        sourcesChannel.offer(listOf(designerNewsSource))
         // Given that ui model sources are emitted
         val sources = homeViewModel.sources.getOrAwaitValue()
         val uiSource = sources.sourceUiModels[0]
@@ -262,14 +252,11 @@ class HomeViewModelTest {
     }
 
     @Test
-    fun sourceRemoved_notSwipeDismissable() {
+    fun sourceRemoved_notSwipeDismissable() = runBlocking {
         // Given a view model
         val homeViewModel = createViewModel()
-        verify(sourcesRepository).registerFilterChangedCallback(
-            capture(filtersChangedCallback)
-        )
         // Given that filters were updated
-        filtersChangedCallback.value.onFiltersUpdated(listOf(designerNewsSource))
+        sourcesChannel.offer(listOf(designerNewsSource))
         // Given that ui model sources are emitted
         val sources = homeViewModel.sources.getOrAwaitValue()
         val uiSource = sources.sourceUiModels[0]
@@ -285,12 +272,9 @@ class HomeViewModelTest {
     fun filtersRemoved() = coroutinesRule.runBlocking {
         // Given a view model with feed data
         val homeViewModel = createViewModelWithFeedData(listOf(post, shot, story))
-        verify(sourcesRepository).registerFilterChangedCallback(
-            capture(filtersChangedCallback)
-        )
 
         // When a source was removed
-        filtersChangedCallback.value.onFilterRemoved(dribbbleSource.key)
+        sourcesChannel.offer(emptyList())
 
         // Then feed emits a new list, without the removed filter
         val feed = homeViewModel.getFeed(columns).getOrAwaitValue()
@@ -301,14 +285,11 @@ class HomeViewModelTest {
     fun filtersChanged_activeSource() = coroutinesRule.runBlocking {
         // Given a view model with feed data
         val homeViewModel = createViewModelWithFeedData(listOf(post, shot, story))
-        verify(sourcesRepository).registerFilterChangedCallback(
-            capture(filtersChangedCallback)
-        )
         val initialFeed = homeViewModel.getFeed(columns).getOrAwaitValue()
 
         // When an active source was changed
         val activeSource = DribbbleSourceItem("dribbble", true)
-        filtersChangedCallback.value.onFiltersChanged(activeSource)
+        sourcesChannel.offer(listOf(activeSource))
 
         // Then feed didn't emit a new value
         val feed = homeViewModel.getFeed(columns).getOrAwaitValue()
@@ -319,13 +300,10 @@ class HomeViewModelTest {
     fun filtersChanged_inactiveSource() = coroutinesRule.runBlocking {
         // Given a view model with feed data
         val homeViewModel = createViewModelWithFeedData(listOf(post, shot, story))
-        verify(sourcesRepository).registerFilterChangedCallback(
-            capture(filtersChangedCallback)
-        )
 
         // When an inactive source was changed
         val inactiveSource = DribbbleSourceItem("dribbble", false)
-        filtersChangedCallback.value.onFiltersChanged(inactiveSource)
+        sourcesChannel.offer(listOf(inactiveSource))
 
         // Then feed emits a new list, without the removed filter
         val feed = homeViewModel.getFeed(columns).getOrAwaitValue()
@@ -383,10 +361,85 @@ class HomeViewModelTest {
         assertEquals(listOf(post, story, shot), feed.items)
     }
 
-    private fun createViewModelWithFeedData(feedData: List<PlaidItem>): HomeViewModel {
+    @Test
+    fun feed_emitsStoredItems_whenCreated() = coroutinesRule.runBlocking {
+        // Given items stored from a previous launch
+        // When creating a view model
+        val homeViewModel = createViewModel(storedItems = listOf(shot))
+
+        // Then feed emits the stored items
+        val feed = homeViewModel.getFeed(2).getOrAwaitValue()
+        assertEquals(listOf(shot), feed.items)
+    }
+
+    @Test
+    fun feed_replacesStoredItems_whenDataLoaded() = coroutinesRule.runBlocking {
+        // Given a view model displaying a story stored from a previous launch
+        val homeViewModel = createViewModel(storedItems = listOf(story))
+        verify(dataManager).setOnDataLoadedCallback(capture(dataLoadedCallback))
+
+        // When the same data source is loaded, with an updated story
+        val updatedStory = story.copy(voteCount = 10).apply { dataSource = story.dataSource }
+        dataLoadedCallback.value.onDataLoaded(listOf(updatedStory))
+
+        // Then feed emits only the loaded story
+        val feed = homeViewModel.getFeed(2).getOrAwaitValue()
+        assertEquals(listOf(updatedStory), feed.items)
+    }
+
+    @Test
+    fun feed_emitsSnapshotItems_whenCreated() = coroutinesRule.runBlocking {
+        // Given a snapshot of the feed displayed in a previous launch, laid out for 2 columns
+        val snapshotItems = listOf(story, shot).onEach { it.colspan = 1 }
+        val snapshot = FeedSnapshot(columns = 2, items = snapshotItems)
+
+        // When creating a view model
+        val homeViewModel = createViewModel(snapshot = snapshot)
+
+        // Then feed emits the snapshot items, in the same order and with the same spans
+        val feed = homeViewModel.getFeed(2).getOrAwaitValue()
+        assertEquals(listOf(story, shot), feed.items)
+        assertEquals(listOf(1, 1), feed.items.map { it.colspan })
+        // And the stored items aren't loaded
+        verify(dataManager, never()).loadStoredItems()
+    }
+
+    @Test
+    fun feed_savesSnapshot_whenDataLoaded() = coroutinesRule.runBlocking {
+        // Given a view model
         val homeViewModel = createViewModel()
         verify(dataManager).setOnDataLoadedCallback(capture(dataLoadedCallback))
 
+        // When data loaded and the feed displayed
+        dataLoadedCallback.value.onDataLoaded(listOf(post, shot, story))
+        val feed = homeViewModel.getFeed(2).getOrAwaitValue()
+
+        // Then the displayed feed is saved in the snapshot
+        verify(dataManager).saveFeedSnapshot(feed.items, 2)
+    }
+
+    @Test
+    fun feed_emitsPrecomputedTitles() = coroutinesRule.runBlocking {
+        // Given a view model with loaded data
+        val homeViewModel = createViewModelWithFeedData(listOf(post, shot, story))
+        // And titles precomputed for the feed
+        val titles = mapOf<PlaidItem, CharSequence>(post to "post title", story to "story title")
+        val precomputer: FeedTitlePrecomputer = mock {
+            on { precompute(any()) } doReturn titles
+        }
+
+        // When the feed is displayed
+        val feed = homeViewModel.getFeed(2, precomputer).getOrAwaitValue()
+
+        // Then the feed holds the precomputed titles of its items
+        verify(precomputer).precompute(feed.items)
+        assertEquals(titles, feed.titles)
+    }
+
+    private fun createViewModelWithFeedData(feedData: List<PlaidItem>): HomeViewModel {
+        val homeViewModel = createViewModel(listOf(dribbbleSource))
+        verify(dataManager).setOnDataLoadedCallback(capture(dataLoadedCallback))
+
         // When data loaded return feedData
         dataLoadedCallback.value.onDataLoaded(feedData)
 
@@ -394,9 +447,14 @@ class HomeViewModelTest {
     }
 
     private fun createViewModel(
-        list: List<SourceItem> = emptyList()
+        list: List<SourceItem> = emptyList(),
+        storedItems: List<PlaidItem> = emptyList(),
+        snapshot: FeedSnapshot? = null
     ): HomeViewModel {
-        runBlocking { whenever(sourcesRepository.getSources()).thenReturn(list) }
+        sourcesChannel.offer(list.toList())
+        whenever(sourcesRepository.sources).thenReturn(sourcesChannel.asFlow())
+        runBlocking { whenever(dataManager.loadStoredItems()).thenReturn(storedItems) }
+        runBlocking { whenever(dataManager.loadFeedSnapshot()).thenReturn(snapshot) }
         return HomeViewModel(
             dataManager,
             loginRepository,
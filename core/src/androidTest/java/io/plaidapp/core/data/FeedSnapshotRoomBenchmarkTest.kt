@@ -0,0 +1,142 @@
+/*
+ * Copyright 2019 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.core.data
+
+import androidx.room.Room
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.platform.app.InstrumentationRegistry
+import io.plaidapp.core.data.database.FeedDatabase
+import io.plaidapp.core.designernews.data.stories.model.Story
+import io.plaidapp.core.designernews.data.stories.model.StoryLinks
+import io.plaidapp.core.dribbble.data.api.model.Images
+import io.plaidapp.core.dribbble.data.api.model.Shot
+import io.plaidapp.core.dribbble.data.api.model.User
+import java.io.File
+import java.util.Date
+import kotlinx.coroutines.runBlocking
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Times restoring the same feed on device from a memory mapped [FeedSnapshot] file and from the
+ * database, through [FeedLocalDataSource], and reports both.
+ */
+@RunWith(AndroidJUnit4::class)
+class FeedSnapshotRoomBenchmarkTest {
+
+    private val context = InstrumentationRegistry.getInstrumentation().targetContext
+    private val database = Room.inMemoryDatabaseBuilder(context, FeedDatabase::class.java).build()
+    private val snapshotFile = File(context.cacheDir, "benchmark_feed_snapshot")
+
+    private val user = User(
+        id = 1L,
+        name = "Nick Butcher",
+        username = "nickbutcher",
+        avatarUrl = "www.prettyplaid.nb"
+    )
+
+    @After
+    fun tearDown() {
+        database.close()
+        snapshotFile.delete()
+    }
+
+    @Test
+    fun restore_snapshotAndRoom() = runBlocking {
+        // Given the feed as a snapshot and stored in the database
+        val feed = (0 until FeedSnapshotDataSource.MAX_SNAPSHOT_ITEMS).map { item(it) }
+        val snapshotDataSource = FeedSnapshotDataSource(snapshotFile)
+        snapshotDataSource.write(feed, 2)
+        val localDataSource = FeedLocalDataSource(database.feedItemDao())
+        val dataSources = feed.groupBy { it.dataSource!! }
+        dataSources.forEach { (dataSource, items) ->
+            localDataSource.savePage(dataSource, 1, items)
+        }
+
+        // When restoring the feed from each, many times
+        var fromSnapshot = emptyList<PlaidItem>()
+        val snapshotMicros = measureMicrosPerRestore {
+            fromSnapshot = snapshotDataSource.read()!!.items
+        }
+        var fromRoom = emptyList<PlaidItem>()
+        val roomMicros = measureMicrosPerRestore {
+            fromRoom = localDataSource.getItems(dataSources.keys.toList())
+        }
+        println(
+            "Restoring ${feed.size} feed items: snapshot %.1f µs, Room %.1f µs"
+                .format(snapshotMicros, roomMicros)
+        )
+
+        // Then both restore the same items
+        assertEquals(feed.map { it.id }, fromSnapshot.map { it.id })
+        assertEquals(feed.map { it.id }.sorted(), fromRoom.map { it.id }.sorted())
+    }
+
+    private inline fun measureMicrosPerRestore(restore: () -> Unit): Double {
+        repeat(WARM_UP_ITERATIONS) { restore() }
+        val start = System.nanoTime()
+        repeat(ITERATIONS) { restore() }
+        return (System.nanoTime() - start) / 1000.0 / ITERATIONS
+    }
+
+    private fun item(index: Int): PlaidItem {
+        val id = index.toLong()
+        val createdAt = Date(1549900800000L + index * 60_000L)
+        return if (index % 2 == 0) {
+            Shot(
+                id = id,
+                title = "Plaid shot $index",
+                page = 1,
+                description = "<p>A shot of the <a href=\"https://plaid.app\">Plaid</a> app</p>",
+                images = Images(
+                    hidpi = "$SCREENSHOTS/$index/plaid.png",
+                    normal = "$SCREENSHOTS/$index/plaid_1x.png",
+                    teaser = "$SCREENSHOTS/$index/plaid_teaser.png"
+                ),
+                viewsCount = index * 100,
+                likesCount = index * 10,
+                createdAt = createdAt,
+                user = user
+            ).apply { dataSource = "shots" }
+        } else {
+            Story(
+                id = id,
+                title = "Plaid story $index",
+                page = 1,
+                commentHtml = "<p>Plaid is a showcase of <em>material design</em></p>",
+                commentCount = index,
+                voteCount = index * 2,
+                userId = 5L,
+                createdAt = createdAt,
+                links = StoryLinks(
+                    user = 5L,
+                    comments = (0L until 10L).map { id * 100 + it },
+                    upvotes = (0L until 5L).toList(),
+                    downvotes = emptyList()
+                )
+            ).apply { dataSource = "stories" }
+        }
+    }
+
+    companion object {
+        private const val WARM_UP_ITERATIONS = 50
+        private const val ITERATIONS = 200
+        private const val SCREENSHOTS = "https://cdn.dribbble.com/users/6295/screenshots"
+    }
+}
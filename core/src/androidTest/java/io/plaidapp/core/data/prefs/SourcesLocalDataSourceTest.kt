@@ -17,85 +17,121 @@
 package io.plaidapp.core.data.prefs
 
 import android.content.Context
+import androidx.core.content.edit
+import androidx.room.Room
+import androidx.test.ext.junit.runners.AndroidJUnit4
 import androidx.test.platform.app.InstrumentationRegistry
+import io.plaidapp.core.data.database.FeedDatabase
+import io.plaidapp.core.data.database.StoredSource
 import org.junit.After
 import org.junit.Assert.assertEquals
 import org.junit.Assert.assertFalse
-import org.junit.Assert.assertNotNull
-import org.junit.Assert.assertNull
 import org.junit.Assert.assertTrue
 import org.junit.Test
+import org.junit.runner.RunWith
 
 /**
- * Tests for [SourcesLocalDataSource] using device Shared Preferences.
+ * Tests for [SourcesLocalDataSource] using an in memory database and device Shared Preferences.
  */
+@RunWith(AndroidJUnit4::class)
 class SourcesLocalDataSourceTest {
 
     private val dnSource = "DN"
-
-    private val sharedPreferences = InstrumentationRegistry.getInstrumentation().context
-            .getSharedPreferences("test", Context.MODE_PRIVATE)
-
-    private val dataSource = SourcesLocalDataSource(sharedPreferences)
+    private val dribbbleSource = "DRIBBBLE_QUERY_dribbble"
+    private val twoSources = listOf(
+        StoredSource(dnSource, false),
+        StoredSource(dribbbleSource, true)
+    )
+
+    private val context = InstrumentationRegistry.getInstrumentation().context
+    private val sharedPreferences = context.getSharedPreferences("test", Context.MODE_PRIVATE)
+    private val database = Room.inMemoryDatabaseBuilder(context, FeedDatabase::class.java)
+        .allowMainThreadQueries()
+        .build()
+
+    // run the writes straight away, so they can be checked
+    private val dataSource = SourcesLocalDataSource(
+        database.sourceDao(),
+        sharedPreferences
+    ) { it.run() }
 
     @After
     fun tearDown() {
+        database.close()
         // cleanup the shared preferences after every test
         sharedPreferences.edit().clear().commit()
     }
 
     @Test
-    fun getKeys_returnsNullIfNothingWasAdded() {
+    fun getSources_returnsEmptyIfNothingWasAdded() {
         // Given that we haven't saved any source
 
-        // When getting the keys
-        val sources = dataSource.getKeys()
+        // When getting the sources
+        val sources = dataSource.getSources()
 
-        // The set of keys is null
-        assertNull(sources)
+        // The list of sources is empty
+        assertTrue(sources.isEmpty())
     }
 
     @Test
-    fun addedSource_canBeRetrieved() {
-        // Given a source key
-        // When adding a source
-        dataSource.addSource(dnSource, false)
-
-        // The key can be retrieved
-        val key = dataSource.getKeys()
-        assertEquals(setOf(dnSource), key)
-        // And the active state is the correct one
-        val active = dataSource.getSourceActiveState(dnSource)
-        assertFalse(active)
+    fun addedSources_canBeRetrieved() {
+        // Given source keys
+        // When adding sources
+        dataSource.addSources(twoSources)
+
+        // The sources can be retrieved, with their active state
+        val sources = dataSource.getSources()
+        assertEquals(twoSources.toSet(), sources.toSet())
     }
 
     @Test
     fun updateSource() {
         // Given a source saved
-        dataSource.addSource(dnSource, true)
+        dataSource.addSources(listOf(StoredSource(dnSource, true)))
 
         // When updating the source
         dataSource.updateSource(dnSource, false)
 
         // Then the source active state was updated
-        val active = dataSource.getSourceActiveState(dnSource)
-        assertFalse(active)
+        assertEquals(listOf(StoredSource(dnSource, false)), dataSource.getSources())
     }
 
     @Test
-    fun removeSource() {
-        // Given a source saved
-        dataSource.addSource(dnSource, false)
+    fun removeSources() {
+        // Given sources saved
+        dataSource.addSources(twoSources)
 
         // When removing a source
-        dataSource.removeSource(dnSource)
-
-        // Then the key can't be retrieved
-        val sources = dataSource.getKeys()
-        assertNotNull(sources)
-        assertTrue(sources!!.isEmpty())
-        // Then the active state is false
-        val active = dataSource.getSourceActiveState(dnSource)
-        assertFalse(active)
+        dataSource.removeSources(listOf(dnSource))
+
+        // Then only the other source can be retrieved
+        assertEquals(listOf(StoredSource(dribbbleSource, true)), dataSource.getSources())
+    }
+
+    @Test
+    fun getSources_migratesSourcesFromPreferences() {
+        // Given sources saved in preferences by a previous version, including deprecated ones
+        sharedPreferences.edit(commit = true) {
+            putStringSet(
+                "KEY_SOURCES",
+                setOf(dnSource, dribbbleSource, "SOURCE_DESIGNER_NEWS_RECENT", "SOURCE_DRIBBBLE_q")
+            )
+            putBoolean(dnSource, true)
+            putBoolean(dribbbleSource, false)
+            putBoolean("SOURCE_DESIGNER_NEWS_RECENT", true)
+        }
+
+        // When getting the sources
+        val sources = dataSource.getSources()
+
+        // Then the sources are moved to the database, without the deprecated ones
+        assertEquals(
+            setOf(StoredSource(dnSource, true), StoredSource(dribbbleSource, false)),
+            sources.toSet()
+        )
+        assertEquals(sources.toSet(), database.sourceDao().getSources().toSet())
+        // And the preferences are cleared
+        assertFalse(sharedPreferences.contains("KEY_SOURCES"))
+        assertTrue(sharedPreferences.all.isEmpty())
     }
 }
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2019 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.core.util
+
+import android.content.res.ColorStateList
+import android.graphics.Color
+import android.text.Spanned
+import androidx.test.platform.app.InstrumentationRegistry
+import `in`.uncod.android.bypass.Bypass
+import `in`.uncod.android.bypass.LoadImageCallback
+import `in`.uncod.android.bypass.style.ImageLoadingSpan
+import `in`.uncod.android.bypass.style.TouchableUrlSpan
+import org.junit.Assert.assertEquals
+import org.junit.Test
+
+/**
+ * Checks that rendering markdown into a single builder produces the same text and spans, in the
+ * same order, as building every element on its own, and times both on a long comment thread.
+ */
+class BypassRenderingTest {
+
+    private val displayMetrics =
+        InstrumentationRegistry.getInstrumentation().context.resources.displayMetrics
+    private val linksColor = ColorStateList.valueOf(Color.BLUE)
+
+    private val singleBuilder = Bypass(
+        displayMetrics,
+        Bypass.Options().setSingleBuilderRendering(true)
+    )
+    private val perElement = Bypass(
+        displayMetrics,
+        Bypass.Options().setSingleBuilderRendering(false)
+    )
+
+    private val loadImage = object : LoadImageCallback {
+        override fun loadImage(src: String, loadingSpan: ImageLoadingSpan) = Unit
+    }
+
+    @Test
+    fun headersAndEmphasis() = assertSameRendering(
+        "# Title\n\nSome *emphasis*, **strong** and ***both***.\n\n### Smaller ~~struck~~"
+    )
+
+    @Test
+    fun nestedLists() = assertSameRendering(
+        "1. one\n2. two\n    - nested *a*\n    - nested b\n        1. deeper\n3. three\n\n" +
+            "- loose\n\n- items"
+    )
+
+    @Test
+    fun quotesCodeAndRules() = assertSameRendering(
+        "> quoted **text**\n> over lines\n\n    val code = 1\n    val more = 2\n\n" +
+            "Inline `code` here\n\n---\n\nAfter the rule"
+    )
+
+    @Test
+    fun linksAndImages() = assertSameRendering(
+        "A [link](https://plaid.app) and <https://example.com> and <me@example.com>\n\n" +
+            "![alt text](https://example.com/a.png) ![](https://example.com/b.gif)"
+    )
+
+    @Test
+    fun imagesWithoutCallback() = assertSameRendering(
+        "Text ![alt](https://example.com/a.png)",
+        callback = null
+    )
+
+    private val commentThread = (1..200).joinToString("\n\n") { i ->
+        "Comment $i with *emphasis*, a [link](https://example.com/$i) and a list:\n\n" +
+            "1. first\n2. second\n    - nested `code`\n\n> quoting comment ${i - 1}"
+    }
+
+    @Test
+    fun longCommentThread() = assertSameRendering(commentThread)
+
+    @Test
+    fun time_longCommentThread() {
+        val singleBuilderMillis = measureMillisPerRender(singleBuilder)
+        val perElementMillis = measureMillisPerRender(perElement)
+        println(
+            "Rendering a ${commentThread.length} char thread: " +
+                "single builder %.2f ms, per element %.2f ms"
+                    .format(singleBuilderMillis, perElementMillis)
+        )
+    }
+
+    private fun measureMillisPerRender(bypass: Bypass): Double {
+        val render = {
+            bypass.markdownToSpannable(commentThread, linksColor, Color.RED, loadImage)
+        }
+        repeat(WARM_UP_ITERATIONS) { render() }
+        val start = System.nanoTime()
+        repeat(ITERATIONS) { render() }
+        return (System.nanoTime() - start) / 1_000_000.0 / ITERATIONS
+    }
+
+    private fun assertSameRendering(
+        markdown: String,
+        callback: LoadImageCallback? = loadImage
+    ) {
+        val expected = perElement.markdownToSpannable(markdown, linksColor, Color.RED, callback)
+        val actual = singleBuilder.markdownToSpannable(markdown, linksColor, Color.RED, callback)
+
+        assertEquals(expected.toString(), actual.toString())
+        assertEquals(describeSpans(expected), describeSpans(actual))
+    }
+
+    private fun describeSpans(text: CharSequence): List<String> {
+        if (text !is Spanned) return emptyList()
+        return text.getSpans(0, text.length, Any::class.java).map { span ->
+            val detail = when (span) {
+                is TouchableUrlSpan -> span.url
+                is ImageLoadingSpan -> span.url
+                else -> ""
+            }
+            "${span.javaClass.name} ${text.getSpanStart(span)}-${text.getSpanEnd(span)} " +
+                "${text.getSpanFlags(span)} $detail"
+        }
+    }
+
+    companion object {
+        private const val WARM_UP_ITERATIONS = 5
+        private const val ITERATIONS = 20
+    }
+}
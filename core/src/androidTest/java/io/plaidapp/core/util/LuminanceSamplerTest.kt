@@ -0,0 +1,146 @@
+/*
+ * Copyright 2019 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.core.util
+
+import android.graphics.Bitmap
+import android.graphics.Color
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Tests for [LuminanceSampler] using bitmaps split into a black left half and a white right half,
+ * including a timing comparison with copying the region and generating its palette.
+ */
+@RunWith(AndroidJUnit4::class)
+class LuminanceSamplerTest {
+
+    private val bitmap = Bitmap.createBitmap(200, 100, Bitmap.Config.ARGB_8888).apply {
+        for (x in 0 until width) {
+            for (y in 0 until height) {
+                setPixel(x, y, if (x < width / 2) Color.BLACK else Color.WHITE)
+            }
+        }
+    }
+    private val sampler = LuminanceSampler()
+
+    @Test
+    fun sample_darkRegion() {
+        // When sampling a region in the black half
+        sampler.sample(bitmap, 10, 10, 50, 50)
+
+        // Then it's dark
+        assertEquals(0f, sampler.meanLuminance, 0.01f)
+        assertTrue(sampler.isDark())
+    }
+
+    @Test
+    fun sample_lightRegion() {
+        // When sampling a region in the white half
+        sampler.sample(bitmap, 120, 10, 50, 50)
+
+        // Then it's light
+        assertEquals(1f, sampler.meanLuminance, 0.01f)
+        assertFalse(sampler.isDark())
+    }
+
+    @Test
+    fun sample_mixedRegion_usesPercentile() {
+        // When sampling a region three quarters black, for the darkest and lightest quarter
+        sampler.sample(bitmap, 25, 0, 100, 100, percentile = 0.1f)
+        val darkest = sampler.percentileLuminance
+        sampler.sample(bitmap, 25, 0, 100, 100, percentile = 0.9f)
+        val lightest = sampler.percentileLuminance
+
+        // Then the mean and percentiles reflect the mix
+        assertEquals(0.25f, sampler.meanLuminance, 0.05f)
+        assertEquals(0f, darkest, 0.01f)
+        assertEquals(1f, lightest, 0.01f)
+        assertTrue(sampler.isDark())
+    }
+
+    @Test
+    fun sample_regionOutsideBitmap_isClipped() {
+        // When sampling a region overflowing the white half
+        sampler.sample(bitmap, 150, 50, 100, 100)
+
+        // Then only the pixels in the bitmap are sampled
+        assertEquals(1f, sampler.meanLuminance, 0.01f)
+    }
+
+    @Test
+    fun sample_agreesWithPalette() {
+        // Given regions with the dark and light halves in different proportions
+        val regions = listOf(0 to 60, 60 to 60, 90 to 60, 120 to 60)
+
+        regions.forEach { (left, width) ->
+            // When sampling them
+            sampler.sample(bitmap, left, 0, width, 100)
+
+            // Then the result is the one of the palette of a copy of the region
+            val region = Bitmap.createBitmap(bitmap, left, 0, width, 100)
+            assertEquals(ColorUtils.isDark(region), sampler.isDark())
+            region.recycle()
+        }
+    }
+
+    @Test
+    fun sample_timedAgainstPalette() {
+        // Given the area a badge covers on a shot
+        val shot = Bitmap.createBitmap(800, 600, Bitmap.Config.ARGB_8888).apply {
+            for (x in 0 until width) {
+                for (y in 0 until height) {
+                    setPixel(x, y, Color.rgb(x % 256, y % 256, (x + y) % 256))
+                }
+            }
+        }
+        val (left, top, width, height) = listOf(680, 520, 120, 80)
+
+        // When determining whether it's dark many times each way
+        val samplerMicros = measureMicrosPerSample {
+            sampler.sample(shot, left, top, width, height)
+            sampler.isDark()
+        }
+        val paletteMicros = measureMicrosPerSample {
+            val region = Bitmap.createBitmap(shot, left, top, width, height)
+            ColorUtils.isDark(region)
+            region.recycle()
+        }
+
+        // Then both times are reported
+        println(
+            "Sampling a ${width}x$height badge area: " +
+                "sampler %.1f µs, palette %.1f µs".format(samplerMicros, paletteMicros)
+        )
+        shot.recycle()
+    }
+
+    private inline fun measureMicrosPerSample(sample: () -> Unit): Double {
+        repeat(WARM_UP_ITERATIONS) { sample() }
+        val start = System.nanoTime()
+        repeat(ITERATIONS) { sample() }
+        return (System.nanoTime() - start) / 1000.0 / ITERATIONS
+    }
+
+    companion object {
+        private const val WARM_UP_ITERATIONS = 20
+        private const val ITERATIONS = 100
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2019 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.core.util
+
+import android.util.Patterns
+import org.junit.Assert.assertEquals
+import org.junit.Test
+
+/**
+ * Compares [PlainLinks] with the [Patterns.WEB_URL] matcher it replaced, on device: that both find
+ * the same links in typical comments, and how long each takes over a long comment thread.
+ *
+ * [Patterns.WEB_URL] also matches bare domains and keeps trailing punctuation, so the comments
+ * here only contain links that both treat alike.
+ */
+class PlainLinksBenchmarkTest {
+
+    private val thread = (1..500).joinToString("\n\n") { i ->
+        "Comment $i: great write up! See https://www.designernews.co/stories/$i and also " +
+            "www.example.com/path?q=$i#top for more\nOr http://plaid.app:8080/a_b/$i which " +
+            "I think is the original source of this story"
+    }
+
+    @Test
+    fun sameLinks_commonCases() {
+        val comments = listOf(
+            "See https://www.designernews.co/stories/12345 for more",
+            "www.example.com/path?q=1#top and HTTP://plaid.app/about",
+            "Links on\nhttp://a.com/x and\nhttps://b.com/y/z?q=1",
+            "No links in this one at all"
+        )
+
+        comments.forEach { comment ->
+            assertEquals(patternLinks(comment), plainLinks(comment))
+        }
+    }
+
+    @Test
+    fun sameLinks_longThread() {
+        assertEquals(patternLinks(thread), plainLinks(thread))
+    }
+
+    @Test
+    fun time_longThread() {
+        val plainMicros = measureMicrosPerScan { plainLinks(thread) }
+        val patternMicros = measureMicrosPerScan { patternLinks(thread) }
+        println(
+            "Finding links in ${thread.length} chars: " +
+                "PlainLinks %.1f µs, Patterns.WEB_URL %.1f µs".format(plainMicros, patternMicros)
+        )
+    }
+
+    private fun plainLinks(text: String): List<String> {
+        val links = mutableListOf<String>()
+        PlainLinks.forEachLink(text) { start, end -> links += text.substring(start, end) }
+        return links
+    }
+
+    private fun patternLinks(text: String): List<String> {
+        val links = mutableListOf<String>()
+        val matcher = Patterns.WEB_URL.matcher(text)
+        while (matcher.find()) {
+            links += matcher.group()
+        }
+        return links
+    }
+
+    private inline fun measureMicrosPerScan(scan: () -> Unit): Double {
+        repeat(WARM_UP_ITERATIONS) { scan() }
+        val start = System.nanoTime()
+        repeat(ITERATIONS) { scan() }
+        return (System.nanoTime() - start) / 1000.0 / ITERATIONS
+    }
+
+    companion object {
+        private const val WARM_UP_ITERATIONS = 10
+        private const val ITERATIONS = 50
+    }
+}
@@ -16,6 +16,7 @@
 
 package io.plaidapp.core.dagger
 
+import android.content.Context
 import dagger.Module
 import dagger.Provides
 import io.plaidapp.core.dagger.designernews.DesignerNewsDataModule
@@ -23,11 +24,14 @@ import io.plaidapp.core.dagger.scope.FeatureScope
 import io.plaidapp.core.data.CoroutinesDispatcherProvider
 import io.plaidapp.core.data.DataLoadingSubject
 import io.plaidapp.core.data.DataManager
+import io.plaidapp.core.data.FeedLocalDataSource
+import io.plaidapp.core.data.FeedSnapshotDataSource
+import io.plaidapp.core.data.LoadSourcePageUseCase
+import io.plaidapp.core.data.database.FeedDatabase
 import io.plaidapp.core.data.prefs.SourcesRepository
-import io.plaidapp.core.designernews.domain.LoadStoriesUseCase
-import io.plaidapp.core.designernews.domain.SearchStoriesUseCase
+import io.plaidapp.core.designernews.data.stories.StoriesRepository
 import io.plaidapp.core.dribbble.data.ShotsRepository
-import io.plaidapp.core.producthunt.domain.LoadPostsUseCase
+import java.io.File
 
 /**
  * Module to provide [DataManager].
@@ -38,54 +42,74 @@ class DataManagerModule {
     @Provides
     @FeatureScope
     fun provideDataManager(
-        loadStories: LoadStoriesUseCase,
-        searchStories: SearchStoriesUseCase,
-        loadPosts: LoadPostsUseCase,
+        loadSourcePage: LoadSourcePageUseCase,
         shotsRepository: ShotsRepository,
+        storiesRepository: StoriesRepository,
         sourcesRepository: SourcesRepository,
+        feedLocalDataSource: FeedLocalDataSource,
+        feedSnapshotDataSource: FeedSnapshotDataSource,
         coroutinesDispatcherProvider: CoroutinesDispatcherProvider
     ): DataManager = getDataManager(
-        loadStories,
-        loadPosts,
-        searchStories,
+        loadSourcePage,
         shotsRepository,
+        storiesRepository,
         sourcesRepository,
+        feedLocalDataSource,
+        feedSnapshotDataSource,
         coroutinesDispatcherProvider
     )
 
     @Provides
     @FeatureScope
     fun provideDataLoadingSubject(
-        loadStories: LoadStoriesUseCase,
-        loadPosts: LoadPostsUseCase,
-        searchStories: SearchStoriesUseCase,
+        loadSourcePage: LoadSourcePageUseCase,
         shotsRepository: ShotsRepository,
+        storiesRepository: StoriesRepository,
         sourcesRepository: SourcesRepository,
+        feedLocalDataSource: FeedLocalDataSource,
+        feedSnapshotDataSource: FeedSnapshotDataSource,
         coroutinesDispatcherProvider: CoroutinesDispatcherProvider
     ): DataLoadingSubject = getDataManager(
-        loadStories,
-        loadPosts,
-        searchStories,
+        loadSourcePage,
         shotsRepository,
+        storiesRepository,
         sourcesRepository,
+        feedLocalDataSource,
+        feedSnapshotDataSource,
         coroutinesDispatcherProvider
     )
 
+    @Provides
+    @FeatureScope
+    fun provideFeedLocalDataSource(context: Context): FeedLocalDataSource =
+        FeedLocalDataSource(FeedDatabase.getInstance(context).feedItemDao())
+
+    @Provides
+    @FeatureScope
+    fun provideFeedSnapshotDataSource(context: Context): FeedSnapshotDataSource =
+        FeedSnapshotDataSource(File(context.filesDir, FEED_SNAPSHOT_FILE))
+
     private fun getDataManager(
-        loadStories: LoadStoriesUseCase,
-        loadPosts: LoadPostsUseCase,
-        searchStories: SearchStoriesUseCase,
+        loadSourcePage: LoadSourcePageUseCase,
         shotsRepository: ShotsRepository,
+        storiesRepository: StoriesRepository,
         sourcesRepository: SourcesRepository,
+        feedLocalDataSource: FeedLocalDataSource,
+        feedSnapshotDataSource: FeedSnapshotDataSource,
         coroutinesDispatcherProvider: CoroutinesDispatcherProvider
     ): DataManager {
         return DataManager(
-            loadStories,
-            loadPosts,
-            searchStories,
+            loadSourcePage,
             shotsRepository,
+            storiesRepository,
             sourcesRepository,
+            feedLocalDataSource,
+            feedSnapshotDataSource,
             coroutinesDispatcherProvider
         )
     }
+
+    companion object {
+        private const val FEED_SNAPSHOT_FILE = "feed_snapshot"
+    }
 }
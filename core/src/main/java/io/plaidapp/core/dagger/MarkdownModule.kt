@@ -22,9 +22,11 @@ import android.util.DisplayMetrics
 import dagger.Module
 import dagger.Provides
 import io.plaidapp.core.dagger.scope.FeatureScope
+import io.plaidapp.core.util.CachingMarkdown
 
 /**
- * Provide [Markdown] to this app's components.
+ * Provide [Markdown] to this app's components. It keeps no state between renders, so it can render
+ * on any number of threads at once.
  */
 @Module
 class MarkdownModule constructor(
@@ -34,5 +36,6 @@ class MarkdownModule constructor(
 
     @Provides
     @FeatureScope
-    fun provideMarkdown(): Markdown = Bypass(displayMetrics, options)
+    fun provideMarkdown(): Markdown =
+        CachingMarkdown(Bypass(displayMetrics, options), options to displayMetrics.density)
 }
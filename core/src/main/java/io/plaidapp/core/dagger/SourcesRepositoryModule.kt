@@ -23,6 +23,7 @@ import io.plaidapp.core.R
 import io.plaidapp.core.dagger.scope.FeatureScope
 import io.plaidapp.core.data.CoroutinesDispatcherProvider
 import io.plaidapp.core.data.SourceItem
+import io.plaidapp.core.data.database.FeedDatabase
 import io.plaidapp.core.data.prefs.SourcesLocalDataSource
 import io.plaidapp.core.data.prefs.SourcesRepository
 import io.plaidapp.core.designernews.data.DesignerNewsSearchSourceItem.Companion.SOURCE_DESIGNER_NEWS_POPULAR
@@ -44,7 +45,12 @@ class SourcesRepositoryModule {
     ): SourcesRepository {
         val defaultSources = provideDefaultSources(context)
         val sharedPrefs = context.getSharedPreferences(SOURCES_PREF, Context.MODE_PRIVATE)
-        val localDataSource = SourcesLocalDataSource(sharedPrefs)
+        val database = FeedDatabase.getInstance(context)
+        val localDataSource = SourcesLocalDataSource(
+            database.sourceDao(),
+            sharedPrefs,
+            database.transactionExecutor
+        )
         return SourcesRepository.getInstance(defaultSources, localDataSource, dispatcherProvider)
     }
 
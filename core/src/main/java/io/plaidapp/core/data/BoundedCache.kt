@@ -0,0 +1,164 @@
+/*
+ * Copyright 2019 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.core.data
+
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * A thread safe, in memory cache holding at most [maxWeight] worth of entries, as measured by
+ * [weigher]. When full, the least recently used entries are evicted.
+ *
+ * Entries are spread over [concurrencyLevel] segments, each with its own lock and a share of the
+ * weight, so concurrent loads of different keys don't contend on a single lock. LRU order is kept
+ * per segment.
+ */
+class BoundedCache<K : Any, V : Any>(
+    val maxWeight: Int,
+    concurrencyLevel: Int = DEFAULT_CONCURRENCY_LEVEL,
+    private val weigher: (K, V) -> Int = { _, _ -> 1 }
+) {
+
+    private val segments: Array<Segment<K, V>>
+
+    private val hits = AtomicLong()
+    private val misses = AtomicLong()
+    private val evictions = AtomicLong()
+
+    init {
+        require(maxWeight > 0) { "maxWeight must be positive" }
+        require(concurrencyLevel > 0) { "concurrencyLevel must be positive" }
+        // round down to a power of two, and never give a segment less than one entry's weight
+        val segmentCount = Integer.highestOneBit(minOf(concurrencyLevel, maxWeight))
+        val segmentWeight = (maxWeight + segmentCount - 1) / segmentCount
+        segments = Array(segmentCount) { Segment(segmentWeight, weigher) }
+    }
+
+    /**
+     * The number of entries currently held.
+     */
+    val size: Int
+        get() = segments.sumBy { segment -> synchronized(segment) { segment.entries.size } }
+
+    operator fun get(key: K): V? {
+        val segment = segmentFor(key)
+        val value = synchronized(segment) { segment.entries[key] }
+        if (value != null) hits.incrementAndGet() else misses.incrementAndGet()
+        return value
+    }
+
+    operator fun set(key: K, value: V) = put(key, value)
+
+    fun put(key: K, value: V) {
+        update(key) { value }
+    }
+
+    /**
+     * Atomically replaces the value of [key] with the one computed by [remapping] from its current
+     * value, or from null if there's none. Doesn't count as a hit or a miss.
+     */
+    fun update(key: K, remapping: (V?) -> V): V {
+        val segment = segmentFor(key)
+        val (value, evicted) = synchronized(segment) {
+            val previous = segment.entries[key]
+            val value = remapping(previous)
+            segment.entries[key] = value
+            if (previous != null) segment.weight -= weigher(key, previous)
+            segment.weight += weigher(key, value)
+            value to segment.trimToWeight()
+        }
+        if (evicted > 0) evictions.addAndGet(evicted.toLong())
+        return value
+    }
+
+    fun remove(key: K): V? {
+        val segment = segmentFor(key)
+        return synchronized(segment) {
+            segment.entries.remove(key)?.also { segment.weight -= weigher(key, it) }
+        }
+    }
+
+    fun clear() {
+        segments.forEach { segment ->
+            synchronized(segment) {
+                segment.entries.clear()
+                segment.weight = 0
+            }
+        }
+    }
+
+    /**
+     * A copy of the entries currently held, that doesn't affect their recency.
+     */
+    fun toMap(): Map<K, V> {
+        val map = LinkedHashMap<K, V>()
+        segments.forEach { segment -> synchronized(segment) { map.putAll(segment.entries) } }
+        return map
+    }
+
+    fun stats() = CacheStats(
+        hitCount = hits.get(),
+        missCount = misses.get(),
+        evictionCount = evictions.get()
+    )
+
+    private fun segmentFor(key: K): Segment<K, V> {
+        // spread the hash so keys differing only in their high bits don't share a segment
+        val hash = key.hashCode()
+        return segments[(hash xor (hash ushr 16)) and (segments.size - 1)]
+    }
+
+    private class Segment<K : Any, V : Any>(
+        private val maxWeight: Int,
+        private val weigher: (K, V) -> Int
+    ) {
+        // access ordered, so iteration starts with the least recently used entry
+        val entries = LinkedHashMap<K, V>(16, 0.75f, true)
+        var weight = 0
+
+        /**
+         * Evicts least recently used entries until the segment is within its weight, returning
+         * how many were evicted. Must be called holding the segment's lock.
+         */
+        fun trimToWeight(): Int {
+            var evicted = 0
+            val iterator = entries.entries.iterator()
+            while (weight > maxWeight && iterator.hasNext()) {
+                val entry = iterator.next()
+                weight -= weigher(entry.key, entry.value)
+                iterator.remove()
+                evicted++
+            }
+            return evicted
+        }
+    }
+
+    companion object {
+        const val DEFAULT_CONCURRENCY_LEVEL = 4
+    }
+}
+
+/**
+ * Counters of a [BoundedCache] since it was created.
+ */
+data class CacheStats(val hitCount: Long, val missCount: Long, val evictionCount: Long) {
+
+    val hitRate: Double
+        get() {
+            val requests = hitCount + missCount
+            return if (requests == 0L) 1.0 else hitCount.toDouble() / requests
+        }
+}
@@ -17,21 +17,18 @@
 package io.plaidapp.core.data
 
 import io.plaidapp.core.data.prefs.SourcesRepository
-import io.plaidapp.core.designernews.data.DesignerNewsSearchSourceItem
-import io.plaidapp.core.designernews.data.DesignerNewsSearchSourceItem.Companion.SOURCE_DESIGNER_NEWS_POPULAR
-import io.plaidapp.core.designernews.domain.LoadStoriesUseCase
-import io.plaidapp.core.designernews.domain.SearchStoriesUseCase
-import io.plaidapp.core.dribbble.data.DribbbleSourceItem
+import io.plaidapp.core.designernews.data.stories.StoriesRepository
+import io.plaidapp.core.designernews.data.stories.model.Story
+import io.plaidapp.core.designernews.data.stories.model.toStoryResponse
 import io.plaidapp.core.dribbble.data.ShotsRepository
-import io.plaidapp.core.producthunt.data.ProductHuntSourceItem.Companion.SOURCE_PRODUCT_HUNT
-import io.plaidapp.core.producthunt.domain.LoadPostsUseCase
-import io.plaidapp.core.ui.filter.FiltersChangedCallback
+import io.plaidapp.core.dribbble.data.api.model.Shot
 import io.plaidapp.core.util.exhaustive
 import java.util.concurrent.atomic.AtomicInteger
 import javax.inject.Inject
 import kotlinx.coroutines.CoroutineScope
 import kotlinx.coroutines.Job
 import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.flow.collect
 import kotlinx.coroutines.launch
 import kotlinx.coroutines.withContext
 
@@ -45,11 +42,12 @@ private data class InFlightRequestData(val key: String, val page: Int)
  * providing the {code onDataLoaded} method to do something with the data.
  */
 class DataManager @Inject constructor(
-    private val loadStories: LoadStoriesUseCase,
-    private val loadPosts: LoadPostsUseCase,
-    private val searchStories: SearchStoriesUseCase,
+    private val loadSourcePage: LoadSourcePageUseCase,
     private val shotsRepository: ShotsRepository,
+    private val storiesRepository: StoriesRepository,
     private val sourcesRepository: SourcesRepository,
+    private val feedLocalDataSource: FeedLocalDataSource,
+    private val feedSnapshotDataSource: FeedSnapshotDataSource,
     private val dispatcherProvider: CoroutinesDispatcherProvider
 ) : DataLoadingSubject {
 
@@ -61,30 +59,25 @@ class DataManager @Inject constructor(
     private val loadingCount = AtomicInteger(0)
     private var loadingCallbacks = mutableListOf<DataLoadingSubject.DataLoadingCallbacks>()
     private var onDataLoadedCallback: OnDataLoadedCallback<List<PlaidItem>>? = null
-    private lateinit var pageIndexes: MutableMap<String, Int>
-
-    private val filterListener = object : FiltersChangedCallback() {
-        override fun onFiltersChanged(changedFilter: SourceItem) {
-            if (changedFilter.active) {
-                loadSource(changedFilter)
-            } else { // filter deactivated
-                val key = changedFilter.key
-                parentJobs.filter { it.key.key == key }.forEach { job ->
-                    job.value.cancel()
-                    parentJobs.remove(job.key)
+    private val pageIndexes = mutableMapOf<String, Int>()
+
+    init {
+        // load newly activated sources and stop loading deactivated ones. The first snapshot is
+        // the one loadMore will load, so it's only used to compare the next ones with.
+        scope.launch {
+            var activeSources: Set<String>? = null
+            sourcesRepository.sources.collect { sources ->
+                val newActiveSources = sources.filter { it.active }
+                val newActiveKeys = newActiveSources.mapTo(mutableSetOf()) { it.key }
+                activeSources?.let { previous ->
+                    newActiveSources.filter { it.key !in previous }.forEach { loadSource(it) }
+                    previous.filter { it !in newActiveKeys }.forEach { stopLoadingSource(it) }
                 }
-                // clear the page index for the source
-                pageIndexes[key] = 0
+                activeSources = newActiveKeys
             }
         }
     }
 
-    init {
-        sourcesRepository.registerFilterChangedCallback(filterListener)
-        // build a map of source keys to pages initialized to 0
-        pageIndexes = sourcesRepository.getSourcesSync().map { it.key to 0 }.toMap().toMutableMap()
-    }
-
     fun setOnDataLoadedCallback(
         onDataLoadedCallback: OnDataLoadedCallback<List<PlaidItem>>?
     ) {
@@ -95,6 +88,63 @@ class DataManager @Inject constructor(
         onDataLoadedCallback?.onDataLoaded(data)
     }
 
+    /**
+     * Get the items stored when the active sources were last loaded, so they can be displayed
+     * before the network responds. The stored stories and shots are cached, so they can be opened
+     * like the ones loaded from the network.
+     */
+    suspend fun loadStoredItems(): List<PlaidItem> = withContext(dispatcherProvider.io) {
+        val activeSources = sourcesRepository.getSources().filter { it.active }.map { it.key }
+        val items = feedLocalDataSource.getItems(activeSources)
+        cacheItems(items)
+        items
+    }
+
+    /**
+     * Get the snapshot of the feed as it was last displayed, or null if there is none or if any of
+     * its sources was deactivated since. Like the stored items, its stories and shots are cached.
+     */
+    suspend fun loadFeedSnapshot(): FeedSnapshot? = withContext(dispatcherProvider.io) {
+        val snapshot = feedSnapshotDataSource.read() ?: return@withContext null
+        val activeSources = sourcesRepository.getSources().filter { it.active }.map { it.key }
+        if (snapshot.items.any { it.dataSource !in activeSources }) {
+            // removing items would break the column spans computed for the snapshot
+            return@withContext null
+        }
+        cacheItems(snapshot.items)
+        snapshot
+    }
+
+    /**
+     * Replace the snapshot of the feed with the [items] displayed, with their column spans computed
+     * for [columns].
+     */
+    fun saveFeedSnapshot(items: List<PlaidItem>, columns: Int) {
+        val displayedItems = items.toList()
+        scope.launch(dispatcherProvider.io) {
+            feedSnapshotDataSource.write(displayedItems, columns)
+        }
+    }
+
+    /**
+     * Keep the stories and shots of the [items] displayed by [owner] openable, until it displays
+     * other items or calls [releaseDisplayedItems].
+     */
+    fun retainDisplayedItems(owner: Any, items: List<PlaidItem>) {
+        shotsRepository.retainDisplayed(owner, items.filterIsInstance<Shot>())
+        storiesRepository.retainDisplayed(owner, items.filterIsInstance<Story>())
+    }
+
+    fun releaseDisplayedItems(owner: Any) {
+        shotsRepository.releaseDisplayed(owner)
+        storiesRepository.releaseDisplayed(owner)
+    }
+
+    private fun cacheItems(items: List<PlaidItem>) {
+        shotsRepository.cache(items.filterIsInstance<Shot>())
+        storiesRepository.cache(items.filterIsInstance<Story>().map { it.toStoryResponse() })
+    }
+
     suspend fun loadMore() = withContext(dispatcherProvider.computation) {
         sourcesRepository.getSources().forEach { loadSource(it) }
     }
@@ -108,25 +158,25 @@ class DataManager @Inject constructor(
         if (source.active) {
             loadStarted()
             val page = getNextPageIndex(source.key)
-            // TODO each source data loading should be delegated to a different object
-            // specialized in loading that specific type of data
             val data = InFlightRequestData(source.key, page)
-            when (source.key) {
-                SOURCE_DESIGNER_NEWS_POPULAR -> {
-                    parentJobs[data] = launchLoadDesignerNewsStories(data)
-                }
-                SOURCE_PRODUCT_HUNT -> {
-                    parentJobs[data] = launchLoadProductHunt(data)
-                }
-                else -> if (source is DribbbleSourceItem) {
-                    parentJobs[data] = loadDribbbleSearch(source, data)
-                } else if (source is DesignerNewsSearchSourceItem) {
-                    parentJobs[data] = loadDesignerNewsSearch(source, data)
-                }
+            parentJobs[data] = scope.launch {
+                when (val result = loadSourcePage(source, page)) {
+                    is Result.Success -> sourceLoaded(result.data, source.key, data)
+                    is Result.Error, null -> loadFailed(data)
+                }.exhaustive
             }
         }
     }
 
+    private fun stopLoadingSource(key: String) {
+        parentJobs.filter { it.key.key == key }.forEach { job ->
+            job.value.cancel()
+            parentJobs.remove(job.key)
+        }
+        // clear the page index for the source
+        pageIndexes[key] = 0
+    }
+
     private fun getNextPageIndex(dataSource: String): Int {
         var nextPage = 1 // default to one – i.e. for newly added sources
         if (pageIndexes.containsKey(dataSource)) {
@@ -150,6 +200,7 @@ class DataManager @Inject constructor(
             setPage(data, request.page)
             setDataSource(data, source)
             onDataLoaded(data)
+            scope.launch { feedLocalDataSource.savePage(source, request.page, data) }
         }
         parentJobs.remove(request)
     }
@@ -159,47 +210,6 @@ class DataManager @Inject constructor(
         parentJobs.remove(request)
     }
 
-    private fun launchLoadDesignerNewsStories(data: InFlightRequestData) = scope.launch {
-        val result = loadStories(data.page)
-        when (result) {
-            is Result.Success -> sourceLoaded(
-                result.data,
-                SOURCE_DESIGNER_NEWS_POPULAR,
-                data
-            )
-            is Result.Error -> loadFailed(data)
-        }.exhaustive
-    }
-
-    private fun loadDesignerNewsSearch(
-        sourceItem: DesignerNewsSearchSourceItem,
-        data: InFlightRequestData
-    ) = scope.launch {
-        val result = searchStories(sourceItem.key, data.page)
-        when (result) {
-            is Result.Success -> sourceLoaded(result.data, sourceItem.key, data)
-            is Result.Error -> loadFailed(data)
-        }.exhaustive
-    }
-
-    private fun loadDribbbleSearch(source: DribbbleSourceItem, data: InFlightRequestData) =
-        scope.launch {
-            val result = shotsRepository.search(source.query, data.page)
-            when (result) {
-                is Result.Success -> sourceLoaded(result.data, source.key, data)
-                is Result.Error -> loadFailed(data)
-            }.exhaustive
-        }
-
-    private fun launchLoadProductHunt(data: InFlightRequestData) = scope.launch {
-        // this API's paging is 0 based but this class (& sorting) is 1 based so adjust locally
-        val result = loadPosts(data.page - 1)
-        when (result) {
-            is Result.Success -> sourceLoaded(result.data, SOURCE_PRODUCT_HUNT, data)
-            is Result.Error -> loadFailed(data)
-        }.exhaustive
-    }
-
     override fun registerCallback(callback: DataLoadingSubject.DataLoadingCallbacks) {
         loadingCallbacks.add(callback)
     }
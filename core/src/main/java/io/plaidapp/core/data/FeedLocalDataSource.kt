@@ -0,0 +1,98 @@
+/*
+ * Copyright 2019 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.core.data
+
+import com.google.gson.Gson
+import com.google.gson.GsonBuilder
+import io.plaidapp.core.data.database.FeedItem
+import io.plaidapp.core.data.database.FeedItemDao
+import io.plaidapp.core.designernews.data.stories.model.Story
+import io.plaidapp.core.designernews.data.stories.model.StoryResponse
+import io.plaidapp.core.designernews.data.stories.model.toStory
+import io.plaidapp.core.designernews.data.stories.model.toStoryResponse
+import io.plaidapp.core.dribbble.data.api.model.Shot
+import io.plaidapp.core.producthunt.data.api.model.Post
+
+/**
+ * Stores the pages of the feed in the database, as they are loaded, so the feed can be restored
+ * on launch without waiting for the network. Only the first [MAX_STORED_PAGES] of every data
+ * source are stored.
+ */
+class FeedLocalDataSource(
+    private val feedItemDao: FeedItemDao,
+    private val gson: Gson = GsonBuilder().setDateFormat(DATE_FORMAT).create()
+) {
+
+    suspend fun savePage(dataSource: String, page: Int, items: List<PlaidItem>) {
+        if (page > MAX_STORED_PAGES) {
+            return
+        }
+        val feedItems = items.mapIndexedNotNull { position, item ->
+            toFeedItem(item, dataSource, page, position)
+        }
+        feedItemDao.setPage(dataSource, page, feedItems)
+    }
+
+    /**
+     * Get the stored items of the [dataSources], in the order they were loaded in.
+     */
+    suspend fun getItems(dataSources: List<String>): List<PlaidItem> {
+        if (dataSources.isEmpty()) {
+            return emptyList()
+        }
+        return feedItemDao.getFeedItems(dataSources).mapNotNull { toPlaidItem(it) }
+    }
+
+    private fun toFeedItem(
+        item: PlaidItem,
+        dataSource: String,
+        page: Int,
+        position: Int
+    ): FeedItem? {
+        val (type, payload) = when (item) {
+            is Story -> TYPE_STORY to gson.toJson(item.toStoryResponse())
+            is Shot -> TYPE_SHOT to gson.toJson(item)
+            is Post -> TYPE_POST to gson.toJson(item)
+            else -> return null
+        }
+        return FeedItem(dataSource, type, item.id, page, position, payload)
+    }
+
+    private fun toPlaidItem(feedItem: FeedItem): PlaidItem? {
+        val item = when (feedItem.type) {
+            TYPE_STORY -> gson.fromJson(feedItem.payload, StoryResponse::class.java)
+                .toStory(feedItem.page)
+            // the url isn't serialized, as it's held by PlaidItem, so restore it
+            TYPE_SHOT -> gson.fromJson(feedItem.payload, Shot::class.java)
+                .apply { url = htmlUrl }
+            TYPE_POST -> gson.fromJson(feedItem.payload, Post::class.java)
+            else -> return null
+        }
+        item.dataSource = feedItem.dataSource
+        return item
+    }
+
+    companion object {
+        const val MAX_STORED_PAGES = 2
+
+        private const val TYPE_STORY = "story"
+        private const val TYPE_SHOT = "shot"
+        private const val TYPE_POST = "post"
+
+        private const val DATE_FORMAT = "yyyy-MM-dd'T'HH:mm:ss.SSSZ"
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2019 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.core.data
+
+import androidx.annotation.WorkerThread
+import java.io.BufferedOutputStream
+import java.io.DataOutputStream
+import java.io.File
+import java.io.IOException
+import java.io.RandomAccessFile
+import java.nio.channels.FileChannel
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Keeps a binary [FeedSnapshot] of the first [MAX_SNAPSHOT_ITEMS] items last displayed in the
+ * feed, so the first frame of the feed can be bound on launch without querying the database.
+ * The snapshot is memory mapped when read, so reading it costs little more than creating the
+ * items.
+ */
+class FeedSnapshotDataSource(private val file: File) {
+
+    // the app and the feed sync each create an instance for the same file
+    private val lock: Any = locks.getOrPut(file.absolutePath) { Any() }
+
+    /**
+     * Returns the snapshot, or null if there's none. A snapshot that can't be read (corrupt,
+     * truncated or of another format version) is deleted, so it's not read again on every launch.
+     */
+    @WorkerThread
+    fun read(): FeedSnapshot? = synchronized(lock) {
+        if (!file.exists()) {
+            return null
+        }
+        val snapshot = try {
+            RandomAccessFile(file, "r").use { randomAccessFile ->
+                val channel = randomAccessFile.channel
+                val buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())
+                FeedSnapshotFormat.read(buffer)
+            }
+        } catch (e: IOException) {
+            null
+        }
+        if (snapshot == null) {
+            file.delete()
+        }
+        return snapshot
+    }
+
+    /**
+     * Writes the snapshot to a temporary file first, so a snapshot is never read half written.
+     */
+    @WorkerThread
+    fun write(items: List<PlaidItem>, columns: Int) {
+        val snapshot = FeedSnapshot(columns, items.take(MAX_SNAPSHOT_ITEMS))
+        val tmpFile = File(file.parentFile, "${file.name}.tmp")
+        synchronized(lock) {
+            try {
+                DataOutputStream(BufferedOutputStream(tmpFile.outputStream())).use {
+                    FeedSnapshotFormat.write(snapshot, it)
+                }
+                if (!tmpFile.renameTo(file)) {
+                    tmpFile.delete()
+                }
+            } catch (e: IOException) {
+                tmpFile.delete()
+            }
+        }
+    }
+
+    @WorkerThread
+    fun clear() {
+        synchronized(lock) {
+            file.delete()
+        }
+    }
+
+    companion object {
+        const val MAX_SNAPSHOT_ITEMS = 40
+
+        private val locks = ConcurrentHashMap<String, Any>()
+    }
+}
@@ -0,0 +1,266 @@
+/*
+ * Copyright 2019 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.core.data
+
+import io.plaidapp.core.designernews.data.stories.model.Story
+import io.plaidapp.core.designernews.data.stories.model.StoryLinks
+import io.plaidapp.core.dribbble.data.api.model.Images
+import io.plaidapp.core.dribbble.data.api.model.Shot
+import io.plaidapp.core.dribbble.data.api.model.User
+import io.plaidapp.core.producthunt.data.api.model.Post
+import java.io.DataOutputStream
+import java.nio.BufferUnderflowException
+import java.nio.ByteBuffer
+import java.util.Date
+
+/**
+ * The items of the feed, in display order, with their column spans computed for [columns].
+ */
+class FeedSnapshot(val columns: Int, val items: List<PlaidItem>)
+
+/**
+ * Binary format of a [FeedSnapshot], read straight from a (memory mapped) [ByteBuffer] without
+ * any parsing beyond reading fixed size fields and length prefixed UTF-8 strings.
+ *
+ * Layout, big endian: magic, version, columns, item count, then for every item its type, id,
+ * page, weight, colspan and data source, followed by the fields of its type.
+ */
+object FeedSnapshotFormat {
+
+    private const val MAGIC = 0x504c4653 // "PLFS"
+    // bump when the layout of any item changes; snapshots of other versions are ignored
+    const val VERSION = 1
+
+    private const val TYPE_STORY: Byte = 1
+    private const val TYPE_SHOT: Byte = 2
+    private const val TYPE_POST: Byte = 3
+
+    private const val NULL_LENGTH = -1
+    private const val NULL_DATE = Long.MIN_VALUE
+
+    // type, id, page, weight, colspan and data source length
+    private const val ITEM_HEADER_SIZE = 1 + 8 + 4 + 4 + 4 + 4
+
+    fun write(snapshot: FeedSnapshot, out: DataOutputStream) {
+        val items = snapshot.items.filter { it is Story || it is Shot || it is Post }
+        out.writeInt(MAGIC)
+        out.writeInt(VERSION)
+        out.writeInt(snapshot.columns)
+        out.writeInt(items.size)
+        items.forEach { item ->
+            out.writeByte(
+                when (item) {
+                    is Story -> TYPE_STORY
+                    is Shot -> TYPE_SHOT
+                    else -> TYPE_POST
+                }.toInt()
+            )
+            out.writeLong(item.id)
+            out.writeInt(item.page)
+            out.writeFloat(item.weight)
+            out.writeInt(item.colspan)
+            out.writeString(item.dataSource)
+            when (item) {
+                is Story -> out.writeStory(item)
+                is Shot -> out.writeShot(item)
+                is Post -> out.writePost(item)
+            }
+        }
+    }
+
+    /**
+     * Reads a snapshot, or returns null if [buffer] doesn't hold a complete, well formed snapshot
+     * of this [VERSION].
+     */
+    fun read(buffer: ByteBuffer): FeedSnapshot? {
+        if (buffer.remaining() < 16 || buffer.int != MAGIC || buffer.int != VERSION) {
+            return null
+        }
+        return try {
+            buffer.getSnapshot()
+        } catch (e: MalformedSnapshotException) {
+            null
+        } catch (e: BufferUnderflowException) {
+            // the snapshot was truncated
+            null
+        }
+    }
+
+    private fun ByteBuffer.getSnapshot(): FeedSnapshot {
+        val columns = int
+        val count = getCount(ITEM_HEADER_SIZE)
+        val items = ArrayList<PlaidItem>(count)
+        repeat(count) {
+            val type = get()
+            val id = long
+            val page = int
+            val weight = float
+            val colspan = int
+            val dataSource = getString()
+            val item = when (type) {
+                TYPE_STORY -> getStory(id, page)
+                TYPE_SHOT -> getShot(id, page)
+                TYPE_POST -> getPost(id)
+                else -> throw MalformedSnapshotException("Unknown item type $type")
+            }
+            item.weight = weight
+            item.colspan = colspan
+            item.dataSource = dataSource
+            items += item
+        }
+        return FeedSnapshot(columns, items)
+    }
+
+    private fun DataOutputStream.writeStory(story: Story) {
+        writeString(story.title)
+        writeString(story.url)
+        writeString(story.comment)
+        writeString(story.commentHtml)
+        writeInt(story.commentCount)
+        writeInt(story.voteCount)
+        writeLong(story.userId)
+        writeLong(story.createdAt.time)
+        writeLong(story.links.user)
+        writeLongs(story.links.comments)
+        writeLongs(story.links.upvotes)
+        writeLongs(story.links.downvotes)
+        writeString(story.userJob)
+    }
+
+    private fun ByteBuffer.getStory(id: Long, page: Int) = Story(
+        id = id,
+        title = getRequiredString(),
+        page = page,
+        url = getString(),
+        comment = getString(),
+        commentHtml = getString(),
+        commentCount = int,
+        voteCount = int,
+        userId = long,
+        createdAt = Date(long),
+        links = StoryLinks(
+            user = long,
+            comments = getLongs(),
+            upvotes = getLongs(),
+            downvotes = getLongs()
+        ),
+        userJob = getString()
+    )
+
+    private fun DataOutputStream.writeShot(shot: Shot) {
+        writeString(shot.title)
+        writeString(shot.description)
+        writeString(shot.images.hidpi)
+        writeString(shot.images.normal)
+        writeString(shot.images.teaser)
+        writeInt(shot.viewsCount)
+        writeInt(shot.likesCount)
+        writeLong(shot.createdAt?.time ?: NULL_DATE)
+        writeString(shot.htmlUrl)
+        writeBoolean(shot.animated)
+        writeLong(shot.user.id)
+        writeString(shot.user.name)
+        writeString(shot.user.username)
+        writeString(shot.user.avatarUrl)
+    }
+
+    private fun ByteBuffer.getShot(id: Long, page: Int) = Shot(
+        id = id,
+        title = getRequiredString(),
+        page = page,
+        description = getRequiredString(),
+        images = Images(hidpi = getString(), normal = getString(), teaser = getString()),
+        viewsCount = int,
+        likesCount = int,
+        createdAt = long.let { if (it == NULL_DATE) null else Date(it) },
+        htmlUrl = getRequiredString(),
+        animated = get() != 0.toByte(),
+        user = User(
+            id = long,
+            name = getRequiredString(),
+            username = getRequiredString(),
+            avatarUrl = getRequiredString()
+        )
+    )
+
+    private fun DataOutputStream.writePost(post: Post) {
+        writeString(post.title)
+        writeString(post.url)
+        writeString(post.tagline)
+        writeString(post.discussionUrl)
+        writeString(post.redirectUrl)
+        writeInt(post.commentsCount)
+        writeInt(post.votesCount)
+    }
+
+    private fun ByteBuffer.getPost(id: Long) = Post(
+        id = id,
+        title = getRequiredString(),
+        url = getString(),
+        tagline = getRequiredString(),
+        discussionUrl = getRequiredString(),
+        redirectUrl = getRequiredString(),
+        commentsCount = int,
+        votesCount = int
+    )
+
+    private fun DataOutputStream.writeString(value: String?) {
+        if (value == null) {
+            writeInt(NULL_LENGTH)
+        } else {
+            val bytes = value.toByteArray(Charsets.UTF_8)
+            writeInt(bytes.size)
+            write(bytes)
+        }
+    }
+
+    private fun ByteBuffer.getString(): String? {
+        val length = int
+        if (length == NULL_LENGTH) {
+            return null
+        }
+        val bytes = ByteArray(getCount(1, length))
+        get(bytes)
+        return String(bytes, Charsets.UTF_8)
+    }
+
+    private fun ByteBuffer.getRequiredString() =
+        getString() ?: throw MalformedSnapshotException("Missing required string")
+
+    private fun DataOutputStream.writeLongs(values: List<Long>) {
+        writeInt(values.size)
+        values.forEach { writeLong(it) }
+    }
+
+    private fun ByteBuffer.getLongs(): List<Long> {
+        val size = getCount(8)
+        return List(size) { long }
+    }
+
+    /**
+     * Reads (or checks) the number of entries that follow, each at least [entrySize] bytes, so a
+     * corrupt count fails here rather than allocating a huge (or negative) array.
+     */
+    private fun ByteBuffer.getCount(entrySize: Int, count: Int = int): Int {
+        if (count < 0 || count > remaining() / entrySize) {
+            throw MalformedSnapshotException("Invalid count $count")
+        }
+        return count
+    }
+
+    private class MalformedSnapshotException(message: String) : RuntimeException(message)
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2019 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.core.data
+
+import io.plaidapp.core.designernews.data.DesignerNewsSearchSourceItem
+import io.plaidapp.core.designernews.data.DesignerNewsSearchSourceItem.Companion.SOURCE_DESIGNER_NEWS_POPULAR
+import io.plaidapp.core.designernews.domain.LoadStoriesUseCase
+import io.plaidapp.core.designernews.domain.SearchStoriesUseCase
+import io.plaidapp.core.dribbble.data.DribbbleSourceItem
+import io.plaidapp.core.dribbble.data.ShotsRepository
+import io.plaidapp.core.producthunt.data.ProductHuntSourceItem.Companion.SOURCE_PRODUCT_HUNT
+import io.plaidapp.core.producthunt.domain.LoadPostsUseCase
+import javax.inject.Inject
+
+/**
+ * Use case that loads a page of a [SourceItem], from the repository of the type of the source.
+ * Pages are 1 based.
+ */
+class LoadSourcePageUseCase @Inject constructor(
+    private val loadStories: LoadStoriesUseCase,
+    private val loadPosts: LoadPostsUseCase,
+    private val searchStories: SearchStoriesUseCase,
+    private val shotsRepository: ShotsRepository
+) {
+
+    /**
+     * Returns the items of the [page], or null if the [source] can't be loaded.
+     */
+    suspend operator fun invoke(source: SourceItem, page: Int): Result<List<PlaidItem>>? {
+        return when {
+            source.key == SOURCE_DESIGNER_NEWS_POPULAR -> loadStories(page)
+            // this API's paging is 0 based so adjust locally
+            source.key == SOURCE_PRODUCT_HUNT -> loadPosts(page - 1)
+            source is DribbbleSourceItem -> shotsRepository.search(source.query, page)
+            source is DesignerNewsSearchSourceItem -> searchStories(source.key, page)
+            else -> null
+        }
+    }
+}
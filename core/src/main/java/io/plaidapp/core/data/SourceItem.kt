@@ -28,10 +28,16 @@ abstract class SourceItem(
     val sortOrder: Int,
     open val name: String,
     @param:DrawableRes @field:DrawableRes val iconRes: Int,
-    open var active: Boolean,
+    open val active: Boolean,
     open val isSwipeDismissable: Boolean = false
 ) {
 
+    /**
+     * Get a copy of this source with the given active state. Sources are immutable, so that
+     * snapshots of them can be shared between threads.
+     */
+    abstract fun withActive(active: Boolean): SourceItem
+
     override fun toString(): String {
         return "SourceItem{" +
             "key='" + key + '\''.toString() +
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2019 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.core.data
+
+import io.plaidapp.core.data.prefs.SourcesRepository
+import java.io.IOException
+import javax.inject.Inject
+import kotlinx.coroutines.async
+import kotlinx.coroutines.awaitAll
+import kotlinx.coroutines.supervisorScope
+import kotlinx.coroutines.withContext
+
+/**
+ * Use case that refreshes the first page of every active source, outside of the feed, and stores
+ * them so they are displayed the next time the feed is opened. As the feed snapshot would be
+ * displayed in their place, it's cleared once any page was stored.
+ */
+class SyncFeedUseCase @Inject constructor(
+    private val sourcesRepository: SourcesRepository,
+    private val loadSourcePage: LoadSourcePageUseCase,
+    private val feedLocalDataSource: FeedLocalDataSource,
+    private val feedSnapshotDataSource: FeedSnapshotDataSource,
+    private val dispatcherProvider: CoroutinesDispatcherProvider
+) {
+
+    /**
+     * Returns the items of all the pages refreshed, or an error if no page could be refreshed.
+     */
+    suspend operator fun invoke(): Result<List<PlaidItem>> {
+        val activeSources = sourcesRepository.getSources().filter { it.active }
+        if (activeSources.isEmpty()) {
+            return Result.Success(emptyList())
+        }
+        val pages = supervisorScope {
+            activeSources.map { source ->
+                async { refreshFirstPage(source) }
+            }.awaitAll()
+        }.filterNotNull()
+        if (pages.isEmpty()) {
+            return Result.Error(IOException("Error refreshing the feed"))
+        }
+        withContext(dispatcherProvider.io) {
+            feedSnapshotDataSource.clear()
+        }
+        return Result.Success(pages.flatten())
+    }
+
+    private suspend fun refreshFirstPage(source: SourceItem): List<PlaidItem>? {
+        val result = loadSourcePage(source, FIRST_PAGE) as? Result.Success ?: return null
+        val items = result.data
+        items.forEach { it.dataSource = source.key }
+        feedLocalDataSource.savePage(source.key, FIRST_PAGE, items)
+        return items
+    }
+
+    companion object {
+        private const val FIRST_PAGE = 1
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2019 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.core.data.database
+
+import android.content.Context
+import androidx.room.Database
+import androidx.room.Room
+import androidx.room.RoomDatabase
+import androidx.room.migration.Migration
+import androidx.sqlite.db.SupportSQLiteDatabase
+
+/**
+ * The Room database storing the user's data sources and the last loaded feed, so the feed can be
+ * displayed straight away on launch.
+ */
+@Database(entities = [FeedItem::class, StoredSource::class], version = 2, exportSchema = false)
+abstract class FeedDatabase : RoomDatabase() {
+
+    abstract fun feedItemDao(): FeedItemDao
+
+    abstract fun sourceDao(): SourceDao
+
+    companion object {
+
+        private const val DATABASE_NAME = "plaid-feed-db"
+
+        // Version 2 adds the sources table, which holds user data, so it can't be recreated
+        private val MIGRATION_1_2 = object : Migration(1, 2) {
+            override fun migrate(database: SupportSQLiteDatabase) {
+                database.execSQL(
+                    "CREATE TABLE IF NOT EXISTS `sources` (`key` TEXT NOT NULL, " +
+                        "`active` INTEGER NOT NULL, PRIMARY KEY(`key`))"
+                )
+            }
+        }
+
+        // For Singleton instantiation
+        @Volatile private var instance: FeedDatabase? = null
+
+        fun getInstance(context: Context): FeedDatabase {
+            return instance ?: synchronized(this) {
+                instance ?: buildDatabase(context).also { instance = it }
+            }
+        }
+
+        private fun buildDatabase(context: Context): FeedDatabase {
+            return Room.databaseBuilder(
+                context.applicationContext,
+                FeedDatabase::class.java,
+                DATABASE_NAME
+            ).addMigrations(MIGRATION_1_2)
+                .build()
+        }
+    }
+}
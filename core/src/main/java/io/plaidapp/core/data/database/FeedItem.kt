@@ -0,0 +1,45 @@
+/*
+ * Copyright 2019 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.core.data.database
+
+import androidx.room.ColumnInfo
+import androidx.room.Entity
+
+/**
+ * Models an item of the feed stored in the database. The item itself is stored serialized in the
+ * [payload], depending on its [type].
+ */
+@Entity(tableName = "feed_items", primaryKeys = ["data_source", "type", "id"])
+data class FeedItem(
+    @ColumnInfo(name = "data_source")
+    val dataSource: String,
+
+    @ColumnInfo(name = "type")
+    val type: String,
+
+    @ColumnInfo(name = "id")
+    val id: Long,
+
+    @ColumnInfo(name = "page")
+    val page: Int,
+
+    @ColumnInfo(name = "position")
+    val position: Int,
+
+    @ColumnInfo(name = "payload")
+    val payload: String
+)
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2019 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.core.data.database
+
+import androidx.room.Dao
+import androidx.room.Insert
+import androidx.room.OnConflictStrategy
+import androidx.room.Query
+import androidx.room.Transaction
+
+/**
+ * This Data Access Object handles Room database operations for the [FeedItem] class.
+ */
+@Dao
+abstract class FeedItemDao {
+
+    /**
+     * Get the items of the [dataSources], ordered by data source, page and position in the page.
+     */
+    @Query(
+        "SELECT * FROM feed_items WHERE data_source IN (:dataSources) " +
+            "ORDER BY data_source, page, position"
+    )
+    abstract suspend fun getFeedItems(dataSources: List<String>): List<FeedItem>
+
+    /**
+     * Sets the [items] of a [page] of a [dataSource]. The items of this page and of the pages
+     * after it are removed first, so loading the first page again replaces the whole data source.
+     */
+    @Transaction
+    open suspend fun setPage(dataSource: String, page: Int, items: List<FeedItem>) {
+        deleteFeedItemsFromPage(dataSource, page)
+        insertFeedItems(items)
+    }
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    abstract suspend fun insertFeedItems(items: List<FeedItem>)
+
+    @Query("DELETE FROM feed_items WHERE data_source = :dataSource AND page >= :page")
+    abstract suspend fun deleteFeedItemsFromPage(dataSource: String, page: Int)
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2019 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.core.data.database
+
+import androidx.room.Dao
+import androidx.room.Insert
+import androidx.room.OnConflictStrategy
+import androidx.room.Query
+
+/**
+ * Blocking access to the [StoredSource]s; not to be called from the main thread.
+ */
+@Dao
+abstract class SourceDao {
+
+    @Query("SELECT * FROM sources")
+    abstract fun getSources(): List<StoredSource>
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    abstract fun insertSources(sources: List<StoredSource>)
+
+    @Query("UPDATE sources SET active = :active WHERE `key` = :key")
+    abstract fun updateSource(key: String, active: Boolean)
+
+    @Query("DELETE FROM sources WHERE `key` IN (:keys)")
+    abstract fun deleteSources(keys: List<String>)
+}
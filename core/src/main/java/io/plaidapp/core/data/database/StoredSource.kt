@@ -14,18 +14,21 @@
  * limitations under the License.
  */
 
-package io.plaidapp.core.ui.filter
+package io.plaidapp.core.data.database
 
-import io.plaidapp.core.data.SourceItem
+import androidx.room.ColumnInfo
+import androidx.room.Entity
+import androidx.room.PrimaryKey
 
 /**
- * Callbacks called when a filter was changed or when a filter was removed
+ * The key of a data source the user has in their filters, together with its active state.
  */
-abstract class FiltersChangedCallback {
+@Entity(tableName = "sources")
+data class StoredSource(
+    @PrimaryKey
+    @ColumnInfo(name = "key")
+    val key: String,
 
-    open fun onFiltersChanged(changedFilter: SourceItem) {}
-
-    open fun onFilterRemoved(sourceKey: String) {}
-
-    open fun onFiltersUpdated(sources: List<SourceItem>) {}
-}
+    @ColumnInfo(name = "active")
+    val active: Boolean
+)
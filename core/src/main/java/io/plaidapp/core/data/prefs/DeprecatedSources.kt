@@ -16,11 +16,9 @@
 
 package io.plaidapp.core.data.prefs
 
-import android.content.SharedPreferences
-
 /**
  * When DesignerNews updated from v1 to v2 of their API, they removed the recent data source. This
- * file checks/removes the data source key from [SharedPreferences].
+ * file checks for the data source key, so it can be removed from the stored sources.
  */
 
 private const val DEPRECATED_SOURCE_DESIGNER_NEWS_RECENT = "SOURCE_DESIGNER_NEWS_RECENT"
@@ -29,8 +27,8 @@ fun isDeprecatedDesignerNewsSource(key: String) = key == DEPRECATED_SOURCE_DESIG
 
 /**
  * When Dribbble updated from v1 to v2 of their API, they removed a number of data sources. This
- * file checks/removes data source keys from [SharedPreferences] referring to any of the removed
- * API sources.
+ * file checks for data source keys referring to any of the removed API sources, so they can be
+ * removed from the stored sources.
  */
 
 private const val DEPRECATED_V1_SOURCE_KEY_PREFIX = "SOURCE_DRIBBBLE_"
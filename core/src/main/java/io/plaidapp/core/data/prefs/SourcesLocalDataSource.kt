@@ -17,59 +17,66 @@
 package io.plaidapp.core.data.prefs
 
 import android.content.SharedPreferences
+import androidx.annotation.WorkerThread
 import androidx.core.content.edit
+import io.plaidapp.core.data.database.SourceDao
+import io.plaidapp.core.data.database.StoredSource
+import java.util.concurrent.Executor
 
 /**
- * Class that knows how to store locally sources keys, together with their active state
+ * Class that knows how to store locally sources keys, together with their active state.
+ *
+ * Sources are read in a single query. Writes are batched in a transaction per call and applied,
+ * in order, on [writeExecutor]. Sources stored by earlier versions in [legacyPrefs] are moved to
+ * the database the first time they're read.
  */
-class SourcesLocalDataSource(private val prefs: SharedPreferences) {
+class SourcesLocalDataSource(
+    private val sourceDao: SourceDao,
+    private val legacyPrefs: SharedPreferences,
+    private val writeExecutor: Executor
+) {
 
     /**
-     * Get all sources
+     * Get all sources, or an empty list if no source was ever stored.
      */
-    fun getKeys(): Set<String>? = getMutableKeys()
+    @WorkerThread
+    @Synchronized
+    fun getSources(): List<StoredSource> {
+        migrateFromPreferences()
+        return sourceDao.getSources()
+    }
 
     /**
-     * Add a source and set the active state for the source
+     * Add the sources, or update their active state if they were already stored
      */
-    fun addSource(source: String, isActive: Boolean) {
-        val sources = getMutableKeys(mutableSetOf())
-        sources?.add(source)
-        prefs.edit {
-            putStringSet(KEY_SOURCES, sources)
-            putBoolean(source, isActive)
-        }
+    fun addSources(sources: List<StoredSource>) {
+        if (sources.isEmpty()) return
+        writeExecutor.execute { sourceDao.insertSources(sources) }
     }
 
     /**
      * Update the active state of a source
      */
     fun updateSource(source: String, isActive: Boolean) {
-        prefs.edit { putBoolean(source, isActive) }
+        writeExecutor.execute { sourceDao.updateSource(source, isActive) }
     }
 
     /**
-     * Remove source and the corresponding active state.
-     * @return true if the source was removed, false otherwise
+     * Remove sources and their active state
      */
-    fun removeSource(source: String): Boolean {
-        var removed = false
-        val sources = getMutableKeys(mutableSetOf())
-        sources?.remove(source)
-        prefs.edit {
-            putStringSet(KEY_SOURCES, sources)
-            remove(source)
-            removed = true
-        }
-        return removed
-    }
-
-    fun getSourceActiveState(source: String): Boolean {
-        return prefs.getBoolean(source, false)
+    fun removeSources(sources: List<String>) {
+        if (sources.isEmpty()) return
+        writeExecutor.execute { sourceDao.deleteSources(sources) }
     }
 
-    private fun getMutableKeys(default: Set<String>? = null): MutableSet<String>? {
-        return prefs.getStringSet(KEY_SOURCES, default)
+    private fun migrateFromPreferences() {
+        val keys = legacyPrefs.getStringSet(KEY_SOURCES, null) ?: return
+        val sources = keys
+            .filterNot { isDeprecatedDesignerNewsSource(it) || isDeprecatedDribbbleV1Source(it) }
+            .map { StoredSource(it, legacyPrefs.getBoolean(it, false)) }
+        sourceDao.insertSources(sources)
+        // the keys and every active state are dropped, including the deprecated sources' ones
+        legacyPrefs.edit(commit = true) { clear() }
     }
 
     companion object {
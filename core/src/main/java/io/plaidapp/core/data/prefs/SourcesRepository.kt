@@ -18,47 +18,128 @@ package io.plaidapp.core.data.prefs
 
 import io.plaidapp.core.data.CoroutinesDispatcherProvider
 import io.plaidapp.core.data.SourceItem
+import io.plaidapp.core.data.database.StoredSource
 import io.plaidapp.core.designernews.data.DesignerNewsSearchSourceItem
 import io.plaidapp.core.dribbble.data.DribbbleSourceItem
-import io.plaidapp.core.ui.filter.FiltersChangedCallback
-import java.util.Collections
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.FlowPreview
+import kotlinx.coroutines.channels.ConflatedBroadcastChannel
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.asFlow
+import kotlinx.coroutines.flow.collect
+import kotlinx.coroutines.flow.flow
+import kotlinx.coroutines.sync.Mutex
+import kotlinx.coroutines.sync.withLock
 import kotlinx.coroutines.withContext
 
 /**
  * Manage saving and retrieving data sources from disk.
+ *
+ * The sources are held in an immutable snapshot: every change publishes a new list, so readers
+ * never block on a write and never see a partially applied one. The snapshot is loaded from disk,
+ * off the main thread, the first time it's needed.
  */
+@UseExperimental(ExperimentalCoroutinesApi::class, FlowPreview::class)
 class SourcesRepository(
     private val defaultSources: List<SourceItem>,
     private val dataSource: SourcesLocalDataSource,
     private val dispatcherProvider: CoroutinesDispatcherProvider
 ) {
 
-    private val cache = mutableListOf<SourceItem>()
-    private val callbacks = mutableListOf<FiltersChangedCallback>()
+    @Volatile
+    private var snapshot: List<SourceItem>? = null
+    private val snapshots = ConflatedBroadcastChannel<List<SourceItem>>()
+    // serializes loading and writing the snapshot
+    private val mutex = Mutex()
+
+    /**
+     * The sources, emitting the current snapshot when collected and a new one on every change.
+     */
+    val sources: Flow<List<SourceItem>> = flow {
+        loadSources()
+        snapshots.asFlow().collect { emit(it) }
+    }
+
+    suspend fun getSources(): List<SourceItem> = loadSources()
 
-    fun registerFilterChangedCallback(callback: FiltersChangedCallback) {
-        callbacks.add(callback)
+    suspend fun addSources(sources: List<SourceItem>) = update { current ->
+        dataSource.addSources(sources.map { StoredSource(it.key, it.active) })
+        current + sources
     }
 
-    suspend fun getSources(): List<SourceItem> = withContext(dispatcherProvider.io) {
-        return@withContext getSourcesSync()
+    suspend fun addOrMarkActiveSources(sources: List<SourceItem>) = update { current ->
+        val changed = mutableListOf<SourceItem>()
+        val updated = current.toMutableList()
+        sources.forEach { toAdd ->
+            // first check if it already exists
+            val index = updated.indexOfFirst { existing ->
+                existing.javaClass == toAdd.javaClass &&
+                    existing.key.equals(toAdd.key, ignoreCase = true)
+            }
+            if (index == -1) {
+                // doesn't exist so needs to be added
+                updated += toAdd
+                changed += toAdd
+            } else if (!updated[index].active) {
+                // already exists, just ensure it's active
+                updated[index] = updated[index].withActive(true)
+                changed += updated[index]
+            }
+        }
+        dataSource.addSources(changed.map { StoredSource(it.key, it.active) })
+        updated
     }
 
-    @Deprecated("Use the suspending getSources")
-    fun getSourcesSync(): List<SourceItem> {
-        if (cache.isNotEmpty()) {
-            return cache
+    suspend fun changeSourceActiveState(sourceKey: String) = update { current ->
+        current.map {
+            if (it.key == sourceKey) {
+                val newActiveState = !it.active
+                dataSource.updateSource(sourceKey, newActiveState)
+                it.withActive(newActiveState)
+            } else {
+                it
+            }
         }
-        // cache is empty
-        val sourceKeys = dataSource.getKeys()
-        if (sourceKeys == null) {
-            addSources(defaultSources)
+    }
+
+    suspend fun removeSource(sourceKey: String) = update { current ->
+        dataSource.removeSources(listOf(sourceKey))
+        current.filterNot { it.key == sourceKey }
+    }
+
+    /**
+     * Counts the active sources in the current snapshot, without waiting for it to be loaded.
+     */
+    fun getActiveSourcesCount(): Int {
+        return snapshot.orEmpty().count { it.active }
+    }
+
+    private suspend fun loadSources(): List<SourceItem> {
+        return snapshot ?: mutex.withLock {
+            snapshot ?: withContext(dispatcherProvider.io) { readSources() }.also { publish(it) }
+        }
+    }
+
+    private suspend fun update(transform: (List<SourceItem>) -> List<SourceItem>) {
+        loadSources()
+        mutex.withLock { publish(transform(snapshot.orEmpty())) }
+    }
+
+    private fun publish(sources: List<SourceItem>) {
+        snapshot = sources
+        snapshots.offer(sources)
+    }
+
+    private fun readSources(): List<SourceItem> {
+        val storedSources = dataSource.getSources()
+        if (storedSources.isEmpty()) {
+            dataSource.addSources(defaultSources.map { StoredSource(it.key, it.active) })
             return defaultSources
         }
 
         val sources = mutableListOf<SourceItem>()
-        sourceKeys.forEach { sourceKey ->
-            val activeState = dataSource.getSourceActiveState(sourceKey)
+        val deprecatedSourceKeys = mutableListOf<String>()
+        storedSources.forEach { (sourceKey, activeState) ->
             when {
                 // add Dribbble source
                 sourceKey.startsWith(DribbbleSourceItem.DRIBBBLE_QUERY_PREFIX) -> {
@@ -72,85 +153,17 @@ class SourcesRepository(
                     sources.add(DesignerNewsSearchSourceItem(query, activeState))
                 }
                 // remove deprecated sources
-                isDeprecatedDesignerNewsSource(sourceKey) -> dataSource.removeSource(sourceKey)
-                isDeprecatedDribbbleV1Source(sourceKey) -> dataSource.removeSource(sourceKey)
+                isDeprecatedDesignerNewsSource(sourceKey) -> deprecatedSourceKeys += sourceKey
+                isDeprecatedDribbbleV1Source(sourceKey) -> deprecatedSourceKeys += sourceKey
                 else -> getSourceFromDefaults(sourceKey, activeState)?.let { sources.add(it) }
             }
         }
-        Collections.sort(sources, SourceItem.SourceComparator())
-        cache.addAll(sources)
-        dispatchSourcesUpdated()
-        return cache
-    }
-
-    fun addSources(sources: List<SourceItem>) {
-        sources.forEach { dataSource.addSource(it.key, it.active) }
-        cache.addAll(sources)
-        dispatchSourcesUpdated()
-    }
-
-    fun addOrMarkActiveSources(sources: List<SourceItem>) {
-        val sourcesToAdd = mutableListOf<SourceItem>()
-        sources.forEach { toAdd ->
-            // first check if it already exists
-            var sourcePresent = false
-            for (i in 0 until cache.size) {
-                val existing = cache[i]
-                if (existing.javaClass == toAdd.javaClass &&
-                        existing.key.equals(toAdd.key, ignoreCase = true)
-                ) {
-                    sourcePresent = true
-                    // already exists, just ensure it's active
-                    if (!existing.active) {
-                        changeSourceActiveState(existing.key)
-                    }
-                }
-            }
-            if (!sourcePresent) {
-                // doesn't exist so needs to be added
-                sourcesToAdd += toAdd
-            }
-        }
-        // they didn't already exist, so add them
-        addSources(sourcesToAdd)
-    }
-
-    fun changeSourceActiveState(sourceKey: String) {
-        cache.find { it.key == sourceKey }?.let {
-            val newActiveState = !it.active
-            it.active = newActiveState
-            dataSource.updateSource(sourceKey, newActiveState)
-            dispatchSourceChanged(it)
-        }
-        dispatchSourcesUpdated()
-    }
-
-    fun removeSource(sourceKey: String) {
-        dataSource.removeSource(sourceKey)
-        cache.removeAll { it.key == sourceKey }
-        dispatchSourceRemoved(sourceKey)
-        dispatchSourcesUpdated()
-    }
-
-    fun getActiveSourcesCount(): Int {
-        return getSourcesSync().count { it.active }
+        dataSource.removeSources(deprecatedSourceKeys)
+        return sources.sortedWith(SourceItem.SourceComparator())
     }
 
     private fun getSourceFromDefaults(key: String, active: Boolean): SourceItem? {
-        return defaultSources.firstOrNull { source -> source.key == key }
-                .also { it?.active = active }
-    }
-
-    private fun dispatchSourcesUpdated() {
-        callbacks.forEach { it.onFiltersUpdated(cache) }
-    }
-
-    private fun dispatchSourceChanged(source: SourceItem) {
-        callbacks.forEach { it.onFiltersChanged(source) }
-    }
-
-    private fun dispatchSourceRemoved(sourceKey: String) {
-        callbacks.forEach { it.onFilterRemoved(sourceKey) }
+        return defaultSources.firstOrNull { source -> source.key == key }?.withActive(active)
     }
 
     companion object {
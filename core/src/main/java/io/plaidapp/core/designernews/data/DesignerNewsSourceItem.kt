@@ -25,11 +25,15 @@ open class DesignerNewsSourceItem(
     sortOrder: Int,
     name: String,
     active: Boolean
-) : SourceItem(id, key, sortOrder, name, R.drawable.ic_designer_news, active, true)
+) : SourceItem(id, key, sortOrder, name, R.drawable.ic_designer_news, active, true) {
+
+    override fun withActive(active: Boolean): SourceItem =
+        DesignerNewsSourceItem(id, key, sortOrder, name, active)
+}
 
 data class DesignerNewsSearchSourceItem(
     val query: String,
-    override var active: Boolean = true
+    override val active: Boolean = true
 ) : DesignerNewsSourceItem(
     DESIGNER_NEWS_QUERY_PREFIX + query,
     query,
@@ -38,6 +42,8 @@ data class DesignerNewsSearchSourceItem(
     active
 ) {
 
+    override fun withActive(active: Boolean) = copy(active = active)
+
     companion object {
         const val SOURCE_DESIGNER_NEWS_POPULAR = "SOURCE_DESIGNER_NEWS_POPULAR"
         const val DESIGNER_NEWS_QUERY_PREFIX = "DESIGNER_NEWS_QUERY_"
@@ -16,15 +16,25 @@
 
 package io.plaidapp.core.designernews.data.stories
 
+import io.plaidapp.core.data.BoundedCache
 import io.plaidapp.core.data.Result
+import io.plaidapp.core.designernews.data.stories.model.Story
 import io.plaidapp.core.designernews.data.stories.model.StoryResponse
+import io.plaidapp.core.designernews.data.stories.model.toStoryResponse
+import java.util.concurrent.ConcurrentHashMap
 
 /**
  * Repository class that handles work with Designer News Stories.
  */
 class StoriesRepository(private val remoteDataSource: StoriesRemoteDataSource) {
 
-    private val cache = mutableMapOf<Long, StoryResponse>()
+    private val cache = BoundedCache<Long, StoryResponse>(MAX_CACHED_STORIES)
+
+    // stories shown in a grid, by whoever shows them, so that they can be opened once evicted
+    private val displayedStories = ConcurrentHashMap<Any, Map<Long, Story>>()
+
+    val cacheStats
+        get() = cache.stats()
 
     suspend fun loadStories(page: Int) = getData { remoteDataSource.loadStories(page) }
 
@@ -41,7 +51,7 @@ class StoriesRepository(private val remoteDataSource: StoriesRemoteDataSource) {
     }
 
     fun getStory(id: Long): Result<StoryResponse> {
-        val story = cache[id]
+        val story = cache[id] ?: getDisplayedStory(id)?.toStoryResponse()
         return if (story != null) {
             Result.Success(story)
         } else {
@@ -49,11 +59,30 @@ class StoriesRepository(private val remoteDataSource: StoriesRemoteDataSource) {
         }
     }
 
-    private fun cache(data: List<StoryResponse>) {
-        data.associateTo(cache) { it.id to it }
+    private fun getDisplayedStory(id: Long): Story? {
+        displayedStories.values.forEach { stories -> stories[id]?.let { return it } }
+        return null
+    }
+
+    internal fun cache(data: List<StoryResponse>) {
+        data.forEach { cache[it.id] = it }
+    }
+
+    /**
+     * Keep the [stories] shown by [owner], replacing the ones it showed before, however many
+     * stories are cached since.
+     */
+    fun retainDisplayed(owner: Any, stories: List<Story>) {
+        displayedStories[owner] = stories.associateBy { it.id }
+    }
+
+    fun releaseDisplayed(owner: Any) {
+        displayedStories.remove(owner)
     }
 
     companion object {
+        const val MAX_CACHED_STORIES = 1000
+
         @Volatile
         private var INSTANCE: StoriesRepository? = null
 
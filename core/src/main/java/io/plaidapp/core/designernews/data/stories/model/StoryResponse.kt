@@ -35,6 +35,18 @@ fun StoryResponse.toStory(page: Int) = Story(
     links = links
 )
 
+fun Story.toStoryResponse() = StoryResponse(
+    id = id,
+    title = title,
+    url = url,
+    comment = comment,
+    comment_html = commentHtml,
+    comment_count = commentCount,
+    vote_count = voteCount,
+    created_at = createdAt,
+    links = links
+)
+
 /**
  * Models a Designer News story response.
  */
@@ -55,3 +55,46 @@ data class CommentWithReplies(
     val flattenWithReplies: Sequence<CommentWithReplies>
         get() = sequenceOf(this) + replies.asSequence().flatMap(CommentWithReplies::flattenWithReplies)
 }
+
+/**
+ * @return the number of comments in this list, including all their nested replies.
+ */
+fun List<CommentWithReplies>.countWithReplies(): Int {
+    var count = 0
+    forEachWithReplies { count++ }
+    return count
+}
+
+/**
+ * Flattens this list of comments and all their nested replies, in pre-order, so every comment is
+ * followed by its replies. Unlike [CommentWithReplies.flattenWithReplies] this doesn't nest a
+ * sequence per depth level: the tree is walked iteratively and the comments are written in a
+ * list sized upfront, with the [transform] applied as they're written.
+ */
+inline fun <T> List<CommentWithReplies>.flattenWithReplies(
+    transform: (CommentWithReplies) -> T
+): List<T> {
+    val flattened = ArrayList<T>(countWithReplies())
+    forEachWithReplies { flattened.add(transform(it)) }
+    return flattened
+}
+
+/**
+ * Performs the [action] on every comment of this list and all their nested replies, in pre-order,
+ * without recursion.
+ */
+inline fun List<CommentWithReplies>.forEachWithReplies(action: (CommentWithReplies) -> Unit) {
+    // comments waiting to be visited, with the next one to visit at the end
+    val stack = ArrayList<CommentWithReplies>(size)
+    for (index in size - 1 downTo 0) {
+        stack.add(this[index])
+    }
+    while (stack.isNotEmpty()) {
+        val comment = stack.removeAt(stack.size - 1)
+        action(comment)
+        val replies = comment.replies
+        for (index in replies.size - 1 downTo 0) {
+            stack.add(replies[index])
+        }
+    }
+}
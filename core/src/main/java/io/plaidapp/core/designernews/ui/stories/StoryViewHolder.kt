@@ -86,10 +86,13 @@ class StoryViewHolder(
         }
     }
 
-    fun bind(story: Story) {
+    /**
+     * Bind [story], showing [title] in place of its title if it was precomputed.
+     */
+    fun bind(story: Story, title: CharSequence = story.title) {
         this.story = story
-        title.text = story.title
-        title.alpha = 1f // interrupted add to pocket anim can mangle
+        this.title.setTextMaybePrecomputed(title)
+        this.title.alpha = 1f // interrupted add to pocket anim can mangle
         comments.text = story.commentCount.toString()
         itemView.transitionName = story.url
     }
@@ -21,7 +21,7 @@ import io.plaidapp.core.data.SourceItem
 
 data class DribbbleSourceItem(
     val query: String,
-    override var active: Boolean = true
+    override val active: Boolean = true
 ) : SourceItem(
     DRIBBBLE_QUERY_PREFIX + query,
     query,
@@ -32,6 +32,8 @@ data class DribbbleSourceItem(
     true
 ) {
 
+    override fun withActive(active: Boolean) = copy(active = active)
+
     companion object {
         const val DRIBBBLE_QUERY_PREFIX = "DRIBBBLE_QUERY_"
         private const val SEARCH_SORT_ORDER = 400
@@ -16,16 +16,24 @@
 
 package io.plaidapp.core.dribbble.data
 
+import io.plaidapp.core.data.BoundedCache
 import io.plaidapp.core.data.Result
 import io.plaidapp.core.dribbble.data.api.model.Shot
 import io.plaidapp.core.dribbble.data.search.SearchRemoteDataSource
+import java.util.concurrent.ConcurrentHashMap
 
 /**
  * Repository class that handles working with Dribbble.
  */
 class ShotsRepository constructor(private val remoteDataSource: SearchRemoteDataSource) {
 
-    private val shotCache = mutableMapOf<Long, Shot>()
+    private val shotCache = BoundedCache<Long, Shot>(MAX_CACHED_SHOTS)
+
+    // shots shown in a grid, by whoever shows them, so that they can be opened once evicted
+    private val displayedShots = ConcurrentHashMap<Any, Map<Long, Shot>>()
+
+    val cacheStats
+        get() = shotCache.stats()
 
     suspend fun search(query: String, page: Int): Result<List<Shot>> {
         val result = remoteDataSource.search(query, page)
@@ -36,7 +44,7 @@ class ShotsRepository constructor(private val remoteDataSource: SearchRemoteData
     }
 
     fun getShot(id: Long): Result<Shot> {
-        val shot = shotCache[id]
+        val shot = shotCache[id] ?: getDisplayedShot(id)
         return if (shot != null) {
             Result.Success(shot)
         } else {
@@ -44,11 +52,30 @@ class ShotsRepository constructor(private val remoteDataSource: SearchRemoteData
         }
     }
 
-    private fun cache(shots: List<Shot>) {
-        shots.associateTo(shotCache) { it.id to it }
+    private fun getDisplayedShot(id: Long): Shot? {
+        displayedShots.values.forEach { shots -> shots[id]?.let { return it } }
+        return null
+    }
+
+    internal fun cache(shots: List<Shot>) {
+        shots.forEach { shotCache[it.id] = it }
+    }
+
+    /**
+     * Keep the [shots] shown by [owner], replacing the ones it showed before, however many shots
+     * are cached since.
+     */
+    fun retainDisplayed(owner: Any, shots: List<Shot>) {
+        displayedShots[owner] = shots.associateBy { it.id }
+    }
+
+    fun releaseDisplayed(owner: Any) {
+        displayedShots.remove(owner)
     }
 
     companion object {
+        const val MAX_CACHED_SHOTS = 1000
+
         @Volatile
         private var INSTANCE: ShotsRepository? = null
 
@@ -41,6 +41,7 @@ data class Images(
 
     @Parcelize
     enum class ImageSize(val width: Int, val height: Int) : Parcelable {
+        TEASER_IMAGE_SIZE(200, 150),
         NORMAL_IMAGE_SIZE(400, 300),
         TWO_X_IMAGE_SIZE(800, 600);
 
@@ -28,7 +28,7 @@ data class User(
     @SerializedName("avatar_url") val avatarUrl: String
 ) {
 
-    val highQualityAvatarUrl: String by lazy {
-        avatarUrl.replace("/normal/", "/original/")
-    }
+    // not a lazy property, so users can be serialized and restored from the feed store
+    val highQualityAvatarUrl: String
+        get() = avatarUrl.replace("/normal/", "/original/")
 }
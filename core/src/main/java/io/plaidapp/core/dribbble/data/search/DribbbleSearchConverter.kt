@@ -70,7 +70,9 @@ object DribbbleSearchConverter : Converter<ResponseBody, List<Shot>> {
             description = "<p>$description</p>"
         }
         var imgUrl = element.select("img").first().attr("src")
+        var teaserUrl: String? = null
         if (imgUrl.contains("_teaser.")) {
+            teaserUrl = imgUrl
             imgUrl = imgUrl.replace("_teaser.", ".")
         }
         val animated = imgUrl?.endsWith(".gif", ignoreCase = true) ?: false
@@ -91,7 +93,7 @@ object DribbbleSearchConverter : Converter<ResponseBody, List<Shot>> {
             title = title,
             page = 0,
             description = description,
-            images = Images(normal = imgUrl),
+            images = Images(normal = imgUrl, teaser = teaserUrl),
             animated = animated,
             createdAt = createdAt,
             likesCount = likesCount,
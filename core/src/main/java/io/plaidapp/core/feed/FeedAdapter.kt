@@ -23,7 +23,9 @@ import android.content.Context
 import android.graphics.Color
 import android.graphics.drawable.ColorDrawable
 import android.graphics.drawable.Drawable
+import android.net.ConnectivityManager
 import android.net.Uri
+import android.os.SystemClock
 import android.util.Pair
 import android.view.LayoutInflater
 import android.view.View
@@ -32,8 +34,11 @@ import android.widget.ProgressBar
 import androidx.annotation.ColorInt
 import androidx.browser.customtabs.CustomTabsIntent
 import androidx.core.content.ContextCompat
+import androidx.core.content.getSystemService
+import androidx.core.view.doOnLayout
 import androidx.recyclerview.widget.RecyclerView
 import com.bumptech.glide.ListPreloader
+import com.bumptech.glide.Priority
 import com.bumptech.glide.RequestBuilder
 import com.bumptech.glide.load.DataSource
 import com.bumptech.glide.load.engine.DiskCacheStrategy
@@ -41,7 +46,6 @@ import com.bumptech.glide.load.engine.GlideException
 import com.bumptech.glide.load.resource.drawable.DrawableTransitionOptions
 import com.bumptech.glide.request.RequestListener
 import com.bumptech.glide.request.target.Target
-import com.bumptech.glide.util.ViewPreloadSizeProvider
 import io.plaidapp.core.R
 import io.plaidapp.core.data.PlaidItem
 import io.plaidapp.core.data.pocket.PocketUtils
@@ -54,8 +58,10 @@ import io.plaidapp.core.ui.DribbbleShotHolder
 import io.plaidapp.core.ui.HomeGridItemAnimator
 import io.plaidapp.core.ui.transitions.ReflowText
 import io.plaidapp.core.util.Activities
+import io.plaidapp.core.util.TimeToFirstPixel
 import io.plaidapp.core.util.customtabs.CustomTabActivityHelper
 import io.plaidapp.core.util.glide.DribbbleTarget
+import io.plaidapp.core.util.glide.GifPlaybackManager
 import io.plaidapp.core.util.glide.GlideApp
 import io.plaidapp.core.util.intentTo
 
@@ -68,10 +74,20 @@ class FeedAdapter(
     private val columns: Int,
     private val pocketIsInstalled: Boolean,
     private val isDarkTheme: Boolean
-) : RecyclerView.Adapter<RecyclerView.ViewHolder>(), ListPreloader.PreloadModelProvider<Shot> {
+) : RecyclerView.Adapter<RecyclerView.ViewHolder>(),
+    ListPreloader.PreloadModelProvider<Shot>,
+    ListPreloader.PreloadSizeProvider<Shot> {
     private val layoutInflater: LayoutInflater = LayoutInflater.from(host)
     private val shotLoadingPlaceholders: Array<ColorDrawable?>
-    private val shotPreloadSizeProvider = ViewPreloadSizeProvider<Shot>()
+    private val connectivityManager = host.getSystemService<ConnectivityManager>()
+
+    // the width of the grid, until it's laid out
+    private var gridWidth = host.resources.displayMetrics.widthPixels
+    private var isMetered = connectivityManager?.isActiveNetworkMetered ?: false
+
+    private var imageRequestScheduler: ImageRequestScheduler? = null
+    // the position of the item ListPreloader is asking for, see getPreloadItems
+    private var preloadPosition = RecyclerView.NO_POSITION
 
     @ColorInt
     private val initialGifBadgeColor: Int
@@ -79,12 +95,18 @@ class FeedAdapter(
     private val loadingMoreItemPosition: Int
         get() = if (showLoadingMore) itemCount - 1 else RecyclerView.NO_POSITION
 
+    /**
+     * Titles of [items] measured ahead of time, see [FeedTitlePrecomputer]. Set before the items.
+     */
+    var titles: Map<PlaidItem, CharSequence> = emptyMap()
+
     var items: List<PlaidItem> = emptyList()
         /**
          * Main entry point for setting items to this adapter.
          */
         set(value) {
             field = value
+            isMetered = connectivityManager?.isActiveNetworkMetered ?: false
             notifyDataSetChanged()
         }
 
@@ -127,18 +149,49 @@ class FeedAdapter(
 
     override fun onBindViewHolder(holder: RecyclerView.ViewHolder, position: Int) {
         when (getItemViewType(position)) {
-            TYPE_DESIGNER_NEWS_STORY -> (holder as StoryViewHolder).bind((getItem(position) as Story))
+            TYPE_DESIGNER_NEWS_STORY -> {
+                val story = getItem(position) as Story
+                (holder as StoryViewHolder).bind(story, titles[story] ?: story.title)
+            }
             TYPE_DRIBBBLE_SHOT -> bindDribbbleShotHolder(
                 (getItem(position) as Shot), holder as DribbbleShotHolder, position
             )
-            TYPE_PRODUCT_HUNT_POST -> (holder as ProductHuntPostHolder).bind((getItem(position) as Post))
+            TYPE_PRODUCT_HUNT_POST -> {
+                val post = getItem(position) as Post
+                (holder as ProductHuntPostHolder).bind(post, titles[post] ?: post.title)
+            }
             TYPE_LOADING_MORE -> bindLoadingViewHolder(holder as LoadingMoreHolder, position)
             else -> throw IllegalStateException("Unsupported View type")
         }
     }
 
+    override fun onAttachedToRecyclerView(recyclerView: RecyclerView) {
+        recyclerView.doOnLayout {
+            gridWidth = it.width - it.paddingLeft - it.paddingRight
+        }
+        val flingVelocity = host.resources.displayMetrics.density * FLING_VELOCITY_DP
+        imageRequestScheduler = ImageRequestScheduler(recyclerView, flingVelocity).also {
+            recyclerView.addOnScrollListener(it)
+        }
+    }
+
+    override fun onDetachedFromRecyclerView(recyclerView: RecyclerView) {
+        imageRequestScheduler?.let { recyclerView.removeOnScrollListener(it) }
+        imageRequestScheduler = null
+    }
+
+    override fun onViewDetachedFromWindow(holder: RecyclerView.ViewHolder) {
+        if (holder is DribbbleShotHolder) {
+            holder.pauseGif()
+        }
+    }
+
     override fun onViewRecycled(holder: RecyclerView.ViewHolder) {
         if (holder is DribbbleShotHolder) {
+            // release the image, so a GIF's decoder & frames aren't held by the recycled view
+            GlideApp.with(host).clear(holder.image)
+            // a trimmed GIF has no request left to clear, so forget it explicitly
+            GifPlaybackManager.instance.release(holder.image)
             // reset the badge & ripple which are dynamically determined
             holder.reset()
         }
@@ -209,11 +262,11 @@ class FeedAdapter(
             initialGifBadgeColor,
             isDarkTheme
         ) { view, position ->
+            val shot = getItem(position) as Shot
             val intent = intentTo(Activities.Dribbble.Shot)
-            intent.putExtra(
-                Activities.Dribbble.Shot.EXTRA_SHOT_ID,
-                getItem(position)!!.id
-            )
+            intent.putExtra(Activities.Dribbble.Shot.EXTRA_SHOT_ID, shot.id)
+            // the detail screen shows the image from the grid until its own image loads
+            intent.putExtra(Activities.Dribbble.Shot.EXTRA_SHOT_THUMBNAIL_URL, shotImage(shot).url)
             val options = ActivityOptions.makeSceneTransitionAnimation(
                 host,
                 Pair.create(view, host.getString(R.string.transition_shot)),
@@ -229,37 +282,68 @@ class FeedAdapter(
         holder: DribbbleShotHolder,
         position: Int
     ) {
-        val imageSize = shot.images.bestSize()
-        GlideApp.with(host)
-            .load(shot.images.best())
-            .listener(object : RequestListener<Drawable> {
-                override fun onResourceReady(
-                    resource: Drawable,
-                    model: Any,
-                    target: Target<Drawable>,
-                    dataSource: DataSource,
-                    isFirstResource: Boolean
-                ): Boolean {
-                    if (!shot.hasFadedIn) {
-                        holder.fade()
-                        shot.hasFadedIn = true
-                    }
-                    return false
+        val image = shotImage(shot)
+        ShotImageSizePolicy.recordDisplayed(shot.id, shot.images, image)
+        val requestedAt = SystemClock.elapsedRealtime()
+        // called for whichever of the thumbnail or the full image is shown first
+        val firstImageListener = object : RequestListener<Drawable> {
+            private var shown = false
+
+            override fun onResourceReady(
+                resource: Drawable,
+                model: Any,
+                target: Target<Drawable>,
+                dataSource: DataSource,
+                isFirstResource: Boolean
+            ): Boolean {
+                if (!shown) {
+                    shown = true
+                    TimeToFirstPixel.record(
+                        TimeToFirstPixel.Path.FEED,
+                        SystemClock.elapsedRealtime() - requestedAt
+                    )
+                }
+                if (!shot.hasFadedIn) {
+                    holder.fade()
+                    shot.hasFadedIn = true
                 }
+                return false
+            }
 
-                override fun onLoadFailed(
-                    e: GlideException?,
-                    model: Any,
-                    target: Target<Drawable>,
-                    isFirstResource: Boolean
-                ) = false
-            })
+            override fun onLoadFailed(
+                e: GlideException?,
+                model: Any,
+                target: Target<Drawable>,
+                isFirstResource: Boolean
+            ) = false
+        }
+        // show the small teaser whilst a larger image loads, but only if it's already cached when
+        // on a metered network, rather than downloading a second image
+        val teaser = shot.images.teaser
+        val thumbnail = if (teaser != null && teaser != image.url) {
+            GlideApp.with(host)
+                .load(teaser)
+                .onlyRetrieveFromCache(isMetered)
+                .listener(firstImageListener)
+                .priority(imagePriority(position))
+                .diskCacheStrategy(DiskCacheStrategy.DATA)
+                .fitCenter()
+                .override(image.width, image.height)
+        } else {
+            null
+        }
+        val request = GlideApp.with(host)
+            .load(image.url)
+            .listener(firstImageListener)
+            .thumbnail(thumbnail)
+            .priority(imagePriority(position))
             .placeholder(shotLoadingPlaceholders[position % shotLoadingPlaceholders.size])
             .diskCacheStrategy(DiskCacheStrategy.DATA)
             .fitCenter()
             .transition(DrawableTransitionOptions.withCrossFade())
-            .override(imageSize.width, imageSize.height)
-            .into(DribbbleTarget(holder.image, false))
+            .override(image.width, image.height)
+        // a trimmed GIF is loaded again when it's played
+        request.into(DribbbleTarget(holder.image, false, image.url) { request.into(it) })
         // need both placeholder & background to prevent seeing through shot as it fades in
         shotLoadingPlaceholders[position % shotLoadingPlaceholders.size]?.apply {
             holder.prepareForFade(
@@ -269,7 +353,6 @@ class FeedAdapter(
                 shot.htmlUrl
             )
         }
-        shotPreloadSizeProvider.setView(holder.image)
     }
 
     private fun createProductHuntStoryHolder(parent: ViewGroup): ProductHuntPostHolder {
@@ -359,6 +442,10 @@ class FeedAdapter(
     }
 
     override fun getPreloadItems(position: Int): List<Shot> {
+        // ListPreloader asks for the request of the items straight after
+        preloadPosition = position
+        // don't start off-screen loads for items a fling will scroll past
+        if (imageRequestScheduler?.flung == true) return emptyList()
         val item = getItem(position)
         return if (item is Shot) {
             listOf(item)
@@ -368,7 +455,27 @@ class FeedAdapter(
     }
 
     override fun getPreloadRequestBuilder(item: Shot): RequestBuilder<Drawable>? {
-        return GlideApp.with(host).load(item.images.best())
+        // the same request as the one binding the shot, so the preloaded image is used
+        val image = shotImage(item)
+        return GlideApp.with(host)
+            .load(image.url)
+            .diskCacheStrategy(DiskCacheStrategy.DATA)
+            .fitCenter()
+            .override(image.width, image.height)
+            .priority(imagePriority(preloadPosition))
+    }
+
+    override fun getPreloadSize(item: Shot, adapterPosition: Int, perItemPosition: Int): IntArray {
+        val image = shotImage(item)
+        return intArrayOf(image.width, image.height)
+    }
+
+    private fun imagePriority(position: Int) =
+        imageRequestScheduler?.priorityFor(position) ?: Priority.NORMAL
+
+    private fun shotImage(shot: Shot): ShotImage {
+        val cellWidth = gridWidth / columns * shot.colspan.coerceIn(1, columns)
+        return ShotImageSizePolicy.select(shot.images, cellWidth, isMetered)
     }
 
     private class LoadingMoreHolder internal constructor(itemView: View) :
@@ -390,6 +497,9 @@ class FeedAdapter(
         private const val TYPE_PRODUCT_HUNT_POST = 2
         private const val TYPE_LOADING_MORE = -1
 
+        // images aren't preloaded whilst the grid is flung faster than this, in dp per second
+        private const val FLING_VELOCITY_DP = 6000f
+
         fun createSharedElementReenterCallback(
             context: Context
         ): SharedElementCallback {
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2019 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.core.feed
+
+import android.content.Context
+import android.view.LayoutInflater
+import android.widget.FrameLayout
+import android.widget.TextView
+import androidx.annotation.IdRes
+import androidx.annotation.LayoutRes
+import androidx.core.text.PrecomputedTextCompat
+import androidx.core.widget.TextViewCompat
+import io.plaidapp.core.R
+import io.plaidapp.core.data.BoundedCache
+import io.plaidapp.core.data.PlaidItem
+import io.plaidapp.core.designernews.data.stories.model.Story
+import io.plaidapp.core.producthunt.data.api.model.Post
+
+/**
+ * Measures the titles of the stories and posts in a feed ahead of time, with the text metrics of
+ * the views the feed holders show them in. It's meant to run off the main thread, alongside the
+ * rest of the work preparing a feed, so that binding a story or post does no text shaping.
+ *
+ * Titles are cached, so each is only measured once however often the feed is updated.
+ */
+class FeedTitlePrecomputer(
+    private val storyTitleParams: PrecomputedTextCompat.Params,
+    private val postTitleParams: PrecomputedTextCompat.Params
+) {
+
+    private val storyTitles = BoundedCache<String, PrecomputedTextCompat>(MAX_TITLES)
+    private val postTitles = BoundedCache<String, PrecomputedTextCompat>(MAX_TITLES)
+
+    /**
+     * The precomputed titles of the stories and posts in [items].
+     */
+    fun precompute(items: List<PlaidItem>): Map<PlaidItem, CharSequence> {
+        val titles = mutableMapOf<PlaidItem, CharSequence>()
+        items.forEach { item ->
+            when (item) {
+                is Story -> titles[item] = precompute(item.title, storyTitleParams, storyTitles)
+                is Post -> titles[item] = precompute(item.title, postTitleParams, postTitles)
+            }
+        }
+        return titles
+    }
+
+    private fun precompute(
+        title: String,
+        params: PrecomputedTextCompat.Params,
+        cache: BoundedCache<String, PrecomputedTextCompat>
+    ) = cache[title] ?: PrecomputedTextCompat.create(title, params).also { cache[title] = it }
+
+    companion object {
+        private const val MAX_TITLES = 512
+
+        /**
+         * Create a [FeedTitlePrecomputer] for a feed shown in [context], taking the text metrics
+         * from the layouts of the feed's holders.
+         */
+        fun forFeed(context: Context): FeedTitlePrecomputer {
+            val inflater = LayoutInflater.from(context)
+            val parent = FrameLayout(context)
+            return FeedTitlePrecomputer(
+                titleParams(inflater, parent, R.layout.designer_news_story_item, R.id.story_title),
+                titleParams(inflater, parent, R.layout.product_hunt_item, R.id.hunt_title)
+            )
+        }
+
+        private fun titleParams(
+            inflater: LayoutInflater,
+            parent: FrameLayout,
+            @LayoutRes layout: Int,
+            @IdRes title: Int
+        ): PrecomputedTextCompat.Params {
+            val view = inflater.inflate(layout, parent, false).findViewById<TextView>(title)
+            return TextViewCompat.getTextMetricsParams(view)
+        }
+    }
+}
@@ -19,10 +19,12 @@ package io.plaidapp.core.feed
 import io.plaidapp.core.data.PlaidItem
 
 /**
- * UI model for feed data
+ * UI model for feed data. [titles] holds the titles of items that were measured ahead of time, see
+ * [FeedTitlePrecomputer].
  */
 data class FeedUiModel(
-    val items: List<PlaidItem>
+    val items: List<PlaidItem>,
+    val titles: Map<PlaidItem, CharSequence> = emptyMap()
 )
 
 data class FeedProgressUiModel(
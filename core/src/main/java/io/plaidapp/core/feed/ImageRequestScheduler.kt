@@ -0,0 +1,107 @@
+/*
+ * Copyright 2019 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.core.feed
+
+import android.os.SystemClock
+import androidx.recyclerview.widget.LinearLayoutManager
+import androidx.recyclerview.widget.RecyclerView
+import com.bumptech.glide.Priority
+import kotlin.math.abs
+
+/**
+ * Prioritizes the image requests of a [RecyclerView] by how far their item is from the viewport,
+ * in the direction it's scrolling. Whilst it's [flung] faster than [flingVelocity] pixels per
+ * second, most items would scroll away before their image loads, so only the items in the
+ * viewport should be requested; the next preloads are prioritized again as the fling decelerates.
+ */
+class ImageRequestScheduler(
+    private val recyclerView: RecyclerView,
+    private val flingVelocity: Float
+) : RecyclerView.OnScrollListener() {
+
+    // pixels per second, positive when scrolling towards the end of the list
+    private var velocity = 0f
+    private var lastScrolledAt = 0L
+
+    /**
+     * Whether the list is scrolling faster than [flingVelocity].
+     */
+    val flung: Boolean
+        get() = abs(velocity) > flingVelocity
+
+    /**
+     * The priority to load the image of the item at [position] with.
+     */
+    fun priorityFor(position: Int): Priority {
+        val layoutManager = recyclerView.layoutManager as? LinearLayoutManager
+            ?: return Priority.NORMAL
+        return priorityFor(
+            position,
+            layoutManager.findFirstVisibleItemPosition(),
+            layoutManager.findLastVisibleItemPosition(),
+            velocity,
+            flingVelocity
+        )
+    }
+
+    override fun onScrolled(recyclerView: RecyclerView, dx: Int, dy: Int) {
+        val now = SystemClock.uptimeMillis()
+        val elapsed = now - lastScrolledAt
+        lastScrolledAt = now
+        if (elapsed in 1..MAX_SAMPLE_INTERVAL_MS) {
+            // smooth out the jitter between frames
+            velocity = (velocity + dy * 1000f / elapsed) / 2
+        }
+    }
+
+    override fun onScrollStateChanged(recyclerView: RecyclerView, newState: Int) {
+        if (newState == RecyclerView.SCROLL_STATE_IDLE) {
+            velocity = 0f
+        }
+    }
+
+    companion object {
+        private const val MAX_SAMPLE_INTERVAL_MS = 100L
+
+        /**
+         * Items in the viewport load first, then those it's scrolling towards, nearest first.
+         * Items it's scrolled past, or far ahead of a fast scroll, load last.
+         */
+        fun priorityFor(
+            position: Int,
+            firstVisible: Int,
+            lastVisible: Int,
+            velocity: Float,
+            fastVelocity: Float
+        ): Priority {
+            if (firstVisible == RecyclerView.NO_POSITION || position in firstVisible..lastVisible) {
+                return Priority.IMMEDIATE
+            }
+            val isAhead = if (position > lastVisible) velocity >= 0f else velocity <= 0f
+            if (!isAhead || abs(velocity) > fastVelocity) {
+                return Priority.LOW
+            }
+            val distance = if (position > lastVisible) {
+                position - lastVisible
+            } else {
+                firstVisible - position
+            }
+            val pageSize = lastVisible - firstVisible + 1
+            return if (distance <= pageSize) Priority.HIGH else Priority.NORMAL
+        }
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2019 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.core.feed
+
+import io.plaidapp.core.dribbble.data.api.model.Images
+import io.plaidapp.core.dribbble.data.api.model.Images.ImageSize
+import java.util.Collections
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * An image of a shot to load, and the size to decode it at.
+ */
+data class ShotImage(val url: String, val width: Int, val height: Int)
+
+/**
+ * Picks which of the [Images] of a shot to load in a cell of the feed: the smallest image at least
+ * as wide as the cell, or the largest one if none is. On a metered network, an image slightly
+ * narrower than the cell is good enough. The image is decoded at the size it's displayed at, so
+ * never wider than the cell.
+ *
+ * Counts how many bytes of decoded images were saved in this process, compared to always decoding
+ * the largest image, counting every shot once however many times it's bound.
+ */
+object ShotImageSizePolicy {
+
+    // the largest image is at most upscaled this much to fill a cell, on a metered network
+    private const val METERED_UPSCALE = 1.25f
+    private const val BYTES_PER_PIXEL = 4
+
+    private val bytesSaved = AtomicLong()
+    private val recordedShots = Collections.newSetFromMap(ConcurrentHashMap<Long, Boolean>())
+
+    /**
+     * Bytes of decoded images saved since the process started.
+     */
+    val sessionBytesSaved: Long
+        get() = bytesSaved.get()
+
+    /**
+     * Select the image of [images] to display in a cell [cellWidth] pixels wide.
+     */
+    fun select(images: Images, cellWidth: Int, isMetered: Boolean): ShotImage {
+        val requiredWidth = if (isMetered) (cellWidth / METERED_UPSCALE).toInt() else cellWidth
+        val candidates = listOfNotNull(
+            images.teaser?.let { it to ImageSize.TEASER_IMAGE_SIZE },
+            images.normal?.let { it to ImageSize.NORMAL_IMAGE_SIZE },
+            images.hidpi?.let { it to ImageSize.TWO_X_IMAGE_SIZE }
+        )
+        val (url, size) = candidates.firstOrNull { (_, size) -> size.width >= requiredWidth }
+            ?: candidates.last()
+        // fit the 4:3 image to the cell, without decoding more pixels than the image has
+        val width = minOf(cellWidth, size.width).coerceAtLeast(1)
+        val height = width * size.height / size.width
+        return ShotImage(url, width, height)
+    }
+
+    /**
+     * Counts the bytes saved by displaying [image] rather than the largest of [images], the first
+     * time the shot with [shotId] is displayed.
+     */
+    fun recordDisplayed(shotId: Long, images: Images, image: ShotImage) {
+        if (!recordedShots.add(shotId)) {
+            return
+        }
+        val largest = images.bestSize()
+        val saved = (largest.width * largest.height - image.width * image.height) * BYTES_PER_PIXEL
+        if (saved > 0) {
+            bytesSaved.addAndGet(saved.toLong())
+        }
+    }
+}
@@ -16,10 +16,20 @@
 
 package io.plaidapp.core.interfaces
 
+import io.plaidapp.core.data.PlaidItem
+
 /**
  * Factory for data sources that can be searched, based on a query.
  */
 interface SearchDataSourceFactory {
 
     fun create(query: String): PlaidDataSource
+
+    /**
+     * Keep the items of this factory's sources among the [items] displayed by [owner] openable,
+     * until it displays other items or calls [releaseDisplayed].
+     */
+    fun retainDisplayed(owner: Any, items: List<PlaidItem>)
+
+    fun releaseDisplayed(owner: Any)
 }
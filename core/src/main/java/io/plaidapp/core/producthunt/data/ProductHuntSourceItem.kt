@@ -19,14 +19,20 @@ package io.plaidapp.core.producthunt.data
 import io.plaidapp.core.R
 import io.plaidapp.core.data.SourceItem
 
-data class ProductHuntSourceItem(override val name: String) : SourceItem(
+data class ProductHuntSourceItem(
+    override val name: String,
+    override val active: Boolean = false
+) : SourceItem(
     SOURCE_PRODUCT_HUNT,
     SOURCE_PRODUCT_HUNT,
     500,
     name,
     R.drawable.ic_product_hunt,
-    false
+    active
 ) {
+
+    override fun withActive(active: Boolean) = copy(active = active)
+
     companion object {
         const val SOURCE_PRODUCT_HUNT = "SOURCE_PRODUCT_HUNT"
     }
@@ -22,6 +22,7 @@ import androidx.recyclerview.widget.RecyclerView
 import io.plaidapp.core.R
 import io.plaidapp.core.producthunt.data.api.model.Post
 import io.plaidapp.core.ui.recyclerview.Divided
+import io.plaidapp.core.ui.widget.BaselineGridTextView
 
 /**
  * ViewHolder for a Product Hunt Post
@@ -33,7 +34,7 @@ class ProductHuntPostHolder(
 ) : RecyclerView.ViewHolder(itemView), Divided {
 
     private var post: Post? = null
-    private var title: TextView = itemView.findViewById(R.id.hunt_title)
+    private var title: BaselineGridTextView = itemView.findViewById(R.id.hunt_title)
     private var tagline: TextView = itemView.findViewById(R.id.tagline)
     private var comments: TextView = itemView.findViewById(R.id.story_comments)
 
@@ -42,9 +43,12 @@ class ProductHuntPostHolder(
         itemView.setOnClickListener { post?.let { post -> viewClicked(post) } }
     }
 
-    fun bind(item: Post) {
+    /**
+     * Bind [item], showing [title] in place of its title if it was precomputed.
+     */
+    fun bind(item: Post, title: CharSequence = item.title) {
         post = item
-        title.text = item.title
+        this.title.setTextMaybePrecomputed(title)
         tagline.text = item.tagline
         comments.text = item.commentsCount.toString()
     }
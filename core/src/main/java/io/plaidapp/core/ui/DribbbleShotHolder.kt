@@ -21,6 +21,7 @@ import android.animation.AnimatorListenerAdapter
 import android.animation.ObjectAnimator
 import android.graphics.ColorMatrix
 import android.graphics.ColorMatrixColorFilter
+import android.graphics.Rect
 import android.graphics.drawable.Drawable
 import android.view.MotionEvent
 import android.view.View
@@ -30,10 +31,12 @@ import io.plaidapp.core.R
 import io.plaidapp.core.ui.widget.BadgedFourThreeImageView
 import io.plaidapp.core.util.AnimUtils
 import io.plaidapp.core.util.ObservableColorMatrix
-import io.plaidapp.core.util.asGif
+import io.plaidapp.core.util.glide.GifPlaybackManager
 
 private const val NIGHT_MODE_RGB_SCALE = 0.85f
 private const val ALPHA_SCALE = 1.0f
+// GIFs only play when at least this much of the shot is on screen
+private const val MIN_VISIBLE_FRACTION_TO_PLAY = 0.6f
 
 class DribbbleShotHolder constructor(
     itemView: View,
@@ -43,6 +46,8 @@ class DribbbleShotHolder constructor(
 ) : RecyclerView.ViewHolder(itemView) {
 
     val image: BadgedFourThreeImageView = itemView as BadgedFourThreeImageView
+    private val gifs = GifPlaybackManager.instance
+    private val visibleRect = Rect()
 
     init {
         image.setBadgeColor(initialGifBadgeColor)
@@ -60,19 +65,23 @@ class DribbbleShotHolder constructor(
                 return@setOnTouchListener false
             }
 
-            // get the image and check if it's an animated GIF
-            val drawable = image.drawable ?: return@setOnTouchListener false
-            val gif = drawable.asGif() ?: return@setOnTouchListener false
-            // GIF found, start/stop it on press/lift
+            // start/stop any GIF bound to the image on press/lift
             when (action) {
-                MotionEvent.ACTION_DOWN -> gif.start()
-                MotionEvent.ACTION_UP, MotionEvent.ACTION_CANCEL -> gif.stop()
+                MotionEvent.ACTION_DOWN -> if (isMostlyVisible()) gifs.play(image)
+                MotionEvent.ACTION_UP, MotionEvent.ACTION_CANCEL -> gifs.pause(image)
             }
             return@setOnTouchListener false
         }
         darkenImage()
     }
 
+    /**
+     * Stop any GIF playing, e.g. when the shot is scrolled off screen.
+     */
+    fun pauseGif() {
+        gifs.pause(image)
+    }
+
     fun reset() {
         image.setBadgeColor(initialGifBadgeColor)
         image.drawBadge = false
@@ -109,6 +118,14 @@ class DribbbleShotHolder constructor(
         }
     }
 
+    private fun isMostlyVisible(): Boolean {
+        if (image.width == 0 || image.height == 0 || !image.getLocalVisibleRect(visibleRect)) {
+            return false
+        }
+        val visibleArea = visibleRect.width() * visibleRect.height()
+        return visibleArea >= MIN_VISIBLE_FRACTION_TO_PLAY * image.width * image.height
+    }
+
     private fun darkenImage(colorMatrix: ColorMatrix = ColorMatrix()) {
         if (isNightMode) {
             colorMatrix.setScale(
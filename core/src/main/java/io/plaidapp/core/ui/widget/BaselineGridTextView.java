@@ -22,6 +22,7 @@ import android.content.res.TypedArray;
 import android.graphics.Paint;
 import androidx.annotation.FontRes;
 import androidx.appcompat.widget.AppCompatTextView;
+import androidx.core.text.PrecomputedTextCompat;
 import android.util.AttributeSet;
 import android.util.TypedValue;
 
@@ -116,6 +117,23 @@ public class BaselineGridTextView extends AppCompatTextView {
         return fontResId;
     }
 
+    /**
+     * Set text which may have been measured ahead of time, off the main thread. Text precomputed
+     * with this view's text metrics params is shown without being measured again; anything else,
+     * including text precomputed with other params, e.g. before a configuration change, is set
+     * as is.
+     */
+    public void setTextMaybePrecomputed(CharSequence text) {
+        if (text instanceof PrecomputedTextCompat) {
+            PrecomputedTextCompat precomputed = (PrecomputedTextCompat) text;
+            if (precomputed.getParams().equals(getTextMetricsParamsCompat())) {
+                setPrecomputedText(precomputed);
+                return;
+            }
+        }
+        setText(text);
+    }
+
     @Override
     public int getCompoundPaddingTop() {
         // include extra padding to place the first line's baseline on the grid
@@ -201,6 +219,9 @@ public class BaselineGridTextView extends AppCompatTextView {
 
         int textHeight = height - getCompoundPaddingTop() - getCompoundPaddingBottom();
         int completeLines = (int) Math.floor(textHeight / getLineHeight());
-        setMaxLines(completeLines);
+        // setting max lines requests another layout, even if they haven't changed
+        if (completeLines != getMaxLines()) {
+            setMaxLines(completeLines);
+        }
     }
 }
@@ -122,6 +122,7 @@ object Activities {
             override val className = "$PACKAGE_NAME.dribbble.ui.shot.ShotActivity"
 
             const val EXTRA_SHOT_ID = "EXTRA_SHOT_ID"
+            const val EXTRA_SHOT_THUMBNAIL_URL = "EXTRA_SHOT_THUMBNAIL_URL"
             const val RESULT_EXTRA_SHOT_ID = "RESULT_EXTRA_SHOT_ID"
         }
     }
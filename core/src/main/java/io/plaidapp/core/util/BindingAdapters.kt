@@ -27,6 +27,8 @@ import androidx.core.view.updateLayoutParams
 import androidx.databinding.BindingAdapter
 import com.bumptech.glide.load.resource.drawable.DrawableTransitionOptions
 import com.bumptech.glide.request.RequestListener
+import io.plaidapp.core.util.glide.GifPlaybackManager
+import io.plaidapp.core.util.glide.GifPlaybackTarget
 import io.plaidapp.core.util.glide.GlideApp
 
 @BindingAdapter("goneUnless")
@@ -55,6 +57,9 @@ fun bindVisibleUnless(view: View, visible: Boolean) {
     "overrideImageWidth",
     "overrideImageHeight",
     "imageLoadListener",
+    "allowHardwareBitmaps",
+    "thumbnailUrl",
+    "gifPlaybackPriority",
     requireAll = false
 )
 fun bindImage(
@@ -65,7 +70,10 @@ fun bindImage(
     crossFade: Boolean? = false,
     overrideWidth: Int? = null,
     overrideHeight: Int? = null,
-    listener: RequestListener<Drawable>?
+    listener: RequestListener<Drawable>?,
+    allowHardwareBitmaps: Boolean? = false,
+    thumbnailUrl: String? = null,
+    gifPlaybackPriority: GifPlaybackManager.Priority? = null
 ) {
     if (imageUrl == null) return
     var request = GlideApp.with(imageView.context).load(imageUrl)
@@ -84,7 +92,23 @@ fun bindImage(
     if (listener != null) {
         request = request.listener(listener)
     }
-    request.into(imageView)
+    if (thumbnailUrl != null) {
+        // show an image that's already cached whilst the full image loads
+        request = request.thumbnail(
+            GlideApp.with(imageView.context)
+                .load(thumbnailUrl)
+                .onlyRetrieveFromCache(true)
+        )
+    }
+    if (allowHardwareBitmaps == true) {
+        // display the bitmap as decoded, as transforming it would read its pixels
+        request = request.allowHardwareBitmaps().dontTransform()
+    }
+    if (gifPlaybackPriority != null) {
+        request.into(GifPlaybackTarget(imageView, gifPlaybackPriority))
+    } else {
+        request.into(imageView)
+    }
 }
 
 @BindingAdapter("layoutFullscreen")
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2019 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.core.util
+
+import `in`.uncod.android.bypass.LoadImageCallback
+import `in`.uncod.android.bypass.Markdown
+import `in`.uncod.android.bypass.style.ImageLoadingSpan
+import android.content.res.ColorStateList
+import android.text.Spannable
+import android.text.Spanned
+import android.text.SpannedString
+import androidx.annotation.ColorInt
+import io.plaidapp.core.data.BoundedCache
+import io.plaidapp.core.data.CacheStats
+
+/**
+ * A [Markdown] which keeps what [delegate] renders in a [cache] shared by the whole process, so
+ * the same markdown isn't rendered again when views are rebound or activities recreated.
+ *
+ * Results are keyed by the markdown, the link colors and the [style] the delegate renders with,
+ * e.g. its options and screen density. They're immutable so they can be shown by any number of
+ * views; when a result with images is reused, [LoadImageCallback] is called again for each one so
+ * they load into the new view.
+ */
+class CachingMarkdown(
+    private val delegate: Markdown,
+    private val style: Any,
+    private val cache: BoundedCache<Key, CharSequence> = sharedCache
+) : Markdown {
+
+    data class Key(
+        val style: Any,
+        val content: String,
+        val linksColor: String,
+        @ColorInt val highlightColor: Int,
+        val loadsImages: Boolean
+    )
+
+    override fun markdownToSpannable(
+        content: String,
+        linksColor: ColorStateList,
+        @ColorInt highlightColor: Int,
+        callback: LoadImageCallback?
+    ): CharSequence {
+        // ColorStateList doesn't implement equals, but describes all its colors in toString
+        val key = Key(style, content, linksColor.toString(), highlightColor, callback != null)
+        cache[key]?.let { cached ->
+            if (callback != null && cached is Spanned) {
+                cached.getSpans(0, cached.length, ImageLoadingSpan::class.java).forEach {
+                    callback.loadImage(it.url, it)
+                }
+            }
+            return cached
+        }
+        val rendered = delegate.markdownToSpannable(content, linksColor, highlightColor, callback)
+        val immutable = if (rendered is Spannable) SpannedString(rendered) else rendered
+        cache[key] = immutable
+        return immutable
+    }
+
+    companion object {
+        // in chars of markdown and of rendered text
+        private const val MAX_WEIGHT = 512 * 1024
+
+        private val sharedCache = BoundedCache<Key, CharSequence>(MAX_WEIGHT) { key, value ->
+            key.content.length + value.length
+        }
+
+        /**
+         * The hits, misses and evictions of the cache shared by the whole process.
+         */
+        val stats: CacheStats
+            get() = sharedCache.stats()
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2019 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.core.util
+
+import android.os.Build
+import android.os.Handler
+import android.os.Looper
+import android.view.FrameMetrics
+import android.view.Window
+import androidx.annotation.RequiresApi
+import java.util.concurrent.TimeUnit
+
+/**
+ * Measures how long a window takes to produce each frame while it's recorded, e.g. to compare
+ * how smoothly a list scrolls with and without work moved off the main thread.
+ *
+ * Frame metrics are only available from Android N, so nothing is recorded on older versions.
+ */
+class FrameTimeRecorder @JvmOverloads constructor(
+    private val frameBudgetMillis: Long = DEFAULT_FRAME_BUDGET_MS
+) {
+
+    var frameCount = 0L
+        private set
+
+    /**
+     * The number of frames that took longer than the frame budget.
+     */
+    var slowFrameCount = 0L
+        private set
+
+    private var totalNanos = 0L
+
+    private val listener by lazy @RequiresApi(Build.VERSION_CODES.N) {
+        Window.OnFrameMetricsAvailableListener { _, frameMetrics, _ ->
+            val duration = frameMetrics.getMetric(FrameMetrics.TOTAL_DURATION)
+            frameCount++
+            totalNanos += duration
+            if (TimeUnit.NANOSECONDS.toMillis(duration) > frameBudgetMillis) slowFrameCount++
+        }
+    }
+
+    fun start(window: Window) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+            window.addOnFrameMetricsAvailableListener(listener, Handler(Looper.getMainLooper()))
+        }
+    }
+
+    fun stop(window: Window) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+            window.removeOnFrameMetricsAvailableListener(listener)
+        }
+    }
+
+    /**
+     * The mean time taken by the frames recorded, or 0 if none were.
+     */
+    val averageFrameMillis: Double
+        get() = if (frameCount == 0L) 0.0 else totalNanos / frameCount / 1_000_000.0
+
+    override fun toString() = "%d frames, %.2f ms on average, %d slow".format(
+        frameCount,
+        averageFrameMillis,
+        slowFrameCount
+    )
+
+    companion object {
+        private const val DEFAULT_FRAME_BUDGET_MS = 16L
+    }
+}
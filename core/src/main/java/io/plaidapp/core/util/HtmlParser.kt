@@ -16,35 +16,91 @@
 
 package io.plaidapp.core.util
 
+import `in`.uncod.android.bypass.style.TouchableUrlSpan
 import android.content.res.ColorStateList
+import android.graphics.Typeface
 import android.os.Build
 import android.text.Html
 import android.text.SpannableStringBuilder
+import android.text.Spanned
+import android.text.style.QuoteSpan
+import android.text.style.RelativeSizeSpan
+import android.text.style.StyleSpan
+import android.text.style.SubscriptSpan
+import android.text.style.SuperscriptSpan
+import android.text.style.TypefaceSpan
 import android.text.style.URLSpan
+import android.text.style.UnderlineSpan
 import androidx.annotation.ColorInt
+import io.plaidapp.core.util.HtmlSpanConverter.HtmlSpan
 
 class HtmlParser {
 
     /**
      * Parse the given input using [TouchableUrlSpan]s rather than vanilla [URLSpan]s
      * so that they respond to touch.
+     *
+     * Most input is converted by [HtmlSpanConverter] in a single pass; anything it does not
+     * support goes through [Html] instead.
      */
     fun parse(
         input: String,
         linkTextColor: ColorStateList,
         @ColorInt linkHighlightColor: Int
     ): SpannableStringBuilder {
-        var spanned = if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+        val output = SpannableOutput(linkTextColor, linkHighlightColor)
+        if (HtmlSpanConverter(output).convert(input)) {
+            PlainLinks.addLinks(output.text, linkTextColor, linkHighlightColor)
+            return output.text
+        }
+
+        val spanned = if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
             Html.fromHtml(input, Html.FROM_HTML_MODE_LEGACY) as SpannableStringBuilder
         } else {
             Html.fromHtml(input) as SpannableStringBuilder
         }
 
         // strip any trailing newlines
-        while (spanned.isNotEmpty() && spanned[spanned.length - 1] == '\n') {
-            spanned = spanned.delete(spanned.length - 1, spanned.length)
-        }
+        val end = spanned.length
+        var start = end
+        while (start > 0 && spanned[start - 1] == '\n') start--
+        spanned.delete(start, end)
 
         return HtmlUtils.linkifyPlainLinks(spanned, linkTextColor, linkHighlightColor)
     }
+
+    private class SpannableOutput(
+        private val linkTextColor: ColorStateList,
+        @ColorInt private val linkHighlightColor: Int
+    ) : HtmlSpanConverter.Output {
+
+        val text = SpannableStringBuilder()
+
+        override val length get() = text.length
+
+        override fun charAt(index: Int) = text[index]
+
+        override fun append(c: Char) {
+            text.append(c)
+        }
+
+        override fun setSpan(span: HtmlSpan, start: Int, end: Int) {
+            val what: Any = when (span) {
+                HtmlSpan.Bold -> StyleSpan(Typeface.BOLD)
+                HtmlSpan.Italic -> StyleSpan(Typeface.ITALIC)
+                HtmlSpan.Underline -> UnderlineSpan()
+                HtmlSpan.Monospace -> TypefaceSpan("monospace")
+                HtmlSpan.Superscript -> SuperscriptSpan()
+                HtmlSpan.Subscript -> SubscriptSpan()
+                HtmlSpan.Quote -> QuoteSpan()
+                is HtmlSpan.RelativeSize -> RelativeSizeSpan(span.proportion)
+                is HtmlSpan.Link -> TouchableUrlSpan(span.url, linkTextColor, linkHighlightColor)
+            }
+            text.setSpan(what, start, end, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE)
+        }
+
+        override fun delete(start: Int, end: Int) {
+            text.delete(start, end)
+        }
+    }
 }
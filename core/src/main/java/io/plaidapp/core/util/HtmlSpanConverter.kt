@@ -0,0 +1,285 @@
+/*
+ * Copyright 2019 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.core.util
+
+/**
+ * Converts HTML, e.g. the description of a shot, into spanned text in a single pass, writing the
+ * text and spans straight into an [Output]. Links are output as [HtmlSpan.Link]s to be turned into
+ * [in.uncod.android.bypass.style.TouchableUrlSpan]s, and trailing newlines are trimmed in place.
+ *
+ * For the markup it supports, the output is the same as [android.text.Html.fromHtml] in legacy
+ * mode, on every API level the app runs on: paragraphs, divs, line breaks, block quotes, bold,
+ * italic, underlined, monospace, big, small, superscript and subscript text, links and the common
+ * entities. [convert] gives up as soon as it meets anything else, e.g. styles, images, headings,
+ * lists or markup which TagSoup would have to repair, so that the caller can fall back to
+ * [android.text.Html].
+ */
+class HtmlSpanConverter(private val output: Output) {
+
+    /**
+     * Where the converted text and spans are written to.
+     */
+    interface Output {
+        val length: Int
+        fun charAt(index: Int): Char
+        fun append(c: Char)
+        fun setSpan(span: HtmlSpan, start: Int, end: Int)
+        fun delete(start: Int, end: Int)
+    }
+
+    sealed class HtmlSpan {
+        object Bold : HtmlSpan()
+        object Italic : HtmlSpan()
+        object Underline : HtmlSpan()
+        object Monospace : HtmlSpan()
+        object Superscript : HtmlSpan()
+        object Subscript : HtmlSpan()
+        object Quote : HtmlSpan()
+        data class RelativeSize(val proportion: Float) : HtmlSpan()
+        data class Link(val url: String) : HtmlSpan()
+    }
+
+    // an element which was started and not ended yet, with where its content starts
+    private class OpenElement(val tag: String, val start: Int, val span: HtmlSpan?)
+
+    private val openElements = mutableListOf<OpenElement>()
+
+    /**
+     * Convert [html] into the output, returning false if it contains anything unsupported, in
+     * which case the output is left incomplete.
+     */
+    fun convert(html: String): Boolean {
+        var index = 0
+        while (index < html.length) {
+            index = when (val c = html[index]) {
+                '<' -> parseMarkup(html, index)
+                '&' -> parseEntity(html, index) { characters(it) }
+                '\r' -> UNSUPPORTED
+                else -> {
+                    characters(c)
+                    index + 1
+                }
+            }
+            if (index == UNSUPPORTED) return false
+        }
+        // elements left open are ended, as TagSoup would
+        while (openElements.isNotEmpty()) {
+            endElement(openElements.removeAt(openElements.lastIndex))
+        }
+        trimTrailingNewlines()
+        return true
+    }
+
+    // Collapses whitespace like android.text.Html: spaces and newlines become a single space,
+    // dropped at the start of the text or of a line
+    private fun characters(c: Char) {
+        if (c == ' ' || c == '\n') {
+            val previous = if (output.length == 0) '\n' else output.charAt(output.length - 1)
+            if (previous != ' ' && previous != '\n') output.append(' ')
+        } else {
+            output.append(c)
+        }
+    }
+
+    // Returns the index following the tag or comment starting at [start]
+    private fun parseMarkup(html: String, start: Int): Int {
+        if (html.startsWith(COMMENT_START, start)) {
+            val end = html.indexOf(COMMENT_END, start + COMMENT_START.length)
+            return if (end < 0) UNSUPPORTED else end + COMMENT_END.length
+        }
+        val isEndTag = html.startsWith("</", start)
+        var index = if (isEndTag) start + 2 else start + 1
+        val nameStart = index
+        while (index < html.length && html[index].isLetterOrDigit()) index++
+        if (index == nameStart || !html[nameStart].isLetter()) return UNSUPPORTED
+        val name = html.substring(nameStart, index).toLowerCase()
+
+        val attributes = mutableMapOf<String, String?>()
+        var selfClosing = false
+        while (true) {
+            while (index < html.length && html[index].isWhitespace()) index++
+            if (index >= html.length) return UNSUPPORTED
+            if (html[index] == '>') {
+                index++
+                break
+            }
+            if (html.startsWith("/>", index)) {
+                selfClosing = true
+                index += 2
+                break
+            }
+            if (isEndTag) return UNSUPPORTED
+            index = parseAttribute(html, index, attributes)
+            if (index == UNSUPPORTED) return UNSUPPORTED
+        }
+
+        val supported = if (isEndTag) {
+            endTag(name)
+        } else {
+            startTag(name, attributes) && (!selfClosing || name == "br" || endTag(name))
+        }
+        return if (supported) index else UNSUPPORTED
+    }
+
+    private fun parseAttribute(
+        html: String,
+        start: Int,
+        attributes: MutableMap<String, String?>
+    ): Int {
+        var index = start
+        while (index < html.length && html[index].isAttributeNameChar()) index++
+        if (index == start) return UNSUPPORTED
+        val name = html.substring(start, index).toLowerCase()
+        while (index < html.length && html[index].isWhitespace()) index++
+        if (index >= html.length || html[index] != '=') {
+            attributes[name] = null
+            return index
+        }
+        index++
+        while (index < html.length && html[index].isWhitespace()) index++
+        if (index >= html.length) return UNSUPPORTED
+
+        val quote = html[index]
+        val valueEnd = if (quote == '"' || quote == '\'') {
+            index++
+            html.indexOf(quote, index).also { if (it < 0) return UNSUPPORTED }
+        } else {
+            var end = index
+            while (end < html.length && !html[end].isWhitespace() && html[end] != '>') end++
+            end
+        }
+        val value = StringBuilder()
+        while (index < valueEnd) {
+            if (html[index] == '&') {
+                index = parseEntity(html, index) { value.append(it) }
+                if (index == UNSUPPORTED || index > valueEnd) return UNSUPPORTED
+            } else {
+                value.append(html[index++])
+            }
+        }
+        attributes[name] = value.toString()
+        return if (valueEnd < html.length && html[valueEnd] == quote) valueEnd + 1 else valueEnd
+    }
+
+    // Returns the index following the entity starting at [start], passing what it stands for
+    private inline fun parseEntity(html: String, start: Int, onChar: (Char) -> Unit): Int {
+        val end = html.indexOf(';', start)
+        if (end < 0 || end - start > MAX_ENTITY_LENGTH) return UNSUPPORTED
+        val name = html.substring(start + 1, end)
+        val codePoint = when {
+            name.startsWith("#x") || name.startsWith("#X") -> name.substring(2).toIntOrNull(16)
+            name.startsWith("#") -> name.substring(1).toIntOrNull()
+            else -> NAMED_ENTITIES[name]
+        }
+        if (codePoint == null || codePoint <= 0 || !Character.isValidCodePoint(codePoint)) {
+            return UNSUPPORTED
+        }
+        Character.toChars(codePoint).forEach(onChar)
+        return end + 1
+    }
+
+    private fun startTag(name: String, attributes: Map<String, String?>): Boolean {
+        // styles and alignments are applied differently depending on the API level
+        if ("style" in attributes) return false
+        when (name) {
+            "br" -> output.append('\n')
+            "p", "div", "blockquote" -> {
+                // TagSoup would end paragraphs and inline elements to start a block
+                if (openElements.any { it.tag !in CONTAINER_BLOCKS }) return false
+                appendNewlines()
+                val span = if (name == "blockquote") HtmlSpan.Quote else null
+                openElements += OpenElement(name, output.length, span)
+            }
+            "a" -> {
+                if (openElements.any { it.tag == "a" }) return false
+                val span = attributes["href"]?.let { HtmlSpan.Link(it) }
+                openElements += OpenElement(name, output.length, span)
+            }
+            else -> {
+                val span = INLINE_SPANS[name] ?: return false
+                openElements += OpenElement(name, output.length, span)
+            }
+        }
+        return true
+    }
+
+    private fun endTag(name: String): Boolean {
+        if (openElements.lastOrNull()?.tag != name) return false
+        endElement(openElements.removeAt(openElements.lastIndex))
+        return true
+    }
+
+    private fun endElement(element: OpenElement) {
+        if (element.tag in BLOCKS) appendNewlines()
+        if (element.span != null && element.start != output.length) {
+            output.setSpan(element.span, element.start, output.length)
+        }
+    }
+
+    // Blocks are separated by a blank line, however many of them start or end in between
+    private fun appendNewlines() {
+        val length = output.length
+        if (length == 0) return
+        var newlines = 0
+        while (newlines < length && output.charAt(length - 1 - newlines) == '\n') newlines++
+        repeat(BLOCK_NEWLINES - newlines) { output.append('\n') }
+    }
+
+    private fun trimTrailingNewlines() {
+        val length = output.length
+        var start = length
+        while (start > 0 && output.charAt(start - 1) == '\n') start--
+        if (start < length) output.delete(start, length)
+    }
+
+    private fun Char.isAttributeNameChar() =
+        !isWhitespace() && this != '=' && this != '>' && this != '/' && this != '"' && this != '\''
+
+    companion object {
+        private const val UNSUPPORTED = -1
+        private const val BLOCK_NEWLINES = 2
+        private const val MAX_ENTITY_LENGTH = 10
+        private const val COMMENT_START = "<!--"
+        private const val COMMENT_END = "-->"
+
+        private val BLOCKS = setOf("p", "div", "blockquote")
+        private val CONTAINER_BLOCKS = setOf("div", "blockquote")
+
+        private val INLINE_SPANS = mapOf(
+            "b" to HtmlSpan.Bold,
+            "strong" to HtmlSpan.Bold,
+            "i" to HtmlSpan.Italic,
+            "em" to HtmlSpan.Italic,
+            "cite" to HtmlSpan.Italic,
+            "dfn" to HtmlSpan.Italic,
+            "u" to HtmlSpan.Underline,
+            "tt" to HtmlSpan.Monospace,
+            "big" to HtmlSpan.RelativeSize(1.25f),
+            "small" to HtmlSpan.RelativeSize(0.8f),
+            "sup" to HtmlSpan.Superscript,
+            "sub" to HtmlSpan.Subscript
+        )
+
+        private val NAMED_ENTITIES = mapOf(
+            "amp" to '&'.toInt(),
+            "lt" to '<'.toInt(),
+            "gt" to '>'.toInt(),
+            "quot" to '"'.toInt(),
+            "nbsp" to 0xa0
+        )
+    }
+}
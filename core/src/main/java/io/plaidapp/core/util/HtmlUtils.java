@@ -18,11 +18,9 @@
 package io.plaidapp.core.util;
 
 import android.content.res.ColorStateList;
-import android.text.SpannableString;
 import android.text.SpannableStringBuilder;
 import android.text.Spanned;
 import android.text.style.URLSpan;
-import android.text.util.Linkify;
 import android.widget.TextView;
 import androidx.annotation.ColorInt;
 import in.uncod.android.bypass.LoadImageCallback;
@@ -53,28 +51,26 @@ public class HtmlUtils {
         textView.setLongClickable(false);
     }
 
-    static SpannableStringBuilder linkifyPlainLinks(
+    public static SpannableStringBuilder linkifyPlainLinks(
             CharSequence input,
             ColorStateList linkTextColor,
             @ColorInt int linkHighlightColor) {
-        final SpannableString plainLinks = new SpannableString(input); // copy of input
-
-        // Linkify doesn't seem to work as expected on M+
-        // TODO: figure out why
-        //Linkify.addLinks(plainLinks, Linkify.WEB_URLS);
-
-        final URLSpan[] urlSpans = plainLinks.getSpans(0, plainLinks.length(), URLSpan.class);
-
-        // add any plain links to the output
+        // the only copy of input, which may be shared e.g. by a cache
         final SpannableStringBuilder ssb = new SpannableStringBuilder(input);
+
+        final URLSpan[] urlSpans = ssb.getSpans(0, ssb.length(), URLSpan.class);
         for (URLSpan urlSpan : urlSpans) {
+            final int start = ssb.getSpanStart(urlSpan);
+            final int end = ssb.getSpanEnd(urlSpan);
             ssb.removeSpan(urlSpan);
             ssb.setSpan(new TouchableUrlSpan(urlSpan.getURL(), linkTextColor, linkHighlightColor),
-                    plainLinks.getSpanStart(urlSpan),
-                    plainLinks.getSpanEnd(urlSpan),
+                    start,
+                    end,
                     Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
         }
 
+        // add any plain links to the output
+        PlainLinks.addLinks(ssb, linkTextColor, linkHighlightColor);
         return ssb;
     }
 
@@ -82,12 +78,11 @@ public class HtmlUtils {
      * Parse Markdown and plain-text links.
      * <p/>
      * {@link Markdown} does not handle plain text links (i.e. not md syntax) and requires a
-     * {@code String} input (i.e. squashes any spans). {@link Linkify} handles plain links but also
-     * removes any existing spans. So we can't just run our input through both.
+     * {@code String} input (i.e. squashes any spans). {@link android.text.util.Linkify} handles
+     * plain links but also removes any existing spans. So we can't just run our input through both.
      * <p/>
-     * Instead we use the markdown lib, then take a copy of the output and Linkify
-     * <strong>that</strong>. We then find any {@link URLSpan}s and add them to the markdown output.
-     * Best of both worlds.
+     * Instead we use the markdown lib, then take a copy of the output and add {@link PlainLinks}
+     * to <strong>that</strong>, leaving any links from the markdown as they are.
      */
     public static CharSequence parseMarkdownAndPlainLinks(
             String input,
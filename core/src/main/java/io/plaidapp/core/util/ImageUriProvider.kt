@@ -17,41 +17,89 @@
 package io.plaidapp.core.util
 
 import android.content.Context
+import android.graphics.drawable.Drawable
 import android.net.Uri
 import androidx.core.content.FileProvider
 import com.bumptech.glide.Glide
+import com.bumptech.glide.request.target.CustomTarget
+import com.bumptech.glide.request.transition.Transition
+import io.plaidapp.core.data.CoroutinesDispatcherProvider
 import java.io.File
+import java.io.IOException
 import javax.inject.Inject
+import kotlin.coroutines.resume
+import kotlin.coroutines.resumeWithException
+import kotlinx.coroutines.CancellableContinuation
+import kotlinx.coroutines.suspendCancellableCoroutine
+import kotlinx.coroutines.withContext
 
 /**
  * A class responsible for resolving an image as identified by Url into a sharable [Uri].
  */
 class ImageUriProvider @Inject constructor(
     context: Context,
-    private val fileAuthority: FileAuthority
+    private val fileAuthority: FileAuthority,
+    private val dispatcherProvider: CoroutinesDispatcherProvider
 ) {
 
     // Only hold the app context to avoid leaks
     private val appContext = context.applicationContext
 
+    private val shareCache = ShareImageCache(File(appContext.cacheDir, SHARE_DIRECTORY))
+
     /**
-     * Long running method! Making this a suspend function so it's only executed from a coroutine.
-     *
-     * Retrieve the image from Glide, as file, rename it, since Glide caches an unfriendly and
-     * extension-less name, and then get the Uri.
+     * Retrieve the image from Glide (hopefully cached) as a file, and copy it into a cache of
+     * images to share, since Glide caches an unfriendly and extension-less name and its cache
+     * entries mustn't be altered. An image shared before is reused. Suspends until the image is
+     * downloaded; cancelling stops the download or copy.
      */
-    @Suppress("RedundantSuspendModifier")
     suspend operator fun invoke(url: String, width: Int, height: Int): Uri {
-        // Retrieve the image from Glide (hopefully cached) as a File
-        val file = Glide.with(appContext)
-            .asFile()
-            .load(url)
-            .submit(width, height)
-            .get()
-        // Glide cache uses an unfriendly & extension-less name. Massage it based on the original.
-        val fileName = url.substring(url.lastIndexOf('/') + 1)
-        val renamed = File(file.parent, fileName)
-        file.renameTo(renamed)
-        return FileProvider.getUriForFile(appContext, fileAuthority.authority, renamed)
+        val file = withContext(dispatcherProvider.io) {
+            shareCache[url] ?: shareCache.put(url, download(url, width, height))
+        }
+        return FileProvider.getUriForFile(appContext, fileAuthority.authority, file)
+    }
+
+    private suspend fun download(
+        url: String,
+        width: Int,
+        height: Int
+    ): File = withContext(dispatcherProvider.main) {
+        val target = FileTarget(width, height)
+        try {
+            suspendCancellableCoroutine<File> { continuation ->
+                target.continuation = continuation
+                Glide.with(appContext)
+                    .asFile()
+                    .load(url)
+                    .into(target)
+            }
+        } finally {
+            // stops the download if cancelled
+            Glide.with(appContext).clear(target)
+        }
+    }
+
+    private class FileTarget(width: Int, height: Int) : CustomTarget<File>(width, height) {
+
+        var continuation: CancellableContinuation<File>? = null
+
+        override fun onResourceReady(resource: File, transition: Transition<in File>?) {
+            continuation?.resume(resource)
+        }
+
+        override fun onLoadFailed(errorDrawable: Drawable?) {
+            continuation?.resumeWithException(IOException("Unable to load the image"))
+        }
+
+        override fun onLoadCleared(placeholder: Drawable?) {
+            // cleared before the image was ready, e.g. by its RequestManager
+            continuation?.takeIf { it.isActive }
+                ?.resumeWithException(IOException("The image request was cleared"))
+        }
+    }
+
+    companion object {
+        private const val SHARE_DIRECTORY = "shared_images"
     }
 }
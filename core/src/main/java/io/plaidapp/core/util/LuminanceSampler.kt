@@ -0,0 +1,138 @@
+/*
+ * Copyright 2019 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.core.util
+
+import android.graphics.Bitmap
+import androidx.annotation.FloatRange
+import androidx.annotation.MainThread
+import kotlin.math.pow
+
+/**
+ * Measures the luminance of a region of a bitmap by reading its pixels, a row at a time, into a
+ * buffer that's reused across calls. Neither the region nor a palette of it are ever created.
+ *
+ * Large regions are sampled on a grid, so at most about [maxSamples] pixels are read. The results
+ * of the last [sample] are held by [meanLuminance] and [percentileLuminance], in the same
+ * relative luminance scale as [androidx.core.graphics.ColorUtils.calculateLuminance].
+ *
+ * Not thread safe: a sampler must only be used on one thread.
+ */
+class LuminanceSampler(private val maxSamples: Int = MAX_SAMPLES) {
+
+    private var rowBuffer = IntArray(0)
+    private val histogram = IntArray(LEVELS)
+
+    var meanLuminance = 0f
+        private set
+
+    var percentileLuminance = 0f
+        private set
+
+    /**
+     * Samples the region of [bitmap] at [left], [top] of [width] x [height], clipped to the
+     * bitmap. [percentileLuminance] is set to the luminance that [percentile] of the sampled
+     * pixels are darker than.
+     */
+    @MainThread
+    fun sample(
+        bitmap: Bitmap,
+        left: Int,
+        top: Int,
+        width: Int,
+        height: Int,
+        @FloatRange(from = 0.0, to = 1.0) percentile: Float = 0.5f
+    ) {
+        val x = left.coerceIn(0, bitmap.width)
+        val y = top.coerceIn(0, bitmap.height)
+        val regionWidth = (left + width).coerceAtMost(bitmap.width) - x
+        val regionHeight = (top + height).coerceAtMost(bitmap.height) - y
+        histogram.fill(0)
+        if (regionWidth <= 0 || regionHeight <= 0) {
+            meanLuminance = 0f
+            percentileLuminance = 0f
+            return
+        }
+        // sample every step-th pixel of every step-th row, so the cost is bounded
+        var step = 1
+        while ((regionWidth / step) * (regionHeight / step) > maxSamples) {
+            step++
+        }
+        if (rowBuffer.size < regionWidth) {
+            rowBuffer = IntArray(regionWidth)
+        }
+        var count = 0
+        var sum = 0L
+        for (row in y until y + regionHeight step step) {
+            bitmap.getPixels(rowBuffer, 0, regionWidth, x, row, regionWidth, 1)
+            for (column in 0 until regionWidth step step) {
+                val level = luminanceLevel(rowBuffer[column])
+                histogram[level]++
+                sum += level
+                count++
+            }
+        }
+        meanLuminance = sum.toFloat() / (count * MAX_LEVEL)
+        percentileLuminance = percentileLevel(count, percentile).toFloat() / MAX_LEVEL
+    }
+
+    /**
+     * Whether the region last sampled is dark, by the threshold [ColorUtils.isDark] uses.
+     */
+    fun isDark() = percentileLuminance < 0.5f
+
+    private fun percentileLevel(count: Int, percentile: Float): Int {
+        val rank = (percentile * (count - 1)).toInt()
+        var seen = 0
+        for (level in histogram.indices) {
+            seen += histogram[level]
+            if (seen > rank) {
+                return level
+            }
+        }
+        return MAX_LEVEL
+    }
+
+    companion object {
+        const val MAX_SAMPLES = 1024
+
+        private const val LEVELS = 256
+        private const val MAX_LEVEL = LEVELS - 1
+
+        // linear values of the sRGB channel levels, weighted for the luminance of each channel
+        private val RED = channelTable(0.2126)
+        private val GREEN = channelTable(0.7152)
+        private val BLUE = channelTable(0.0722)
+
+        private fun channelTable(weight: Double) = IntArray(LEVELS) { level ->
+            val value = level / 255.0
+            val linear = if (value < 0.04045) value / 12.92 else ((value + 0.055) / 1.055).pow(2.4)
+            (linear * weight * MAX_LEVEL * FIXED_POINT).toInt()
+        }
+
+        private const val FIXED_POINT = 1 shl 8
+
+        /**
+         * The luminance of a color, from 0 to [MAX_LEVEL].
+         */
+        private fun luminanceLevel(color: Int): Int {
+            val red = RED[(color shr 16) and 0xff]
+            val green = GREEN[(color shr 8) and 0xff]
+            val blue = BLUE[color and 0xff]
+            return ((red + green + blue) / FIXED_POINT).coerceAtMost(MAX_LEVEL)
+        }
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2019 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.core.util
+
+import `in`.uncod.android.bypass.LoadImageCallback
+import `in`.uncod.android.bypass.Markdown
+import android.content.res.ColorStateList
+import androidx.annotation.ColorInt
+import kotlinx.coroutines.CoroutineDispatcher
+import kotlinx.coroutines.async
+import kotlinx.coroutines.awaitAll
+import kotlinx.coroutines.coroutineScope
+
+/**
+ * Renders each of [contents], e.g. the bodies of a thread of comments, in parallel on
+ * [dispatcher]. Each rendered content is passed through [postProcess] in the same task, e.g. to
+ * linkify or measure it. The results are in the same order as [contents].
+ *
+ * [callback] and [postProcess] are called on the threads of [dispatcher].
+ */
+suspend fun Markdown.markdownToSpannables(
+    contents: List<String>,
+    linksColor: ColorStateList,
+    @ColorInt highlightColor: Int,
+    callback: LoadImageCallback?,
+    dispatcher: CoroutineDispatcher,
+    postProcess: (CharSequence) -> CharSequence = { it }
+): List<CharSequence> = coroutineScope {
+    contents.map { content ->
+        async(dispatcher) {
+            postProcess(markdownToSpannable(content, linksColor, highlightColor, callback))
+        }
+    }.awaitAll()
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2019 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.core.util
+
+import `in`.uncod.android.bypass.style.TouchableUrlSpan
+import android.content.res.ColorStateList
+import android.text.Spannable
+import android.text.Spanned
+import android.text.style.URLSpan
+import androidx.annotation.ColorInt
+
+/**
+ * Finds plain-text links, i.e. http(s) URLs and www. addresses, with a single forward scan over
+ * the text: no regular expressions, no copies of the text and no allocations until a link is
+ * found.
+ *
+ * Bare domains such as "plaid.app" are not links, to avoid linking e.g. "e.g." or "file.txt".
+ */
+object PlainLinks {
+
+    @PublishedApi
+    internal const val NO_LINK = -1
+
+    private val SCHEMES = arrayOf("https://", "http://")
+    private const val WWW = "www."
+    private const val TRAILING_PUNCTUATION = ".,;:!?'\"*"
+
+    /**
+     * Add [TouchableUrlSpan]s to the plain links in [text] which aren't already part of a
+     * [URLSpan].
+     */
+    @JvmStatic
+    fun addLinks(
+        text: Spannable,
+        linkTextColor: ColorStateList,
+        @ColorInt linkHighlightColor: Int
+    ) {
+        val existing = text.getSpans(0, text.length, URLSpan::class.java)
+        forEachLink(text) { start, end ->
+            val linked = existing.any {
+                text.getSpanStart(it) < end && text.getSpanEnd(it) > start
+            }
+            if (!linked) {
+                text.setSpan(
+                    TouchableUrlSpan(linkUrl(text, start, end), linkTextColor, linkHighlightColor),
+                    start,
+                    end,
+                    Spanned.SPAN_EXCLUSIVE_EXCLUSIVE
+                )
+            }
+        }
+    }
+
+    /**
+     * Call [action] with the start and end of each plain link in [text], in order.
+     */
+    inline fun forEachLink(text: CharSequence, action: (start: Int, end: Int) -> Unit) {
+        var index = 0
+        while (index < text.length) {
+            val end = linkEnd(text, index)
+            if (end == NO_LINK) {
+                index++
+            } else {
+                action(index, end)
+                index = end
+            }
+        }
+    }
+
+    /**
+     * The URL of the link between [start] and [end], with a lower case scheme added if missing.
+     */
+    internal fun linkUrl(text: CharSequence, start: Int, end: Int): String {
+        SCHEMES.forEach { scheme ->
+            if (text.startsWith(scheme, start, ignoreCase = true)) {
+                return scheme + text.substring(start + scheme.length, end)
+            }
+        }
+        return SCHEMES[1] + text.substring(start, end)
+    }
+
+    /**
+     * Returns the end of the link starting at [start], or [NO_LINK].
+     */
+    @PublishedApi
+    internal fun linkEnd(text: CharSequence, start: Int): Int {
+        // links start on a word boundary, and not within e.g. an email address or a path
+        if (start > 0) {
+            val previous = text[start - 1]
+            if (previous.isLetterOrDigit() || previous in "@._-/") return NO_LINK
+        }
+
+        val hostStart = schemeEnd(text, start)
+        if (hostStart == NO_LINK) return NO_LINK
+        // www. is the first label of the host, so the rest needs a dot of its own
+        val isWww = text.startsWith(WWW, hostStart, ignoreCase = true)
+        val hostEnd = hostEnd(text, if (isWww) hostStart + WWW.length else hostStart, isWww)
+        if (hostEnd == NO_LINK) return NO_LINK
+
+        var index = portEnd(text, hostEnd)
+        if (index < text.length && text[index] in "/?#") {
+            index = pathEnd(text, index)
+        }
+        while (index > hostEnd && text[index - 1] in TRAILING_PUNCTUATION) index--
+        return index
+    }
+
+    private fun schemeEnd(text: CharSequence, start: Int): Int {
+        SCHEMES.forEach { scheme ->
+            if (text.startsWith(scheme, start, ignoreCase = true)) return start + scheme.length
+        }
+        return if (text.startsWith(WWW, start, ignoreCase = true)) start else NO_LINK
+    }
+
+    // Dot separated labels of letters, digits and hyphens
+    private fun hostEnd(text: CharSequence, start: Int, needsDot: Boolean): Int {
+        var index = start
+        var hasDot = false
+        while (true) {
+            val labelStart = index
+            while (index < text.length && (text[index].isLetterOrDigit() || text[index] == '-')) {
+                index++
+            }
+            if (index == labelStart) return NO_LINK
+            // a dot not followed by another label ends the sentence, not the host
+            val dotEnd = index + 1
+            if (dotEnd < text.length && text[index] == '.' && text[dotEnd].isLetterOrDigit()) {
+                hasDot = true
+                index = dotEnd
+            } else {
+                return if (needsDot && !hasDot) NO_LINK else index
+            }
+        }
+    }
+
+    private fun portEnd(text: CharSequence, hostEnd: Int): Int {
+        if (hostEnd + 1 >= text.length || text[hostEnd] != ':' || !text[hostEnd + 1].isDigit()) {
+            return hostEnd
+        }
+        var index = hostEnd + 1
+        while (index < text.length && text[index].isDigit()) index++
+        return index
+    }
+
+    // Anything up to whitespace, quotes or angle brackets, closing parentheses and brackets only
+    // if they were opened within the link
+    private fun pathEnd(text: CharSequence, start: Int): Int {
+        var parentheses = 0
+        var brackets = 0
+        var index = start
+        while (index < text.length) {
+            when (val c = text[index]) {
+                '(' -> parentheses++
+                ')' -> if (parentheses-- == 0) return index
+                '[' -> brackets++
+                ']' -> if (brackets-- == 0) return index
+                else -> if (c.isWhitespace() || c.isISOControl() || c in "<>\"\uFFFC") return index
+            }
+            index++
+        }
+        return index
+    }
+}
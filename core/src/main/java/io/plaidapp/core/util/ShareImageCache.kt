@@ -0,0 +1,121 @@
+/*
+ * Copyright 2019 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.core.util
+
+import androidx.annotation.WorkerThread
+import java.io.File
+import java.io.IOException
+import java.security.MessageDigest
+import kotlin.coroutines.coroutineContext
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.isActive
+
+/**
+ * On disk cache of images to share, keyed by URL. Every image is stored in [directory], under a
+ * folder named for its URL so the file itself can keep the image's own name.
+ *
+ * When the images take up more than [maxSizeBytes], the least recently shared ones are deleted.
+ */
+class ShareImageCache(
+    private val directory: File,
+    private val maxSizeBytes: Long = MAX_SIZE_BYTES,
+    private val clock: () -> Long = System::currentTimeMillis
+) {
+
+    /**
+     * Returns the image cached for [url], or null if there's none.
+     */
+    @WorkerThread
+    @Synchronized
+    operator fun get(url: String): File? {
+        val file = fileFor(url)
+        if (!file.exists()) {
+            return null
+        }
+        // the modification time orders the images from least to most recently shared
+        file.setLastModified(clock())
+        return file
+    }
+
+    /**
+     * Copies [source] into the cache as the image of [url], a buffer at a time so the copy stops
+     * if the calling coroutine is cancelled.
+     */
+    @WorkerThread
+    suspend fun put(url: String, source: File): File {
+        val file = fileFor(url)
+        // a file of its own for each copy, as the same image may be shared twice at once; created
+        // under the lock so trimming doesn't delete the folder in between
+        val tmpFile = synchronized(this) {
+            val folder = file.parentFile
+            if (!folder.exists() && !folder.mkdirs()) {
+                throw IOException("Unable to create $folder")
+            }
+            File.createTempFile(TMP_PREFIX, TMP_SUFFIX, folder)
+        }
+        try {
+            source.inputStream().use { input ->
+                tmpFile.outputStream().use { output ->
+                    val buffer = ByteArray(BUFFER_SIZE)
+                    var read = input.read(buffer)
+                    while (read >= 0) {
+                        if (!coroutineContext.isActive) throw CancellationException()
+                        output.write(buffer, 0, read)
+                        read = input.read(buffer)
+                    }
+                }
+            }
+            synchronized(this) {
+                if (!tmpFile.renameTo(file)) throw IOException("Unable to create $file")
+                file.setLastModified(clock())
+                trimToSize(file)
+            }
+        } finally {
+            tmpFile.delete()
+        }
+        return file
+    }
+
+    private fun trimToSize(keep: File) {
+        val images = directory.listFiles().orEmpty().flatMap { folder ->
+            folder.listFiles { file -> !file.name.endsWith(TMP_SUFFIX) }.orEmpty().asList()
+        }
+        var size = images.fold(0L) { total, image -> total + image.length() }
+        for (image in images.sortedBy { it.lastModified() }) {
+            if (size <= maxSizeBytes) break
+            if (image == keep) continue
+            size -= image.length()
+            image.delete()
+            image.parentFile.delete()
+        }
+    }
+
+    private fun fileFor(url: String): File {
+        val digest = MessageDigest.getInstance("SHA-1").digest(url.toByteArray())
+        val folder = File(directory, digest.joinToString("") { "%02x".format(it) })
+        return File(folder, url.substring(url.lastIndexOf('/') + 1).ifEmpty { DEFAULT_NAME })
+    }
+
+    companion object {
+        const val MAX_SIZE_BYTES = 20L * 1024 * 1024
+
+        private const val BUFFER_SIZE = 8 * 1024
+        private const val TMP_PREFIX = "share"
+        private const val TMP_SUFFIX = ".tmp"
+        private const val DEFAULT_NAME = "image"
+    }
+}
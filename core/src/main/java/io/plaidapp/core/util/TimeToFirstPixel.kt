@@ -0,0 +1,57 @@
+/*
+ * Copyright 2019 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.core.util
+
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Measures how long shot images take to show their first pixels, whether of a thumbnail or of
+ * the full image, in the feed and on the shot detail screen.
+ */
+object TimeToFirstPixel {
+
+    enum class Path { FEED, DETAIL }
+
+    private val counts = Array(Path.values().size) { AtomicLong() }
+    private val totalMillis = Array(Path.values().size) { AtomicLong() }
+
+    fun record(path: Path, millis: Long) {
+        counts[path.ordinal].incrementAndGet()
+        totalMillis[path.ordinal].addAndGet(millis)
+    }
+
+    /**
+     * The number of images measured on [path] since the process started.
+     */
+    fun count(path: Path): Long = counts[path.ordinal].get()
+
+    /**
+     * The mean time to first pixel on [path], or 0 if nothing was measured.
+     */
+    fun averageMillis(path: Path): Long {
+        val count = count(path)
+        return if (count == 0L) 0L else totalMillis[path.ordinal].get() / count
+    }
+
+    /**
+     * Forget everything measured so far.
+     */
+    internal fun reset() {
+        counts.forEach { it.set(0L) }
+        totalMillis.forEach { it.set(0L) }
+    }
+}
@@ -78,11 +78,26 @@ public class ViewUtils {
                 bounded ? new ColorDrawable(Color.WHITE) : null);
     }
 
+    public static RippleDrawable createRipple(@ColorInt int rippleColor, boolean bounded) {
+        return new RippleDrawable(ColorStateList.valueOf(rippleColor), null,
+                bounded ? new ColorDrawable(Color.WHITE) : null);
+    }
+
     public static RippleDrawable createRipple(@Nullable Palette palette,
                                               @FloatRange(from = 0f, to = 1f) float darkAlpha,
                                               @FloatRange(from = 0f, to = 1f) float lightAlpha,
                                               @ColorInt int fallbackColor,
                                               boolean bounded) {
+        return createRipple(getRippleColor(palette, darkAlpha, lightAlpha, fallbackColor), bounded);
+    }
+
+    /**
+     * Pick the color of a ripple from the swatches of a palette, in preference order.
+     */
+    public static @ColorInt int getRippleColor(@Nullable Palette palette,
+                                               @FloatRange(from = 0f, to = 1f) float darkAlpha,
+                                               @FloatRange(from = 0f, to = 1f) float lightAlpha,
+                                               @ColorInt int fallbackColor) {
         int rippleColor = fallbackColor;
         if (palette != null) {
             // try the named swatches in preference order
@@ -106,8 +121,7 @@ public class ViewUtils {
                         ColorUtils.modifyAlpha(palette.getDarkMutedSwatch().getRgb(), darkAlpha);
             }
         }
-        return new RippleDrawable(ColorStateList.valueOf(rippleColor), null,
-                bounded ? new ColorDrawable(Color.WHITE) : null);
+        return rippleColor;
     }
 
     public static void setLightStatusBar(@NonNull View view) {
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2019 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.core.util.glide
+
+import com.bumptech.glide.load.Key
+import com.bumptech.glide.load.engine.Resource
+import com.bumptech.glide.load.engine.cache.LruResourceCache
+import io.plaidapp.core.data.CacheStats
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * A Glide memory cache that counts its hits, misses and evictions.
+ */
+class CountingMemoryCache(maxSizeBytes: Long) : LruResourceCache(maxSizeBytes) {
+
+    private val hitCount = AtomicLong()
+    private val missCount = AtomicLong()
+    private val evictionCount = AtomicLong()
+
+    // Glide takes resources out of the memory cache whilst they're in use
+    override fun remove(key: Key): Resource<*>? {
+        val resource = super.remove(key)
+        if (resource != null) hitCount.incrementAndGet() else missCount.incrementAndGet()
+        return resource
+    }
+
+    override fun onItemEvicted(key: Key, item: Resource<*>?) {
+        evictionCount.incrementAndGet()
+        super.onItemEvicted(key, item)
+    }
+
+    fun stats() = CacheStats(hitCount.get(), missCount.get(), evictionCount.get())
+}
@@ -25,68 +25,141 @@ import com.bumptech.glide.request.target.DrawableImageViewTarget
 import com.bumptech.glide.request.transition.Transition
 import io.plaidapp.core.R
 import io.plaidapp.core.ui.widget.BadgedFourThreeImageView
-import io.plaidapp.core.util.ColorUtils
+import io.plaidapp.core.util.LuminanceSampler
 import io.plaidapp.core.util.ViewUtils
+import io.plaidapp.core.util.asGif
 import io.plaidapp.core.util.isAnimated
 import io.plaidapp.core.util.measured
 
 /**
  * A Glide [com.bumptech.glide.request.target.ViewTarget] for [BadgedFourThreeImageView]s.
  * It applies a badge for animated images, can prevent GIFs from auto-playing & applies a palette
- * generated ripple.
+ * generated ripple. Animated images are bound to the [GifPlaybackManager], which decides when they
+ * play. If a [reload] function is given, a stopped GIF can be trimmed to a still of its first
+ * frame, and is reloaded when it's played again.
+ *
+ * The ripple and badge colors of an [imageUrl] are derived once and then applied from the
+ * [ShotColorsCache].
  */
 class DribbbleTarget(
     private val badgedImageView: BadgedFourThreeImageView,
-    private val autoplayGifs: Boolean
-) : DrawableImageViewTarget(badgedImageView), Palette.PaletteAsyncListener {
+    private val autoplayGifs: Boolean,
+    private val imageUrl: String? = null,
+    private val reload: ((DribbbleTarget) -> Unit)? = null
+) : DrawableImageViewTarget(badgedImageView), Palette.PaletteAsyncListener,
+    GifPlaybackManager.Trimmable {
+
+    private val colorsCache = ShotColorsCache.getInstance(badgedImageView.context)
+    private val gifs = GifPlaybackManager.instance
+    private var gif: GifDrawable? = null
 
     override fun onResourceReady(drawable: Drawable, transition: Transition<in Drawable>?) {
         super.onResourceReady(drawable, transition)
         val isAnimated = drawable.isAnimated()
-        if (!autoplayGifs && isAnimated) {
-            (drawable as GifDrawable).stop()
+        gif = drawable.asGif()
+        gif?.let {
+            val trimmable = if (reload != null) this else null
+            gifs.bind(badgedImageView, it, it.size, GifPlaybackManager.Priority.GRID, trimmable)
+            if (autoplayGifs) {
+                gifs.play(badgedImageView)
+            }
+        }
+        val colors = imageUrl?.let { colorsCache[it] }
+        val rippleColor = colors?.rippleColor
+        val isBadgeAreaDark = colors?.isBadgeAreaDark
+        if (rippleColor != null) {
+            setRipple(rippleColor)
+        } else {
+            val bitmap = drawable.getBitmap() ?: return
+            Palette.from(bitmap).clearFilters().generate(this)
         }
-        val bitmap = drawable.getBitmap() ?: return
-        Palette.from(bitmap).clearFilters().generate(this)
         if (isAnimated) {
-            // look at the area the badge covers to determine its color
-            badgedImageView.measured(this::setBadgeColor)
+            if (isBadgeAreaDark != null) {
+                setBadgeColor(isBadgeAreaDark)
+            } else {
+                // look at the area the badge covers to determine its color
+                badgedImageView.measured(this::sampleBadgeColor)
+            }
         }
     }
 
+    override fun onLoadStarted(placeholder: Drawable?) {
+        gifs.release(badgedImageView)
+        gif = null
+        super.onLoadStarted(placeholder)
+    }
+
+    override fun onLoadCleared(placeholder: Drawable?) {
+        gifs.release(badgedImageView)
+        gif = null
+        super.onLoadCleared(placeholder)
+    }
+
+    override fun trim() {
+        val firstFrame = gif?.firstFrame?.let {
+            it.copy(it.config ?: Bitmap.Config.ARGB_8888, false)
+        }
+        // clearing the request lets Glide recycle the GIF
+        GlideApp.with(badgedImageView).clear(this)
+        badgedImageView.setImageBitmap(firstFrame)
+    }
+
+    override fun restore() {
+        reload?.invoke(this)
+    }
+
     override fun onStart() {
         if (autoplayGifs) {
-            super.onStart()
+            gifs.play(badgedImageView)
         }
     }
 
     override fun onStop() {
-        if (autoplayGifs) {
-            super.onStop()
-        }
+        gifs.pause(badgedImageView)
     }
 
     override fun onGenerated(palette: Palette?) {
-        badgedImageView.foreground = ViewUtils.createRipple(palette, 0.25f, 0.5f,
-                ContextCompat.getColor(view.context, R.color.mid_grey), true)
+        val rippleColor = ViewUtils.getRippleColor(palette, 0.25f, 0.5f,
+                ContextCompat.getColor(view.context, R.color.mid_grey))
+        imageUrl?.let { colorsCache.putRippleColor(it, rippleColor) }
+        setRipple(rippleColor)
+    }
+
+    private fun setRipple(rippleColor: Int) {
+        badgedImageView.foreground = ViewUtils.createRipple(rippleColor, true)
     }
 
-    private fun setBadgeColor() {
+    private fun sampleBadgeColor() {
         val biv = badgedImageView
         biv.drawable.getBitmap()?.let {
             val badgePos = biv.badgeBounds
             // badge position in view coordinates but bitmap might be smaller, so need to scale it
             // to sample the correct portion that the badge will overlay
             val scale = it.width.toFloat() / biv.width
-            val left = (badgePos.left * scale).toInt()
-            val top = (badgePos.top * scale).toInt()
-            val width = (badgePos.width() * scale).toInt()
-            val height = (badgePos.height() * scale).toInt()
-            val corner = Bitmap.createBitmap(it, left, top, width, height)
-            val isDark = ColorUtils.isDark(corner)
-            corner.recycle()
-            biv.setBadgeColor(ContextCompat.getColor(biv.context,
-                    if (isDark) R.color.gif_badge_dark_image else R.color.gif_badge_light_image))
+            badgeSampler.sample(
+                it,
+                (badgePos.left * scale).toInt(),
+                (badgePos.top * scale).toInt(),
+                (badgePos.width() * scale).toInt(),
+                (badgePos.height() * scale).toInt()
+            )
+            val isDark = badgeSampler.isDark()
+            imageUrl?.let { url -> colorsCache.putBadgeAreaDark(url, isDark) }
+            setBadgeColor(isDark)
         }
     }
+
+    private fun setBadgeColor(isBadgeAreaDark: Boolean) {
+        val color = if (isBadgeAreaDark) {
+            R.color.gif_badge_dark_image
+        } else {
+            R.color.gif_badge_light_image
+        }
+        badgedImageView.setBadgeColor(ContextCompat.getColor(badgedImageView.context, color))
+    }
+
+    companion object {
+        // badges are only ever sampled on the main thread, so one buffer serves all shots
+        private val badgeSampler = LuminanceSampler()
+    }
 }
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2019 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.core.util.glide
+
+import android.graphics.drawable.Animatable
+import androidx.annotation.MainThread
+
+/**
+ * Decides which animated GIFs may play. A GIF only decodes frames whilst it's running, so bounding
+ * the GIFs playing at once to [maxPlaying] bounds the decoding work and the frame buffers in use.
+ *
+ * GIFs are [bind]ed to an owner, typically the view displaying them, and are stopped until
+ * [play] is granted a slot. When all slots are taken, the least recently played GIF of the same
+ * or lower [Priority] is paused to make room. GIFs should be [release]d when their owner no longer
+ * displays them.
+ *
+ * A stopped GIF still holds its decoder and frame buffers. So beyond [maxStopped] stopped GIFs in
+ * the grid, the least recently played [Trimmable] ones are trimmed, and restored when played.
+ */
+@MainThread
+class GifPlaybackManager(
+    private val maxPlaying: Int = MAX_PLAYING,
+    private val maxStopped: Int = MAX_STOPPED
+) {
+
+    /**
+     * GIFs on the shot detail screen take precedence over those in the grid.
+     */
+    enum class Priority { GRID, DETAIL }
+
+    /**
+     * The owner of a GIF that can free the GIF's resources whilst it's stopped.
+     */
+    interface Trimmable {
+
+        /**
+         * Free the decoder and frame buffers of the GIF, e.g. showing a still frame instead.
+         */
+        fun trim()
+
+        /**
+         * Load the GIF again, to bind it anew.
+         */
+        fun restore()
+    }
+
+    private class Entry(
+        val gif: Animatable,
+        val sizeBytes: Int,
+        val priority: Priority,
+        val trimmable: Trimmable?
+    ) {
+        var playing = false
+    }
+
+    // in access order, so the first playing entry is the least recently played
+    private val entries = LinkedHashMap<Any, Entry>(16, 0.75f, true)
+
+    private val trimmed = HashMap<Any, Trimmable>()
+
+    /**
+     * Bytes held by the frames of the GIFs currently bound.
+     */
+    val memoryBytes: Long
+        get() = entries.values.fold(0L) { bytes, entry -> bytes + entry.sizeBytes }
+
+    val boundCount: Int
+        get() = entries.size
+
+    val playingCount: Int
+        get() = entries.values.count { it.playing }
+
+    val trimmedCount: Int
+        get() = trimmed.size
+
+    /**
+     * Bind [gif], of [sizeBytes], to [owner], replacing any GIF previously bound to it. The GIF is
+     * stopped until [play] is called. A GIF in the grid with a [trimmable] owner may be trimmed
+     * whilst it's stopped.
+     */
+    fun bind(
+        owner: Any,
+        gif: Animatable,
+        sizeBytes: Int,
+        priority: Priority,
+        trimmable: Trimmable? = null
+    ) {
+        release(owner)
+        gif.stop()
+        entries[owner] = Entry(gif, sizeBytes, priority, trimmable)
+        trimStopped()
+    }
+
+    /**
+     * Start the GIF bound to [owner], if a slot is free or can be freed. A trimmed GIF is
+     * restored instead, and can be played once it's bound again.
+     *
+     * @return whether the GIF is playing
+     */
+    fun play(owner: Any): Boolean {
+        val entry = entries[owner]
+        if (entry == null) {
+            trimmed.remove(owner)?.restore()
+            return false
+        }
+        if (entry.playing) return true
+        while (playingCount >= maxPlaying) {
+            val victim = entries.values.firstOrNull {
+                it.playing && it.priority <= entry.priority
+            } ?: return false
+            stop(victim)
+        }
+        entry.playing = true
+        entry.gif.start()
+        trimStopped()
+        return true
+    }
+
+    /**
+     * Stop the GIF bound to [owner], keeping it bound so it can be played again.
+     */
+    fun pause(owner: Any) {
+        entries[owner]?.let { stop(it) }
+    }
+
+    /**
+     * Stop and forget the GIF bound to [owner].
+     */
+    fun release(owner: Any) {
+        trimmed.remove(owner)
+        entries.remove(owner)?.let { stop(it) }
+    }
+
+    private fun stop(entry: Entry) {
+        entry.playing = false
+        entry.gif.stop()
+    }
+
+    private fun trimStopped() {
+        val stopped = entries.filterValues { !it.playing && it.priority == Priority.GRID }
+        val toTrim = stopped.size - maxStopped
+        if (toTrim <= 0) return
+        // the first entries are the least recently played
+        stopped.entries.filter { it.value.trimmable != null }
+            .take(toTrim)
+            .forEach { (owner, entry) ->
+                val trimmable = entry.trimmable!!
+                entries.remove(owner)
+                trimmable.trim()
+                trimmed[owner] = trimmable
+            }
+    }
+
+    override fun toString() = "%d GIFs bound, %d playing, %d trimmed, %d KB".format(
+        boundCount,
+        playingCount,
+        trimmedCount,
+        memoryBytes / 1024
+    )
+
+    companion object {
+        private const val MAX_PLAYING = 2
+        private const val MAX_STOPPED = 4
+
+        val instance by lazy { GifPlaybackManager() }
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2019 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.core.util.glide
+
+import android.graphics.drawable.Drawable
+import android.widget.ImageView
+import com.bumptech.glide.request.target.DrawableImageViewTarget
+import com.bumptech.glide.request.transition.Transition
+import io.plaidapp.core.util.asGif
+
+/**
+ * A Glide target for [ImageView]s that leaves playing animated images to the
+ * [GifPlaybackManager], instead of starting them when they're loaded and when the lifecycle
+ * starts. GIFs are bound to the view, with [priority].
+ */
+class GifPlaybackTarget(
+    view: ImageView,
+    private val priority: GifPlaybackManager.Priority
+) : DrawableImageViewTarget(view) {
+
+    private val gifs = GifPlaybackManager.instance
+
+    override fun onResourceReady(resource: Drawable, transition: Transition<in Drawable>?) {
+        // the target starts the GIF, so bind it after to stop it until a slot is granted
+        super.onResourceReady(resource, transition)
+        resource.asGif()?.let {
+            gifs.bind(view, it, it.size, priority)
+            gifs.play(view)
+        }
+    }
+
+    override fun onLoadStarted(placeholder: Drawable?) {
+        gifs.release(view)
+        super.onLoadStarted(placeholder)
+    }
+
+    override fun onLoadCleared(placeholder: Drawable?) {
+        gifs.release(view)
+        super.onLoadCleared(placeholder)
+    }
+
+    override fun onStart() {
+        gifs.play(view)
+    }
+
+    override fun onStop() {
+        gifs.pause(view)
+    }
+}
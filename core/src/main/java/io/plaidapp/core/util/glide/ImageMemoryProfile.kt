@@ -0,0 +1,99 @@
+/*
+ * Copyright 2019 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.core.util.glide
+
+import android.app.ActivityManager
+import android.content.Context
+import com.bumptech.glide.load.DecodeFormat
+
+/**
+ * The sizes of Glide's caches, and the format images are decoded in, for a class of device.
+ */
+data class ImageMemoryProfile(
+    val memoryCacheBytes: Long,
+    val bitmapPoolBytes: Long,
+    val diskCacheBytes: Long,
+    val decodeFormat: DecodeFormat
+) {
+
+    companion object {
+        private const val BYTES_PER_MB = 1024L * 1024L
+
+        // the share of the app's heap Glide's memory cache & bitmap pool may take up together
+        private const val HEAP_FRACTION = 0.4f
+        private const val LOW_RAM_HEAP_FRACTION = 0.25f
+
+        // the feed scrolls back and forth, so keep a few screens of images in memory
+        private const val MEMORY_CACHE_SCREENS = 3
+        private const val BITMAP_POOL_SCREENS = 2
+        private const val LOW_RAM_MEMORY_CACHE_SCREENS = 1
+        private const val LOW_RAM_BITMAP_POOL_SCREENS = 1
+
+        private const val DISK_CACHE_BYTES = 256 * BYTES_PER_MB
+        private const val LOW_RAM_DISK_CACHE_BYTES = 64 * BYTES_PER_MB
+
+        /**
+         * The profile for the device the app is running on.
+         */
+        fun forDevice(context: Context): ImageMemoryProfile {
+            val activityManager =
+                context.getSystemService(Context.ACTIVITY_SERVICE) as ActivityManager
+            val displayMetrics = context.resources.displayMetrics
+            return create(
+                activityManager.memoryClass,
+                activityManager.isLowRamDevice,
+                displayMetrics.widthPixels,
+                displayMetrics.heightPixels
+            )
+        }
+
+        /**
+         * Size the caches to hold a number of screens of images, scaled down if they'd take up
+         * more than a share of [memoryClassMb].
+         */
+        fun create(
+            memoryClassMb: Int,
+            isLowRamDevice: Boolean,
+            screenWidth: Int,
+            screenHeight: Int
+        ): ImageMemoryProfile {
+            val decodeFormat =
+                if (isLowRamDevice) DecodeFormat.PREFER_RGB_565 else DecodeFormat.PREFER_ARGB_8888
+            val bytesPerPixel = if (isLowRamDevice) 2 else 4
+            val screenBytes = screenWidth.toLong() * screenHeight * bytesPerPixel
+            var memoryCacheBytes = screenBytes *
+                if (isLowRamDevice) LOW_RAM_MEMORY_CACHE_SCREENS else MEMORY_CACHE_SCREENS
+            var bitmapPoolBytes = screenBytes *
+                if (isLowRamDevice) LOW_RAM_BITMAP_POOL_SCREENS else BITMAP_POOL_SCREENS
+
+            val heapFraction = if (isLowRamDevice) LOW_RAM_HEAP_FRACTION else HEAP_FRACTION
+            val maxBytes = (memoryClassMb * BYTES_PER_MB * heapFraction).toLong()
+            val totalBytes = memoryCacheBytes + bitmapPoolBytes
+            if (totalBytes > maxBytes) {
+                val scale = maxBytes.toDouble() / totalBytes
+                memoryCacheBytes = (memoryCacheBytes * scale).toLong()
+                bitmapPoolBytes = maxBytes - memoryCacheBytes
+            }
+            return ImageMemoryProfile(
+                memoryCacheBytes,
+                bitmapPoolBytes,
+                if (isLowRamDevice) LOW_RAM_DISK_CACHE_BYTES else DISK_CACHE_BYTES,
+                decodeFormat
+            )
+        }
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ *   Copyright 2019 Google LLC
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+package io.plaidapp.core.util.glide;
+
+import androidx.annotation.NonNull;
+
+import com.bumptech.glide.annotation.GlideExtension;
+import com.bumptech.glide.annotation.GlideOption;
+import com.bumptech.glide.load.resource.bitmap.Downsampler;
+import com.bumptech.glide.request.BaseRequestOptions;
+
+/**
+ * Request options added to {@link GlideApp}'s requests.
+ */
+@GlideExtension
+public final class PlaidGlideExtension {
+
+    private PlaidGlideExtension() { }
+
+    /**
+     * Decode into a hardware bitmap where the device supports it, overriding the default set in
+     * {@link PlaidGlideModule}. Only for images whose pixels are never read, e.g. by Palette.
+     */
+    @NonNull
+    @GlideOption
+    public static BaseRequestOptions<?> allowHardwareBitmaps(
+            @NonNull BaseRequestOptions<?> options) {
+        return options.set(Downsampler.ALLOW_HARDWARE_CONFIG, true);
+    }
+}
@@ -17,17 +17,18 @@
 
 package io.plaidapp.core.util.glide;
 
-import android.app.ActivityManager;
 import android.content.Context;
 
+import androidx.annotation.Nullable;
+
 import com.bumptech.glide.GlideBuilder;
 import com.bumptech.glide.annotation.GlideModule;
+import com.bumptech.glide.load.engine.bitmap_recycle.LruBitmapPool;
+import com.bumptech.glide.load.engine.cache.InternalCacheDiskCacheFactory;
 import com.bumptech.glide.module.AppGlideModule;
 import com.bumptech.glide.request.RequestOptions;
 
-import static android.content.Context.ACTIVITY_SERVICE;
-import static com.bumptech.glide.load.DecodeFormat.PREFER_ARGB_8888;
-import static com.bumptech.glide.load.DecodeFormat.PREFER_RGB_565;
+import io.plaidapp.core.data.CacheStats;
 
 /**
  * Glide module configurations
@@ -35,20 +36,47 @@ import static com.bumptech.glide.load.DecodeFormat.PREFER_RGB_565;
 @GlideModule
 public class PlaidGlideModule extends AppGlideModule {
 
+    private static CountingMemoryCache memoryCache;
+    private static LruBitmapPool bitmapPool;
+
     @Override
     public void applyOptions(Context context, GlideBuilder builder) {
-        // Prefer higher quality images unless we're on a low RAM device
-        ActivityManager activityManager =
-                (ActivityManager) context.getSystemService(ACTIVITY_SERVICE);
+        // Size the caches, and prefer higher quality images, unless we're on a low RAM device
+        ImageMemoryProfile profile = ImageMemoryProfile.Companion.forDevice(context);
+        memoryCache = new CountingMemoryCache(profile.getMemoryCacheBytes());
+        bitmapPool = new LruBitmapPool(profile.getBitmapPoolBytes());
         final RequestOptions defaultOptions = new RequestOptions()
-        .format(activityManager.isLowRamDevice() ? PREFER_RGB_565 : PREFER_ARGB_8888)
-          // Disable hardware bitmaps as they don't play nicely with Palette
+        .format(profile.getDecodeFormat())
+          // Disable hardware bitmaps as they don't play nicely with Palette; requests which don't
+          // need pixel access opt back in with allowHardwareBitmaps()
         .disallowHardwareConfig();
-        builder.setDefaultRequestOptions(defaultOptions);
+        builder.setMemoryCache(memoryCache)
+                .setBitmapPool(bitmapPool)
+                .setDiskCache(new InternalCacheDiskCacheFactory(context,
+                        profile.getDiskCacheBytes()))
+                .setDefaultRequestOptions(defaultOptions);
     }
 
     @Override
     public boolean isManifestParsingEnabled() {
         return false;
     }
+
+    /**
+     * The hits, misses and evictions of Glide's memory cache, or null before Glide is initialized.
+     */
+    @Nullable
+    public static CacheStats getMemoryCacheStats() {
+        return memoryCache != null ? memoryCache.stats() : null;
+    }
+
+    /**
+     * The hits, misses and evictions of Glide's bitmap pool, or null before Glide is initialized.
+     */
+    @Nullable
+    public static CacheStats getBitmapPoolStats() {
+        if (bitmapPool == null) return null;
+        return new CacheStats(bitmapPool.hitCount(), bitmapPool.missCount(),
+                bitmapPool.evictionCount());
+    }
 }
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2019 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.core.util.glide
+
+import android.content.Context
+import androidx.annotation.ColorInt
+import androidx.annotation.WorkerThread
+import io.plaidapp.core.data.BoundedCache
+import io.plaidapp.core.data.CacheStats
+import java.io.BufferedInputStream
+import java.io.BufferedOutputStream
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.File
+import java.io.IOException
+import java.util.concurrent.Executor
+import java.util.concurrent.Executors
+import java.util.concurrent.atomic.AtomicBoolean
+
+/**
+ * Colors derived from the image of a shot: the color of the ripple, picked from the image's
+ * palette, and for animated shots, whether the area of the image under the GIF badge is dark.
+ * Either is null until it's computed.
+ */
+data class ShotColors(
+    @ColorInt val rippleColor: Int? = null,
+    val isBadgeAreaDark: Boolean? = null
+)
+
+/**
+ * Caches the [ShotColors] of shots by image URL, so they're not derived from the image again
+ * every time a shot is bound. Colors are held in memory, in a [BoundedCache] of [maxEntries], and
+ * persisted to [file] so they survive process death. The file is read and written on [executor].
+ */
+class ShotColorsCache(
+    private val file: File,
+    private val executor: Executor,
+    maxEntries: Int = MAX_ENTRIES
+) {
+
+    private val memoryCache = BoundedCache<String, ShotColors>(maxEntries)
+    private val writeScheduled = AtomicBoolean()
+
+    /**
+     * The hits and misses of [get] since the cache was created.
+     */
+    val stats: CacheStats
+        get() = memoryCache.stats()
+
+    init {
+        executor.execute { read() }
+    }
+
+    operator fun get(imageUrl: String): ShotColors? = memoryCache[imageUrl]
+
+    fun putRippleColor(imageUrl: String, @ColorInt rippleColor: Int) {
+        memoryCache.update(imageUrl) { (it ?: ShotColors()).copy(rippleColor = rippleColor) }
+        scheduleWrite()
+    }
+
+    fun putBadgeAreaDark(imageUrl: String, isBadgeAreaDark: Boolean) {
+        memoryCache.update(imageUrl) {
+            (it ?: ShotColors()).copy(isBadgeAreaDark = isBadgeAreaDark)
+        }
+        scheduleWrite()
+    }
+
+    private fun scheduleWrite() {
+        // any number of puts made while a write is pending are written together
+        if (writeScheduled.compareAndSet(false, true)) {
+            executor.execute {
+                writeScheduled.set(false)
+                write()
+            }
+        }
+    }
+
+    @WorkerThread
+    private fun read() {
+        if (!file.exists()) {
+            return
+        }
+        try {
+            DataInputStream(BufferedInputStream(file.inputStream())).use { input ->
+                if (input.readInt() != VERSION) {
+                    return
+                }
+                repeat(input.readInt()) {
+                    val imageUrl = input.readUTF()
+                    val rippleColor = input.readInt()
+                    val colors = ShotColors(
+                        rippleColor = if (input.readBoolean()) rippleColor else null,
+                        isBadgeAreaDark = when (input.readByte()) {
+                            BADGE_DARK -> true
+                            BADGE_LIGHT -> false
+                            else -> null
+                        }
+                    )
+                    // colors computed since the app started are more recent
+                    memoryCache.update(imageUrl) { it ?: colors }
+                }
+            }
+        } catch (e: IOException) {
+            file.delete()
+        }
+    }
+
+    @WorkerThread
+    private fun write() {
+        val entries = memoryCache.toMap()
+        val tmpFile = File(file.parentFile, "${file.name}.tmp")
+        try {
+            DataOutputStream(BufferedOutputStream(tmpFile.outputStream())).use { output ->
+                output.writeInt(VERSION)
+                output.writeInt(entries.size)
+                entries.forEach { (imageUrl, colors) ->
+                    output.writeUTF(imageUrl)
+                    output.writeInt(colors.rippleColor ?: 0)
+                    output.writeBoolean(colors.rippleColor != null)
+                    output.writeByte(
+                        when (colors.isBadgeAreaDark) {
+                            true -> BADGE_DARK
+                            false -> BADGE_LIGHT
+                            null -> BADGE_UNKNOWN
+                        }.toInt()
+                    )
+                }
+            }
+            if (!tmpFile.renameTo(file)) {
+                tmpFile.delete()
+            }
+        } catch (e: IOException) {
+            tmpFile.delete()
+        }
+    }
+
+    companion object {
+        const val MAX_ENTRIES = 500
+
+        private const val FILE_NAME = "shot_colors"
+        private const val VERSION = 1
+        private const val BADGE_UNKNOWN: Byte = 0
+        private const val BADGE_LIGHT: Byte = 1
+        private const val BADGE_DARK: Byte = 2
+
+        @Volatile
+        private var INSTANCE: ShotColorsCache? = null
+
+        fun getInstance(context: Context): ShotColorsCache {
+            return INSTANCE ?: synchronized(this) {
+                INSTANCE ?: ShotColorsCache(
+                    File(context.applicationContext.cacheDir, FILE_NAME),
+                    Executors.newSingleThreadExecutor()
+                ).also { INSTANCE = it }
+            }
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2019 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.core.data
+
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+/**
+ * Tests for [BoundedCache].
+ */
+class BoundedCacheTest {
+
+    @Test
+    fun get_countsHitsAndMisses() {
+        // Given a cache holding one entry
+        val cache = BoundedCache<Long, String>(10)
+        cache[1L] = "one"
+
+        // When getting a cached and a missing key
+        val hit = cache[1L]
+        val miss = cache[2L]
+
+        // Then the cached value is returned and both lookups are counted
+        assertEquals("one", hit)
+        assertNull(miss)
+        assertEquals(CacheStats(hitCount = 1, missCount = 1, evictionCount = 0), cache.stats())
+    }
+
+    @Test
+    fun put_whenFull_evictsLeastRecentlyUsed() {
+        // Given a full cache where the first entry was read after the second was added
+        val cache = BoundedCache<Long, String>(2, concurrencyLevel = 1)
+        cache[1L] = "one"
+        cache[2L] = "two"
+        cache[1L]
+
+        // When adding another entry
+        cache[3L] = "three"
+
+        // Then the least recently used entry is evicted
+        assertNull(cache[2L])
+        assertEquals("one", cache[1L])
+        assertEquals("three", cache[3L])
+        assertEquals(1L, cache.stats().evictionCount)
+    }
+
+    @Test
+    fun put_replacingEntry_doesNotEvict() {
+        // Given a full cache
+        val cache = BoundedCache<Long, String>(2, concurrencyLevel = 1)
+        cache[1L] = "one"
+        cache[2L] = "two"
+
+        // When replacing an entry
+        cache[1L] = "uno"
+
+        // Then nothing is evicted
+        assertEquals(2, cache.size)
+        assertEquals("uno", cache[1L])
+        assertEquals(0L, cache.stats().evictionCount)
+    }
+
+    @Test
+    fun put_evictsByWeight() {
+        // Given a cache weighing entries by their length
+        val cache = BoundedCache<Long, String>(10, concurrencyLevel = 1) { _, value ->
+            value.length
+        }
+        cache[1L] = "12345"
+        cache[2L] = "1234"
+
+        // When adding an entry that doesn't fit in the remaining weight
+        cache[3L] = "123"
+
+        // Then as many least recently used entries are evicted as needed
+        assertNull(cache[1L])
+        assertEquals("1234", cache[2L])
+        assertEquals("123", cache[3L])
+    }
+
+    @Test
+    fun update_remapsCurrentValue_withoutCountingLookups() {
+        // Given a cache holding one entry
+        val cache = BoundedCache<Long, String>(10)
+        cache[1L] = "one"
+
+        // When updating it, and a missing key
+        cache.update(1L) { "$it and more" }
+        cache.update(2L) { it ?: "two" }
+
+        // Then both values are updated, without being counted as hits or misses
+        assertEquals(mapOf(1L to "one and more", 2L to "two"), cache.toMap())
+        assertEquals(CacheStats(hitCount = 0, missCount = 0, evictionCount = 0), cache.stats())
+    }
+
+    @Test
+    fun remove_freesWeight() {
+        // Given a full cache
+        val cache = BoundedCache<Long, String>(2, concurrencyLevel = 1)
+        cache[1L] = "one"
+        cache[2L] = "two"
+
+        // When removing an entry and adding another one
+        cache.remove(1L)
+        cache[3L] = "three"
+
+        // Then nothing is evicted
+        assertEquals("two", cache[2L])
+        assertEquals(0L, cache.stats().evictionCount)
+    }
+
+    @Test
+    fun concurrentPuts_stayWithinBounds() {
+        // Given a cache shared by several threads
+        val cache = BoundedCache<Long, Long>(100)
+        val threads = 8
+        val executor = Executors.newFixedThreadPool(threads)
+        val done = CountDownLatch(threads)
+
+        // When every thread adds and reads its own range of keys
+        repeat(threads) { thread ->
+            executor.execute {
+                for (i in 0 until 1000L) {
+                    val key = thread * 1000L + i
+                    cache[key] = key
+                    cache[key]
+                }
+                done.countDown()
+            }
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS))
+        executor.shutdown()
+
+        // Then the cache never holds more than its maximum and every put is accounted for
+        assertTrue(cache.size <= 100)
+        assertEquals(threads * 1000L, cache.size + cache.stats().evictionCount)
+    }
+}
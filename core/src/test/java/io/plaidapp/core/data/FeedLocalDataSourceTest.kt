@@ -0,0 +1,125 @@
+/*
+ * Copyright 2019 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.core.data
+
+import io.plaidapp.core.data.database.FeedItem
+import io.plaidapp.core.data.database.FeedItemDao
+import io.plaidapp.core.designernews.data.stories.model.Story
+import io.plaidapp.core.designernews.storyLinks
+import io.plaidapp.core.dribbble.data.shots
+import io.plaidapp.core.producthunt.data.api.model.Post
+import java.util.Date
+import kotlinx.coroutines.runBlocking
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+/**
+ * Tests for [FeedLocalDataSource] using an in memory [FeedItemDao].
+ */
+class FeedLocalDataSourceTest {
+
+    private val story = Story(
+        id = 45L,
+        title = "Plaid 2.0 was released",
+        page = 1,
+        createdAt = Date(1549900800000L),
+        userId = 5L,
+        links = storyLinks
+    )
+    private val post = Post(
+        id = 345L,
+        title = "Plaid",
+        url = "www.plaid.amazing",
+        tagline = "amazing",
+        discussionUrl = "www.disc.plaid",
+        redirectUrl = "www.d.plaid",
+        commentsCount = 5,
+        votesCount = 100
+    )
+
+    private val dao = FakeFeedItemDao()
+    private val dataSource = FeedLocalDataSource(dao)
+
+    @Test
+    fun savePage_restoresStoriesAndShots() = runBlocking {
+        // Given a page of stories and a page of shots that were saved
+        dataSource.savePage("stories", 1, listOf(story))
+        dataSource.savePage("shots", 1, shots)
+
+        // When getting the stored items
+        val items = dataSource.getItems(listOf("stories", "shots"))
+
+        // Then the same items are restored, in the order they were saved in, with their source
+        assertEquals(shots + story, items)
+        assertEquals(listOf("shots", "shots", "shots", "stories"), items.map { it.dataSource })
+        assertEquals(shots.map { it.url }, items.take(shots.size).map { it.url })
+    }
+
+    @Test
+    fun savePage_restoresPosts() = runBlocking {
+        // Given a page of posts that was saved
+        dataSource.savePage("posts", 1, listOf(post))
+
+        // When getting the stored items
+        val restored = dataSource.getItems(listOf("posts")).single() as Post
+
+        // Then the post is restored
+        assertEquals(post.id, restored.id)
+        assertEquals(post.url, restored.url)
+        assertEquals(post.tagline, restored.tagline)
+        assertEquals(post.votesCount, restored.votesCount)
+    }
+
+    @Test
+    fun savePage_firstPage_replacesDataSource() = runBlocking {
+        // Given two pages of shots that were saved
+        dataSource.savePage("shots", 1, shots.take(1))
+        dataSource.savePage("shots", 2, shots.drop(1))
+
+        // When saving the first page again
+        dataSource.savePage("shots", 1, shots.take(2))
+
+        // Then only the new first page is stored
+        assertEquals(shots.take(2), dataSource.getItems(listOf("shots")))
+    }
+
+    @Test
+    fun savePage_pageNotStored() = runBlocking {
+        // When saving a page after the maximum stored page
+        dataSource.savePage("shots", FeedLocalDataSource.MAX_STORED_PAGES + 1, shots)
+
+        // Then nothing is stored
+        assertTrue(dataSource.getItems(listOf("shots")).isEmpty())
+    }
+
+    private class FakeFeedItemDao : FeedItemDao() {
+        private val items = mutableListOf<FeedItem>()
+
+        override suspend fun getFeedItems(dataSources: List<String>) = items
+            .filter { it.dataSource in dataSources }
+            .sortedWith(compareBy({ it.dataSource }, { it.page }, { it.position }))
+
+        override suspend fun insertFeedItems(items: List<FeedItem>) {
+            this.items.addAll(items)
+        }
+
+        override suspend fun deleteFeedItemsFromPage(dataSource: String, page: Int) {
+            items.removeAll { it.dataSource == dataSource && it.page >= page }
+        }
+    }
+}
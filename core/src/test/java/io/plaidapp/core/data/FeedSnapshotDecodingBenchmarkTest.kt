@@ -0,0 +1,154 @@
+/*
+ * Copyright 2019 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.core.data
+
+import io.plaidapp.core.data.database.FeedItem
+import io.plaidapp.core.data.database.FeedItemDao
+import io.plaidapp.core.designernews.data.stories.model.Story
+import io.plaidapp.core.designernews.data.stories.model.StoryLinks
+import io.plaidapp.core.dribbble.data.api.model.Images
+import io.plaidapp.core.dribbble.data.api.model.Shot
+import io.plaidapp.core.dribbble.data.player
+import io.plaidapp.core.producthunt.data.api.model.Post
+import java.io.ByteArrayOutputStream
+import java.io.DataOutputStream
+import java.nio.ByteBuffer
+import java.util.Date
+import kotlinx.coroutines.runBlocking
+import org.junit.Assert.assertEquals
+import org.junit.Test
+
+/**
+ * Times decoding the same feed from a [FeedSnapshot] and from the Gson payloads that
+ * [FeedLocalDataSource] stores, and reports both. The database query itself isn't included: the
+ * payloads are served from memory, so this only compares hydrating the items.
+ */
+class FeedSnapshotDecodingBenchmarkTest {
+
+    private val feed = (0 until FeedSnapshotDataSource.MAX_SNAPSHOT_ITEMS).map { item(it) }
+
+    @Test
+    fun decode_snapshotAndGson() = runBlocking {
+        // Given the feed as a snapshot
+        val bytes = ByteArrayOutputStream().also { out ->
+            DataOutputStream(out).use { FeedSnapshotFormat.write(FeedSnapshot(2, feed), it) }
+        }.toByteArray()
+        // And stored as JSON payloads, a page per data source
+        val localDataSource = FeedLocalDataSource(InMemoryFeedItemDao())
+        val dataSources = feed.groupBy { it.dataSource!! }
+        dataSources.forEach { (dataSource, items) ->
+            localDataSource.savePage(dataSource, 1, items)
+        }
+
+        // When decoding the feed from each, many times
+        var fromSnapshot = emptyList<PlaidItem>()
+        val snapshotMicros = measureMicrosPerDecode {
+            fromSnapshot = FeedSnapshotFormat.read(ByteBuffer.wrap(bytes))!!.items
+        }
+        var fromGson = emptyList<PlaidItem>()
+        val gsonMicros = measureMicrosPerDecode {
+            fromGson = localDataSource.getItems(dataSources.keys.toList())
+        }
+        println(
+            "Decoding ${feed.size} feed items: snapshot %.1f µs, Gson %.1f µs"
+                .format(snapshotMicros, gsonMicros)
+        )
+
+        // Then both restore the same items
+        assertEquals(feed.map { it.id }, fromSnapshot.map { it.id })
+        assertEquals(feed.map { it.id }.sorted(), fromGson.map { it.id }.sorted())
+    }
+
+    private inline fun measureMicrosPerDecode(decode: () -> Unit): Double {
+        repeat(WARM_UP_ITERATIONS) { decode() }
+        val start = System.nanoTime()
+        repeat(ITERATIONS) { decode() }
+        return (System.nanoTime() - start) / 1000.0 / ITERATIONS
+    }
+
+    private fun item(index: Int): PlaidItem {
+        val id = index.toLong()
+        val createdAt = Date(1549900800000L + index * 60_000L)
+        return when (index % 3) {
+            0 -> Shot(
+                id = id,
+                title = "Plaid shot $index",
+                page = 1,
+                description = "<p>A shot of the <a href=\"https://plaid.app\">Plaid</a> app</p>",
+                images = Images(
+                    hidpi = "$SCREENSHOTS/$index/plaid.png",
+                    normal = "$SCREENSHOTS/$index/plaid_1x.png",
+                    teaser = "$SCREENSHOTS/$index/plaid_teaser.png"
+                ),
+                viewsCount = index * 100,
+                likesCount = index * 10,
+                createdAt = createdAt,
+                animated = index % 2 == 0,
+                user = player
+            ).apply { dataSource = "shots" }
+            1 -> Story(
+                id = id,
+                title = "Plaid story $index",
+                page = 1,
+                comment = "Plaid is a showcase of material design",
+                commentHtml = "<p>Plaid is a showcase of <em>material design</em></p>",
+                commentCount = index,
+                voteCount = index * 2,
+                userId = 5L,
+                createdAt = createdAt,
+                links = StoryLinks(
+                    user = 5L,
+                    comments = (0L until 10L).map { id * 100 + it },
+                    upvotes = (0L until 5L).toList(),
+                    downvotes = emptyList()
+                ),
+                userJob = "Designer"
+            ).apply { dataSource = "stories" }
+            else -> Post(
+                id = id,
+                title = "Plaid post $index",
+                url = "https://www.producthunt.com/posts/plaid-$index",
+                tagline = "A showcase of material design",
+                discussionUrl = "https://www.producthunt.com/posts/plaid-$index#comments",
+                redirectUrl = "https://www.producthunt.com/r/$index",
+                commentsCount = index,
+                votesCount = index * 3
+            ).apply { dataSource = "posts" }
+        }
+    }
+
+    private class InMemoryFeedItemDao : FeedItemDao() {
+        private val items = mutableListOf<FeedItem>()
+
+        override suspend fun getFeedItems(dataSources: List<String>) =
+            items.filter { it.dataSource in dataSources }
+
+        override suspend fun insertFeedItems(items: List<FeedItem>) {
+            this.items.addAll(items)
+        }
+
+        override suspend fun deleteFeedItemsFromPage(dataSource: String, page: Int) {
+            items.removeAll { it.dataSource == dataSource && it.page >= page }
+        }
+    }
+
+    companion object {
+        private const val WARM_UP_ITERATIONS = 200
+        private const val ITERATIONS = 1000
+        private const val SCREENSHOTS = "https://cdn.dribbble.com/users/6295/screenshots"
+    }
+}
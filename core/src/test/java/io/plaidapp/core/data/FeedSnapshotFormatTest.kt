@@ -0,0 +1,181 @@
+/*
+ * Copyright 2019 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.core.data
+
+import io.plaidapp.core.designernews.data.stories.model.Story
+import io.plaidapp.core.designernews.storyLinks
+import io.plaidapp.core.dribbble.data.shots
+import io.plaidapp.core.producthunt.data.api.model.Post
+import java.io.ByteArrayOutputStream
+import java.io.DataOutputStream
+import java.nio.ByteBuffer
+import java.util.Date
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Test
+
+/**
+ * Tests for [FeedSnapshotFormat].
+ */
+class FeedSnapshotFormatTest {
+
+    private val story = Story(
+        id = 45L,
+        title = "Plaid 2.0 was released",
+        page = 1,
+        createdAt = Date(1549900800000L),
+        userId = 5L,
+        commentHtml = "<p>Plaid ✨</p>",
+        links = storyLinks
+    ).apply {
+        dataSource = "stories"
+        weight = 0.5f
+        colspan = 1
+    }
+    private val shot = shots[0].apply {
+        dataSource = "shots"
+        weight = 1f
+        colspan = 2
+    }
+    private val post = Post(
+        id = 345L,
+        title = "Plaid",
+        url = "www.plaid.amazing",
+        tagline = "amazing",
+        discussionUrl = "www.disc.plaid",
+        redirectUrl = "www.d.plaid",
+        commentsCount = 5,
+        votesCount = 100
+    ).apply {
+        dataSource = "posts"
+        colspan = 1
+    }
+
+    @Test
+    fun snapshot_roundTrips() {
+        // Given a snapshot of a story, a shot and a post
+        val snapshot = FeedSnapshot(columns = 2, items = listOf(shot, story, post))
+
+        // When writing and reading it
+        val restored = FeedSnapshotFormat.read(ByteBuffer.wrap(write(snapshot)))!!
+
+        // Then the items are restored, in order, with their layout and data source
+        assertEquals(2, restored.columns)
+        assertEquals(listOf(shot, story), restored.items.take(2))
+        assertEquals(
+            listOf(shot, story, post).map { Triple(it.dataSource, it.weight, it.colspan) },
+            restored.items.map { Triple(it.dataSource, it.weight, it.colspan) }
+        )
+        assertEquals(shot.url, restored.items[0].url)
+        val restoredPost = restored.items[2] as Post
+        assertEquals(post.id, restoredPost.id)
+        assertEquals(post.url, restoredPost.url)
+        assertEquals(post.redirectUrl, restoredPost.redirectUrl)
+        assertEquals(post.votesCount, restoredPost.votesCount)
+    }
+
+    @Test
+    fun read_otherVersion_returnsNull() {
+        // Given a snapshot written with another version of the format
+        val bytes = write(FeedSnapshot(columns = 2, items = listOf(shot)))
+        ByteBuffer.wrap(bytes).putInt(4, FeedSnapshotFormat.VERSION + 1)
+
+        // When reading it
+        val restored = FeedSnapshotFormat.read(ByteBuffer.wrap(bytes))
+
+        // Then no snapshot is returned
+        assertNull(restored)
+    }
+
+    @Test
+    fun read_notASnapshot_returnsNull() {
+        // When reading bytes that aren't a snapshot
+        val restored = FeedSnapshotFormat.read(ByteBuffer.wrap(ByteArray(32) { 1 }))
+
+        // Then no snapshot is returned
+        assertNull(restored)
+    }
+
+    @Test
+    fun read_truncated_returnsNull() {
+        // Given a snapshot that was cut short
+        val bytes = write(FeedSnapshot(columns = 2, items = listOf(shot, story)))
+
+        // When reading it
+        val restored = FeedSnapshotFormat.read(ByteBuffer.wrap(bytes, 0, bytes.size - 10))
+
+        // Then no snapshot is returned
+        assertNull(restored)
+    }
+
+    @Test
+    fun read_invalidItemCount_returnsNull() {
+        // Given snapshots with a negative and a huge item count
+        val bytes = write(FeedSnapshot(columns = 2, items = listOf(shot)))
+        val negative = bytes.copyOf().also { ByteBuffer.wrap(it).putInt(12, -1) }
+        val huge = bytes.copyOf().also { ByteBuffer.wrap(it).putInt(12, Int.MAX_VALUE) }
+
+        // Then neither is read
+        assertNull(FeedSnapshotFormat.read(ByteBuffer.wrap(negative)))
+        assertNull(FeedSnapshotFormat.read(ByteBuffer.wrap(huge)))
+    }
+
+    @Test
+    fun read_invalidStringLength_returnsNull() {
+        // Given snapshots where the length of the first item's data source is corrupt
+        val bytes = write(FeedSnapshot(columns = 2, items = listOf(shot)))
+        val dataSourceLength = 16 + 1 + 8 + 4 + 4 + 4
+        val negative = bytes.copyOf().also { ByteBuffer.wrap(it).putInt(dataSourceLength, -2) }
+        val huge = bytes.copyOf().also {
+            ByteBuffer.wrap(it).putInt(dataSourceLength, Int.MAX_VALUE)
+        }
+
+        // Then neither is read
+        assertNull(FeedSnapshotFormat.read(ByteBuffer.wrap(negative)))
+        assertNull(FeedSnapshotFormat.read(ByteBuffer.wrap(huge)))
+    }
+
+    @Test
+    fun read_missingRequiredString_returnsNull() {
+        // Given a snapshot where the title of a shot is null
+        val bytes = write(FeedSnapshot(columns = 2, items = listOf(shot)))
+        val titleOffset = 16 + 1 + 8 + 4 + 4 + 4 + 4 + shot.dataSource!!.length
+        val titleLength = ByteBuffer.wrap(bytes).getInt(titleOffset)
+        val corrupt = ByteArray(bytes.size - titleLength)
+        System.arraycopy(bytes, 0, corrupt, 0, titleOffset)
+        ByteBuffer.wrap(corrupt).putInt(titleOffset, -1)
+        System.arraycopy(
+            bytes,
+            titleOffset + 4 + titleLength,
+            corrupt,
+            titleOffset + 4,
+            bytes.size - titleOffset - 4 - titleLength
+        )
+
+        // When reading it
+        val restored = FeedSnapshotFormat.read(ByteBuffer.wrap(corrupt))
+
+        // Then no snapshot is returned
+        assertNull(restored)
+    }
+
+    private fun write(snapshot: FeedSnapshot): ByteArray {
+        val bytes = ByteArrayOutputStream()
+        DataOutputStream(bytes).use { FeedSnapshotFormat.write(snapshot, it) }
+        return bytes.toByteArray()
+    }
+}
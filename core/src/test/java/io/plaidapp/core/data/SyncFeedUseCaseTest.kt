@@ -0,0 +1,91 @@
+/*
+ * Copyright 2019 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.core.data
+
+import com.nhaarman.mockitokotlin2.any
+import com.nhaarman.mockitokotlin2.mock
+import com.nhaarman.mockitokotlin2.never
+import com.nhaarman.mockitokotlin2.verify
+import com.nhaarman.mockitokotlin2.whenever
+import io.plaidapp.core.data.prefs.SourcesRepository
+import io.plaidapp.core.dribbble.data.DribbbleSourceItem
+import io.plaidapp.core.dribbble.data.shots
+import io.plaidapp.core.producthunt.data.ProductHuntSourceItem
+import io.plaidapp.test.shared.provideFakeCoroutinesDispatcherProvider
+import java.io.IOException
+import kotlinx.coroutines.runBlocking
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+/**
+ * Tests for [SyncFeedUseCase] mocking the dependencies.
+ */
+class SyncFeedUseCaseTest {
+
+    private val activeSource = DribbbleSourceItem("material", true)
+    private val inactiveSource = ProductHuntSourceItem("product hunt")
+
+    private val sourcesRepository: SourcesRepository = mock()
+    private val loadSourcePage: LoadSourcePageUseCase = mock()
+    private val feedLocalDataSource: FeedLocalDataSource = mock()
+    private val feedSnapshotDataSource: FeedSnapshotDataSource = mock()
+    private val syncFeed = SyncFeedUseCase(
+        sourcesRepository,
+        loadSourcePage,
+        feedLocalDataSource,
+        feedSnapshotDataSource,
+        provideFakeCoroutinesDispatcherProvider()
+    )
+
+    @Test
+    fun sync_storesFirstPageOfActiveSources() = runBlocking {
+        // Given an active and an inactive source
+        whenever(sourcesRepository.getSources()).thenReturn(listOf(activeSource, inactiveSource))
+        // And the first page of the active source loads successfully
+        whenever(loadSourcePage(activeSource, 1)).thenReturn(Result.Success(shots))
+
+        // When syncing the feed
+        val result = syncFeed()
+
+        // Then the first page of the active source is stored
+        assertEquals(Result.Success(shots), result)
+        verify(feedLocalDataSource).savePage(activeSource.key, 1, shots)
+        assertTrue(shots.all { it.dataSource == activeSource.key })
+        // And the inactive source isn't loaded
+        verify(loadSourcePage, never()).invoke(inactiveSource, 1)
+        // And the feed snapshot is cleared, as it's out of date
+        verify(feedSnapshotDataSource).clear()
+    }
+
+    @Test
+    fun sync_returnsError_whenNoPageLoaded() = runBlocking {
+        // Given an active source
+        whenever(sourcesRepository.getSources()).thenReturn(listOf(activeSource))
+        // And its first page fails to load
+        whenever(loadSourcePage(activeSource, 1)).thenReturn(Result.Error(IOException("Error")))
+
+        // When syncing the feed
+        val result = syncFeed()
+
+        // Then an error is returned
+        assertTrue(result is Result.Error)
+        // And nothing is stored, nor the snapshot cleared
+        verify(feedLocalDataSource, never()).savePage(any(), any(), any())
+        verify(feedSnapshotDataSource, never()).clear()
+    }
+}
@@ -16,20 +16,20 @@
 
 package io.plaidapp.core.data.prefs
 
-import com.nhaarman.mockitokotlin2.eq
 import com.nhaarman.mockitokotlin2.mock
 import com.nhaarman.mockitokotlin2.verify
 import com.nhaarman.mockitokotlin2.whenever
-import io.plaidapp.core.data.SourceItem
+import io.plaidapp.core.data.database.StoredSource
 import io.plaidapp.core.dribbble.data.DribbbleSourceItem
 import io.plaidapp.core.dribbble.data.DribbbleSourceItem.Companion.DRIBBBLE_QUERY_PREFIX
 import io.plaidapp.core.producthunt.data.ProductHuntSourceItem
 import io.plaidapp.core.producthunt.data.ProductHuntSourceItem.Companion.SOURCE_PRODUCT_HUNT
-import io.plaidapp.core.ui.filter.FiltersChangedCallback
 import io.plaidapp.test.shared.provideFakeCoroutinesDispatcherProvider
 import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.flow.first
 import kotlinx.coroutines.runBlocking
 import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
 import org.junit.Assert.assertTrue
 import org.junit.Test
 
@@ -48,7 +48,14 @@ class SourcesRepositoryTest {
     private val dribbbleSource = DribbbleSourceItem("dribbble", true)
     private val productHuntSource = ProductHuntSourceItem("product hunt")
     private val defaultSources = listOf(designerNewsSource, dribbbleSource, productHuntSource)
-    private val defaultSourcesKeys = setOf(dnSourceKey, dribbbleSourceKey, SOURCE_PRODUCT_HUNT)
+    private val defaultStoredSources = listOf(
+        StoredSource(dnSourceKey, false),
+        StoredSource(dribbbleSourceKey, dribbbleSource.active),
+        StoredSource(SOURCE_PRODUCT_HUNT, false)
+    )
+
+    // the inactive Product Hunt source
+    private val storedSources = listOf(StoredSource(SOURCE_PRODUCT_HUNT, false))
 
     private val localDataSource: SourcesLocalDataSource = mock()
     private val repository = SourcesRepository(
@@ -60,7 +67,7 @@ class SourcesRepositoryTest {
     @Test
     fun getSources_whenNoOtherSourceWasAdded() = runBlocking {
         // Given that no other source was added
-        whenever(localDataSource.getKeys()).thenReturn(null)
+        whenever(localDataSource.getSources()).thenReturn(emptyList())
 
         // When getting the sources
         val sources = repository.getSources()
@@ -72,9 +79,7 @@ class SourcesRepositoryTest {
     @Test
     fun getSources_whenOtherSourcesWereAdded() = runBlocking {
         // Given that other sources were added
-        whenever(localDataSource.getKeys()).thenReturn(defaultSourcesKeys)
-        whenever(localDataSource.getSourceActiveState(eq(dribbbleSource.key)))
-            .thenReturn(dribbbleSource.active)
+        whenever(localDataSource.getSources()).thenReturn(defaultStoredSources)
 
         // When getting the sources
         val sources = repository.getSources()
@@ -90,31 +95,42 @@ class SourcesRepositoryTest {
     @Test
     fun getSources_whenDeprecatedSourcesWereAdded() = runBlocking {
         // Given that other deprecated sources were added
-        val oldSources = mutableSetOf(
-            "SOURCE_DESIGNER_NEWS_RECENT",
-            "SOURCE_DRIBBBLE_query"
-        ).toSet()
-        whenever(localDataSource.getKeys()).thenReturn(oldSources)
+        val oldSources = listOf(
+            StoredSource("SOURCE_DESIGNER_NEWS_RECENT", true),
+            StoredSource("SOURCE_DRIBBBLE_query", true)
+        )
+        whenever(localDataSource.getSources()).thenReturn(oldSources)
 
         // When getting the sources
         val sources = repository.getSources()
 
         // Then the list of sources is empty
         assertTrue(sources.isEmpty())
+        // And the deprecated sources are removed in one batch
+        verify(localDataSource).removeSources(oldSources.map { it.key })
     }
 
     @Test
-    fun addSources_addsSourcesToDataSource() {
-        // When adding a list of sources
-        repository.addSources(listOf(designerNewsSource))
+    fun addSources_addsSourcesToDataSource() = runBlocking {
+        // Given stored sources
+        whenever(localDataSource.getSources()).thenReturn(storedSources)
 
-        // Then the source was added to the data source
-        verify(localDataSource).addSource(designerNewsSource.key, designerNewsSource.active)
+        // When adding a list of sources
+        repository.addSources(listOf(designerNewsSource, dribbbleSource))
+
+        // Then the sources were added to the data source in one batch
+        verify(localDataSource).addSources(
+            listOf(
+                StoredSource(designerNewsSource.key, designerNewsSource.active),
+                StoredSource(dribbbleSource.key, dribbbleSource.active)
+            )
+        )
     }
 
     @Test
-    fun changeSourceActiveState() {
+    fun changeSourceActiveState() = runBlocking {
         // Given that an active source is added
+        whenever(localDataSource.getSources()).thenReturn(storedSources)
         repository.addSources(listOf(designerNewsSource))
 
         // When changing the active state of a source
@@ -125,27 +141,51 @@ class SourcesRepositoryTest {
     }
 
     @Test
-    fun removeSource() {
+    fun removeSource() = runBlocking {
+        // Given stored sources
+        whenever(localDataSource.getSources()).thenReturn(storedSources)
+
         // When removing a source
         repository.removeSource("key")
 
         // Then the source was removed from the data source
-        verify(localDataSource).removeSource("key")
+        verify(localDataSource).removeSources(listOf("key"))
     }
 
     @Test
     fun addSources_addsSourceCache() = runBlocking {
+        // Given stored sources
+        whenever(localDataSource.getSources()).thenReturn(storedSources)
+
         // When adding a source
         repository.addSources(listOf(designerNewsSource))
 
         // Then the source is returned
         val sources = repository.getSources()
-        assertEquals(listOf(designerNewsSource), sources)
+        assertEquals(listOf(productHuntSource, designerNewsSource), sources)
+    }
+
+    @Test
+    fun addOrMarkActiveSources() = runBlocking {
+        // Given an inactive source
+        whenever(localDataSource.getSources()).thenReturn(storedSources)
+
+        // When adding the source and a new one, both active
+        val activeProductHuntSource = productHuntSource.withActive(true)
+        repository.addOrMarkActiveSources(listOf(activeProductHuntSource, dribbbleSource))
+
+        // Then the existing source is activated and the new one added
+        assertEquals(listOf(activeProductHuntSource, dribbbleSource), repository.getSources())
+        // And both are stored in one batch
+        verify(localDataSource).addSources(
+            listOf(StoredSource(SOURCE_PRODUCT_HUNT, true), StoredSource(dribbbleSourceKey, true))
+        )
     }
 
     @Test
     fun changeSourceActiveState_updatesInCache() = runBlocking {
         // Given an added source
+        whenever(localDataSource.getSources()).thenReturn(storedSources)
         repository.addSources(listOf(designerNewsSource))
 
         // When changing the active state of a source
@@ -153,15 +193,31 @@ class SourcesRepositoryTest {
 
         // Then the updated source is returned
         val sources = repository.getSources()
-        assertEquals(1, sources.size)
-        val updatedSource = sources[0]
+        assertEquals(2, sources.size)
+        val updatedSource = sources[1]
         assertEquals(designerNewsSource.key, updatedSource.key)
         assertEquals(false, updatedSource.active)
     }
 
+    @Test
+    fun changeSourceActiveState_doesNotChangePreviousSnapshot() = runBlocking {
+        // Given an added source and a snapshot of the sources
+        whenever(localDataSource.getSources()).thenReturn(storedSources)
+        repository.addSources(listOf(designerNewsSource))
+        val snapshot = repository.getSources()
+
+        // When changing the active state of a source
+        repository.changeSourceActiveState(designerNewsSource.key)
+
+        // Then the previous snapshot is unchanged
+        assertEquals(listOf(productHuntSource, designerNewsSource), snapshot)
+        assertTrue(snapshot[1].active)
+    }
+
     @Test
     fun removeSource_removesFromCache() = runBlocking {
         // Given an added source
+        whenever(localDataSource.getSources()).thenReturn(storedSources)
         repository.addSources(listOf(designerNewsSource))
 
         // When removing a source
@@ -169,76 +225,65 @@ class SourcesRepositoryTest {
 
         // Then the source was removed from cache
         val sources = repository.getSources()
-        assertTrue(sources.isEmpty())
+        assertEquals(listOf(productHuntSource), sources)
     }
 
     @Test
-    fun listenerNotified_whenSourceAdded() {
-        // Given a callback registered
-        var sourceAdded: List<SourceItem>? = null
-        val callback = object : FiltersChangedCallback() {
-            override fun onFiltersUpdated(sources: List<SourceItem>) {
-                super.onFiltersUpdated(sources)
-                sourceAdded = sources
-            }
-        }
-        repository.registerFilterChangedCallback(callback)
+    fun sources_emitsLoadedSources() = runBlocking {
+        // Given stored sources
+        whenever(localDataSource.getSources()).thenReturn(storedSources)
+
+        // When collecting the sources
+        val sources = repository.sources.first()
+
+        // Then the loaded sources are emitted
+        assertEquals(listOf(productHuntSource), sources)
+    }
+
+    @Test
+    fun sources_emitsWhenSourceAdded() = runBlocking {
+        // Given stored sources
+        whenever(localDataSource.getSources()).thenReturn(storedSources)
 
         // When adding a list of sources
         repository.addSources(listOf(designerNewsSource))
 
-        // Then the callback was triggered
-        assertEquals(sourceAdded, listOf(designerNewsSource))
+        // Then the new snapshot is emitted
+        assertEquals(listOf(productHuntSource, designerNewsSource), repository.sources.first())
     }
 
     @Test
-    fun listenerNotified_whenSourceActiveStateChanged() {
+    fun sources_emitsWhenSourceActiveStateChanged() = runBlocking {
         // Given a source added
+        whenever(localDataSource.getSources()).thenReturn(storedSources)
         repository.addSources(listOf(designerNewsSource))
-        // Given a callback registered
-        var sourceUpdated: SourceItem? = null
-        val callback = object : FiltersChangedCallback() {
-            override fun onFiltersChanged(changedFilter: SourceItem) {
-                super.onFiltersChanged(changedFilter)
-                sourceUpdated = changedFilter
-            }
-        }
-        repository.registerFilterChangedCallback(callback)
 
         // When changing the active state of a source
         repository.changeSourceActiveState(designerNewsSource.key)
 
-        // Then the callback was triggered
-        assertEquals(sourceUpdated, designerNewsSource)
+        // Then the new snapshot is emitted
+        val sources = repository.sources.first()
+        assertFalse(sources.single { it.key == designerNewsSource.key }.active)
     }
 
     @Test
-    fun listenerNotified_whenSourceRemoved() {
+    fun sources_emitsWhenSourceRemoved() = runBlocking {
         // Given a source added
+        whenever(localDataSource.getSources()).thenReturn(storedSources)
         repository.addSources(listOf(designerNewsSource))
-        // Given a callback registered
-        var sourceRemoved: String? = null
-        val callback = object : FiltersChangedCallback() {
-            override fun onFilterRemoved(sourceKey: String) {
-                sourceRemoved = sourceKey
-            }
-        }
-        repository.registerFilterChangedCallback(callback)
 
         // When removing a source
         repository.removeSource(designerNewsSource.key)
 
-        // Then the callback was triggered
-        assertEquals(sourceRemoved, designerNewsSource.key)
+        // Then the new snapshot is emitted
+        assertEquals(listOf(productHuntSource), repository.sources.first())
     }
 
     @Test
-    fun getActiveSourceCount() {
+    fun getActiveSourceCount() = runBlocking {
         // Given an active and an inactive source added
-        repository.addSources(listOf(designerNewsSource, productHuntSource))
-        val keys = setOf(dnSourceKey, SOURCE_PRODUCT_HUNT)
-        whenever(localDataSource.getKeys()).thenReturn(keys)
-        whenever(localDataSource.getSourceActiveState(dnSourceKey)).thenReturn(true)
+        whenever(localDataSource.getSources()).thenReturn(storedSources)
+        repository.addSources(listOf(designerNewsSource))
 
         // When getting the number of active sources
         val activeSources = repository.getActiveSourcesCount()
@@ -246,4 +291,13 @@ class SourcesRepositoryTest {
         // Then the correct number is returned
         assertEquals(1, activeSources)
     }
+
+    @Test
+    fun getActiveSourceCount_whenNotLoaded() {
+        // When getting the number of active sources before they're loaded
+        val activeSources = repository.getActiveSourcesCount()
+
+        // Then no source is counted, without loading them
+        assertEquals(0, activeSources)
+    }
 }
@@ -20,6 +20,7 @@ import com.nhaarman.mockitokotlin2.mock
 import com.nhaarman.mockitokotlin2.whenever
 import io.plaidapp.core.data.Result
 import io.plaidapp.core.designernews.data.stories.model.StoryResponse
+import io.plaidapp.core.designernews.data.stories.model.toStory
 import io.plaidapp.core.designernews.storyLinks
 import java.io.IOException
 import java.util.Date
@@ -162,4 +163,17 @@ class StoriesRepositoryTest {
         assertNotNull(result)
         assertTrue(result is Result.Error)
     }
+
+    @Test
+    fun getStory_whenDisplayedButNotCached() {
+        // Given a story that isn't cached, but is displayed
+        repository.retainDisplayed(this, listOf(story.toStory(0)))
+
+        // When getting the story by id
+        val result = repository.getStory(story.id)
+
+        // Then it is retrieved from the displayed story
+        assertTrue(result is Result.Success)
+        assertEquals(story.title, (result as Result.Success).data.title)
+    }
 }
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2019 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.core.designernews.domain.model
+
+import java.util.Date
+import org.junit.Assert.assertEquals
+import org.junit.Test
+
+/**
+ * Tests for the flattening of [CommentWithReplies] trees, comparing it with the recursive
+ * sequence it replaced.
+ */
+class CommentWithRepliesTest {
+
+    private var nextId = 0L
+
+    @Test
+    fun flattenWithReplies_emptyList() {
+        // When flattening an empty list
+        val flattened = emptyList<CommentWithReplies>().flattenWithReplies { it }
+
+        // Then the result is empty
+        assertEquals(emptyList<CommentWithReplies>(), flattened)
+    }
+
+    @Test
+    fun flattenWithReplies_deepTree_matchesSequence() {
+        // Given a thread where every comment has a single reply
+        val comments = listOf(deepTree(depth = 0, maxDepth = 500))
+
+        // When flattening the comments
+        val flattened = comments.flattenWithReplies { it }
+
+        // Then the comments are in the same order as the recursive sequence
+        assertEquals(flattenWithSequence(comments), flattened)
+        assertEquals(501, comments.countWithReplies())
+    }
+
+    @Test
+    fun flattenWithReplies_wideTree_matchesSequence() {
+        // Given a thread with many comments, each with several levels of replies
+        val comments = List(200) { wideTree(depth = 0, maxDepth = 3, width = 3) }
+
+        // When flattening the comments
+        val flattened = comments.flattenWithReplies { it.id to it.depth }
+
+        // Then the comments are in the same order as the recursive sequence
+        assertEquals(flattenWithSequence(comments).map { it.id to it.depth }, flattened)
+    }
+
+    @Test
+    fun flattenWithReplies_timedAgainstSequence() {
+        // Given a large thread
+        val comments = List(200) { wideTree(depth = 0, maxDepth = 3, width = 3) }
+
+        // When flattening it many times each way
+        val iterativeMicros = measureMicrosPerFlatten { comments.flattenWithReplies { it } }
+        val sequenceMicros = measureMicrosPerFlatten { flattenWithSequence(comments) }
+
+        // Then both times are reported
+        println(
+            "Flattening ${comments.countWithReplies()} comments: " +
+                "iterative %.1f µs, sequence %.1f µs".format(iterativeMicros, sequenceMicros)
+        )
+    }
+
+    private inline fun measureMicrosPerFlatten(flatten: () -> Unit): Double {
+        repeat(WARM_UP_ITERATIONS) { flatten() }
+        val start = System.nanoTime()
+        repeat(ITERATIONS) { flatten() }
+        return (System.nanoTime() - start) / 1000.0 / ITERATIONS
+    }
+
+    private fun flattenWithSequence(comments: List<CommentWithReplies>) =
+        comments.asSequence().flatMap(CommentWithReplies::flattenWithReplies).toList()
+
+    private fun deepTree(depth: Int, maxDepth: Int): CommentWithReplies {
+        var comment = comment(maxDepth, emptyList())
+        for (level in maxDepth - 1 downTo depth) {
+            comment = comment(level, listOf(comment))
+        }
+        return comment
+    }
+
+    private fun wideTree(depth: Int, maxDepth: Int, width: Int): CommentWithReplies {
+        val replies = if (depth < maxDepth) {
+            List(width) { wideTree(depth + 1, maxDepth, width) }
+        } else {
+            emptyList()
+        }
+        return comment(depth, replies)
+    }
+
+    private fun comment(depth: Int, replies: List<CommentWithReplies>) = CommentWithReplies(
+        id = nextId++,
+        parentId = null,
+        body = "Comment",
+        createdAt = Date(),
+        depth = depth,
+        userId = 1L,
+        storyId = 1L,
+        replies = replies
+    )
+
+    companion object {
+        private const val WARM_UP_ITERATIONS = 50
+        private const val ITERATIONS = 200
+    }
+}
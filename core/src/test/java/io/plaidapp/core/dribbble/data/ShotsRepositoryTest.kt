@@ -20,6 +20,7 @@ import com.nhaarman.mockitokotlin2.mock
 import com.nhaarman.mockitokotlin2.verify
 import com.nhaarman.mockitokotlin2.whenever
 import io.plaidapp.core.data.Result
+import io.plaidapp.core.dribbble.data.ShotsRepository.Companion.MAX_CACHED_SHOTS
 import io.plaidapp.core.dribbble.data.search.SearchRemoteDataSource
 import java.io.IOException
 import kotlinx.coroutines.runBlocking
@@ -95,4 +96,33 @@ class ShotsRepositoryTest {
         assertNotNull(result)
         assertTrue(result is Result.Error)
     }
+
+    @Test
+    fun getShot_evictedWhileDisplayed() {
+        // Given a displayed shot that was evicted by the shots cached after it
+        val displayedShot = shots[0]
+        repository.cache(listOf(displayedShot))
+        repository.retainDisplayed(this, listOf(displayedShot))
+        repository.cache(List(MAX_CACHED_SHOTS) { displayedShot.copy(id = -1L - it) })
+
+        // When getting the shot by id
+        val result = repository.getShot(displayedShot.id)
+
+        // Then it is still retrieved
+        assertEquals(Result.Success(displayedShot), result)
+    }
+
+    @Test
+    fun getShot_notCachedNorDisplayed() {
+        // Given a shot that isn't cached, and is no longer displayed
+        val displayedShot = shots[0]
+        repository.retainDisplayed(this, listOf(displayedShot))
+        repository.releaseDisplayed(this)
+
+        // When getting the shot by id
+        val result = repository.getShot(displayedShot.id)
+
+        // Then an Error is reported
+        assertTrue(result is Result.Error)
+    }
 }
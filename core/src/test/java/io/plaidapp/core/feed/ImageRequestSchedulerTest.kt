@@ -0,0 +1,66 @@
+/*
+ * Copyright 2019 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.core.feed
+
+import com.bumptech.glide.Priority
+import org.junit.Assert.assertEquals
+import org.junit.Test
+
+/**
+ * Tests for the priorities [ImageRequestScheduler] assigns.
+ */
+class ImageRequestSchedulerTest {
+
+    private val fast = 1000f
+
+    private fun priorityFor(position: Int, velocity: Float) =
+        ImageRequestScheduler.priorityFor(position, 10, 19, velocity, fast)
+
+    @Test
+    fun priorityFor_visibleItem_isImmediate() {
+        assertEquals(Priority.IMMEDIATE, priorityFor(15, velocity = 500f))
+    }
+
+    @Test
+    fun priorityFor_itemAhead_byDistance() {
+        // When scrolling down slowly, items below the viewport load by their distance from it
+        assertEquals(Priority.HIGH, priorityFor(25, velocity = 500f))
+        assertEquals(Priority.NORMAL, priorityFor(35, velocity = 500f))
+    }
+
+    @Test
+    fun priorityFor_itemScrolledPast_isLow() {
+        // When scrolling down, items above the viewport load last
+        assertEquals(Priority.LOW, priorityFor(5, velocity = 500f))
+        // and the other way round when scrolling up
+        assertEquals(Priority.HIGH, priorityFor(5, velocity = -500f))
+        assertEquals(Priority.LOW, priorityFor(25, velocity = -500f))
+    }
+
+    @Test
+    fun priorityFor_fling_deprioritizesItemsAhead() {
+        assertEquals(Priority.LOW, priorityFor(25, velocity = 2 * fast))
+    }
+
+    @Test
+    fun priorityFor_notLaidOut_isImmediate() {
+        assertEquals(
+            Priority.IMMEDIATE,
+            ImageRequestScheduler.priorityFor(5, -1, -1, 0f, fast)
+        )
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2019 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.core.feed
+
+import io.plaidapp.core.dribbble.data.api.model.Images
+import org.junit.Assert.assertEquals
+import org.junit.Test
+
+/**
+ * Tests for [ShotImageSizePolicy].
+ */
+class ShotImageSizePolicyTest {
+
+    private val images = Images(hidpi = "hidpi", normal = "normal", teaser = "teaser")
+
+    @Test
+    fun select_smallestImageCoveringCell() {
+        // When selecting the image for a 360px wide cell
+        val image = ShotImageSizePolicy.select(images, 360, isMetered = false)
+
+        // Then the normal image is decoded at the size of the cell
+        assertEquals(ShotImage("normal", 360, 270), image)
+    }
+
+    @Test
+    fun select_largestImage_whenCellIsWider() {
+        // When selecting the image for a cell wider than the largest image
+        val image = ShotImageSizePolicy.select(images, 1080, isMetered = false)
+
+        // Then the hidpi image is decoded at its own size
+        assertEquals(ShotImage("hidpi", 800, 600), image)
+    }
+
+    @Test
+    fun select_smallerImage_whenMetered() {
+        // When selecting the image for a cell slightly wider than the normal image, on a metered
+        // network
+        val image = ShotImageSizePolicy.select(images, 480, isMetered = true)
+
+        // Then the normal image is upscaled rather than downloading the hidpi one
+        assertEquals(ShotImage("normal", 400, 300), image)
+    }
+
+    @Test
+    fun select_teaser_forSmallCells() {
+        // When selecting the image for a small cell
+        val image = ShotImageSizePolicy.select(images, 180, isMetered = false)
+
+        // Then the teaser is used
+        assertEquals(ShotImage("teaser", 180, 135), image)
+    }
+
+    @Test
+    fun recordDisplayed_countsBytesSaved() {
+        // Given the bytes saved so far
+        val before = ShotImageSizePolicy.sessionBytesSaved
+
+        // When displaying a normal image instead of the hidpi one
+        ShotImageSizePolicy.recordDisplayed(1L, images, ShotImage("normal", 400, 300))
+
+        // Then the difference of the decoded sizes is counted
+        assertEquals((800 * 600 - 400 * 300) * 4L, ShotImageSizePolicy.sessionBytesSaved - before)
+    }
+
+    @Test
+    fun recordDisplayed_sameShotAgain_countedOnce() {
+        // Given a shot that was displayed
+        ShotImageSizePolicy.recordDisplayed(2L, images, ShotImage("normal", 400, 300))
+        val before = ShotImageSizePolicy.sessionBytesSaved
+
+        // When it's bound again
+        ShotImageSizePolicy.recordDisplayed(2L, images, ShotImage("normal", 400, 300))
+
+        // Then nothing more is counted
+        assertEquals(before, ShotImageSizePolicy.sessionBytesSaved)
+    }
+}
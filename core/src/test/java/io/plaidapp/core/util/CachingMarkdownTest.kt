@@ -0,0 +1,84 @@
+/*
+ * Copyright 2019 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.core.util
+
+import `in`.uncod.android.bypass.Markdown
+import android.content.res.ColorStateList
+import com.nhaarman.mockitokotlin2.any
+import com.nhaarman.mockitokotlin2.anyOrNull
+import com.nhaarman.mockitokotlin2.doAnswer
+import com.nhaarman.mockitokotlin2.eq
+import com.nhaarman.mockitokotlin2.mock
+import com.nhaarman.mockitokotlin2.times
+import com.nhaarman.mockitokotlin2.verify
+import io.plaidapp.core.data.BoundedCache
+import org.junit.Assert.assertEquals
+import org.junit.Test
+
+/**
+ * Tests for [CachingMarkdown], mocking out the markdown it delegates to.
+ */
+class CachingMarkdownTest {
+
+    private val content = "**Plaid** is _great_"
+    private val linksColor: ColorStateList = mock()
+
+    private val delegate: Markdown = mock {
+        on { markdownToSpannable(any(), any(), any(), anyOrNull()) } doAnswer {
+            "rendered ${it.arguments[0]}"
+        }
+    }
+
+    private val markdown = CachingMarkdown(delegate, "style", BoundedCache(100_000))
+
+    @Test
+    fun markdownToSpannable_sameMarkdown_renderedOnce() {
+        // When rendering the same markdown twice
+        val first = markdown.markdownToSpannable(content, linksColor, 0xff0000, null)
+        val second = markdown.markdownToSpannable(content, linksColor, 0xff0000, null)
+
+        // Then it's only rendered by the delegate the first time
+        assertEquals("rendered $content", first)
+        assertEquals(first, second)
+        verify(delegate, times(1)).markdownToSpannable(eq(content), any(), any(), anyOrNull())
+    }
+
+    @Test
+    fun markdownToSpannable_otherHighlightColor_renderedAgain() {
+        // When rendering the same markdown with different highlight colors
+        markdown.markdownToSpannable(content, linksColor, 0xff0000, null)
+        markdown.markdownToSpannable(content, linksColor, 0x00ff00, null)
+
+        // Then it's rendered for each
+        verify(delegate, times(2)).markdownToSpannable(eq(content), any(), any(), anyOrNull())
+    }
+
+    @Test
+    fun markdownToSpannable_otherStyle_renderedAgain() {
+        // Given markdown rendered in one style
+        val cache = BoundedCache<CachingMarkdown.Key, CharSequence>(100_000)
+        CachingMarkdown(delegate, "style", cache)
+            .markdownToSpannable(content, linksColor, 0xff0000, null)
+
+        // When rendering it in another style, sharing the cache
+        CachingMarkdown(delegate, "other style", cache)
+            .markdownToSpannable(content, linksColor, 0xff0000, null)
+
+        // Then it's rendered again
+        verify(delegate, times(2)).markdownToSpannable(eq(content), any(), any(), anyOrNull())
+    }
+}
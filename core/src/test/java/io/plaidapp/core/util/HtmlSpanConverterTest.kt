@@ -0,0 +1,189 @@
+/*
+ * Copyright 2019 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.core.util
+
+import io.plaidapp.core.util.HtmlSpanConverter.HtmlSpan
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+/**
+ * Tests for [HtmlSpanConverter]. The expected text and spans are what [android.text.Html.fromHtml]
+ * outputs in legacy mode, with links as [HtmlSpan.Link]s and trailing newlines trimmed.
+ */
+class HtmlSpanConverterTest {
+
+    private data class SpanRange(val span: HtmlSpan, val start: Int, val end: Int)
+
+    // Keeps spans the way SpannableStringBuilder does when deleting text
+    private class FakeOutput : HtmlSpanConverter.Output {
+        val text = StringBuilder()
+        val spans = mutableListOf<SpanRange>()
+
+        override val length get() = text.length
+
+        override fun charAt(index: Int) = text[index]
+
+        override fun append(c: Char) {
+            text.append(c)
+        }
+
+        override fun setSpan(span: HtmlSpan, start: Int, end: Int) {
+            spans += SpanRange(span, start, end)
+        }
+
+        override fun delete(start: Int, end: Int) {
+            text.delete(start, end)
+            val deleted = end - start
+            val kept = spans.filterNot { it.start >= start && it.end <= end }.map {
+                fun move(index: Int) = when {
+                    index <= start -> index
+                    index >= end -> index - deleted
+                    else -> start
+                }
+                SpanRange(it.span, move(it.start), move(it.end))
+            }
+            spans.clear()
+            spans += kept
+        }
+    }
+
+    private val output = FakeOutput()
+    private val converter = HtmlSpanConverter(output)
+
+    @Test
+    fun convert_paragraphs() {
+        // When converting paragraphs with line breaks in between
+        val converted = converter.convert("<p>One</p>\n<p>Two<br/>Three</p>\n")
+
+        // Then they're separated by blank lines, with no trailing newlines
+        assertTrue(converted)
+        assertEquals("One\n\nTwo\nThree", output.text.toString())
+        assertEquals(emptyList<SpanRange>(), output.spans)
+    }
+
+    @Test
+    fun convert_collapsesWhitespace() {
+        // When converting text with runs of spaces and newlines
+        converter.convert("  Lots   of\n space  <br>  after a break")
+
+        // Then they are collapsed, dropping them at the start of lines
+        assertEquals("Lots of space \nafter a break", output.text.toString())
+    }
+
+    @Test
+    fun convert_styles() {
+        // When converting styled text
+        converter.convert("<p>Hello <b>bold <i>italic</i></b> <small>small</small></p>")
+
+        // Then the spans are set as the elements end
+        assertEquals("Hello bold italic small", output.text.toString())
+        assertEquals(
+            listOf(
+                SpanRange(HtmlSpan.Italic, 11, 17),
+                SpanRange(HtmlSpan.Bold, 6, 17),
+                SpanRange(HtmlSpan.RelativeSize(0.8f), 18, 23)
+            ),
+            output.spans
+        )
+    }
+
+    @Test
+    fun convert_links() {
+        // When converting links, with and without an href
+        converter.convert(
+            "<p>See <a href=\"https://dribbble.com/?a=1&amp;b=2\">Dribbble</a> <a>nowhere</a></p>"
+        )
+
+        // Then links with an href are output with the decoded URL
+        assertEquals("See Dribbble nowhere", output.text.toString())
+        assertEquals(
+            listOf(SpanRange(HtmlSpan.Link("https://dribbble.com/?a=1&b=2"), 4, 12)),
+            output.spans
+        )
+    }
+
+    @Test
+    fun convert_emptyLink_noSpan() {
+        // When converting a link with no text
+        converter.convert("<a href='https://dribbble.com'></a>text")
+
+        // Then no span is set
+        assertEquals("text", output.text.toString())
+        assertEquals(emptyList<SpanRange>(), output.spans)
+    }
+
+    @Test
+    fun convert_entities() {
+        // When converting named, decimal and hexadecimal entities
+        converter.convert("Tom &amp; Jerry &lt;3&nbsp;caf&#233; &#x1F3A8;")
+
+        // Then they're decoded
+        assertEquals("Tom & Jerry <3\u00a0café 🎨", output.text.toString())
+    }
+
+    @Test
+    fun convert_blockquote_trailingNewlinesTrimmed() {
+        // When converting a block quote which ends the text
+        converter.convert("<p>Intro</p><blockquote>Quote</blockquote>")
+
+        // Then the quote span no longer covers the trimmed newlines
+        assertEquals("Intro\n\nQuote", output.text.toString())
+        assertEquals(listOf(SpanRange(HtmlSpan.Quote, 7, 12)), output.spans)
+    }
+
+    @Test
+    fun convert_unclosedElements_endedAtEnd() {
+        // When converting elements which are never closed
+        converter.convert("<div><b>bold")
+
+        // Then they end with the text
+        assertEquals("bold", output.text.toString())
+        assertEquals(listOf(SpanRange(HtmlSpan.Bold, 0, 4)), output.spans)
+    }
+
+    @Test
+    fun convert_comment_ignored() {
+        // When converting text with a comment
+        converter.convert("before<!-- <b>not bold</b> -->after")
+
+        // Then the comment is dropped
+        assertEquals("beforeafter", output.text.toString())
+        assertEquals(emptyList<SpanRange>(), output.spans)
+    }
+
+    @Test
+    fun convert_unsupportedMarkup_fails() {
+        listOf(
+            "<img src=\"shot.png\">",
+            "<p style=\"color: red\">red</p>",
+            "<h1>heading</h1>",
+            "<ul><li>item</li></ul>",
+            "<b><i>misnested</b></i>",
+            "<b><p>block in inline</p></b>",
+            "<p>nested <p>paragraph</p></p>",
+            "</b>",
+            "a < b",
+            "Tom & Jerry",
+            "&hellip;",
+            "line\r\nbreak"
+        ).forEach {
+            assertFalse(it, HtmlSpanConverter(FakeOutput()).convert(it))
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2019 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.core.util
+
+import `in`.uncod.android.bypass.Markdown
+import android.content.res.ColorStateList
+import com.nhaarman.mockitokotlin2.any
+import com.nhaarman.mockitokotlin2.anyOrNull
+import com.nhaarman.mockitokotlin2.doAnswer
+import com.nhaarman.mockitokotlin2.mock
+import java.util.Collections
+import java.util.concurrent.Executors
+import kotlinx.coroutines.asCoroutineDispatcher
+import kotlinx.coroutines.runBlocking
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+/**
+ * Tests for the markdown extension functions, mocking out the markdown that renders.
+ */
+class MarkdownExtensionsTest {
+
+    private val executor = Executors.newFixedThreadPool(4)
+    private val dispatcher = executor.asCoroutineDispatcher()
+    private val linksColor: ColorStateList = mock()
+    private val renderingThreads = Collections.synchronizedSet(mutableSetOf<Thread>())
+
+    private val markdown: Markdown = mock {
+        on { markdownToSpannable(any(), any(), any(), anyOrNull()) } doAnswer {
+            renderingThreads += Thread.currentThread()
+            val content = it.arguments[0] as String
+            // render later comments faster, so they finish out of order
+            Thread.sleep(50L - content.length)
+            "rendered $content"
+        }
+    }
+
+    @After
+    fun tearDown() {
+        executor.shutdown()
+    }
+
+    @Test
+    fun markdownToSpannables_keepsOrder() = runBlocking {
+        // Given a thread of comments
+        val comments = (1..20).map { "comment " + "!".repeat(it) }
+
+        // When rendering them all at once
+        val rendered = markdown.markdownToSpannables(comments, linksColor, 0, null, dispatcher)
+
+        // Then each is rendered, in the same order
+        assertEquals(comments.map { "rendered $it" }, rendered)
+    }
+
+    @Test
+    fun markdownToSpannables_rendersOnDispatcher() = runBlocking {
+        // Given a thread of comments
+        val comments = (1..20).map { "comment $it" }
+
+        // When rendering them all at once
+        markdown.markdownToSpannables(comments, linksColor, 0, null, dispatcher)
+
+        // Then they're rendered in parallel, off the calling thread
+        assertTrue(renderingThreads.size > 1)
+        assertTrue(Thread.currentThread() !in renderingThreads)
+    }
+
+    @Test
+    fun markdownToSpannables_postProcessesEachOnDispatcher() = runBlocking {
+        // Given a thread of comments
+        val comments = (1..20).map { "comment $it" }
+        val postProcessingThreads = Collections.synchronizedSet(mutableSetOf<Thread>())
+
+        // When rendering them all at once, with post processing
+        val rendered = markdown.markdownToSpannables(comments, linksColor, 0, null, dispatcher) {
+            postProcessingThreads += Thread.currentThread()
+            "processed $it"
+        }
+
+        // Then each is post processed, in order, off the calling thread
+        assertEquals(comments.map { "processed rendered $it" }, rendered)
+        assertTrue(Thread.currentThread() !in postProcessingThreads)
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2019 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.core.util
+
+import org.junit.Assert.assertEquals
+import org.junit.Test
+
+/**
+ * Tests for [PlainLinks].
+ */
+class PlainLinksTest {
+
+    private fun links(text: String): List<String> {
+        val links = mutableListOf<String>()
+        PlainLinks.forEachLink(text) { start, end -> links += text.substring(start, end) }
+        return links
+    }
+
+    @Test
+    fun forEachLink_comment() {
+        // Given a typical comment
+        val comment = "Great write up! See https://www.designernews.co/stories/12345 and also " +
+            "www.example.com/path?q=1#top, or (http://localhost:8080/a_(b)) for more."
+
+        // When finding the links
+        val links = links(comment)
+
+        // Then they're found without the surrounding punctuation
+        assertEquals(
+            listOf(
+                "https://www.designernews.co/stories/12345",
+                "www.example.com/path?q=1#top",
+                "http://localhost:8080/a_(b)"
+            ),
+            links
+        )
+    }
+
+    @Test
+    fun forEachLink_endOfSentence() {
+        // When a link ends a sentence
+        val links = links("Read it at www.plaid.app. Or HTTP://plaid.app/about!")
+
+        // Then the full stop isn't part of it
+        assertEquals(listOf("www.plaid.app", "HTTP://plaid.app/about"), links)
+    }
+
+    @Test
+    fun forEachLink_notLinks() {
+        // When text only looks a bit like links
+        val links = links(
+            "e.g. plaid.app, www.plaid, http://, me@www.plaid.app, /wwww.plaid.app, https:// x.com"
+        )
+
+        // Then nothing is found
+        assertEquals(emptyList<String>(), links)
+    }
+
+    @Test
+    fun forEachLink_stopsAtWhitespaceAndQuotes() {
+        // When links are followed by quotes, brackets or line breaks
+        val links = links(
+            "\"http://a.com/x\" <http://b.com> [http://c.com/y]\nhttp://d.com/z after"
+        )
+
+        // Then they end there
+        assertEquals(
+            listOf("http://a.com/x", "http://b.com", "http://c.com/y", "http://d.com/z"),
+            links
+        )
+    }
+
+    @Test
+    fun linkUrl_addsLowerCaseScheme() {
+        // Given links without a scheme or with an upper case one
+        val text = "www.plaid.app HTTPS://plaid.app"
+
+        // Then their URLs have a lower case scheme
+        assertEquals("http://www.plaid.app", PlainLinks.linkUrl(text, 0, 13))
+        assertEquals("https://plaid.app", PlainLinks.linkUrl(text, 14, text.length))
+    }
+}
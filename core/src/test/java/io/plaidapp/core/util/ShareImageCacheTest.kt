@@ -0,0 +1,117 @@
+/*
+ * Copyright 2019 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.core.util
+
+import java.io.File
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.async
+import kotlinx.coroutines.awaitAll
+import kotlinx.coroutines.runBlocking
+import org.junit.Assert.assertArrayEquals
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+
+/**
+ * Tests for [ShareImageCache] that use a temporary folder.
+ */
+class ShareImageCacheTest {
+
+    @get:Rule
+    val temporaryFolder = TemporaryFolder()
+
+    private val url = "https://cdn.dribbble.com/users/6295/screenshots/2344334/plaid_dribbble.png"
+    private val otherUrl = "https://cdn.dribbble.com/users/6296/screenshots/2344335/plaid_dribbble.png"
+
+    private var now = 1_000_000L
+
+    private fun createCache(maxSizeBytes: Long = ShareImageCache.MAX_SIZE_BYTES) =
+        ShareImageCache(File(temporaryFolder.root, "shared_images"), maxSizeBytes) { now }
+
+    private fun source(size: Int): File {
+        val file = temporaryFolder.newFile()
+        file.writeBytes(ByteArray(size) { it.toByte() })
+        return file
+    }
+
+    @Test
+    fun get_nothingPut_returnsNull() {
+        assertNull(createCache()[url])
+    }
+
+    @Test
+    fun put_copiesSourceWithImageName() = runBlocking {
+        // Given a downloaded image
+        val source = source(1024)
+
+        // When putting it in the cache
+        val cache = createCache()
+        val file = cache.put(url, source)
+
+        // Then a copy is cached, named after the image, and the source is left untouched
+        assertEquals("plaid_dribbble.png", file.name)
+        assertArrayEquals(source.readBytes(), file.readBytes())
+        assertTrue(source.exists())
+        assertEquals(file, cache[url])
+    }
+
+    @Test
+    fun put_imagesWithSameName_doNotClash() = runBlocking {
+        // Given two images with the same name put in the cache
+        val cache = createCache()
+        val file = cache.put(url, source(10))
+        val otherFile = cache.put(otherUrl, source(20))
+
+        // Then both are kept
+        assertEquals(10L, cache[url]?.length())
+        assertEquals(20L, cache[otherUrl]?.length())
+        assertFalse(file == otherFile)
+    }
+
+    @Test
+    fun put_beyondMaxSize_evictsLeastRecentlyShared() = runBlocking {
+        // Given a cache with room for one image, holding an image
+        val cache = createCache(maxSizeBytes = 1500)
+        cache.put(url, source(1024))
+
+        // When putting another image
+        now += 1000
+        cache.put(otherUrl, source(1024))
+
+        // Then the first one is evicted
+        assertNull(cache[url])
+        assertEquals(1024L, cache[otherUrl]?.length())
+    }
+
+    @Test
+    fun put_sameImageConcurrently_keepsWholeCopy() = runBlocking {
+        // Given an image shared twice at once
+        val cache = createCache()
+        val source = source(256 * 1024)
+
+        // When both copies are put in the cache concurrently
+        val files = (1..2).map { async(Dispatchers.IO) { cache.put(url, source) } }.awaitAll()
+
+        // Then the cached image is a whole copy, and no temporary file is left behind
+        files.forEach { assertArrayEquals(source.readBytes(), it.readBytes()) }
+        assertEquals(listOf(files[0].name), files[0].parentFile.list().asList())
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2019 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.core.util
+
+import io.plaidapp.core.util.TimeToFirstPixel.Path
+import org.junit.Assert.assertEquals
+import org.junit.Before
+import org.junit.Test
+
+/**
+ * Tests for [TimeToFirstPixel].
+ */
+class TimeToFirstPixelTest {
+
+    @Before
+    fun setUp() {
+        TimeToFirstPixel.reset()
+    }
+
+    @Test
+    fun averageMillis_nothingRecorded_isZero() {
+        assertEquals(0L, TimeToFirstPixel.count(Path.FEED))
+        assertEquals(0L, TimeToFirstPixel.averageMillis(Path.FEED))
+    }
+
+    @Test
+    fun averageMillis_isMeanOfRecorded() {
+        // Given images shown in the feed after 100, 200 and 600 ms
+        TimeToFirstPixel.record(Path.FEED, 100L)
+        TimeToFirstPixel.record(Path.FEED, 200L)
+        TimeToFirstPixel.record(Path.FEED, 600L)
+
+        // Then all three are counted, with their mean time
+        assertEquals(3L, TimeToFirstPixel.count(Path.FEED))
+        assertEquals(300L, TimeToFirstPixel.averageMillis(Path.FEED))
+    }
+
+    @Test
+    fun record_keepsPathsApart() {
+        // Given an image measured on each path
+        TimeToFirstPixel.record(Path.FEED, 100L)
+        TimeToFirstPixel.record(Path.DETAIL, 500L)
+
+        // Then each path only reports its own
+        assertEquals(1L, TimeToFirstPixel.count(Path.FEED))
+        assertEquals(100L, TimeToFirstPixel.averageMillis(Path.FEED))
+        assertEquals(1L, TimeToFirstPixel.count(Path.DETAIL))
+        assertEquals(500L, TimeToFirstPixel.averageMillis(Path.DETAIL))
+    }
+
+    @Test
+    fun record_concurrently_countsEveryImage() {
+        // Given images recorded from several threads at once
+        val threads = List(THREADS) {
+            Thread { repeat(RECORDS_PER_THREAD) { TimeToFirstPixel.record(Path.DETAIL, 10L) } }
+        }
+
+        // When they all finish
+        threads.forEach { it.start() }
+        threads.forEach { it.join() }
+
+        // Then none of them are lost
+        assertEquals((THREADS * RECORDS_PER_THREAD).toLong(), TimeToFirstPixel.count(Path.DETAIL))
+        assertEquals(10L, TimeToFirstPixel.averageMillis(Path.DETAIL))
+    }
+
+    companion object {
+        private const val THREADS = 4
+        private const val RECORDS_PER_THREAD = 1000
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright 2019 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.core.util.glide
+
+import android.graphics.drawable.Animatable
+import com.nhaarman.mockitokotlin2.mock
+import com.nhaarman.mockitokotlin2.never
+import com.nhaarman.mockitokotlin2.times
+import com.nhaarman.mockitokotlin2.verify
+import io.plaidapp.core.util.glide.GifPlaybackManager.Priority
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+/**
+ * Tests for [GifPlaybackManager] using mocked GIFs.
+ */
+class GifPlaybackManagerTest {
+
+    private val manager = GifPlaybackManager(maxPlaying = 2)
+
+    private val first = mock<Animatable>()
+    private val second = mock<Animatable>()
+    private val third = mock<Animatable>()
+
+    @Test
+    fun bind_stopsGif() {
+        // When binding a GIF
+        manager.bind("first", first, 100, Priority.GRID)
+
+        // Then it's stopped until it's played
+        verify(first).stop()
+        verify(first, never()).start()
+    }
+
+    @Test
+    fun play_unboundOwner_doesNotPlay() {
+        // When playing for an owner without a GIF
+        val playing = manager.play("first")
+
+        // Then nothing plays
+        assertFalse(playing)
+        assertEquals(0, manager.playingCount)
+    }
+
+    @Test
+    fun play_beyondLimit_pausesLeastRecentlyPlayed() {
+        // Given two GIFs playing
+        manager.bind("first", first, 100, Priority.GRID)
+        manager.bind("second", second, 100, Priority.GRID)
+        manager.bind("third", third, 100, Priority.GRID)
+        manager.play("first")
+        manager.play("second")
+
+        // When playing a third
+        val playing = manager.play("third")
+
+        // Then it plays in place of the least recently played one
+        assertTrue(playing)
+        verify(third).start()
+        verify(first, times(2)).stop()
+        assertEquals(2, manager.playingCount)
+    }
+
+    @Test
+    fun play_grid_doesNotPauseDetail() {
+        // Given a limit of one, taken by the detail screen
+        val manager = GifPlaybackManager(maxPlaying = 1)
+        manager.bind("detail", first, 100, Priority.DETAIL)
+        manager.bind("grid", second, 100, Priority.GRID)
+        manager.play("detail")
+
+        // When playing a GIF in the grid
+        val playing = manager.play("grid")
+
+        // Then it doesn't play
+        assertFalse(playing)
+        verify(second, never()).start()
+    }
+
+    @Test
+    fun play_detail_pausesGrid() {
+        // Given a limit of one, taken by the grid
+        val manager = GifPlaybackManager(maxPlaying = 1)
+        manager.bind("grid", first, 100, Priority.GRID)
+        manager.bind("detail", second, 100, Priority.DETAIL)
+        manager.play("grid")
+
+        // When playing the GIF of the detail screen
+        val playing = manager.play("detail")
+
+        // Then it takes the grid's slot
+        assertTrue(playing)
+        verify(second).start()
+        assertEquals(1, manager.playingCount)
+    }
+
+    @Test
+    fun memoryBytes_countsBoundGifs() {
+        // Given two GIFs bound
+        manager.bind("first", first, 100, Priority.GRID)
+        manager.bind("second", second, 250, Priority.GRID)
+
+        // When one is released
+        manager.release("first")
+
+        // Then only the other counts towards the memory used
+        assertEquals(250L, manager.memoryBytes)
+        assertEquals(1, manager.boundCount)
+    }
+
+    @Test
+    fun bind_replacesGifOfOwner() {
+        // Given a GIF playing
+        manager.bind("owner", first, 100, Priority.GRID)
+        manager.play("owner")
+
+        // When binding another GIF to the same owner
+        manager.bind("owner", second, 200, Priority.GRID)
+
+        // Then the previous one is stopped and forgotten
+        verify(first, times(2)).stop()
+        assertEquals(200L, manager.memoryBytes)
+        assertEquals(0, manager.playingCount)
+    }
+
+    @Test
+    fun bind_beyondStoppedLimit_trimsLeastRecentlyPlayed() {
+        // Given a limit of one stopped GIF in the grid
+        val manager = GifPlaybackManager(maxPlaying = 1, maxStopped = 1)
+        val firstOwner = mock<GifPlaybackManager.Trimmable>()
+        manager.bind(firstOwner, first, 100, Priority.GRID, firstOwner)
+
+        // When binding another stopped GIF
+        manager.bind("second", second, 100, Priority.GRID, mock())
+
+        // Then the least recently played one is trimmed
+        verify(firstOwner).trim()
+        assertEquals(1, manager.boundCount)
+        assertEquals(1, manager.trimmedCount)
+        assertEquals(100L, manager.memoryBytes)
+    }
+
+    @Test
+    fun bind_beyondStoppedLimit_doesNotTrimUntrimmableOrDetail() {
+        // Given a limit of no stopped GIFs
+        val manager = GifPlaybackManager(maxPlaying = 1, maxStopped = 0)
+
+        // When binding a GIF without a trimmable owner, and one in the detail screen
+        manager.bind("grid", first, 100, Priority.GRID)
+        manager.bind("detail", second, 100, Priority.DETAIL, mock())
+
+        // Then neither is trimmed
+        assertEquals(2, manager.boundCount)
+        assertEquals(0, manager.trimmedCount)
+    }
+
+    @Test
+    fun play_trimmedGif_restoresIt() {
+        // Given a GIF that was trimmed
+        val manager = GifPlaybackManager(maxPlaying = 1, maxStopped = 0)
+        val owner = mock<GifPlaybackManager.Trimmable>()
+        manager.bind(owner, first, 100, Priority.GRID, owner)
+
+        // When playing it
+        val playing = manager.play(owner)
+
+        // Then it's restored, to be bound again
+        assertFalse(playing)
+        verify(owner).restore()
+        assertEquals(0, manager.trimmedCount)
+    }
+
+    @Test
+    fun release_trimmedGif_isNotRestored() {
+        // Given a GIF that was trimmed
+        val manager = GifPlaybackManager(maxPlaying = 1, maxStopped = 0)
+        val owner = mock<GifPlaybackManager.Trimmable>()
+        manager.bind(owner, first, 100, Priority.GRID, owner)
+
+        // When its owner releases it, then plays
+        manager.release(owner)
+        manager.play(owner)
+
+        // Then it's not restored
+        verify(owner, never()).restore()
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2019 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.core.util.glide
+
+import com.bumptech.glide.load.DecodeFormat
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+/**
+ * Tests for [ImageMemoryProfile].
+ */
+class ImageMemoryProfileTest {
+
+    private val screenWidth = 1080
+    private val screenHeight = 1920
+
+    @Test
+    fun create_sizesCachesByScreens() {
+        // When creating a profile for a device with plenty of memory
+        val profile = ImageMemoryProfile.create(512, false, screenWidth, screenHeight)
+
+        // Then the caches hold a few screens of full quality images
+        val screenBytes = screenWidth * screenHeight * 4L
+        assertEquals(3 * screenBytes, profile.memoryCacheBytes)
+        assertEquals(2 * screenBytes, profile.bitmapPoolBytes)
+        assertEquals(DecodeFormat.PREFER_ARGB_8888, profile.decodeFormat)
+    }
+
+    @Test
+    fun create_limitsCachesToShareOfHeap() {
+        // When creating a profile for a device with a small heap
+        val profile = ImageMemoryProfile.create(48, false, screenWidth, screenHeight)
+
+        // Then the caches take up at most 40% of it
+        val maxBytes = (48 * 1024L * 1024L * 0.4f).toLong()
+        assertEquals(maxBytes, profile.memoryCacheBytes + profile.bitmapPoolBytes)
+        assertTrue(profile.memoryCacheBytes > profile.bitmapPoolBytes)
+    }
+
+    @Test
+    fun create_lowRamDevice_prefersSmallerImages() {
+        // When creating a profile for a low RAM device
+        val profile = ImageMemoryProfile.create(512, true, screenWidth, screenHeight)
+        val regular = ImageMemoryProfile.create(512, false, screenWidth, screenHeight)
+
+        // Then images are decoded in a smaller format, into smaller caches
+        assertEquals(DecodeFormat.PREFER_RGB_565, profile.decodeFormat)
+        assertTrue(profile.memoryCacheBytes < regular.memoryCacheBytes)
+        assertTrue(profile.diskCacheBytes < regular.diskCacheBytes)
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2019 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.core.util.glide
+
+import java.io.File
+import java.util.concurrent.Executor
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+
+/**
+ * Tests for [ShotColorsCache] that use a temporary file.
+ */
+class ShotColorsCacheTest {
+
+    @get:Rule
+    val temporaryFolder = TemporaryFolder()
+
+    private val imageUrl = "https://cdn.dribbble.com/shot.gif"
+
+    // read and write the file straight away, so it can be checked
+    private val directExecutor = Executor { it.run() }
+
+    private fun createCache() =
+        ShotColorsCache(File(temporaryFolder.root, "shot_colors"), directExecutor)
+
+    @Test
+    fun get_returnsColorsPut() {
+        // Given a ripple color and a badge darkness put for an image
+        val cache = createCache()
+        cache.putRippleColor(imageUrl, 0x40ff0000)
+        cache.putBadgeAreaDark(imageUrl, true)
+
+        // When getting the colors of the image
+        val colors = cache[imageUrl]
+
+        // Then both are returned
+        assertEquals(ShotColors(rippleColor = 0x40ff0000, isBadgeAreaDark = true), colors)
+    }
+
+    @Test
+    fun get_returnsColorsPersisted_byPreviousCache() {
+        // Given a ripple color put for an image in a cache
+        createCache().putRippleColor(imageUrl, 0x40ff0000)
+
+        // When getting the colors of the image from a new cache
+        val colors = createCache()[imageUrl]
+
+        // Then the ripple color is restored, and the badge darkness is still unknown
+        assertEquals(ShotColors(rippleColor = 0x40ff0000), colors)
+    }
+
+    @Test
+    fun stats_countHitsAndMisses() {
+        // Given a cache with the colors of one image
+        val cache = createCache()
+        cache.putBadgeAreaDark(imageUrl, false)
+
+        // When getting the colors of that image and of another one
+        cache[imageUrl]
+        val missing = cache["https://cdn.dribbble.com/other.png"]
+
+        // Then there are no colors for the other image
+        assertNull(missing)
+        // And the hit rate reflects both lookups
+        assertEquals(0.5, cache.stats.hitRate, 0.0)
+    }
+}
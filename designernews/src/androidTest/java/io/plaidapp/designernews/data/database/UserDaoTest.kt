@@ -0,0 +1,97 @@
+/*
+ * Copyright 2019 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.designernews.data.database
+
+import androidx.room.Room
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.platform.app.InstrumentationRegistry
+import io.plaidapp.designernews.data.users.model.CachedUser
+import kotlinx.coroutines.runBlocking
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * These tests verify [UserDao] Room database operations for [CachedUser]s.
+ */
+@RunWith(AndroidJUnit4::class)
+class UserDaoTest {
+    private lateinit var database: DesignerNewsDatabase
+    private lateinit var userDao: UserDao
+
+    private val user1 = CachedUser(
+        id = 111L,
+        firstName = "Plaicent",
+        lastName = "van Plaid",
+        displayName = "Plaicent van Plaid",
+        portraitUrl = "www",
+        cachedAt = 100L
+    )
+    private val user2 = CachedUser(
+        id = 222L,
+        firstName = "Plaude",
+        lastName = "Pladon",
+        displayName = "Plaude Pladon",
+        portraitUrl = "www",
+        cachedAt = 200L
+    )
+
+    @Before fun setup() {
+        val context = InstrumentationRegistry.getInstrumentation().context
+        database = Room.inMemoryDatabaseBuilder(context, DesignerNewsDatabase::class.java).build()
+        userDao = database.userDao()
+    }
+
+    @After fun tearDown() {
+        database.close()
+    }
+
+    @Test fun insertAndGetUsers() = runBlocking {
+        // Given users that have been inserted into the DB
+        userDao.setUsers(listOf(user1, user2), 0L)
+
+        // When getting the users via the DAO
+        val usersFromDb = userDao.getUsers(listOf(111L, 222L), 0L)
+
+        // Then the retrieved users match the original users
+        assertEquals(listOf(user1, user2), usersFromDb.sortedBy { it.id })
+    }
+
+    @Test fun getUsers_ignoresStaleUsers() = runBlocking {
+        // Given users that have been inserted into the DB
+        userDao.setUsers(listOf(user1, user2), 0L)
+
+        // When getting the users stored after the first one
+        val usersFromDb = userDao.getUsers(listOf(111L, 222L), 150L)
+
+        // Then only the second user is retrieved
+        assertEquals(listOf(user2), usersFromDb)
+    }
+
+    @Test fun setUsers_deletesStaleUsers() = runBlocking {
+        // Given a user that has been inserted into the DB
+        userDao.setUsers(listOf(user1), 0L)
+
+        // When inserting another user and removing the users stored before it
+        userDao.setUsers(listOf(user2), 150L)
+
+        // Then the first user was deleted
+        assertEquals(listOf(user2), userDao.getUsers(listOf(111L, 222L), 0L))
+    }
+}
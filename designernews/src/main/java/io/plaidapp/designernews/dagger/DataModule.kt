@@ -41,15 +41,7 @@ class DataModule {
     fun provideDesignerNewsService(
         client: Lazy<OkHttpClient>,
         gson: Gson
-    ): DesignerNewsService {
-        return Retrofit.Builder()
-            .baseUrl(DesignerNewsService.ENDPOINT)
-            .callFactory(client.get())
-            .addConverterFactory(DeEnvelopingConverter(gson))
-            .addConverterFactory(GsonConverterFactory.create(gson))
-            .build()
-            .create(DesignerNewsService::class.java)
-    }
+    ): DesignerNewsService = createDesignerNewsService(client, gson)
 
     @Provides
     @FeatureScope
@@ -57,3 +49,16 @@ class DataModule {
         return DesignerNewsDatabase.getInstance(context).loggedInUserDao()
     }
 }
+
+internal fun createDesignerNewsService(
+    client: Lazy<OkHttpClient>,
+    gson: Gson
+): DesignerNewsService {
+    return Retrofit.Builder()
+        .baseUrl(DesignerNewsService.ENDPOINT)
+        .callFactory(client.get())
+        .addConverterFactory(DeEnvelopingConverter(gson))
+        .addConverterFactory(GsonConverterFactory.create(gson))
+        .build()
+        .create(DesignerNewsService::class.java)
+}
@@ -19,6 +19,7 @@
 package io.plaidapp.designernews.dagger
 
 import `in`.uncod.android.bypass.Bypass
+import android.app.Activity
 import android.util.TypedValue
 import io.plaidapp.core.dagger.MarkdownModule
 import io.plaidapp.core.util.ColorUtils
@@ -47,6 +48,7 @@ fun inject(storyId: Long, activity: StoryActivity) {
 
     DaggerStoryComponent.builder()
         .coreComponent(activity.coreComponent())
+        .userDataComponent(userDataComponent(activity))
         .designerNewsModule(StoryModule(storyId, activity))
         .markdownModule(MarkdownModule(activity.resources.displayMetrics, bypassOptions))
         .sharedPreferencesModule(
@@ -56,6 +58,18 @@ fun inject(storyId: Long, activity: StoryActivity) {
         .inject(activity)
 }
 
+private var userDataComponent: UserDataComponent? = null
+
+/**
+ * The component holding the Designer News users, created once and kept for the app's lifetime.
+ */
+private fun userDataComponent(activity: Activity): UserDataComponent =
+    userDataComponent ?: DaggerUserDataComponent.builder()
+        .coreComponent(activity.coreComponent())
+        .context(activity.applicationContext)
+        .build()
+        .also { userDataComponent = it }
+
 fun inject(activity: LoginActivity) {
 
     DaggerLoginComponent.builder()
@@ -35,7 +35,7 @@ import io.plaidapp.designernews.ui.story.StoryActivity
         DesignerNewsDataModule::class,
         DataModule::class,
         StoryModule::class],
-    dependencies = [CoreComponent::class]
+    dependencies = [CoreComponent::class, UserDataComponent::class]
 )
 @FeatureScope
 interface StoryComponent : BaseActivityComponent<StoryActivity> {
@@ -44,6 +44,7 @@ interface StoryComponent : BaseActivityComponent<StoryActivity> {
     interface Builder {
         fun build(): StoryComponent
         fun coreComponent(coreComponent: CoreComponent): Builder
+        fun userDataComponent(userDataComponent: UserDataComponent): Builder
         fun designerNewsModule(module: StoryModule): Builder
         fun markdownModule(module: MarkdownModule): Builder
         fun sharedPreferencesModule(module: SharedPreferencesModule): Builder
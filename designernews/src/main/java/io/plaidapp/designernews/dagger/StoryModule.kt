@@ -16,22 +16,27 @@
 
 package io.plaidapp.designernews.dagger
 
+import `in`.uncod.android.bypass.Markdown
+import android.widget.FrameLayout
+import android.widget.TextView
+import androidx.core.content.ContextCompat
+import androidx.core.widget.TextViewCompat
 import androidx.lifecycle.ViewModelProvider
 import dagger.Module
 import dagger.Provides
 import io.plaidapp.core.dagger.scope.FeatureScope
 import io.plaidapp.core.data.CoroutinesDispatcherProvider
+import io.plaidapp.designernews.R
 import io.plaidapp.designernews.data.api.DesignerNewsService
 import io.plaidapp.designernews.data.comments.CommentsRemoteDataSource
 import io.plaidapp.designernews.data.comments.CommentsRepository
-import io.plaidapp.designernews.data.users.UserRemoteDataSource
-import io.plaidapp.designernews.data.users.UserRepository
 import io.plaidapp.designernews.domain.GetCommentsWithRepliesAndUsersUseCase
 import io.plaidapp.designernews.domain.GetStoryUseCase
 import io.plaidapp.designernews.domain.PostReplyUseCase
 import io.plaidapp.designernews.domain.PostStoryCommentUseCase
 import io.plaidapp.designernews.ui.DesignerNewsViewModelFactory
 import io.plaidapp.designernews.ui.login.LoginViewModel
+import io.plaidapp.designernews.ui.story.CommentFormatter
 import io.plaidapp.designernews.ui.story.StoryActivity
 import io.plaidapp.designernews.ui.story.StoryViewModel
 import io.plaidapp.designernews.ui.story.StoryViewModelFactory
@@ -60,6 +65,7 @@ class StoryModule(private val storyId: Long, private val activity: StoryActivity
         postStoryCommentUseCase: PostStoryCommentUseCase,
         postReplyUseCase: PostReplyUseCase,
         commentsWithRepliesAndUsersUseCase: GetCommentsWithRepliesAndUsersUseCase,
+        commentFormatter: CommentFormatter,
         coroutinesDispatcherProvider: CoroutinesDispatcherProvider
     ): StoryViewModelFactory =
         StoryViewModelFactory(
@@ -68,13 +74,23 @@ class StoryModule(private val storyId: Long, private val activity: StoryActivity
             postStoryCommentUseCase,
             postReplyUseCase,
             commentsWithRepliesAndUsersUseCase,
+            commentFormatter,
             coroutinesDispatcherProvider
         )
 
     @Provides
-    @FeatureScope
-    fun provideUserRepository(dataSource: UserRemoteDataSource): UserRepository =
-        UserRepository(dataSource)
+    fun provideCommentFormatter(markdown: Markdown): CommentFormatter {
+        // comment text is precomputed for the TextView comments are shown in
+        val commentText = activity.layoutInflater
+            .inflate(R.layout.designer_news_comment, FrameLayout(activity), false)
+            .findViewById<TextView>(R.id.comment_text)
+        return CommentFormatter(
+            markdown,
+            ContextCompat.getColorStateList(activity, R.color.designer_news_links)!!,
+            ContextCompat.getColor(activity, io.plaidapp.R.color.designer_news_link_highlight),
+            TextViewCompat.getTextMetricsParams(commentText)
+        )
+    }
 
     @Provides
     @FeatureScope
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2019 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.designernews.dagger
+
+import android.content.Context
+import dagger.BindsInstance
+import dagger.Component
+import io.plaidapp.core.dagger.CoreComponent
+import io.plaidapp.core.dagger.scope.AppScope
+import io.plaidapp.designernews.data.users.UserRepository
+
+/**
+ * Dagger component for the Designer News users. It outlives the screens showing them, so users
+ * looked up for one story are shared with the next.
+ */
+@Component(
+    modules = [UserDataModule::class],
+    dependencies = [CoreComponent::class]
+)
+@AppScope
+interface UserDataComponent {
+
+    fun userRepository(): UserRepository
+
+    @Component.Builder
+    interface Builder {
+
+        fun build(): UserDataComponent
+        @BindsInstance fun context(context: Context): Builder
+        fun coreComponent(component: CoreComponent): Builder
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2019 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.designernews.dagger
+
+import android.content.Context
+import com.google.gson.Gson
+import dagger.Lazy
+import dagger.Module
+import dagger.Provides
+import io.plaidapp.core.dagger.scope.AppScope
+import io.plaidapp.designernews.data.api.DesignerNewsService
+import io.plaidapp.designernews.data.database.DesignerNewsDatabase
+import io.plaidapp.designernews.data.database.UserDao
+import io.plaidapp.designernews.data.users.UserLocalDataSource
+import io.plaidapp.designernews.data.users.UserRemoteDataSource
+import io.plaidapp.designernews.data.users.UserRepository
+import okhttp3.OkHttpClient
+
+/**
+ * Dagger module to provide the Designer News users for the app's lifetime.
+ */
+@Module
+class UserDataModule {
+
+    @Provides
+    @AppScope
+    fun provideDesignerNewsService(
+        client: Lazy<OkHttpClient>,
+        gson: Gson
+    ): DesignerNewsService = createDesignerNewsService(client, gson)
+
+    @Provides
+    @AppScope
+    fun provideUserDao(context: Context): UserDao {
+        return DesignerNewsDatabase.getInstance(context).userDao()
+    }
+
+    @Provides
+    @AppScope
+    fun provideUserRepository(
+        remoteDataSource: UserRemoteDataSource,
+        localDataSource: UserLocalDataSource
+    ): UserRepository = UserRepository(remoteDataSource, localDataSource)
+}
@@ -21,21 +21,42 @@ import androidx.room.Database
 import androidx.room.Room
 import androidx.room.RoomDatabase
 import androidx.room.TypeConverters
+import androidx.room.migration.Migration
+import androidx.sqlite.db.SupportSQLiteDatabase
 import io.plaidapp.core.designernews.data.login.model.LoggedInUser
+import io.plaidapp.designernews.data.users.model.CachedUser
 
 /**
  * The Room database for this app
  */
-@Database(entities = [LoggedInUser::class], version = 1, exportSchema = false)
+@Database(
+    entities = [LoggedInUser::class, CachedUser::class],
+    version = 2,
+    exportSchema = false
+)
 @TypeConverters(Converters::class)
 abstract class DesignerNewsDatabase : RoomDatabase() {
 
     abstract fun loggedInUserDao(): LoggedInUserDao
 
+    abstract fun userDao(): UserDao
+
     companion object {
 
         private const val DATABASE_NAME = "plaid-db"
 
+        // Version 2 adds the users table
+        private val MIGRATION_1_2 = object : Migration(1, 2) {
+            override fun migrate(database: SupportSQLiteDatabase) {
+                database.execSQL(
+                    "CREATE TABLE IF NOT EXISTS `users` (`id` INTEGER NOT NULL, " +
+                        "`first_name` TEXT NOT NULL, `last_name` TEXT NOT NULL, " +
+                        "`display_name` TEXT NOT NULL, `portrait_url` TEXT, " +
+                        "`cached_at` INTEGER NOT NULL, PRIMARY KEY(`id`))"
+                )
+            }
+        }
+
         // For Singleton instantiation
         @Volatile private var instance: DesignerNewsDatabase? = null
 
@@ -49,7 +70,8 @@ abstract class DesignerNewsDatabase : RoomDatabase() {
             return Room.databaseBuilder(
                 context, DesignerNewsDatabase::class.java,
                 DATABASE_NAME
-            ).build()
+            ).addMigrations(MIGRATION_1_2)
+                .build()
         }
     }
 }
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2019 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.designernews.data.database
+
+import androidx.room.Dao
+import androidx.room.Insert
+import androidx.room.OnConflictStrategy
+import androidx.room.Query
+import androidx.room.Transaction
+import io.plaidapp.designernews.data.users.model.CachedUser
+
+/**
+ * This Data Access Object handles Room database operations for the [CachedUser] class.
+ */
+@Dao
+abstract class UserDao {
+
+    /**
+     * Get the users with the given [ids] that were stored at or after [minCachedAt].
+     */
+    @Query("SELECT * FROM users WHERE id IN (:ids) AND cached_at >= :minCachedAt")
+    abstract suspend fun getUsers(ids: List<Long>, minCachedAt: Long): List<CachedUser>
+
+    /**
+     * Stores the [users], replacing any previous version of them, and removes all the users
+     * stored before [minCachedAt].
+     */
+    @Transaction
+    open suspend fun setUsers(users: List<CachedUser>, minCachedAt: Long) {
+        deleteUsersCachedBefore(minCachedAt)
+        insertUsers(users)
+    }
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    abstract suspend fun insertUsers(users: List<CachedUser>)
+
+    @Query("DELETE FROM users WHERE cached_at < :minCachedAt")
+    abstract suspend fun deleteUsersCachedBefore(minCachedAt: Long)
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2019 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.designernews.data.users
+
+import io.plaidapp.core.designernews.data.users.model.User
+import io.plaidapp.designernews.data.database.UserDao
+import io.plaidapp.designernews.data.users.model.CachedUser
+import io.plaidapp.designernews.data.users.model.toCachedUser
+import java.util.concurrent.TimeUnit
+import javax.inject.Inject
+
+/**
+ * Class that stores users in the database, so they survive process death. Users stored for longer
+ * than [USER_TTL_MILLIS] are considered stale and are not returned.
+ */
+class UserLocalDataSource @Inject constructor(private val userDao: UserDao) {
+
+    /**
+     * Get the users that are stored and not stale, with the time they were stored at.
+     */
+    suspend fun getUsers(userIds: List<Long>): List<CachedUser> {
+        val minCachedAt = System.currentTimeMillis() - USER_TTL_MILLIS
+        // keep every query below SQLite's limit of bound parameters
+        return userIds.chunked(MAX_IDS_PER_QUERY).flatMap { ids ->
+            userDao.getUsers(ids, minCachedAt)
+        }
+    }
+
+    suspend fun saveUsers(users: List<User>) {
+        val now = System.currentTimeMillis()
+        userDao.setUsers(users.map { it.toCachedUser(now) }, now - USER_TTL_MILLIS)
+    }
+
+    companion object {
+        val USER_TTL_MILLIS = TimeUnit.DAYS.toMillis(7)
+        private const val MAX_IDS_PER_QUERY = 900
+    }
+}
@@ -16,38 +16,131 @@
 
 package io.plaidapp.designernews.data.users
 
+import io.plaidapp.core.data.BoundedCache
 import io.plaidapp.core.data.Result
 import io.plaidapp.core.designernews.data.users.model.User
+import io.plaidapp.designernews.data.users.UserLocalDataSource.Companion.USER_TTL_MILLIS
+import io.plaidapp.designernews.data.users.model.CachedUser
+import io.plaidapp.designernews.data.users.model.toCachedUser
+import io.plaidapp.designernews.data.users.model.toUser
 import java.io.IOException
+import java.util.concurrent.ConcurrentHashMap
+import kotlin.coroutines.coroutineContext
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.CompletableDeferred
+import kotlinx.coroutines.isActive
 
 /**
- * Class that requests users from the remote data source and caches them, in memory.
+ * Class that requests users and caches them, in memory. Users that aren't cached in memory are
+ * looked up in the [localDataSource] first, and only then requested from the [remoteDataSource].
+ * Users cached in memory expire along with the stored ones, and the least recently used ones are
+ * evicted once [MAX_CACHED_USERS] are cached.
+ *
+ * Concurrent requests for the same user share a single lookup: only the first request for a user
+ * id triggers the lookup, the others wait for its result. If the first request is cancelled, the
+ * waiting ones look the user up again.
  */
-class UserRepository(private val dataSource: UserRemoteDataSource) {
+class UserRepository(
+    private val remoteDataSource: UserRemoteDataSource,
+    private val localDataSource: UserLocalDataSource
+) {
+
+    private val cachedUsers = BoundedCache<Long, CachedUser>(MAX_CACHED_USERS)
 
-    private val cachedUsers = mutableMapOf<Long, User>()
+    // lookups in progress, by user id; completed with the user, or null if it couldn't be found
+    private val inFlightUsers = ConcurrentHashMap<Long, CompletableDeferred<User?>>()
 
     suspend fun getUsers(ids: Set<Long>): Result<Set<User>> {
-        // find the ids in the cached users first and only request the ones that we don't have yet
-        val notCachedUsers = ids.filterNot { cachedUsers.containsKey(it) }
+        val users = mutableMapOf<Long, User>()
+        val lookups = mutableMapOf<Long, CompletableDeferred<User?>>()
+        // find the ids in the cached users first and only look up the ones that we don't have yet
+        // and that aren't already being looked up
+        val notCachedUsers = mutableListOf<Long>()
+        ids.forEach { id ->
+            val cachedUser = getCachedUser(id)
+            if (cachedUser != null) {
+                users[id] = cachedUser
+                return@forEach
+            }
+            val inFlightLookup = inFlightUsers.putIfAbsent(id, CompletableDeferred())
+            if (inFlightLookup != null) {
+                lookups[id] = inFlightLookup
+            } else {
+                notCachedUsers.add(id)
+            }
+        }
         if (notCachedUsers.isNotEmpty()) {
-            getAndCacheUsers(notCachedUsers)
+            users.putAll(getAndCacheUsers(notCachedUsers))
+        }
+
+        // wait for the lookups started by other requests, and retry the cancelled ones
+        val cancelledLookups = mutableSetOf<Long>()
+        lookups.forEach { (id, lookup) ->
+            try {
+                lookup.await()?.let { users[id] = it }
+            } catch (e: CancellationException) {
+                if (!coroutineContext.isActive) throw e
+                cancelledLookups.add(id)
+            }
+        }
+        if (cancelledLookups.isNotEmpty()) {
+            val result = getUsers(cancelledLookups)
+            if (result is Result.Success) result.data.forEach { users[it.id] = it }
         }
 
         // compute the list of users requested
-        val users = ids.mapNotNull { cachedUsers[it] }.toSet()
         if (users.isNotEmpty()) {
-            return Result.Success(users)
+            return Result.Success(users.values.toSet())
         }
         return Result.Error(IOException("Unable to get users"))
     }
 
-    private suspend fun getAndCacheUsers(userIds: List<Long>) {
-        val result = dataSource.getUsers(userIds)
+    private fun getCachedUser(id: Long): User? {
+        val cachedUser = cachedUsers[id] ?: return null
+        if (cachedUser.cachedAt < System.currentTimeMillis() - USER_TTL_MILLIS) {
+            cachedUsers.remove(id)
+            return null
+        }
+        return cachedUser.toUser()
+    }
+
+    private suspend fun getAndCacheUsers(userIds: List<Long>): Map<Long, User> {
+        val users = mutableMapOf<Long, User>()
+        try {
+            // another lookup could have completed after we checked the cache
+            userIds.forEach { id -> getCachedUser(id)?.let { users[id] = it } }
+            val notCachedUsers = userIds.filterNot { users.containsKey(it) }
+            localDataSource.getUsers(notCachedUsers).forEach {
+                cachedUsers[it.id] = it
+                users[it.id] = it.toUser()
+            }
 
-        // save the new users in the cachedUsers
-        if (result is Result.Success) {
-            result.data.forEach { cachedUsers[it.id] = it }
+            val notStoredUsers = notCachedUsers.filterNot { users.containsKey(it) }
+            if (notStoredUsers.isNotEmpty()) {
+                val result = remoteDataSource.getUsers(notStoredUsers)
+
+                // save the new users in the local data source and in the cachedUsers
+                if (result is Result.Success) {
+                    localDataSource.saveUsers(result.data)
+                    val now = System.currentTimeMillis()
+                    result.data.forEach {
+                        cachedUsers[it.id] = it.toCachedUser(now)
+                        users[it.id] = it
+                    }
+                }
+            }
+        } catch (e: CancellationException) {
+            // the waiting requests look these users up again rather than going without them
+            userIds.forEach { inFlightUsers.remove(it)?.cancel(e) }
+            throw e
+        } finally {
+            // complete the lookups even on failure, so waiting requests resume
+            userIds.forEach { inFlightUsers.remove(it)?.complete(users[it]) }
         }
+        return users
+    }
+
+    companion object {
+        const val MAX_CACHED_USERS = 1000
     }
 }
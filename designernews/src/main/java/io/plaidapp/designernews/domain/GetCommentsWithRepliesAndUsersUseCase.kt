@@ -20,45 +20,55 @@ import io.plaidapp.core.data.Result
 import io.plaidapp.core.designernews.data.users.model.User
 import io.plaidapp.core.designernews.domain.model.Comment
 import io.plaidapp.core.designernews.domain.model.CommentWithReplies
+import io.plaidapp.core.designernews.domain.model.flattenWithReplies
+import io.plaidapp.core.designernews.domain.model.forEachWithReplies
 import io.plaidapp.core.designernews.domain.model.toComment
+import io.plaidapp.core.util.exhaustive
 import io.plaidapp.designernews.data.users.UserRepository
 import javax.inject.Inject
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.collect
+import kotlinx.coroutines.flow.flow
 
 /**
- * Use case that builds [Comment]s based on comments with replies and users
+ * Use case that builds [Comment]s based on comments with replies and users.
+ *
+ * Comments are emitted progressively: first the top level comments, then the tree extended with
+ * every new level of replies and finally the complete tree, with the users that posted them.
  */
 class GetCommentsWithRepliesAndUsersUseCase @Inject constructor(
     private val getCommentsWithReplies: GetCommentsWithRepliesUseCase,
     private val userRepository: UserRepository
 ) {
-    suspend operator fun invoke(ids: List<Long>): Result<List<Comment>> {
-        // Get the comments with replies
-        val commentsWithRepliesResult = getCommentsWithReplies(ids)
-        if (commentsWithRepliesResult is Result.Error) {
-            return commentsWithRepliesResult
+    operator fun invoke(ids: List<Long>): Flow<Result<List<Comment>>> = flow {
+        var commentsWithReplies = emptyList<CommentWithReplies>()
+        // Get the comments with replies, level by level, without waiting for the users
+        getCommentsWithReplies.progressively(ids).collect { result ->
+            when (result) {
+                is Result.Success -> {
+                    commentsWithReplies = result.data
+                    emit(Result.Success(createComments(commentsWithReplies, emptySet())))
+                }
+                is Result.Error -> emit(result)
+            }.exhaustive
+        }
+        if (commentsWithReplies.isEmpty()) {
+            return@flow
         }
-        val commentsWithReplies = (commentsWithRepliesResult as? Result.Success)?.data.orEmpty()
         // get the ids of the users that posted comments
         val userIds = mutableSetOf<Long>()
         createUserIds(commentsWithReplies, userIds)
 
         // get the users
         val usersResult = userRepository.getUsers(userIds)
-        val users = if (usersResult is Result.Success) {
-            usersResult.data
-        } else {
-            emptySet()
+        if (usersResult is Result.Success) {
+            // create the comments based on the comments with replies and users
+            emit(Result.Success(createComments(commentsWithReplies, usersResult.data)))
         }
-        // create the comments based on the comments with replies and users
-        val comments = createComments(commentsWithReplies, users)
-        return Result.Success(comments)
     }
 
     private fun createUserIds(comments: List<CommentWithReplies>, userIds: MutableSet<Long>) {
-        comments.forEach {
-            userIds.add(it.userId)
-            createUserIds(it.replies, userIds)
-        }
+        comments.forEachWithReplies { userIds.add(it.userId) }
     }
 
     private fun createComments(
@@ -66,9 +76,6 @@ class GetCommentsWithRepliesAndUsersUseCase @Inject constructor(
         users: Set<User>
     ): List<Comment> {
         val userMapping = users.associateBy(User::id)
-        return commentsWithReplies.asSequence()
-                .flatMap(CommentWithReplies::flattenWithReplies)
-                .map { it.toComment(userMapping[it.userId]) }
-                .toList()
+        return commentsWithReplies.flattenWithReplies { it.toComment(userMapping[it.userId]) }
     }
 }
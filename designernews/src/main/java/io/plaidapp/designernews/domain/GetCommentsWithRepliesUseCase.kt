@@ -23,6 +23,9 @@ import io.plaidapp.designernews.data.comments.model.CommentResponse
 import io.plaidapp.designernews.data.comments.model.toCommentsWithReplies
 import java.io.IOException
 import javax.inject.Inject
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.collect
+import kotlinx.coroutines.flow.flow
 
 /**
  * Use case that constructs the entire comments and replies tree for a list of comments. Works
@@ -37,32 +40,41 @@ class GetCommentsWithRepliesUseCase @Inject constructor(
      * and just use the comments retrieved until that point.
      */
     suspend operator fun invoke(parentIds: List<Long>): Result<List<CommentWithReplies>> {
+        var result: Result<List<CommentWithReplies>> =
+            Result.Error(IOException("Unable to get comments"))
+        progressively(parentIds).collect { result = it }
+        return result
+    }
+
+    /**
+     * Get all comments and their replies, emitting the tree built so far every time a new depth
+     * level has been retrieved. The first emission only contains the first level of comments.
+     * If we get an error on the first level, the error is emitted; errors on any reply depth
+     * level are ignored and the flow completes with the comments retrieved until that point.
+     */
+    fun progressively(parentIds: List<Long>): Flow<Result<List<CommentWithReplies>>> = flow {
         val replies = mutableListOf<List<CommentResponse>>()
         // get the first level of comments
         var parentComments = commentsRepository.getComments(parentIds)
         // as long as we could get comments or replies to comments
         while (parentComments is Result.Success) {
             val parents = parentComments.data
-            // add the replies
+            // add the replies and emit the tree built until this depth level
             replies.add(parents)
+            emit(Result.Success(matchComments(replies)))
             // check if we have another level of replies
             val replyIds = parents.flatMap { comment -> comment.links.comments }
-            if (!replyIds.isEmpty()) {
-                parentComments = commentsRepository.getComments(replyIds)
-            } else {
-                // we don't have any other level of replies match the replies to the comments
-                // they belong to and return the first level of comments.
-                if (replies.isNotEmpty()) {
-                    return Result.Success(matchComments(replies))
-                }
+            if (replyIds.isEmpty()) {
+                // we don't have any other level of replies so the last emitted tree is complete
+                return@flow
             }
+            parentComments = commentsRepository.getComments(replyIds)
         }
         // the last request was unsuccessful
-        // if we already got some comments and replies, then use that data and ignore the error
-        return when {
-            replies.isNotEmpty() -> Result.Success(matchComments(replies))
-            parentComments is Result.Error -> parentComments
-            else -> Result.Error(IOException("Unable to get comments"))
+        // if we already got some comments and replies, then we already emitted that data so
+        // ignore the error
+        if (replies.isEmpty() && parentComments is Result.Error) {
+            emit(parentComments)
         }
     }
 
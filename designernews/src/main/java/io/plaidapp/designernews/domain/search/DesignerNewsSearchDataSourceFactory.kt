@@ -16,8 +16,10 @@
 
 package io.plaidapp.designernews.domain.search
 
+import io.plaidapp.core.data.PlaidItem
 import io.plaidapp.core.designernews.data.DesignerNewsSearchSourceItem
 import io.plaidapp.core.designernews.data.stories.StoriesRepository
+import io.plaidapp.core.designernews.data.stories.model.Story
 import io.plaidapp.core.interfaces.PlaidDataSource
 import io.plaidapp.core.interfaces.SearchDataSourceFactory
 
@@ -32,4 +34,12 @@ class DesignerNewsSearchDataSourceFactory(
         val sourceItem = DesignerNewsSearchSourceItem(query)
         return DesignerNewsDataSource(sourceItem, repository)
     }
+
+    override fun retainDisplayed(owner: Any, items: List<PlaidItem>) {
+        repository.retainDisplayed(owner, items.filterIsInstance<Story>())
+    }
+
+    override fun releaseDisplayed(owner: Any) {
+        repository.releaseDisplayed(owner)
+    }
 }
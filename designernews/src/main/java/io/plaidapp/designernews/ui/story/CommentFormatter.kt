@@ -0,0 +1,97 @@
+/*
+ * Copyright 2019 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.designernews.ui.story
+
+import `in`.uncod.android.bypass.LoadImageCallback
+import `in`.uncod.android.bypass.Markdown
+import `in`.uncod.android.bypass.style.ImageLoadingSpan
+import android.content.res.ColorStateList
+import android.text.format.DateUtils
+import androidx.annotation.ColorInt
+import androidx.core.text.PrecomputedTextCompat
+import io.plaidapp.core.designernews.domain.model.Comment
+import io.plaidapp.core.util.HtmlUtils
+import io.plaidapp.core.util.markdownToSpannables
+import kotlinx.coroutines.CoroutineDispatcher
+
+/**
+ * Turns [Comment]s into [CommentUiModel]s, so that all [CommentViewHolder] has to do is show them.
+ *
+ * Bodies are parsed from markdown and, unless told otherwise, their text is measured ahead of
+ * time with [textParams], which must be those of the comment TextView. This is slow for long
+ * bodies, so it's meant to be done off the main thread.
+ *
+ * Images in a body are left as [ImageLoadingSpan]s, to be loaded when the comment is bound.
+ */
+class CommentFormatter(
+    private val markdown: Markdown,
+    private val linksColor: ColorStateList,
+    @ColorInt private val highlightColor: Int,
+    private val textParams: PrecomputedTextCompat.Params
+) {
+
+    fun formatBody(body: String, precompute: Boolean = true): CharSequence {
+        val text = HtmlUtils.parseMarkdownAndPlainLinks(
+            body,
+            markdown,
+            linksColor,
+            highlightColor,
+            loadImagesLater
+        )
+        return if (precompute) PrecomputedTextCompat.create(text, textParams) else text
+    }
+
+    /**
+     * Formats and precomputes each of [bodies], in parallel on [dispatcher]. The results are in
+     * the same order as [bodies].
+     */
+    suspend fun formatBodies(
+        bodies: List<String>,
+        dispatcher: CoroutineDispatcher
+    ): List<CharSequence> = markdown.markdownToSpannables(
+        bodies,
+        linksColor,
+        highlightColor,
+        loadImagesLater,
+        dispatcher
+    ) { text ->
+        val linkified = HtmlUtils.linkifyPlainLinks(text, linksColor, highlightColor)
+        PrecomputedTextCompat.create(linkified, textParams)
+    }
+
+    fun format(comment: Comment, body: CharSequence, isOriginalPoster: Boolean) = CommentUiModel(
+        id = comment.id,
+        body = body,
+        timeSinceCommentCreation = DateUtils.getRelativeTimeSpanString(
+            comment.createdAt.time,
+            System.currentTimeMillis(),
+            DateUtils.SECOND_IN_MILLIS
+        ).toString().toLowerCase(),
+        depth = comment.depth,
+        author = comment.userDisplayName?.toLowerCase() ?: "",
+        isOriginalPoster = isOriginalPoster,
+        upvotesCount = comment.upvotesCount,
+        upvoted = comment.upvoted
+    )
+
+    companion object {
+        // Bypass only keeps the spans marking images when there's a callback to load them
+        private val loadImagesLater = object : LoadImageCallback {
+            override fun loadImage(src: String, loadingSpan: ImageLoadingSpan) = Unit
+        }
+    }
+}
@@ -28,7 +28,6 @@ import androidx.core.animation.doOnEnd
 import androidx.core.animation.doOnStart
 import androidx.recyclerview.widget.RecyclerView
 import com.google.android.material.textfield.TextInputLayout
-import io.plaidapp.core.designernews.domain.model.Comment
 import io.plaidapp.core.util.AnimUtils.getFastOutSlowInInterpolator
 import io.plaidapp.designernews.R
 
@@ -43,7 +42,7 @@ internal class CommentReplyViewHolder(itemView: View) : RecyclerView.ViewHolder(
     val commentReply: EditText = itemView.findViewById(R.id.comment_reply)
     val postReply: ImageButton = itemView.findViewById(R.id.post_reply)
 
-    fun bindCommentReply(comment: Comment) {
+    fun bindCommentReply(comment: CommentUiModel) {
         commentVotes.text = comment.upvotesCount.toString()
         commentVotes.isActivated = comment.upvoted
     }
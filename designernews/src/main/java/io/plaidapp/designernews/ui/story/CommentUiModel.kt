@@ -17,12 +17,16 @@
 package io.plaidapp.designernews.ui.story
 
 /**
- * Comment model for the UI
+ * Comment model for the UI. The [body] is ready to be shown, and may be a
+ * [androidx.core.text.PrecomputedTextCompat].
  */
 data class CommentUiModel(
+    val id: Long,
     val body: CharSequence,
     val timeSinceCommentCreation: String,
     val depth: Int,
     val author: String?,
-    val isOriginalPoster: Boolean
+    val isOriginalPoster: Boolean,
+    val upvotesCount: Int,
+    val upvoted: Boolean
 )
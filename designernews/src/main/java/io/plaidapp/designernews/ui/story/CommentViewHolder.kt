@@ -16,12 +16,17 @@
 
 package io.plaidapp.designernews.ui.story
 
+import `in`.uncod.android.bypass.LoadImageCallback
+import `in`.uncod.android.bypass.style.ImageLoadingSpan
 import android.animation.Animator
 import android.animation.AnimatorListenerAdapter
+import android.text.Spanned
 import android.view.View
 import android.view.ViewGroup
 import android.widget.ImageView
 import android.widget.TextView
+import androidx.core.text.PrecomputedTextCompat
+import androidx.core.widget.TextViewCompat
 import androidx.recyclerview.widget.RecyclerView
 import io.plaidapp.core.ui.recyclerview.SlideInItemAnimator
 import io.plaidapp.core.ui.widget.AuthorTextView
@@ -44,10 +49,28 @@ internal class CommentViewHolder(
 
     init {
         threadDepth.setImageDrawable(ThreadedCommentDrawable(threadWidth, threadGap))
+        HtmlUtils.setTextWithNiceLinks(comment, "")
     }
 
-    fun bind(model: CommentUiModel) {
-        HtmlUtils.setTextWithNiceLinks(comment, model.body)
+    /**
+     * Show [model], whose body should already be parsed and, ideally, precomputed. Any images in
+     * the body are loaded with [loadImage].
+     */
+    fun bind(model: CommentUiModel, loadImage: LoadImageCallback) {
+        val body = model.body
+        // params only differ if the configuration changed since the body was precomputed
+        if (body is PrecomputedTextCompat &&
+            body.params == TextViewCompat.getTextMetricsParams(comment)
+        ) {
+            TextViewCompat.setPrecomputedText(comment, body)
+        } else {
+            comment.text = body
+        }
+        if (body is Spanned) {
+            body.getSpans(0, body.length, ImageLoadingSpan::class.java).forEach {
+                loadImage.loadImage(it.url, it)
+            }
+        }
         author.text = model.author
         author.isOriginalPoster = model.isOriginalPoster
         timeAgo.text = model.timeSinceCommentCreation
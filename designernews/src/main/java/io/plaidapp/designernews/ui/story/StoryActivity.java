@@ -36,6 +36,7 @@ import android.text.Spanned;
 import android.text.TextUtils;
 import android.text.format.DateUtils;
 import android.text.style.TextAppearanceSpan;
+import android.util.Log;
 import android.view.View;
 import android.view.ViewAnimationUtils;
 import android.view.ViewGroup;
@@ -54,6 +55,7 @@ import androidx.core.app.ActivityOptionsCompat;
 import androidx.core.app.ShareCompat;
 import androidx.core.content.ContextCompat;
 import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.ListUpdateCallback;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.bumptech.glide.load.engine.DiskCacheStrategy;
@@ -72,12 +74,14 @@ import io.plaidapp.core.ui.widget.CollapsingTitleLayout;
 import io.plaidapp.core.ui.widget.ElasticDragDismissFrameLayout;
 import io.plaidapp.core.util.Activities;
 import io.plaidapp.core.util.ColorUtils;
+import io.plaidapp.core.util.FrameTimeRecorder;
 import io.plaidapp.core.util.HtmlUtils;
 import io.plaidapp.core.util.ImeUtils;
 import io.plaidapp.core.util.ViewUtils;
 import io.plaidapp.core.util.customtabs.CustomTabActivityHelper;
 import io.plaidapp.core.util.glide.GlideApp;
 import io.plaidapp.core.util.glide.ImageSpanTarget;
+import io.plaidapp.designernews.BuildConfig;
 import io.plaidapp.designernews.R;
 import io.plaidapp.designernews.dagger.Injector;
 import io.plaidapp.designernews.ui.login.LoginActivity;
@@ -99,6 +103,8 @@ import static io.plaidapp.core.util.AnimUtils.getLinearOutSlowInInterpolator;
 
 public class StoryActivity extends AppCompatActivity {
 
+    private static final String TAG = "StoryActivity";
+
     private View header;
     private RecyclerView commentsList;
     private LinearLayoutManager layoutManager;
@@ -130,6 +136,7 @@ public class StoryActivity extends AppCompatActivity {
     Markdown markdown;
 
     private CustomTabActivityHelper customTab;
+    private final FrameTimeRecorder frameTimeRecorder = new FrameTimeRecorder();
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -146,7 +153,7 @@ public class StoryActivity extends AppCompatActivity {
 
         story = viewModel.getStory();
         viewModel.getUiModel().observe(this,
-                storyUiModel -> setupComments(storyUiModel.getComments()));
+                storyUiModel -> setupComments(storyUiModel));
 
         fab.setOnClickListener(fabClick);
         chromeFader = new ElasticDragDismissFrameLayout.SystemChromeFader(this);
@@ -226,10 +233,9 @@ public class StoryActivity extends AppCompatActivity {
         customTab.setConnectionCallback(customTabConnect);
     }
 
-    private void setupComments(List<Comment> comments) {
-        if (comments.size() > 0) {
-            commentsAdapter.updateList(comments);
-            commentsList.setAdapter(commentsAdapter);
+    private void setupComments(StoryUiModel uiModel) {
+        if (uiModel.getComments().size() > 0) {
+            commentsAdapter.updateList(uiModel.getComments(), uiModel.getCommentsDiff());
         }
     }
 
@@ -260,11 +266,16 @@ public class StoryActivity extends AppCompatActivity {
         fab.setAlpha(1f);
         fabExpand.setVisibility(View.INVISIBLE);
         draggableFrame.addListener(chromeFader);
+        frameTimeRecorder.start(getWindow());
     }
 
     @Override
     protected void onPause() {
         draggableFrame.removeListener(chromeFader);
+        frameTimeRecorder.stop(getWindow());
+        if (BuildConfig.DEBUG) {
+            Log.d(TAG, "Frame times: " + frameTimeRecorder);
+        }
         super.onPause();
     }
 
@@ -510,7 +521,10 @@ public class StoryActivity extends AppCompatActivity {
                     .load(story.getUserPortraitUrl())
                     .transition(withCrossFade())
                     .placeholder(io.plaidapp.R.drawable.avatar_placeholder)
-                    .circleCrop()
+                    // the avatar view center crops and clips itself to a circle, so the bitmap
+                    // needn't be transformed
+                    .allowHardwareBitmaps()
+                    .dontTransform()
                     .into(avatar);
         } else {
             avatar.setVisibility(View.GONE);
@@ -583,7 +597,7 @@ public class StoryActivity extends AppCompatActivity {
         enterComment.getText().clear();
         enterComment.setEnabled(true);
         postComment.setEnabled(true);
-        commentsAdapter.addComment(comment);
+        commentsAdapter.addComment(viewModel.commentUiModel(comment));
     }
 
     private void needsLogin(View triggeringView, int requestCode) {
@@ -609,10 +623,6 @@ public class StoryActivity extends AppCompatActivity {
         }
     };
 
-    private boolean isOP(Long userId) {
-        return userId.equals(story.getUserId());
-    }
-
     /* package */ class DesignerNewsCommentsAdapter
             extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
 
@@ -623,22 +633,141 @@ public class StoryActivity extends AppCompatActivity {
         private static final int TYPE_FOOTER = 4;
 
         private View header;
-        private List<Comment> comments;
+        private List<CommentUiModel> comments;
         private View footer;
         private int expandedCommentPosition = RecyclerView.NO_POSITION;
         private boolean replyToCommentFocused = false;
+        // the comments last delivered by the view model, until comments are added locally
+        @Nullable private List<CommentUiModel> deliveredComments = null;
 
         DesignerNewsCommentsAdapter(@NonNull View header,
-                                    @NonNull List<Comment> comments,
+                                    @NonNull List<CommentUiModel> comments,
                                     @NonNull View footer) {
             this.header = header;
             this.comments = comments;
             this.footer = footer;
         }
 
-        public void updateList(List<Comment> comments) {
-            this.comments = comments;
-            notifyDataSetChanged();
+        /**
+         * Comments are loaded progressively (top level comments, then replies, then authors) so
+         * only dispatch the inserts and changes between the current and the new list, as diffed
+         * by the view model. The expanded comment stays expanded, keeping any reply being typed.
+         */
+        public void updateList(List<CommentUiModel> newComments, @Nullable CommentsDiff diff) {
+            final List<CommentUiModel> oldComments = comments;
+            // the diff is only valid if no comment was added locally since the last update
+            final boolean canDispatchDiff =
+                    diff != null && diff.getOldComments() == deliveredComments;
+            deliveredComments = newComments;
+
+            int expandedIndex = RecyclerView.NO_POSITION;
+            if (isCommentReplyExpanded()) {
+                final long expandedId = getComment(expandedCommentPosition).getId();
+                if (!canDispatchDiff
+                        || indexOfComment(newComments, expandedId) == RecyclerView.NO_POSITION) {
+                    collapseExpandedComment();
+                } else {
+                    expandedIndex = adapterPositionToCommentIndex(expandedCommentPosition);
+                }
+            }
+
+            comments = new ArrayList<>(newComments);
+            if (oldComments.isEmpty() || comments.isEmpty()) {
+                if (!oldComments.isEmpty()) {
+                    notifyItemRangeRemoved(1, oldComments.size());
+                    notifyItemInserted(1); // the no comments view
+                } else if (!comments.isEmpty()) {
+                    notifyItemRemoved(1); // remove the no comments view
+                    notifyItemRangeInserted(1, comments.size());
+                }
+                return;
+            }
+            if (!canDispatchDiff) {
+                notifyDataSetChanged();
+                return;
+            }
+
+            final CommentsUpdateCallback callback = new CommentsUpdateCallback(expandedIndex);
+            diff.getResult().dispatchUpdatesTo(callback);
+            if (callback.expandedIndex != RecyclerView.NO_POSITION) {
+                expandedCommentPosition = callback.expandedIndex + 1;
+            } else if (isCommentReplyExpanded()) {
+                // the reply row was removed along with its comment
+                replyToCommentFocused = false;
+                expandedCommentPosition = RecyclerView.NO_POSITION;
+                updateFabVisibility();
+            }
+        }
+
+        private int indexOfComment(List<CommentUiModel> comments, long id) {
+            for (int i = 0; i < comments.size(); i++) {
+                if (comments.get(i).getId() == id) return i;
+            }
+            return RecyclerView.NO_POSITION;
+        }
+
+        /**
+         * Dispatches changes to comment indexes to adapter positions, which are offset by the
+         * header and, after the expanded comment, by its reply row.
+         */
+        private class CommentsUpdateCallback implements ListUpdateCallback {
+
+            // index of the expanded comment as the updates are applied
+            int expandedIndex;
+
+            CommentsUpdateCallback(int expandedIndex) {
+                this.expandedIndex = expandedIndex;
+            }
+
+            private boolean isAfterExpanded(int index) {
+                return expandedIndex != RecyclerView.NO_POSITION && index > expandedIndex;
+            }
+
+            private int toAdapterPosition(int index) {
+                return isAfterExpanded(index) ? index + 2 : index + 1;
+            }
+
+            @Override
+            public void onInserted(int position, int count) {
+                notifyItemRangeInserted(toAdapterPosition(position), count);
+                if (expandedIndex != RecyclerView.NO_POSITION && position <= expandedIndex) {
+                    expandedIndex += count;
+                }
+            }
+
+            @Override
+            public void onRemoved(int position, int count) {
+                if (expandedIndex != RecyclerView.NO_POSITION
+                        && expandedIndex >= position && expandedIndex < position + count) {
+                    notifyItemRangeRemoved(position + 1, count + 1);
+                    expandedIndex = RecyclerView.NO_POSITION;
+                    return;
+                }
+                notifyItemRangeRemoved(toAdapterPosition(position), count);
+                if (isAfterExpanded(position + count)) return;
+                if (expandedIndex != RecyclerView.NO_POSITION) expandedIndex -= count;
+            }
+
+            @Override
+            public void onMoved(int fromPosition, int toPosition) {
+                // moves aren't detected, but would be a removal followed by an insertion
+                onRemoved(fromPosition, 1);
+                onInserted(toPosition, 1);
+            }
+
+            @Override
+            public void onChanged(int position, int count, Object payload) {
+                final int last = position + count - 1;
+                if (expandedIndex != RecyclerView.NO_POSITION
+                        && expandedIndex >= position && expandedIndex < last) {
+                    // skip over the reply row
+                    final int before = expandedIndex - position + 1;
+                    notifyItemRangeChanged(position + 1, before, payload);
+                    notifyItemRangeChanged(expandedIndex + 3, count - before, payload);
+                } else {
+                    notifyItemRangeChanged(toAdapterPosition(position), count, payload);
+                }
+            }
         }
 
         @Override
@@ -711,7 +840,8 @@ public class StoryActivity extends AppCompatActivity {
             return itemCount;
         }
 
-        public void addComment(Comment newComment) {
+        public void addComment(CommentUiModel newComment) {
+            deliveredComments = null;
             if (!hasComments()) {
                 notifyItemRemoved(1); // remove the no comments view
             }
@@ -722,9 +852,10 @@ public class StoryActivity extends AppCompatActivity {
         /**
          * Add a new comment and return the adapter position that it was inserted at.
          */
-        public int addCommentReply(Comment newComment, int inReplyToAdapterPosition) {
+        public int addCommentReply(CommentUiModel newComment, int inReplyToAdapterPosition) {
             // when replying to a comment, we want to insert it after any existing replies
             // i.e. after any following comments with the same or greater depth
+            deliveredComments = null;
             int commentIndex = adapterPositionToCommentIndex(inReplyToAdapterPosition);
             do {
                 commentIndex++;
@@ -748,7 +879,7 @@ public class StoryActivity extends AppCompatActivity {
             return expandedCommentPosition != RecyclerView.NO_POSITION;
         }
 
-        private Comment getComment(int adapterPosition) {
+        private CommentUiModel getComment(int adapterPosition) {
             return comments.get(adapterPositionToCommentIndex(adapterPosition));
         }
 
@@ -809,41 +940,13 @@ public class StoryActivity extends AppCompatActivity {
                             || partialChanges.contains(
                             CommentAnimator.EXPAND_COMMENT))) {
 
-                final Comment comment = getComment(holder.getAdapterPosition());
-
-                ColorStateList linksColor = ContextCompat.getColorStateList(getApplicationContext(),
-                        R.color.designer_news_links);
-                int highlightColor = ContextCompat.getColor(getApplicationContext(),
-                        io.plaidapp.R.color.designer_news_link_highlight);
-
-                CharSequence commentText = HtmlUtils.parseMarkdownAndPlainLinks(
-                        comment.getBody(),
-                        markdown,
-                        linksColor,
-                        highlightColor,
+                // the comment is already formatted, off the main thread, so only attach it
+                holder.bind(getComment(holder.getAdapterPosition()),
                         (src, loadingSpan) -> GlideApp.with(StoryActivity.this)
                                 .asBitmap()
                                 .load(src)
                                 .diskCacheStrategy(DiskCacheStrategy.ALL)
                                 .into(new ImageSpanTarget(holder.getComment(), loadingSpan)));
-
-                String author = comment.getUserDisplayName() != null ? comment.getUserDisplayName().toLowerCase() : "";
-                boolean isOriginalPoster = isOP(comment.getUserId());
-                String timeAgo = DateUtils.getRelativeTimeSpanString(
-                        comment.getCreatedAt().getTime(),
-                        System.currentTimeMillis(),
-                        DateUtils.SECOND_IN_MILLIS)
-                        .toString().toLowerCase();
-
-                CommentUiModel commentUiModel = new CommentUiModel(
-                        commentText,
-                        timeAgo,
-                        comment.getDepth(),
-                        author,
-                        isOriginalPoster
-                );
-
-                holder.bind(commentUiModel);
             }
 
             // set/clear expanded comment state
@@ -873,7 +976,7 @@ public class StoryActivity extends AppCompatActivity {
                     if (reply.isEmpty()) return;
 
                     final int inReplyToCommentPosition = holder.getAdapterPosition() - 1;
-                    final Comment replyingTo = getComment(inReplyToCommentPosition);
+                    final CommentUiModel replyingTo = getComment(inReplyToCommentPosition);
                     collapseExpandedComment();
 
                     // insert a locally created comment before actually
@@ -882,7 +985,7 @@ public class StoryActivity extends AppCompatActivity {
                     LoggedInUser user = loginRepository.getUser();
                     String commentBody = holder.getCommentReply().getText().toString();
                     final int newReplyPosition = commentsAdapter.addCommentReply(
-                            new Comment(
+                            viewModel.commentUiModel(new Comment(
                                     0,
                                     replyingTo.getId(),
                                     commentBody,
@@ -893,7 +996,7 @@ public class StoryActivity extends AppCompatActivity {
                                     user.getDisplayName(),
                                     user.getPortraitUrl(),
                                     false
-                            ),
+                            )),
                             inReplyToCommentPosition);
 
                     replyToComment(replyingTo.getId(), reply);
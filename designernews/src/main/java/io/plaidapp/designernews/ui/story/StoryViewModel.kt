@@ -20,6 +20,7 @@ import androidx.lifecycle.LiveData
 import androidx.lifecycle.MutableLiveData
 import androidx.lifecycle.ViewModel
 import androidx.lifecycle.viewModelScope
+import androidx.recyclerview.widget.DiffUtil
 import io.plaidapp.core.data.CoroutinesDispatcherProvider
 import io.plaidapp.core.data.Result
 import io.plaidapp.core.designernews.data.stories.model.Story
@@ -29,6 +30,8 @@ import io.plaidapp.designernews.domain.GetCommentsWithRepliesAndUsersUseCase
 import io.plaidapp.designernews.domain.GetStoryUseCase
 import io.plaidapp.designernews.domain.PostReplyUseCase
 import io.plaidapp.designernews.domain.PostStoryCommentUseCase
+import java.util.concurrent.ConcurrentHashMap
+import kotlinx.coroutines.flow.collect
 import kotlinx.coroutines.launch
 import kotlinx.coroutines.withContext
 
@@ -42,6 +45,7 @@ class StoryViewModel(
     private var postStoryComment: PostStoryCommentUseCase,
     private var postReply: PostReplyUseCase,
     private val getCommentsWithRepliesAndUsers: GetCommentsWithRepliesAndUsersUseCase,
+    private val commentFormatter: CommentFormatter,
     private val dispatcherProvider: CoroutinesDispatcherProvider
 ) : ViewModel() {
 
@@ -51,6 +55,12 @@ class StoryViewModel(
 
     val story: Story
 
+    // formatted bodies, reused as comments are emitted again with their replies and authors
+    private val commentBodies = ConcurrentHashMap<Long, CharSequence>()
+
+    // the comments last emitted, which the next emission is diffed against
+    private var comments = emptyList<CommentUiModel>()
+
     init {
         val result = getStoryUseCase(storyId)
         when (result) {
@@ -79,15 +89,46 @@ class StoryViewModel(
         withContext(dispatcherProvider.main) { onResult(result) }
     }
 
+    /**
+     * Format a comment added locally, e.g. a reply just posted. Its body isn't precomputed, as this
+     * is called on the main thread.
+     */
+    fun commentUiModel(comment: Comment): CommentUiModel = commentFormatter.format(
+        comment,
+        commentFormatter.formatBody(comment.body, precompute = false),
+        isOriginalPoster(comment)
+    )
+
     private fun getComments() = viewModelScope.launch(dispatcherProvider.computation) {
-        val result = getCommentsWithRepliesAndUsers(story.links.comments)
-        if (result is Result.Success) {
-            withContext(dispatcherProvider.main) { emitUiModel(result.data) }
+        // comments are emitted progressively, as replies and users are retrieved
+        getCommentsWithRepliesAndUsers(story.links.comments).collect { result ->
+            if (result is Result.Success) {
+                val newComments = formatComments(result.data)
+                val diff = CommentsDiff.calculate(comments, newComments)
+                comments = newComments
+                withContext(dispatcherProvider.main) { emitUiModel(newComments, diff) }
+            }
         }
     }
 
-    private fun emitUiModel(comments: List<Comment>) {
-        _uiModel.value = StoryUiModel(comments)
+    private suspend fun formatComments(comments: List<Comment>): List<CommentUiModel> {
+        // only the bodies of comments not emitted before are formatted
+        val unformatted = comments.filter { it.id !in commentBodies }.distinctBy { it.id }
+        val bodies = commentFormatter.formatBodies(
+            unformatted.map { it.body },
+            dispatcherProvider.computation
+        )
+        unformatted.zip(bodies).forEach { (comment, body) -> commentBodies[comment.id] = body }
+        return comments.map { comment ->
+            val body = commentBodies.getValue(comment.id)
+            commentFormatter.format(comment, body, isOriginalPoster(comment))
+        }
+    }
+
+    private fun isOriginalPoster(comment: Comment) = comment.userId == story.userId
+
+    private fun emitUiModel(comments: List<CommentUiModel>, diff: CommentsDiff?) {
+        _uiModel.value = StoryUiModel(comments, diff)
     }
 }
 
@@ -96,5 +137,41 @@ class StoryViewModel(
  * TODO update to hold the entire story
  */
 data class StoryUiModel(
-    val comments: List<Comment>
+    val comments: List<CommentUiModel>,
+    val commentsDiff: CommentsDiff? = null
 )
+
+/**
+ * The changes from [oldComments] to the comments of a [StoryUiModel], calculated off the main
+ * thread. Positions are comment indexes.
+ */
+class CommentsDiff(
+    val oldComments: List<CommentUiModel>,
+    val result: DiffUtil.DiffResult
+) {
+
+    companion object {
+        /**
+         * Diff the comments, or return null if either list is empty, as there is nothing worth
+         * animating.
+         */
+        fun calculate(
+            oldComments: List<CommentUiModel>,
+            newComments: List<CommentUiModel>
+        ): CommentsDiff? {
+            if (oldComments.isEmpty() || newComments.isEmpty()) return null
+            val result = DiffUtil.calculateDiff(object : DiffUtil.Callback() {
+                override fun getOldListSize() = oldComments.size
+
+                override fun getNewListSize() = newComments.size
+
+                override fun areItemsTheSame(oldItemPosition: Int, newItemPosition: Int) =
+                    oldComments[oldItemPosition].id == newComments[newItemPosition].id
+
+                override fun areContentsTheSame(oldItemPosition: Int, newItemPosition: Int) =
+                    oldComments[oldItemPosition] == newComments[newItemPosition]
+            }, false)
+            return CommentsDiff(oldComments, result)
+        }
+    }
+}
@@ -33,6 +33,7 @@ class StoryViewModelFactory(
     private var postStoryComment: PostStoryCommentUseCase,
     private var postReply: PostReplyUseCase,
     private val getCommentsWithRepliesAndUsersUseCase: GetCommentsWithRepliesAndUsersUseCase,
+    private val commentFormatter: CommentFormatter,
     private val dispatcherProvider: CoroutinesDispatcherProvider
 ) : ViewModelProvider.Factory {
 
@@ -47,6 +48,7 @@ class StoryViewModelFactory(
             postStoryComment,
             postReply,
             getCommentsWithRepliesAndUsersUseCase,
+            commentFormatter,
             dispatcherProvider
         ) as T
     }
@@ -16,15 +16,23 @@
 
 package io.plaidapp.designernews.data.users
 
+import com.nhaarman.mockitokotlin2.any
 import com.nhaarman.mockitokotlin2.mock
 import com.nhaarman.mockitokotlin2.verify
 import com.nhaarman.mockitokotlin2.whenever
 import io.plaidapp.core.data.Result
 import io.plaidapp.core.designernews.data.users.model.User
+import io.plaidapp.designernews.data.users.UserLocalDataSource.Companion.USER_TTL_MILLIS
+import io.plaidapp.designernews.data.users.model.toCachedUser
 import java.io.IOException
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.CoroutineStart
+import kotlinx.coroutines.Deferred
+import kotlinx.coroutines.async
 import kotlinx.coroutines.runBlocking
 import org.junit.Assert.assertEquals
 import org.junit.Assert.assertTrue
+import org.junit.Before
 import org.junit.Test
 
 /**
@@ -48,7 +56,14 @@ class UserRepositoryTest {
     private val users = listOf(user1, user2)
 
     private val dataSource: UserRemoteDataSource = mock()
-    private val repository = UserRepository(dataSource)
+    private val localDataSource: UserLocalDataSource = mock()
+    private val repository = UserRepository(dataSource, localDataSource)
+
+    @Before
+    fun setup() {
+        // Given that no users are stored locally
+        runBlocking { whenever(localDataSource.getUsers(any())).thenReturn(emptyList()) }
+    }
 
     @Test
     fun getUsers_withNoCachedUsers_withSuccess() = runBlocking {
@@ -109,6 +124,86 @@ class UserRepositoryTest {
         assertEquals(Result.Success(setOf(user1)), result)
     }
 
+    @Test
+    fun getUsers_withStoredUsers_doesNotRequestStoredUsers() = runBlocking {
+        // Given a user that is stored locally
+        whenever(localDataSource.getUsers(listOf(111L, 222L)))
+            .thenReturn(listOf(user1.toCachedUser(System.currentTimeMillis())))
+        // Given another user that can be requested
+        withUsersSuccess(listOf(222L), listOf(user2))
+
+        // When requesting a list of users
+        val result = repository.getUsers(setOf(111L, 222L))
+
+        // Then only the user that wasn't stored is requested from the dataSource
+        verify(dataSource).getUsers(listOf(222L))
+        // Then the requested user is stored locally
+        verify(localDataSource).saveUsers(listOf(user2))
+        // Then the correct set of users is returned
+        assertEquals(Result.Success(users.toSet()), result)
+    }
+
+    @Test
+    fun getUsers_withCachedUsers_doesNotLookUpCachedUsers() = runBlocking {
+        // Given a user that was already requested and cached
+        withUsersSuccess(listOf(111L), listOf(user1))
+        repository.getUsers(setOf(111L))
+
+        // When requesting the same user again
+        val result = repository.getUsers(setOf(111L))
+
+        // Then the user is looked up only once
+        verify(localDataSource).getUsers(listOf(111L))
+        verify(dataSource).getUsers(listOf(111L))
+        // Then the cached user is returned
+        assertEquals(Result.Success(setOf(user1)), result)
+    }
+
+    @Test
+    fun getUsers_withExpiredCachedUser_looksUpUserAgain() = runBlocking {
+        // Given a user that was cached in memory, but stored longer ago than the TTL
+        val expiredAt = System.currentTimeMillis() - USER_TTL_MILLIS - 1
+        whenever(localDataSource.getUsers(listOf(111L)))
+            .thenReturn(listOf(user1.toCachedUser(expiredAt)))
+            .thenReturn(emptyList())
+        repository.getUsers(setOf(111L))
+        withUsersSuccess(listOf(111L), listOf(user1))
+
+        // When requesting the same user again
+        val result = repository.getUsers(setOf(111L))
+
+        // Then the user is looked up again
+        verify(dataSource).getUsers(listOf(111L))
+        assertEquals(Result.Success(setOf(user1)), result)
+    }
+
+    @Test
+    fun getUsers_firstRequestCancelled_waitingRequestLooksUpAgain() = runBlocking {
+        // Given that a second request for a user starts while the first one looks it up,
+        // and the first one is then cancelled
+        var waitingRequest: Deferred<Result<Set<User>>>? = null
+        whenever(localDataSource.getUsers(listOf(111L)))
+            .thenAnswer {
+                waitingRequest = async(start = CoroutineStart.UNDISPATCHED) {
+                    repository.getUsers(setOf(111L))
+                }
+                throw CancellationException()
+            }
+            .thenReturn(emptyList())
+        withUsersSuccess(listOf(111L), listOf(user1))
+
+        // When both requests complete
+        try {
+            repository.getUsers(setOf(111L))
+        } catch (e: CancellationException) {
+            // the first request was cancelled
+        }
+        val result = waitingRequest!!.await()
+
+        // Then the waiting request got the user from its own lookup
+        assertEquals(Result.Success(setOf(user1)), result)
+    }
+
     private fun withUsersSuccess(ids: List<Long>, users: List<User>) = runBlocking {
         val result = Result.Success(users)
         whenever(dataSource.getUsers(ids)).thenReturn(result)
@@ -16,6 +16,7 @@
 
 package io.plaidapp.designernews.domain
 
+import com.nhaarman.mockitokotlin2.any
 import com.nhaarman.mockitokotlin2.mock
 import com.nhaarman.mockitokotlin2.verify
 import com.nhaarman.mockitokotlin2.whenever
@@ -25,6 +26,7 @@ import io.plaidapp.designernews.data.api.DesignerNewsService
 import io.plaidapp.designernews.data.comments.CommentsRemoteDataSource
 import io.plaidapp.designernews.data.comments.CommentsRepository
 import io.plaidapp.designernews.data.comments.model.CommentResponse
+import io.plaidapp.designernews.data.users.UserLocalDataSource
 import io.plaidapp.designernews.data.users.UserRemoteDataSource
 import io.plaidapp.designernews.data.users.UserRepository
 import io.plaidapp.designernews.errorResponseBody
@@ -37,10 +39,12 @@ import io.plaidapp.designernews.reply1NoUser
 import io.plaidapp.designernews.replyResponse1
 import io.plaidapp.designernews.user1
 import io.plaidapp.designernews.user2
+import kotlinx.coroutines.flow.toList
 import kotlinx.coroutines.runBlocking
 import org.junit.Assert.assertEquals
 import org.junit.Assert.assertNotNull
 import org.junit.Assert.assertTrue
+import org.junit.Before
 import org.junit.Test
 import retrofit2.Response
 
@@ -52,12 +56,22 @@ class GetCommentsWithRepliesAndUsersUseCaseIntegrationTest {
     private val service: DesignerNewsService = mock()
     private val dataSource = CommentsRemoteDataSource(service)
     private val commentsRepository = CommentsRepository(dataSource)
-    private val userRepository = UserRepository(UserRemoteDataSource(service))
+    private val userLocalDataSource: UserLocalDataSource = mock()
+    private val userRepository = UserRepository(
+        UserRemoteDataSource(service),
+        userLocalDataSource
+    )
     private val repository: GetCommentsWithRepliesAndUsersUseCase = GetCommentsWithRepliesAndUsersUseCase(
         GetCommentsWithRepliesUseCase(commentsRepository),
         userRepository
     )
 
+    @Before
+    fun setup() {
+        // Given that no users are stored locally
+        runBlocking { whenever(userLocalDataSource.getUsers(any())).thenReturn(emptyList()) }
+    }
+
     @Test
     fun getComments_noReplies_whenCommentsAnUserRequestsSuccessful() = runBlocking {
         // Given that the comments request responds with success
@@ -66,7 +80,7 @@ class GetCommentsWithRepliesAndUsersUseCaseIntegrationTest {
         withUsers(listOf(user1), "111")
 
         // When getting the replies
-        val result = repository(listOf(11L))
+        val result = repository(listOf(11L)).toList().last()
 
         // Then the correct list of comments was requested from the API
         verify(service).getComments("11")
@@ -84,7 +98,7 @@ class GetCommentsWithRepliesAndUsersUseCaseIntegrationTest {
         whenever(service.getComments("11")).thenReturn(apiResult)
 
         // When getting the comments
-        val result = repository(listOf(11L))
+        val result = repository(listOf(11L)).toList().last()
 
         // Then the result is not successful
         assertNotNull(result)
@@ -103,7 +117,7 @@ class GetCommentsWithRepliesAndUsersUseCaseIntegrationTest {
         withUsers(listOf(user1, user2), "222,111")
 
         // When getting the comments from the repository
-        val result = repository(listOf(1L))
+        val result = repository(listOf(1L)).toList().last()
 
         // Then  API requests were triggered
         verify(service).getComments("1")
@@ -128,7 +142,7 @@ class GetCommentsWithRepliesAndUsersUseCaseIntegrationTest {
         withUsers(listOf(user2), "222")
 
         // When getting the comments from the repository
-        val result = repository(listOf(1L))
+        val result = repository(listOf(1L)).toList().last()
 
         // Then  API requests were triggered
         verify(service).getComments("1")
@@ -153,7 +167,7 @@ class GetCommentsWithRepliesAndUsersUseCaseIntegrationTest {
             .thenReturn(userError)
 
         // When getting the comments from the repository
-        val result = repository(listOf(11L))
+        val result = repository(listOf(11L)).toList().last()
 
         // Then  API requests were triggered
         verify(service).getComments("11")
@@ -33,6 +33,8 @@ import io.plaidapp.designernews.replyWithReplies1
 import io.plaidapp.designernews.user1
 import io.plaidapp.designernews.user2
 import java.io.IOException
+import kotlinx.coroutines.flow.flowOf
+import kotlinx.coroutines.flow.toList
 import kotlinx.coroutines.runBlocking
 import org.junit.Assert.assertEquals
 import org.junit.Assert.assertNotNull
@@ -59,7 +61,7 @@ class GetCommentsWithRepliesAndUsersUseCaseTest {
         withUsers(setOf(user1), setOf(111L))
 
         // When getting the replies
-        val result = repository(ids)
+        val result = repository(ids).toList().last()
 
         // Then the correct list is received
         assertEquals(Result.Success(listOf(reply1)), result)
@@ -70,10 +72,10 @@ class GetCommentsWithRepliesAndUsersUseCaseTest {
         // Given that the getCommentsWithReplies responds with failure
         val resultError = Result.Error(IOException("Comment error"))
         val ids = listOf(11L)
-        whenever(getCommentsWithReplies.invoke(ids)).thenReturn(resultError)
+        whenever(getCommentsWithReplies.progressively(ids)).thenReturn(flowOf(resultError))
 
         // When getting the comments
-        val result = repository(ids)
+        val result = repository(ids).toList().last()
 
         // Then the result is not successful
         assertNotNull(result)
@@ -90,10 +92,10 @@ class GetCommentsWithRepliesAndUsersUseCaseTest {
         withUsers(setOf(user1, user2), setOf(111L, 222L))
 
         // When getting the comments from the repository
-        val result = repository(listOf(1L))
+        val result = repository(listOf(1L)).toList().last()
 
         // Then comments were requested for correct ids
-        verify(getCommentsWithReplies).invoke(parentIds)
+        verify(getCommentsWithReplies).progressively(parentIds)
         // Then the correct result is received
         assertEquals(Result.Success(flattendCommentsWithReplies), result)
     }
@@ -107,10 +109,10 @@ class GetCommentsWithRepliesAndUsersUseCaseTest {
         withUsers(setOf(user2), setOf(222))
 
         // When getting the comments from the repository
-        val result = repository(listOf(1L))
+        val result = repository(listOf(1L)).toList().last()
 
         // Then comments were requested for correct ids
-        verify(getCommentsWithReplies).invoke(parentIds)
+        verify(getCommentsWithReplies).progressively(parentIds)
         // Then the correct result is received
         assertEquals(Result.Success(flattenedCommentsWithoutReplies), result)
     }
@@ -127,22 +129,51 @@ class GetCommentsWithRepliesAndUsersUseCaseTest {
         whenever(userRepository.getUsers(setOf(11L))).thenReturn(userError)
 
         // When getting the comments from the repository
-        val result = repository(listOf(11L))
+        val result = repository(listOf(11L)).toList().last()
 
         // Then comments were requested for correct ids
-        verify(getCommentsWithReplies).invoke(ids)
+        verify(getCommentsWithReplies).progressively(ids)
         // Then the correct result is received
         assertEquals(Result.Success(arrayListOf(reply1NoUser)), result)
     }
 
+    @Test
+    fun getComments_emitsProgressively_beforeUsersAreRetrieved() = runBlocking {
+        // Given that the top level comments are retrieved before their replies
+        val parentIds = listOf(1L)
+        whenever(getCommentsWithReplies.progressively(parentIds)).thenReturn(
+            flowOf(
+                Result.Success(listOf(parentCommentWithRepliesWithoutReplies)),
+                Result.Success(listOf(parentCommentWithReplies))
+            )
+        )
+        withUsers(setOf(user1, user2), setOf(111L, 222L))
+
+        // When getting the comments from the repository
+        val results = repository(parentIds).toList()
+
+        // Then the top level comments are emitted first, then the replies and then the users
+        val noUsers = flattendCommentsWithReplies.map {
+            it.copy(userDisplayName = null, userPortraitUrl = null)
+        }
+        assertEquals(
+            listOf(
+                Result.Success(noUsers.take(1)),
+                Result.Success(noUsers),
+                Result.Success(flattendCommentsWithReplies)
+            ),
+            results
+        )
+    }
+
     // Given that the users request responds with success
     private fun withUsers(users: Set<User>, ids: Set<Long>) = runBlocking {
         val userResult = Result.Success(users)
         whenever(userRepository.getUsers(ids)).thenReturn(userResult)
     }
 
-    private fun withComment(comment: CommentWithReplies, ids: List<Long>) = runBlocking {
+    private fun withComment(comment: CommentWithReplies, ids: List<Long>) {
         val resultParent = Result.Success(listOf(comment))
-        whenever(getCommentsWithReplies(ids)).thenReturn(resultParent)
+        whenever(getCommentsWithReplies.progressively(ids)).thenReturn(flowOf(resultParent))
     }
 }
@@ -29,6 +29,7 @@ import io.plaidapp.designernews.replyResponse1
 import io.plaidapp.designernews.replyResponse2
 import io.plaidapp.designernews.replyWithReplies1
 import java.io.IOException
+import kotlinx.coroutines.flow.toList
 import kotlinx.coroutines.runBlocking
 import org.junit.Assert.assertEquals
 import org.junit.Assert.assertNotNull
@@ -102,6 +103,31 @@ class GetCommentsWithRepliesUseCaseTest {
         assertEquals(Result.Success(arrayListOf(parentCommentWithReplies)), result)
     }
 
+    @Test
+    fun getCommentsProgressively_multipleReplies_emitsEveryLevel() = runBlocking {
+        // Given that:
+        // When requesting replies for ids 1 from repository we get the parent comment
+        val resultParent = Result.Success(listOf(parentCommentResponse))
+        val parentIds = listOf(1L)
+        whenever(repository.getComments(parentIds)).thenReturn(resultParent)
+        // When requesting replies for ids 11 and 12 from repository we get the children
+        val childrenIds = listOf(11L, 12L)
+        val resultChildren = Result.Success(listOf(replyResponse1, replyResponse2))
+        whenever(repository.getComments(childrenIds)).thenReturn(resultChildren)
+
+        // When getting the comments progressively from the useCase
+        val results = useCase.progressively(parentIds).toList()
+
+        // Then the first level is emitted before the tree with replies
+        assertEquals(
+            listOf(
+                Result.Success(listOf(parentCommentWithRepliesWithoutReplies)),
+                Result.Success(listOf(parentCommentWithReplies))
+            ),
+            results
+        )
+    }
+
     @Test
     fun getComments_multipleReplies_whenRepliesRequestFailed() = runBlocking {
         // Given that
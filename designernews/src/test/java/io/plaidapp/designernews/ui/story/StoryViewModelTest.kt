@@ -17,7 +17,12 @@
 package io.plaidapp.designernews.ui.story
 
 import androidx.arch.core.executor.testing.InstantTaskExecutorRule
+import com.nhaarman.mockitokotlin2.any
+import com.nhaarman.mockitokotlin2.argumentCaptor
+import com.nhaarman.mockitokotlin2.doAnswer
 import com.nhaarman.mockitokotlin2.mock
+import com.nhaarman.mockitokotlin2.times
+import com.nhaarman.mockitokotlin2.verify
 import com.nhaarman.mockitokotlin2.whenever
 import io.plaidapp.core.data.Result
 import io.plaidapp.core.designernews.data.stories.model.Story
@@ -28,6 +33,7 @@ import io.plaidapp.designernews.domain.GetStoryUseCase
 import io.plaidapp.designernews.domain.PostReplyUseCase
 import io.plaidapp.designernews.domain.PostStoryCommentUseCase
 import io.plaidapp.designernews.flattendCommentsWithReplies
+import io.plaidapp.designernews.flattenedCommentsWithoutReplies
 import io.plaidapp.designernews.reply1
 import io.plaidapp.test.shared.getOrAwaitValue
 import io.plaidapp.test.shared.provideFakeCoroutinesDispatcherProvider
@@ -35,9 +41,11 @@ import java.io.IOException
 import java.util.Date
 import java.util.GregorianCalendar
 import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.flow.flowOf
 import kotlinx.coroutines.runBlocking
 import org.junit.Assert.assertEquals
 import org.junit.Assert.assertNotNull
+import org.junit.Before
 import org.junit.Rule
 import org.junit.Test
 
@@ -74,6 +82,21 @@ class StoryViewModelTest {
     private val postStoryComment: PostStoryCommentUseCase = mock()
     private val postComment: PostReplyUseCase = mock()
     private val getCommentsWithRepliesAndUsers: GetCommentsWithRepliesAndUsersUseCase = mock()
+    private val commentFormatter: CommentFormatter = mock {
+        on { formatBody(any(), any()) } doAnswer { "formatted ${it.arguments[0]}" }
+        on { format(any(), any(), any()) } doAnswer {
+            val comment = it.arguments[0] as Comment
+            uiModel(comment, it.arguments[1] as CharSequence, it.arguments[2] as Boolean)
+        }
+    }
+
+    @Before
+    fun setup() = runBlocking {
+        whenever(commentFormatter.formatBodies(any(), any())).thenAnswer {
+            (it.arguments[0] as List<*>).map { body -> "formatted $body" }
+        }
+        Unit
+    }
 
     @Test
     fun loadStory_existsInRepo() {
@@ -97,6 +120,7 @@ class StoryViewModelTest {
             postStoryComment,
             postComment,
             getCommentsWithRepliesAndUsers,
+            commentFormatter,
             provideFakeCoroutinesDispatcherProvider()
         )
         // Then it throws
@@ -110,7 +134,87 @@ class StoryViewModelTest {
 
         // Then the correct UI model is created
         val event = viewModel.uiModel.getOrAwaitValue()
-        assertEquals(event.comments, flattendCommentsWithReplies)
+        val expected = flattendCommentsWithReplies.map {
+            uiModel(it, "formatted ${it.body}", it.userId == userId)
+        }
+        assertEquals(expected, event.comments)
+    }
+
+    @Test
+    fun commentsEmittedAgain_bodiesFormattedOnce() {
+        // Given that comments are emitted without replies, then with them
+        whenever(getStory(storyId)).thenReturn(Result.Success(testStory))
+        whenever(getCommentsWithRepliesAndUsers(commentIds)).thenReturn(
+            flowOf(
+                Result.Success(flattenedCommentsWithoutReplies),
+                Result.Success(flattendCommentsWithReplies)
+            )
+        )
+
+        // When the view model is constructed
+        StoryViewModel(
+            storyId,
+            getStory,
+            postStoryComment,
+            postComment,
+            getCommentsWithRepliesAndUsers,
+            commentFormatter,
+            provideFakeCoroutinesDispatcherProvider()
+        )
+
+        // Then the body of each comment is formatted once, in batches
+        val bodies = argumentCaptor<List<String>>()
+        runBlocking {
+            verify(commentFormatter, times(2)).formatBodies(bodies.capture(), any())
+        }
+        assertEquals(
+            flattendCommentsWithReplies.map { it.body }.sorted(),
+            bodies.allValues.flatten().sorted()
+        )
+    }
+
+    @Test
+    fun commentsEmittedAgain_diffedAgainstPreviousComments() {
+        // Given that comments are emitted without replies, then with them
+        whenever(getStory(storyId)).thenReturn(Result.Success(testStory))
+        whenever(getCommentsWithRepliesAndUsers(commentIds)).thenReturn(
+            flowOf(
+                Result.Success(flattenedCommentsWithoutReplies),
+                Result.Success(flattendCommentsWithReplies)
+            )
+        )
+
+        // When the view model is constructed
+        val viewModel = StoryViewModel(
+            storyId,
+            getStory,
+            postStoryComment,
+            postComment,
+            getCommentsWithRepliesAndUsers,
+            commentFormatter,
+            provideFakeCoroutinesDispatcherProvider()
+        )
+
+        // Then the comments with replies are diffed against the ones without
+        val diff = viewModel.uiModel.getOrAwaitValue().commentsDiff
+        val expected = flattenedCommentsWithoutReplies.map {
+            uiModel(it, "formatted ${it.body}", it.userId == userId)
+        }
+        assertEquals(expected, diff?.oldComments)
+    }
+
+    @Test
+    fun commentUiModel_notPrecomputed() {
+        // Given a view model
+        val viewModel = withViewModel()
+
+        // When formatting a comment added locally
+        val uiModel = viewModel.commentUiModel(reply1)
+
+        // Then its body isn't precomputed
+        val isOriginalPoster = reply1.userId == userId
+        assertEquals(uiModel(reply1, "formatted ${reply1.body}", isOriginalPoster), uiModel)
+        verify(commentFormatter).formatBody(reply1.body, false)
     }
 
     @Test
@@ -182,21 +286,30 @@ class StoryViewModelTest {
         assertEquals(expected, result)
     }
 
+    private fun uiModel(comment: Comment, body: CharSequence, isOriginalPoster: Boolean) =
+        CommentUiModel(
+            id = comment.id,
+            body = body,
+            timeSinceCommentCreation = "",
+            depth = comment.depth,
+            author = comment.userDisplayName,
+            isOriginalPoster = isOriginalPoster,
+            upvotesCount = comment.upvotesCount,
+            upvoted = comment.upvoted
+        )
+
     private fun withViewModel(): StoryViewModel {
         whenever(getStory(storyId)).thenReturn(Result.Success(testStory))
-        runBlocking {
-            whenever(getCommentsWithRepliesAndUsers(commentIds)).thenReturn(
-                Result.Success(
-                    flattendCommentsWithReplies
-                )
-            )
-        }
+        whenever(getCommentsWithRepliesAndUsers(commentIds)).thenReturn(
+            flowOf(Result.Success(flattendCommentsWithReplies))
+        )
         return StoryViewModel(
             storyId,
             getStory,
             postStoryComment,
             postComment,
             getCommentsWithRepliesAndUsers,
+            commentFormatter,
             provideFakeCoroutinesDispatcherProvider()
         )
     }
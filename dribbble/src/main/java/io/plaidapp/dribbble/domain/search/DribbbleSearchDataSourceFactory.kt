@@ -16,8 +16,10 @@
 
 package io.plaidapp.dribbble.domain.search
 
+import io.plaidapp.core.data.PlaidItem
 import io.plaidapp.core.dribbble.data.DribbbleSourceItem
 import io.plaidapp.core.dribbble.data.ShotsRepository
+import io.plaidapp.core.dribbble.data.api.model.Shot
 import io.plaidapp.core.interfaces.PlaidDataSource
 import io.plaidapp.core.interfaces.SearchDataSourceFactory
 
@@ -32,4 +34,12 @@ class DribbbleSearchDataSourceFactory(
         val sourceItem = DribbbleSourceItem(query)
         return DribbbleDataSource(sourceItem, repository)
     }
+
+    override fun retainDisplayed(owner: Any, items: List<PlaidItem>) {
+        repository.retainDisplayed(owner, items.filterIsInstance<Shot>())
+    }
+
+    override fun releaseDisplayed(owner: Any) {
+        repository.releaseDisplayed(owner)
+    }
 }
@@ -23,7 +23,9 @@ import android.content.Intent
 import android.graphics.Bitmap
 import android.graphics.drawable.Drawable
 import android.os.Bundle
+import android.os.SystemClock
 import android.util.TypedValue
+import android.view.ViewTreeObserver
 import androidx.appcompat.app.AppCompatActivity
 import androidx.browser.customtabs.CustomTabsIntent
 import androidx.core.app.ShareCompat
@@ -34,16 +36,19 @@ import androidx.palette.graphics.Palette
 import com.bumptech.glide.load.DataSource
 import com.bumptech.glide.load.engine.GlideException
 import com.bumptech.glide.request.RequestListener
+import com.bumptech.glide.request.target.CustomTarget
 import com.bumptech.glide.request.target.Target
+import com.bumptech.glide.request.transition.Transition
 import io.plaidapp.core.ui.widget.ElasticDragDismissFrameLayout
 import io.plaidapp.core.util.Activities
 import io.plaidapp.core.util.AnimUtils.getFastOutSlowInInterpolator
 import io.plaidapp.core.util.ColorUtils
+import io.plaidapp.core.util.TimeToFirstPixel
 import io.plaidapp.core.util.ViewUtils
 import io.plaidapp.core.util.customtabs.CustomTabActivityHelper
 import io.plaidapp.core.util.delegates.contentView
 import io.plaidapp.core.util.event.EventObserver
-import io.plaidapp.core.util.glide.getBitmap
+import io.plaidapp.core.util.glide.GlideApp
 import io.plaidapp.dribbble.R
 import io.plaidapp.dribbble.dagger.inject
 import io.plaidapp.dribbble.databinding.ActivityDribbbleShotBinding
@@ -74,24 +79,8 @@ class ShotActivity : AppCompatActivity() {
             dataSource: DataSource,
             isFirstResource: Boolean
         ): Boolean {
-            val bitmap = resource.getBitmap() ?: return false
-
-            Palette.from(bitmap)
-                .clearFilters() /* by default palette ignore certain hues
-                        (e.g. pure black/white) but we don't want this. */
-                .generate { palette -> applyFullImagePalette(palette) }
-
-            val twentyFourDip = TypedValue.applyDimension(
-                TypedValue.COMPLEX_UNIT_DIP,
-                24f,
-                this@ShotActivity.resources.displayMetrics
-            ).toInt()
-            Palette.from(bitmap)
-                .maximumColorCount(3)
-                .clearFilters()
-                .setRegion(0, 0, bitmap.width - 1, twentyFourDip) /* - 1 to work around
-                        https://code.google.com/p/android/issues/detail?id=191013 */
-                .generate { palette -> applyTopPalette(bitmap, palette) }
+            // after the frame showing the shot, so as not to hold up the enter transition
+            binding.shot.post { generatePalettes(model) }
 
             // TODO should keep the background if the image contains transparency?!
             binding.shot.background = null
@@ -115,6 +104,7 @@ class ShotActivity : AppCompatActivity() {
         }
 
         inject(shotId)
+        startEnterTransitionOnFirstPixel()
 
         largeAvatarSize = resources.getDimensionPixelSize(io.plaidapp.R.dimen.large_avatar_size)
 
@@ -127,6 +117,8 @@ class ShotActivity : AppCompatActivity() {
         }
 
         binding.shotLoadListener = shotLoadListener
+        binding.thumbnailUrl =
+            intent.getStringExtra(Activities.Dribbble.Shot.EXTRA_SHOT_THUMBNAIL_URL)
         binding.apply {
             bodyScroll.setOnScrollChangeListener { _, _, scrollY, _, _ ->
                 shot.offset = -scrollY
@@ -164,6 +156,32 @@ class ShotActivity : AppCompatActivity() {
         outContent.webUri = viewModel.getAssistWebUrl().toUri()
     }
 
+    /**
+     * Hold the shared element transition until the thumbnail or the shot is drawn, so it never
+     * animates an empty image, or until [MAX_TRANSITION_DELAY_MS] if neither loads in time.
+     */
+    private fun startEnterTransitionOnFirstPixel() {
+        postponeEnterTransition()
+        val createdAt = SystemClock.elapsedRealtime()
+        val shot = binding.shot
+        val startTransition = Runnable { startPostponedEnterTransition() }
+        shot.postDelayed(startTransition, MAX_TRANSITION_DELAY_MS)
+        shot.viewTreeObserver.addOnPreDrawListener(object : ViewTreeObserver.OnPreDrawListener {
+            override fun onPreDraw(): Boolean {
+                if (shot.drawable != null) {
+                    shot.viewTreeObserver.removeOnPreDrawListener(this)
+                    TimeToFirstPixel.record(
+                        TimeToFirstPixel.Path.DETAIL,
+                        SystemClock.elapsedRealtime() - createdAt
+                    )
+                    shot.removeCallbacks(startTransition)
+                    startTransition.run()
+                }
+                return true
+            }
+        })
+    }
+
     private fun openLink(url: String) {
         CustomTabActivityHelper.openCustomTab(
             this,
@@ -188,6 +206,44 @@ class ShotActivity : AppCompatActivity() {
         }
     }
 
+    /**
+     * Generate the palettes of the shot from a small software decode of it, rather than reading
+     * back the displayed image, which may be a large hardware bitmap.
+     */
+    private fun generatePalettes(model: Any) {
+        GlideApp.with(this)
+            .asBitmap()
+            .load(model)
+            .override(PALETTE_BITMAP_SIZE)
+            .disallowHardwareConfig()
+            .into(object : CustomTarget<Bitmap>() {
+                override fun onResourceReady(bitmap: Bitmap, transition: Transition<in Bitmap>?) {
+                    Palette.from(bitmap)
+                        .clearFilters() /* by default palette ignore certain hues
+                        (e.g. pure black/white) but we don't want this. */
+                        .generate { palette -> applyFullImagePalette(palette) }
+
+                    // the top 24dp of the shot as displayed, in the pixels of the small decode
+                    val twentyFourDip = TypedValue.applyDimension(
+                        TypedValue.COMPLEX_UNIT_DIP,
+                        24f,
+                        resources.displayMetrics
+                    )
+                    val shotWidth = binding.shot.width.takeIf { it > 0 } ?: bitmap.width
+                    val topHeight = (twentyFourDip * bitmap.width / shotWidth).toInt()
+                        .coerceIn(1, bitmap.height)
+                    Palette.from(bitmap)
+                        .maximumColorCount(3)
+                        .clearFilters()
+                        .setRegion(0, 0, bitmap.width - 1, topHeight) /* - 1 to work around
+                        https://code.google.com/p/android/issues/detail?id=191013 */
+                        .generate { palette -> applyTopPalette(bitmap, palette) }
+                }
+
+                override fun onLoadCleared(placeholder: Drawable?) {}
+            })
+    }
+
     internal fun applyFullImagePalette(palette: Palette?) {
         // color the ripple on the image spacer (default is grey)
         binding.shotSpacer.background = ViewUtils.createRipple(
@@ -247,5 +303,8 @@ class ShotActivity : AppCompatActivity() {
 
     companion object {
         private const val SCRIM_ADJUSTMENT = 0.075f
+        private const val MAX_TRANSITION_DELAY_MS = 500L
+        // Palette scales bitmaps down to about this size anyway
+        private const val PALETTE_BITMAP_SIZE = 128
     }
 }
@@ -29,9 +29,11 @@ import io.plaidapp.core.dagger.scope.FeatureScope
 import io.plaidapp.core.data.pocket.PocketUtils
 import io.plaidapp.core.interfaces.SearchDataSourceFactory
 import io.plaidapp.core.interfaces.SearchDataSourceFactoryProvider
+import io.plaidapp.search.data.SearchResultsCache
 import io.plaidapp.search.ui.SearchActivity
 import io.plaidapp.search.ui.SearchViewModel
 import io.plaidapp.search.ui.SearchViewModelFactory
+import java.io.File
 import kotlin.reflect.full.createInstance
 
 @Module
@@ -90,6 +92,12 @@ abstract class SearchModule {
             }
         }
 
+        @JvmStatic
+        @Provides
+        @FeatureScope
+        fun searchResultsCache(context: Context): SearchResultsCache =
+            SearchResultsCache(File(context.cacheDir, "search_results"))
+
         @JvmStatic
         @Provides
         fun searchViewModel(
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2019 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.search.data
+
+import androidx.annotation.WorkerThread
+import io.plaidapp.core.data.FeedSnapshot
+import io.plaidapp.core.data.FeedSnapshotFormat
+import io.plaidapp.core.data.PlaidItem
+import java.io.BufferedOutputStream
+import java.io.DataOutputStream
+import java.io.File
+import java.io.IOException
+import java.nio.BufferUnderflowException
+import java.nio.ByteBuffer
+import java.security.MessageDigest
+import java.util.Locale
+import java.util.concurrent.TimeUnit
+
+/**
+ * On disk cache of search results, keyed by query. Every query is stored in its own file in
+ * [directory], using the [FeedSnapshotFormat], preceded by the time the results were saved.
+ *
+ * Results older than [timeToLiveMillis] are discarded when read. When more than [maxEntries]
+ * queries are cached, the least recently read or written ones are deleted.
+ */
+class SearchResultsCache(
+    private val directory: File,
+    private val maxEntries: Int = MAX_ENTRIES,
+    private val timeToLiveMillis: Long = TIME_TO_LIVE_MILLIS,
+    private val clock: () -> Long = System::currentTimeMillis
+) {
+
+    /**
+     * Returns the results cached for [query], or null if there are none or they expired.
+     */
+    @WorkerThread
+    @Synchronized
+    operator fun get(query: String): List<PlaidItem>? {
+        val file = fileFor(query)
+        if (!file.exists()) {
+            return null
+        }
+        val now = clock()
+        val items = try {
+            val buffer = ByteBuffer.wrap(file.readBytes())
+            val savedAt = buffer.long
+            if (now - savedAt > timeToLiveMillis) null else FeedSnapshotFormat.read(buffer)?.items
+        } catch (e: IOException) {
+            null
+        } catch (e: BufferUnderflowException) {
+            null
+        }
+        if (items == null) {
+            file.delete()
+        } else {
+            // the modification time orders the entries from least to most recently used
+            file.setLastModified(now)
+        }
+        return items
+    }
+
+    /**
+     * Caches the first [MAX_ITEMS_PER_ENTRY] of [items] as the results of [query].
+     */
+    @WorkerThread
+    @Synchronized
+    operator fun set(query: String, items: List<PlaidItem>) {
+        if (!directory.exists() && !directory.mkdirs()) {
+            return
+        }
+        val file = fileFor(query)
+        val tmpFile = File(directory, "${file.name}.tmp")
+        val now = clock()
+        try {
+            DataOutputStream(BufferedOutputStream(tmpFile.outputStream())).use {
+                it.writeLong(now)
+                FeedSnapshotFormat.write(FeedSnapshot(0, items.take(MAX_ITEMS_PER_ENTRY)), it)
+            }
+            if (tmpFile.renameTo(file)) {
+                file.setLastModified(now)
+            } else {
+                tmpFile.delete()
+            }
+        } catch (e: IOException) {
+            tmpFile.delete()
+        }
+        trimToSize()
+    }
+
+    @WorkerThread
+    @Synchronized
+    fun clear() {
+        directory.listFiles()?.forEach { it.delete() }
+    }
+
+    private fun trimToSize() {
+        val entries = directory.listFiles { file -> file.name.endsWith(SUFFIX) } ?: return
+        if (entries.size <= maxEntries) {
+            return
+        }
+        entries.sortedBy { it.lastModified() }
+            .take(entries.size - maxEntries)
+            .forEach { it.delete() }
+    }
+
+    private fun fileFor(query: String): File {
+        val key = query.trim().toLowerCase(Locale.ROOT)
+        val digest = MessageDigest.getInstance("SHA-1").digest(key.toByteArray())
+        return File(directory, digest.joinToString("") { "%02x".format(it) } + SUFFIX)
+    }
+
+    companion object {
+        const val MAX_ENTRIES = 30
+        const val MAX_ITEMS_PER_ENTRY = 100
+        val TIME_TO_LIVE_MILLIS = TimeUnit.HOURS.toMillis(1)
+
+        private const val SUFFIX = ".results"
+    }
+}
@@ -33,7 +33,7 @@ import kotlinx.coroutines.supervisorScope
  */
 class LoadSearchDataUseCase(
     factories: Set<SearchDataSourceFactory>,
-    query: String
+    val query: String
 ) {
 
     private val dataSources = factories.map { it.create(query) }
@@ -63,6 +63,8 @@ class LoadSearchDataUseCase(
     private fun handleNewList(newList: List<PlaidItem>) {
         val oldItems = _searchResult.value.orEmpty().toMutableList()
         val searchResult = getPlaidItemsForDisplay(oldItems, newList)
-        _searchResult.postValue(searchResult)
+        // sources are observed on the main thread, so the merged results are current as soon as
+        // a source's items are delivered
+        _searchResult.value = searchResult
     }
 }
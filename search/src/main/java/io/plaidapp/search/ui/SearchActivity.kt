@@ -53,9 +53,7 @@ import androidx.lifecycle.Observer
 import androidx.recyclerview.widget.GridLayoutManager
 import androidx.recyclerview.widget.RecyclerView
 import com.bumptech.glide.integration.recyclerview.RecyclerViewPreloader
-import com.bumptech.glide.util.ViewPreloadSizeProvider
 import io.plaidapp.core.dagger.qualifier.IsPocketInstalled
-import io.plaidapp.core.dribbble.data.api.model.Shot
 import io.plaidapp.core.feed.FeedAdapter
 import io.plaidapp.core.ui.expandPopularItems
 import io.plaidapp.core.ui.recyclerview.InfiniteScrollListener
@@ -145,8 +143,6 @@ class SearchActivity : AppCompatActivity() {
             }
         })
 
-        val shotPreloadSizeProvider = ViewPreloadSizeProvider<Shot>()
-
         setExitSharedElementCallback(FeedAdapter.createSharedElementReenterCallback(this))
         val layoutManager = GridLayoutManager(this, columns)
         layoutManager.spanSizeLookup = object : GridLayoutManager.SpanSizeLookup() {
@@ -154,7 +150,7 @@ class SearchActivity : AppCompatActivity() {
                 return feedAdapter.getItemColumnSpan(position)
             }
         }
-        val shotPreloader = RecyclerViewPreloader(this, feedAdapter, shotPreloadSizeProvider, 4)
+        val shotPreloader = RecyclerViewPreloader(this, feedAdapter, feedAdapter, 4)
 
         results.apply {
             this.adapter = feedAdapter
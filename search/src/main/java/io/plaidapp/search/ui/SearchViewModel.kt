@@ -27,9 +27,11 @@ import io.plaidapp.core.data.CoroutinesDispatcherProvider
 import io.plaidapp.core.data.PlaidItem
 import io.plaidapp.core.feed.FeedProgressUiModel
 import io.plaidapp.core.feed.FeedUiModel
+import io.plaidapp.search.data.SearchResultsCache
 import io.plaidapp.search.domain.LoadSearchDataUseCase
 import io.plaidapp.search.domain.SearchDataSourceFactoriesRegistry
 import kotlinx.coroutines.launch
+import kotlinx.coroutines.withContext
 
 /**
  * [ViewModel] for the [SearchActivity]. Works with the data manager to load data and prepares it
@@ -37,6 +39,7 @@ import kotlinx.coroutines.launch
  */
 class SearchViewModel(
     sourcesRegistry: SearchDataSourceFactoriesRegistry,
+    private val searchResultsCache: SearchResultsCache,
     private val dispatcherProvider: CoroutinesDispatcherProvider
 ) : ViewModel() {
 
@@ -46,17 +49,27 @@ class SearchViewModel(
 
     private val searchQuery = MutableLiveData<String>()
 
-    private val results: LiveData<List<PlaidItem>> = searchQuery.switchMap {
+    /**
+     * Emits the cached results of the query first, if any, until the results loaded from the data
+     * sources replace them. Those are cached in turn, once they're loaded.
+     */
+    private val results: LiveData<List<PlaidItem>> = searchQuery.switchMap { query ->
         liveData(viewModelScope.coroutineContext + dispatcherProvider.computation) {
-            loadSearchData = LoadSearchDataUseCase(factories, it)
+            val cachedResults = withContext(dispatcherProvider.io) { searchResultsCache[query] }
+            if (cachedResults != null) {
+                retainDisplayed(cachedResults)
+                emit(cachedResults)
+            }
+            loadSearchData = LoadSearchDataUseCase(factories, query)
             loadMore()
-            emitSource(loadSearchData!!.searchResult)
+            emitSource(loadSearchData!!.searchResult.map { items ->
+                retainDisplayed(items)
+                items
+            })
         }
     }
 
-    val searchResults: LiveData<FeedUiModel> = results.map {
-        FeedUiModel(it)
-    }
+    val searchResults: LiveData<FeedUiModel> = results.map { FeedUiModel(it) }
 
     private val _searchProgress = MutableLiveData<FeedProgressUiModel>()
     val searchProgress: LiveData<FeedProgressUiModel>
@@ -67,12 +80,41 @@ class SearchViewModel(
     }
 
     fun loadMore() = viewModelScope.launch(dispatcherProvider.computation) {
+        val loadSearchData = loadSearchData ?: return@launch
         _searchProgress.postValue(FeedProgressUiModel(true))
-        loadSearchData?.invoke()
+        loadSearchData()
         _searchProgress.postValue(FeedProgressUiModel(false))
+        cacheResults(loadSearchData)
     }
 
     fun clearResults() {
         loadSearchData = null
     }
+
+    override fun onCleared() {
+        factories.forEach { it.releaseDisplayed(this) }
+        super.onCleared()
+    }
+
+    /**
+     * Keeps the items displayed in the results openable, however many other items were loaded
+     * since.
+     */
+    private fun retainDisplayed(items: List<PlaidItem>) {
+        factories.forEach { factory -> factory.retainDisplayed(this, items) }
+    }
+
+    /**
+     * Caches the results of all the sources, merged, once they've all loaded.
+     */
+    private suspend fun cacheResults(loadSearchData: LoadSearchDataUseCase) {
+        // the sources post their items to the main thread, so read the merged results there, once
+        // the items posted while loading were delivered
+        val items = withContext(dispatcherProvider.main) { loadSearchData.searchResult.value }
+        if (items != null && loadSearchData == this.loadSearchData) {
+            withContext(dispatcherProvider.io) {
+                searchResultsCache[loadSearchData.query] = items
+            }
+        }
+    }
 }
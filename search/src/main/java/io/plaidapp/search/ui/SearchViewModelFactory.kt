@@ -19,6 +19,7 @@ package io.plaidapp.search.ui
 import androidx.lifecycle.ViewModel
 import androidx.lifecycle.ViewModelProvider
 import io.plaidapp.core.data.CoroutinesDispatcherProvider
+import io.plaidapp.search.data.SearchResultsCache
 import io.plaidapp.search.domain.SearchDataSourceFactoriesRegistry
 import javax.inject.Inject
 
@@ -27,6 +28,7 @@ import javax.inject.Inject
  */
 class SearchViewModelFactory @Inject constructor(
     private val registry: SearchDataSourceFactoriesRegistry,
+    private val searchResultsCache: SearchResultsCache,
     private val dispatcherProvider: CoroutinesDispatcherProvider
 ) : ViewModelProvider.Factory {
 
@@ -37,6 +39,7 @@ class SearchViewModelFactory @Inject constructor(
         }
         return SearchViewModel(
             registry,
+            searchResultsCache,
             dispatcherProvider
         ) as T
     }
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2019 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.search.data
+
+import io.plaidapp.search.shots
+import io.plaidapp.search.testShot1
+import io.plaidapp.search.testShot2
+import java.util.concurrent.TimeUnit
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+
+/**
+ * Tests for [SearchResultsCache] that use a temporary directory.
+ */
+class SearchResultsCacheTest {
+
+    @get:Rule
+    val temporaryFolder = TemporaryFolder()
+
+    // whole seconds, as some file systems don't store the milliseconds of the modification time
+    private var now = TimeUnit.DAYS.toMillis(1000)
+
+    private fun createCache(maxEntries: Int = 2) = SearchResultsCache(
+        temporaryFolder.root,
+        maxEntries = maxEntries,
+        timeToLiveMillis = TimeUnit.HOURS.toMillis(1),
+        clock = { now }
+    )
+
+    @Test
+    fun get_returnsCachedResults() {
+        // Given results cached for a query
+        val cache = createCache()
+        cache["Plaid"] = shots
+
+        // When getting the results of the same query, in a new cache instance
+        val results = createCache()[" plaid "]
+
+        // Then the cached results are returned
+        assertEquals(shots, results)
+    }
+
+    @Test
+    fun get_returnsNull_whenQueryNotCached() {
+        // Given results cached for a query
+        val cache = createCache()
+        cache["Plaid"] = shots
+
+        // When getting the results of another query
+        val results = cache["Material"]
+
+        // Then no results are returned
+        assertNull(results)
+    }
+
+    @Test
+    fun get_returnsNull_whenResultsExpired() {
+        // Given results cached for a query
+        val cache = createCache()
+        cache["Plaid"] = shots
+        // And the time to live passed
+        now += TimeUnit.HOURS.toMillis(2)
+
+        // When getting the results of the query
+        val results = cache["Plaid"]
+
+        // Then no results are returned
+        assertNull(results)
+    }
+
+    @Test
+    fun set_evictsLeastRecentlyUsedQuery() {
+        // Given a cache of 2 entries, holding results for 2 queries
+        val cache = createCache(maxEntries = 2)
+        cache["Plaid"] = listOf(testShot1)
+        now += 1000
+        cache["Material"] = listOf(testShot2)
+        now += 1000
+        // And the first query was used last
+        cache["Plaid"]
+        now += 1000
+
+        // When caching the results of a third query
+        cache["Android"] = shots
+
+        // Then the least recently used query was evicted
+        assertNull(cache["Material"])
+        assertEquals(listOf(testShot1), cache["Plaid"])
+        assertEquals(shots, cache["Android"])
+    }
+}
@@ -17,16 +17,21 @@
 package io.plaidapp.search.ui
 
 import androidx.arch.core.executor.testing.InstantTaskExecutorRule
+import com.nhaarman.mockitokotlin2.argumentCaptor
+import com.nhaarman.mockitokotlin2.eq
 import com.nhaarman.mockitokotlin2.mock
+import com.nhaarman.mockitokotlin2.verify
 import com.nhaarman.mockitokotlin2.whenever
 import io.plaidapp.core.data.PlaidItem
 import io.plaidapp.core.data.Result
 import io.plaidapp.core.data.SourceItem
 import io.plaidapp.core.interfaces.PlaidDataSource
 import io.plaidapp.core.interfaces.SearchDataSourceFactory
+import io.plaidapp.search.data.SearchResultsCache
 import io.plaidapp.search.domain.SearchDataSourceFactoriesRegistry
 import io.plaidapp.search.shots
 import io.plaidapp.search.testShot1
+import io.plaidapp.search.testShot2
 import io.plaidapp.test.shared.MainCoroutineRule
 import io.plaidapp.test.shared.getOrAwaitValue
 import io.plaidapp.test.shared.provideFakeCoroutinesDispatcherProvider
@@ -54,6 +59,7 @@ class SearchViewModelTest {
 
     private val factory = FakeSearchDataSourceFactory()
     private val registry: SearchDataSourceFactoriesRegistry = mock()
+    private val searchResultsCache: SearchResultsCache = mock()
 
     @Before
     fun setup() {
@@ -68,7 +74,7 @@ class SearchViewModelTest {
         // And an expected success result
         val result = Result.Success(shots)
         factory.dataSource.result = result
-        val viewModel = SearchViewModel(registry,
+        val viewModel = SearchViewModel(registry, searchResultsCache,
             provideFakeCoroutinesDispatcherProvider(coroutinesRule.testDispatcher))
 
         // When searching for the query
@@ -83,7 +89,7 @@ class SearchViewModelTest {
     fun loadMore_loadsInDataManager() = coroutinesRule.runBlocking {
         // Given a query
         val query = "Plaid"
-        val viewModel = SearchViewModel(registry,
+        val viewModel = SearchViewModel(registry, searchResultsCache,
             provideFakeCoroutinesDispatcherProvider(coroutinesRule.testDispatcher))
         // And a search for the query
         viewModel.searchFor(query)
@@ -98,17 +104,104 @@ class SearchViewModelTest {
         val results = viewModel.searchResults.getOrAwaitValue()
         assertEquals(results.items, moreResult.data)
     }
+
+    @Test
+    fun searchFor_emitsCachedResults_beforeLoadedResults() = coroutinesRule.runBlocking {
+        // Given a query with cached results
+        val query = "Plaid"
+        whenever(searchResultsCache[query]).thenReturn(listOf(testShot2))
+        // And an expected success result
+        factory.dataSource.result = Result.Success(shots)
+        val viewModel = SearchViewModel(registry, searchResultsCache,
+            provideFakeCoroutinesDispatcherProvider(coroutinesRule.testDispatcher))
+        val emitted = mutableListOf<List<PlaidItem>>()
+        viewModel.searchResults.observeForever { emitted += it.items }
+
+        // When searching for the query
+        viewModel.searchFor(query)
+
+        // Then the cached results are emitted first, and then replaced by the loaded results
+        assertEquals(listOf(listOf(testShot2), shots), emitted)
+    }
+
+    @Test
+    fun searchFor_cachesLoadedResults() = coroutinesRule.runBlocking {
+        // Given a query
+        val query = "Plaid"
+        // And an expected success result
+        factory.dataSource.result = Result.Success(shots)
+        val viewModel = SearchViewModel(registry, searchResultsCache,
+            provideFakeCoroutinesDispatcherProvider(coroutinesRule.testDispatcher))
+
+        // When searching for the query
+        viewModel.searchFor(query)
+        viewModel.searchResults.getOrAwaitValue()
+
+        // Then the loaded results are cached
+        verify(searchResultsCache).set(query, shots)
+    }
+
+    @Test
+    fun searchFor_cachesMergedResultsOfAllSources() = coroutinesRule.runBlocking {
+        // Given a query
+        val query = "Plaid"
+        // And two sources, each with a result
+        val otherFactory = FakeSearchDataSourceFactory()
+        whenever(registry.dataSourceFactories).thenReturn(setOf(factory, otherFactory))
+        factory.dataSource.result = Result.Success(listOf(testShot1))
+        otherFactory.dataSource.result = Result.Success(listOf(testShot2))
+        val viewModel = SearchViewModel(registry, searchResultsCache,
+            provideFakeCoroutinesDispatcherProvider(coroutinesRule.testDispatcher))
+
+        // When searching for the query
+        viewModel.searchResults.observeForever { }
+        viewModel.searchFor(query)
+
+        // Then the results are cached once, with the results of both sources
+        val cached = argumentCaptor<List<PlaidItem>>()
+        verify(searchResultsCache).set(eq(query), cached.capture())
+        assertEquals(setOf(testShot1, testShot2), cached.firstValue.toSet())
+    }
+
+    @Test
+    fun searchFor_cachedResultsRetainedBeforeEmitted() = coroutinesRule.runBlocking {
+        // Given a query with cached results
+        val query = "Plaid"
+        whenever(searchResultsCache[query]).thenReturn(listOf(testShot2))
+        val viewModel = SearchViewModel(registry, searchResultsCache,
+            provideFakeCoroutinesDispatcherProvider(coroutinesRule.testDispatcher))
+        val retained = mutableListOf<List<PlaidItem>?>()
+        viewModel.searchResults.observeForever { retained += factory.displayedItems[viewModel] }
+
+        // When searching for the query
+        viewModel.searchFor(query)
+
+        // Then the cached results can be opened as soon as they're emitted
+        assertEquals(listOf(testShot2), retained.first())
+    }
 }
 
 val sourceItem = object : SourceItem(
     "id", "query", 100, "name", 0, true, true
-) {}
+) {
+    override fun withActive(active: Boolean) = this
+}
 
 class FakeSearchDataSourceFactory : SearchDataSourceFactory {
     var dataSource = FakeDataSource()
+    val displayedItems = mutableMapOf<Any, List<PlaidItem>>()
+
     override fun create(query: String): PlaidDataSource {
         return dataSource
     }
+
+    override fun retainDisplayed(owner: Any, items: List<PlaidItem>) {
+        displayedItems[owner] = items
+    }
+
+    override fun releaseDisplayed(owner: Any) {
+        displayedItems.remove(owner)
+    }
 }
 
 class FakeDataSource : PlaidDataSource(sourceItem) {
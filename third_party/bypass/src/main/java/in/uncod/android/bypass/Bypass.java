@@ -20,8 +20,11 @@ import android.util.DisplayMetrics;
 import android.util.Patterns;
 import android.util.TypedValue;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 import in.uncod.android.bypass.Element.Type;
 import in.uncod.android.bypass.style.FancyQuoteSpan;
@@ -45,10 +48,6 @@ public class Bypass implements Markdown {
 
     private final int mHruleTopBottomPadding;
 
-    // Keeps track of the ordered list number for each LIST element.
-    // We need to track multiple ordered lists at once because of nesting.
-    private final Map<Element, Integer> mOrderedListNumber = new ConcurrentHashMap<Element, Integer>();
-
     public Bypass(DisplayMetrics displayMetrics, Options options) {
         mOptions = options;
 
@@ -73,22 +72,23 @@ public class Bypass implements Markdown {
         mHruleTopBottomPadding = (int) displayMetrics.density * 10;
     }
 
-    private static void setSpan(SpannableStringBuilder builder, Object what) {
-        builder.setSpan(what, 0, builder.length(), Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
+    // Spans cover the whole of an element, from start to end
+    private static void setSpan(List<SpanRecord> spans, int start, int end, Object what) {
+        spans.add(new SpanRecord(what, start, end));
     }
 
     // These have trailing newlines that we want to avoid spanning
-    private static void setBlockSpan(SpannableStringBuilder builder, Object what) {
-        int length = Math.max(0, builder.length() - 1);
-        builder.setSpan(what, 0, length, Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
+    private static void setBlockSpan(List<SpanRecord> spans, int start, int end, Object what) {
+        spans.add(new SpanRecord(what, start, start + Math.max(0, end - start - 1)));
     }
 
-    private static void setSpanWithPrependedNewline(SpannableStringBuilder builder, Object what) {
-        builder.setSpan(what, 1, builder.length(), Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
+    private static void setSpanWithPrependedNewline(List<SpanRecord> spans, int start, int end,
+            Object what) {
+        spans.add(new SpanRecord(what, start + 1, end));
     }
 
-    private static void setPrependedNewlineSpan(SpannableStringBuilder builder, int height) {
-        builder.setSpan(new AbsoluteSizeSpan(height, true), 0, 1, Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
+    private static void setPrependedNewlineSpan(List<SpanRecord> spans, int start, int height) {
+        spans.add(new SpanRecord(new AbsoluteSizeSpan(height, true), start, start + 1));
     }
 
     @NonNull
@@ -98,13 +98,30 @@ public class Bypass implements Markdown {
                                             int highlightColor,
                                             @Nullable LoadImageCallback loadImageCallback) {
         Document document = processMarkdown(markdown);
+        RenderContext context = new RenderContext(linksColors, highlightColor, loadImageCallback);
 
         int size = document.getElementCount();
+
+        if (mOptions.mSingleBuilderRendering) {
+            SpannableStringBuilder builder = new SpannableStringBuilder();
+            RenderedElement[] elements = new RenderedElement[size];
+            for (int i = 0; i < size; i++) {
+                elements[i] = renderElement(builder, context, document.getElement(i), i, size);
+            }
+            List<SpanRecord> spans = new ArrayList<>();
+            for (RenderedElement element : elements) {
+                element.addSpansInGetSpansOrder(spans);
+            }
+            for (SpanRecord span : spans) {
+                builder.setSpan(span.what, span.start, span.end, Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
+            }
+            return builder;
+        }
+
         CharSequence[] spans = new CharSequence[size];
 
         for (int i = 0; i < size; i++) {
-            spans[i] = recurseElement(document.getElement(i), i, size, linksColors, highlightColor,
-                    loadImageCallback);
+            spans[i] = recurseElement(context, document.getElement(i), i, size);
         }
 
         return TextUtils.concat(spans);
@@ -116,52 +133,108 @@ public class Bypass implements Markdown {
     // the 'element' parameter, as in "How many siblings are you?" rather than "How many siblings do
     // you have?".
     private CharSequence recurseElement(
+            RenderContext context,
             Element element,
             int indexWithinParent,
-            int numberOfSiblings,
-            ColorStateList linksColors,
-            int highlightColor,
-            LoadImageCallback loadImageCallback) {
-
-        Type type = element.getType();
+            int numberOfSiblings) {
 
-        boolean isOrderedList = false;
-        if (type == Type.LIST) {
-            String flagsStr = element.getAttribute("flags");
-            if (flagsStr != null) {
-                int flags = Integer.parseInt(flagsStr);
-                isOrderedList = (flags & Element.F_LIST_ORDERED) != 0;
-                if (isOrderedList) {
-                    mOrderedListNumber.put(element, 1);
-                }
-            }
-        }
+        boolean isOrderedList = startList(context, element);
 
         int size = element.size();
         CharSequence[] spans = new CharSequence[size];
 
         for (int i = 0; i < size; i++) {
-            spans[i] = recurseElement(element.children[i], i, size, linksColors,
-                    highlightColor, loadImageCallback);
+            spans[i] = recurseElement(context, element.children[i], i, size);
         }
 
         // Clean up after we're done
         if (isOrderedList) {
-            mOrderedListNumber.remove(this);
+            context.orderedListNumber.remove(element);
         }
 
         CharSequence concat = TextUtils.concat(spans);
 
         SpannableStringBuilder builder = new ReverseSpannableStringBuilder();
 
+        appendPrefix(builder, context, element);
+        builder.append(getText(element));
+        builder.append(concat);
+        appendSuffix(builder, element, indexWithinParent, numberOfSiblings);
+
+        List<SpanRecord> elementSpans = new ArrayList<>();
+        addSpans(elementSpans, context, element, 0, builder.length());
+        for (SpanRecord span : elementSpans) {
+            builder.setSpan(span.what, span.start, span.end, Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
+        }
+
+        return builder;
+    }
+
+    /**
+     * Appends the text of [element] and its children to [builder], and records the spans to set
+     * over it. This produces the same text and spans as {@link #recurseElement}, which builds every
+     * element in its own builder and concatenates them, but without copying text and spans at
+     * every level of the tree.
+     */
+    private RenderedElement renderElement(
+            SpannableStringBuilder builder,
+            RenderContext context,
+            Element element,
+            int indexWithinParent,
+            int numberOfSiblings) {
+
+        boolean isOrderedList = startList(context, element);
+
+        int start = builder.length();
+        appendPrefix(builder, context, element);
+        builder.append(getText(element));
+
+        int size = element.size();
+        RenderedElement[] children = new RenderedElement[size];
+        for (int i = 0; i < size; i++) {
+            children[i] = renderElement(builder, context, element.children[i], i, size);
+        }
+
+        if (isOrderedList) {
+            context.orderedListNumber.remove(element);
+        }
+
+        appendSuffix(builder, element, indexWithinParent, numberOfSiblings);
+
+        RenderedElement rendered = new RenderedElement(children);
+        addSpans(rendered.spans, context, element, start, builder.length());
+        return rendered;
+    }
+
+    private static boolean startList(RenderContext context, Element element) {
+        if (element.getType() == Type.LIST) {
+            String flagsStr = element.getAttribute("flags");
+            if (flagsStr != null) {
+                int flags = Integer.parseInt(flagsStr);
+                if ((flags & Element.F_LIST_ORDERED) != 0) {
+                    context.orderedListNumber.put(element, 1);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static String getText(Element element) {
         String text = element.getText();
         if (element.size() == 0
                 && element.getParent() != null
                 && element.getParent().getType() != Type.BLOCK_CODE) {
             text = text.replace('\n', ' ');
         }
+        return text;
+    }
 
-        switch (type) {
+    private void appendPrefix(
+            SpannableStringBuilder builder,
+            RenderContext context,
+            Element element) {
+        switch (element.getType()) {
             case LIST:
                 if (element.getParent() != null
                         && element.getParent().getType() == Type.LIST_ITEM) {
@@ -173,10 +246,10 @@ public class Bypass implements Markdown {
                 break;
             case LIST_ITEM:
                 builder.append(" ");
-                if (mOrderedListNumber.containsKey(element.getParent())) {
-                    int number = mOrderedListNumber.get(element.getParent());
+                Integer number = context.orderedListNumber.get(element.getParent());
+                if (number != null) {
                     builder.append(Integer.toString(number) + ".");
-                    mOrderedListNumber.put(element.getParent(), number + 1);
+                    context.orderedListNumber.put(element.getParent(), number + 1);
                 } else {
                     builder.append(mOptions.mUnorderedListItem);
                 }
@@ -191,7 +264,8 @@ public class Bypass implements Markdown {
                 builder.append("-");
                 break;
             case IMAGE:
-                if (loadImageCallback != null && !TextUtils.isEmpty(element.getAttribute("link"))) {
+                if (context.loadImageCallback != null
+                        && !TextUtils.isEmpty(element.getAttribute("link"))) {
                     // prepend a new line so that images are always on a new line
                     builder.append("\n");
                     // Display alt text (or title text) if there is no image
@@ -212,10 +286,14 @@ public class Bypass implements Markdown {
                 }
                 break;
         }
+    }
 
-        builder.append(text);
-        builder.append(concat);
-
+    private static void appendSuffix(
+            SpannableStringBuilder builder,
+            Element element,
+            int indexWithinParent,
+            int numberOfSiblings) {
+        Type type = element.getType();
         // Don't auto-append whitespace after last item in document. The 'numberOfSiblings'
         // is the number of children the parent of the current element has (including the
         // element itself), hence subtracting a number from that count gives us the index
@@ -240,32 +318,40 @@ public class Bypass implements Markdown {
                 }
             }
         }
+    }
 
-        switch (type) {
+    // Records the spans of an element spanning from start to end, in the order they're to be set
+    private void addSpans(
+            List<SpanRecord> spans,
+            RenderContext context,
+            Element element,
+            int start,
+            int end) {
+        switch (element.getType()) {
             case HEADER:
                 String levelStr = element.getAttribute("level");
                 int level = Integer.parseInt(levelStr);
-                setSpan(builder, new RelativeSizeSpan(mOptions.mHeaderSizes[level - 1]));
-                setSpan(builder, new StyleSpan(Typeface.BOLD));
+                setSpan(spans, start, end, new RelativeSizeSpan(mOptions.mHeaderSizes[level - 1]));
+                setSpan(spans, start, end, new StyleSpan(Typeface.BOLD));
                 break;
             case LIST:
-                setBlockSpan(builder, new LeadingMarginSpan.Standard(mListItemIndent));
+                setBlockSpan(spans, start, end, new LeadingMarginSpan.Standard(mListItemIndent));
                 break;
             case EMPHASIS:
-                setSpan(builder, new StyleSpan(Typeface.ITALIC));
+                setSpan(spans, start, end, new StyleSpan(Typeface.ITALIC));
                 break;
             case DOUBLE_EMPHASIS:
-                setSpan(builder, new StyleSpan(Typeface.BOLD));
+                setSpan(spans, start, end, new StyleSpan(Typeface.BOLD));
                 break;
             case TRIPLE_EMPHASIS:
-                setSpan(builder, new StyleSpan(Typeface.BOLD_ITALIC));
+                setSpan(spans, start, end, new StyleSpan(Typeface.BOLD_ITALIC));
                 break;
             case BLOCK_CODE:
-                setSpan(builder, new LeadingMarginSpan.Standard(mCodeBlockIndent));
-                setSpan(builder, new TypefaceSpan("monospace"));
+                setSpan(spans, start, end, new LeadingMarginSpan.Standard(mCodeBlockIndent));
+                setSpan(spans, start, end, new TypefaceSpan("monospace"));
                 break;
             case CODE_SPAN:
-                setSpan(builder, new TypefaceSpan("monospace"));
+                setSpan(spans, start, end, new TypefaceSpan("monospace"));
                 break;
             case LINK:
             case AUTOLINK:
@@ -273,40 +359,108 @@ public class Bypass implements Markdown {
                 if (!TextUtils.isEmpty(link) && Patterns.EMAIL_ADDRESS.matcher(link).matches()) {
                     link = "mailto:" + link;
                 }
-                setSpan(builder, new TouchableUrlSpan(link, linksColors, highlightColor));
+                setSpan(spans, start, end, new TouchableUrlSpan(link, context.linksColors,
+                        context.highlightColor));
                 break;
             case BLOCK_QUOTE:
                 // We add two leading margin spans so that when the order is reversed,
                 // the QuoteSpan will always be in the same spot.
-                setBlockSpan(builder, new LeadingMarginSpan.Standard(mBlockQuoteIndent));
-                //setBlockSpan(builder, new QuoteSpan(mOptions.mBlockQuoteLineColor));
-                setBlockSpan(builder, new FancyQuoteSpan(mBlockQuoteLineWidth, mBlockQuoteLineIndent, mOptions.mBlockQuoteLineColor));
-                setBlockSpan(builder, new ForegroundColorSpan(mOptions.mBlockQuoteTextColor));
-                setBlockSpan(builder, new LeadingMarginSpan.Standard(mBlockQuoteIndent));
-                setBlockSpan(builder, new StyleSpan(Typeface.ITALIC));
+                setBlockSpan(spans, start, end, new LeadingMarginSpan.Standard(mBlockQuoteIndent));
+                //setBlockSpan(spans, start, end, new QuoteSpan(mOptions.mBlockQuoteLineColor));
+                setBlockSpan(spans, start, end, new FancyQuoteSpan(mBlockQuoteLineWidth, mBlockQuoteLineIndent, mOptions.mBlockQuoteLineColor));
+                setBlockSpan(spans, start, end, new ForegroundColorSpan(mOptions.mBlockQuoteTextColor));
+                setBlockSpan(spans, start, end, new LeadingMarginSpan.Standard(mBlockQuoteIndent));
+                setBlockSpan(spans, start, end, new StyleSpan(Typeface.ITALIC));
                 break;
             case STRIKETHROUGH:
-                setSpan(builder, new StrikethroughSpan());
+                setSpan(spans, start, end, new StrikethroughSpan());
                 break;
             case HRULE:
-                setSpan(builder, new HorizontalLineSpan(mOptions.mHruleColor, mHruleSize, mHruleTopBottomPadding));
+                setSpan(spans, start, end, new HorizontalLineSpan(mOptions.mHruleColor, mHruleSize, mHruleTopBottomPadding));
                 break;
             case IMAGE:
                 String url = element.getAttribute("link");
-                if (loadImageCallback != null && !TextUtils.isEmpty(url)) {
-                    setPrependedNewlineSpan(builder, mOptions.mPreImageLinebreakHeight);
-                    ImageLoadingSpan loadingSpan = new ImageLoadingSpan();
-                    setSpanWithPrependedNewline(builder, loadingSpan);
+                if (context.loadImageCallback != null && !TextUtils.isEmpty(url)) {
+                    setPrependedNewlineSpan(spans, start, mOptions.mPreImageLinebreakHeight);
+                    ImageLoadingSpan loadingSpan = new ImageLoadingSpan(url);
+                    setSpanWithPrependedNewline(spans, start, end, loadingSpan);
                     // make the (eventually loaded) image span clickable to open in browser
-                    setSpanWithPrependedNewline(builder, new TouchableUrlSpan(url,
-                            linksColors,
-                            highlightColor));
-                    loadImageCallback.loadImage(url, loadingSpan);
+                    setSpanWithPrependedNewline(spans, start, end, new TouchableUrlSpan(url,
+                            context.linksColors,
+                            context.highlightColor));
+                    context.loadImageCallback.loadImage(url, loadingSpan);
                 }
                 break;
         }
+    }
 
-        return builder;
+    /**
+     * The state of a single call to {@link #markdownToSpannable}. Nothing else that rendering
+     * changes is kept in a Bypass, so one can render any number of documents at once.
+     */
+    private static final class RenderContext {
+        final ColorStateList linksColors;
+        final int highlightColor;
+        @Nullable
+        final LoadImageCallback loadImageCallback;
+
+        // Keeps track of the ordered list number for each LIST element.
+        // We need to track multiple ordered lists at once because of nesting.
+        final Map<Element, Integer> orderedListNumber = new HashMap<>();
+
+        RenderContext(ColorStateList linksColors, int highlightColor,
+                @Nullable LoadImageCallback loadImageCallback) {
+            this.linksColors = linksColors;
+            this.highlightColor = highlightColor;
+            this.loadImageCallback = loadImageCallback;
+        }
+    }
+
+    private static final class SpanRecord {
+        final Object what;
+        final int start;
+        final int end;
+
+        SpanRecord(Object what, int start, int end) {
+            this.what = what;
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    /**
+     * The spans of an element and of its children, rendered into a shared builder.
+     * <p>
+     * When every element had its own {@link ReverseSpannableStringBuilder}, its spans were those
+     * copied from its children, in the order each child's builder returned them, followed by its
+     * own. Its builder then returned them in reverse. Setting the spans in the same order means
+     * {@link android.text.Spanned#getSpans} returns them in the same order too.
+     */
+    private static final class RenderedElement {
+        final List<SpanRecord> spans = new ArrayList<>();
+        final RenderedElement[] children;
+
+        RenderedElement(RenderedElement[] children) {
+            this.children = children;
+        }
+
+        // The order the element's own builder returned its spans in
+        void addSpansInGetSpansOrder(List<SpanRecord> out) {
+            for (int i = spans.size() - 1; i >= 0; i--) {
+                out.add(spans.get(i));
+            }
+            for (int i = children.length - 1; i >= 0; i--) {
+                children[i].addSpansInInsertionOrder(out);
+            }
+        }
+
+        // The order spans were set on the element's own builder
+        void addSpansInInsertionOrder(List<SpanRecord> out) {
+            for (RenderedElement child : children) {
+                child.addSpansInGetSpansOrder(out);
+            }
+            out.addAll(spans);
+        }
     }
 
     /**
@@ -335,6 +489,8 @@ public class Bypass implements Markdown {
         private int mHruleUnit;
         private float mHruleSize;
 
+        private boolean mSingleBuilderRendering;
+
         public Options() {
             mHeaderSizes = new float[]{
                     1.5f, // h1
@@ -361,6 +517,8 @@ public class Bypass implements Markdown {
             mHruleColor = Color.GRAY;
             mHruleUnit = TypedValue.COMPLEX_UNIT_DIP;
             mHruleSize = 1;
+
+            mSingleBuilderRendering = true;
         }
 
         public Options setHeaderSizes(float[] headerSizes) {
@@ -433,5 +591,57 @@ public class Bypass implements Markdown {
             mHruleSize = size;
             return this;
         }
+
+        /**
+         * Whether to render into a single builder, rather than building each element on its own and
+         * concatenating them. Both produce the same text and spans; rendering into a single builder
+         * avoids copying them at every level of nesting, so it is the default.
+         */
+        public Options setSingleBuilderRendering(boolean singleBuilderRendering) {
+            mSingleBuilderRendering = singleBuilderRendering;
+            return this;
+        }
+
+        // Options are compared so that markdown rendered with equal options can be reused. The
+        // rendering strategy is left out as it doesn't change the output.
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Options)) return false;
+            Options other = (Options) o;
+            return Arrays.equals(mHeaderSizes, other.mHeaderSizes)
+                    && TextUtils.equals(mUnorderedListItem, other.mUnorderedListItem)
+                    && mListItemIndentUnit == other.mListItemIndentUnit
+                    && mListItemIndentSize == other.mListItemIndentSize
+                    && mBlockQuoteLineColor == other.mBlockQuoteLineColor
+                    && mBlockQuoteTextColor == other.mBlockQuoteTextColor
+                    && mBlockQuoteLineWidth == other.mBlockQuoteLineWidth
+                    && mBlockQuoteLineIndent == other.mBlockQuoteLineIndent
+                    && mBlockQuoteIndentUnit == other.mBlockQuoteIndentUnit
+                    && mBlockQuoteIndentSize == other.mBlockQuoteIndentSize
+                    && mPreImageLinebreakHeight == other.mPreImageLinebreakHeight
+                    && mCodeBlockIndentUnit == other.mCodeBlockIndentUnit
+                    && mCodeBlockIndentSize == other.mCodeBlockIndentSize
+                    && mHruleColor == other.mHruleColor
+                    && mHruleUnit == other.mHruleUnit
+                    && mHruleSize == other.mHruleSize;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = Arrays.hashCode(mHeaderSizes);
+            result = 31 * result + (mUnorderedListItem != null ? mUnorderedListItem.hashCode() : 0);
+            result = 31 * result + Float.floatToIntBits(mListItemIndentSize);
+            result = 31 * result + mBlockQuoteLineColor;
+            result = 31 * result + mBlockQuoteTextColor;
+            result = 31 * result + mBlockQuoteLineWidth;
+            result = 31 * result + mBlockQuoteLineIndent;
+            result = 31 * result + Float.floatToIntBits(mBlockQuoteIndentSize);
+            result = 31 * result + mPreImageLinebreakHeight;
+            result = 31 * result + Float.floatToIntBits(mCodeBlockIndentSize);
+            result = 31 * result + mHruleColor;
+            result = 31 * result + Float.floatToIntBits(mHruleSize);
+            return result;
+        }
     }
 }
@@ -21,9 +21,23 @@ import android.text.style.CharacterStyle;
 
 /**
  * A simple text span used to mark text that will be replaced by an image once it has been
- * downloaded. See {@link in.uncod.android.bypass.Bypass.LoadImageCallback}
+ * downloaded. See {@link in.uncod.android.bypass.LoadImageCallback}
  */
 public class ImageLoadingSpan extends CharacterStyle {
+
+    private final String mUrl;
+
+    public ImageLoadingSpan(String url) {
+        mUrl = url;
+    }
+
+    /**
+     * The url of the image, so it can be loaded again when the text is shown in another view.
+     */
+    public String getUrl() {
+        return mUrl;
+    }
+
     @Override
     public void updateDrawState(TextPaint textPaint) {
         // no-op